@@ -0,0 +1,82 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.phoenix.end2end;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+
+import org.apache.phoenix.iterate.ColumnarBatch;
+import org.apache.phoenix.iterate.ColumnarBatchIterator;
+import org.apache.phoenix.jdbc.PhoenixStatement;
+import org.junit.Test;
+
+public class ColumnarQueryIT extends ParallelStatsDisabledIT {
+
+    @Test
+    public void testColumnarQuery() throws Exception {
+        String tableName = generateUniqueName();
+        try (Connection conn = DriverManager.getConnection(getUrl())) {
+            conn.createStatement().execute("CREATE TABLE " + tableName
+                    + " (k INTEGER NOT NULL PRIMARY KEY, d DOUBLE, v VARCHAR) SALT_BUCKETS=4");
+            PreparedStatement stmt = conn.prepareStatement("UPSERT INTO " + tableName + " VALUES(?, ?, ?)");
+            int rowCount = 1000;
+            for (int i = 0; i < rowCount; i++) {
+                stmt.setInt(1, i);
+                if (i % 10 == 0) {
+                    stmt.setNull(2, java.sql.Types.DOUBLE);
+                } else {
+                    stmt.setDouble(2, i / 2.0);
+                }
+                stmt.setString(3, "v" + i);
+                stmt.execute();
+            }
+            conn.commit();
+
+            PhoenixStatement statement = conn.createStatement().unwrap(PhoenixStatement.class);
+            long keySum = 0;
+            int count = 0;
+            ColumnarBatchIterator batches = statement.executeColumnarQuery(
+                    "SELECT k, d, v FROM " + tableName + " WHERE k >= 10", 64);
+            try {
+                assertEquals(3, batches.getColumnCount());
+                ColumnarBatch batch;
+                while ((batch = batches.next()) != null) {
+                    assertTrue(batch.getRowCount() <= 64);
+                    for (int row = 0; row < batch.getRowCount(); row++) {
+                        long k = batch.getLong(0, row);
+                        assertEquals(k % 10 == 0, batch.isNull(1, row));
+                        if (k % 10 != 0) {
+                            assertEquals(k / 2.0, batch.getDouble(1, row), 0);
+                        }
+                        assertEquals("v" + k, batch.getObject(2, row));
+                        keySum += k;
+                        count++;
+                    }
+                }
+            } finally {
+                batches.close();
+            }
+            assertEquals(rowCount - 10, count);
+            assertEquals((long) rowCount * (rowCount - 1) / 2 - 45, keySum);
+        }
+    }
+}
@@ -29,8 +29,10 @@ import java.sql.Connection;
 import java.sql.DriverManager;
 import java.sql.ResultSet;
 import java.sql.Statement;
+import java.util.List;
 import java.util.Map;
 
+import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
 import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.fs.FSDataOutputStream;
@@ -38,6 +40,9 @@ import org.apache.hadoop.fs.FileSystem;
 import org.apache.hadoop.fs.Path;
 import org.apache.hadoop.hbase.HConstants;
 import org.apache.hadoop.mapred.FileAlreadyExistsException;
+import org.apache.hadoop.mapred.LocalJobRunner;
+import org.apache.hadoop.mapreduce.Job;
+import org.apache.hadoop.mapreduce.MRConfig;
 import org.apache.phoenix.jdbc.PhoenixConnection;
 import org.apache.phoenix.mapreduce.CsvBulkLoadTool;
 import org.apache.phoenix.query.QueryServices;
@@ -101,6 +106,58 @@ public class CsvBulkLoadToolIT extends BaseOwnClusterIT {
         rs.close();
         stmt.close();
     }
+
+    @Test
+    public void testLocalImport() throws Exception {
+
+        Statement stmt = conn.createStatement();
+        stmt.execute("CREATE TABLE S.LOCAL_TABLE (ID INTEGER NOT NULL PRIMARY KEY, NAME VARCHAR) SPLIT ON (10,20)");
+
+        FileSystem fs = FileSystem.get(getUtility().getConfiguration());
+        for (int file = 0; file < 3; file++) {
+            FSDataOutputStream outputStream = fs.create(new Path("/tmp/local_input" + file + ".csv"));
+            PrintWriter printWriter = new PrintWriter(outputStream);
+            for (int i = file * 10; i < (file + 1) * 10; i++) {
+                printWriter.println(i + ",Name " + i);
+            }
+            printWriter.close();
+        }
+
+        final List<Job> jobs = Lists.newArrayList();
+        CsvBulkLoadTool csvBulkLoadTool = new CsvBulkLoadTool() {
+            @Override
+            protected void setupJob(Job job) {
+                super.setupJob(job);
+                jobs.add(job);
+            }
+        };
+        csvBulkLoadTool.setConf(new Configuration(getUtility().getConfiguration()));
+        int exitCode = csvBulkLoadTool.run(new String[] {
+                "--input", "/tmp/local_input0.csv,/tmp/local_input1.csv,/tmp/local_input2.csv",
+                "--table", "local_table",
+                "--schema", "s",
+                "--local", "3",
+                "--zookeeper", zkQuorum});
+        assertEquals(0, exitCode);
+        // The job ran in this process with the local job runner, which names its jobs job_local*
+        assertEquals(1, jobs.size());
+        Job job = jobs.get(0);
+        assertEquals(MRConfig.LOCAL_FRAMEWORK_NAME, job.getConfiguration().get(MRConfig.FRAMEWORK_NAME));
+        assertTrue(job.getJobID().toString(), job.getJobID().toString().startsWith("job_local"));
+        assertEquals(3, job.getConfiguration().getInt(LocalJobRunner.LOCAL_MAX_MAPS, 1));
+
+        ResultSet rs = stmt.executeQuery("SELECT id, name FROM s.local_table ORDER BY id");
+        for (int i = 0; i < 30; i++) {
+            assertTrue(rs.next());
+            assertEquals(i, rs.getInt(1));
+            assertEquals("Name " + i, rs.getString(2));
+        }
+        assertFalse(rs.next());
+
+        rs.close();
+        stmt.close();
+    }
+
     @Test
     public void testImportWithRowTimestamp() throws Exception {
 
@@ -0,0 +1,185 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.phoenix.end2end;
+
+import static org.apache.phoenix.mapreduce.index.PhoenixIndexToolJobCounters.BEFORE_REBUILD_INVALID_INDEX_ROW_COUNT;
+import static org.apache.phoenix.mapreduce.index.PhoenixIndexToolJobCounters.BEFORE_REBUILD_MISSING_INDEX_ROW_COUNT;
+import static org.apache.phoenix.mapreduce.index.PhoenixIndexToolJobCounters.BEFORE_REBUILD_VALID_INDEX_ROW_COUNT;
+import static org.apache.phoenix.mapreduce.index.PhoenixIndexToolJobCounters.SCANNED_DATA_ROW_COUNT;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.Types;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.hadoop.hbase.client.Delete;
+import org.apache.hadoop.hbase.client.Result;
+import org.apache.hadoop.hbase.client.ResultScanner;
+import org.apache.hadoop.hbase.client.Scan;
+import org.apache.hadoop.hbase.client.Table;
+import org.apache.hadoop.hbase.coprocessor.ObserverContext;
+import org.apache.hadoop.hbase.coprocessor.RegionCoprocessorEnvironment;
+import org.apache.hadoop.hbase.coprocessor.SimpleRegionObserver;
+import org.apache.hadoop.hbase.util.Bytes;
+import org.apache.phoenix.coprocessor.BaseScannerRegionObserver;
+import org.apache.phoenix.jdbc.PhoenixConnection;
+import org.apache.phoenix.mapreduce.index.IndexTool;
+import org.apache.phoenix.query.QueryServices;
+import org.apache.phoenix.util.ReadOnlyProps;
+import org.apache.phoenix.util.SchemaUtil;
+import org.apache.phoenix.util.TestUtil;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import com.google.common.collect.Maps;
+
+/**
+ * Tests that IndexTool verification compares the checksums of the index rows first and only
+ * verifies them row by row when the checksums do not match.
+ */
+public class IndexToolChecksumVerifyIT extends BaseUniqueNamesOwnClusterIT {
+    private static final int NROWS = 20;
+
+    private static final AtomicInteger checksumScanCount = new AtomicInteger();
+    private static final AtomicInteger rowByRowScanCount = new AtomicInteger();
+
+    /**
+     * Counts the scans IndexTool verification sends to the index table
+     */
+    public static class VerifyScanCountingObserver extends SimpleRegionObserver {
+        @Override
+        public void preScannerOpen(ObserverContext<RegionCoprocessorEnvironment> c, Scan scan)
+                throws IOException {
+            if (scan.getAttribute(BaseScannerRegionObserver.INDEX_VERIFY_CHECKSUM) != null) {
+                checksumScanCount.incrementAndGet();
+            } else if (scan.isRaw()) {
+                rowByRowScanCount.incrementAndGet();
+            }
+        }
+    }
+
+    @BeforeClass
+    public static synchronized void doSetup() throws Exception {
+        Map<String, String> serverProps = Maps.newHashMapWithExpectedSize(1);
+        serverProps.put(QueryServices.INDEX_VERIFY_CHECKSUM_ENABLED, Boolean.TRUE.toString());
+        setUpTestDriver(new ReadOnlyProps(serverProps.entrySet().iterator()), ReadOnlyProps.EMPTY_PROPS);
+    }
+
+    @Before
+    public void resetCounts() {
+        checksumScanCount.set(0);
+        rowByRowScanCount.set(0);
+    }
+
+    private String createTableAndIndex(Connection conn, String dataTableFullName, String indexTableName)
+            throws Exception {
+        conn.createStatement().execute("CREATE TABLE " + dataTableFullName
+                + " (ID INTEGER NOT NULL PRIMARY KEY, VAL1 INTEGER, VAL2 INTEGER, VAL3 VARCHAR)");
+        PreparedStatement stmt = conn.prepareStatement(
+                "UPSERT INTO " + dataTableFullName + " VALUES(?,?,?,?)");
+        for (int i = 0; i < NROWS; i++) {
+            stmt.setInt(1, i);
+            stmt.setInt(2, i + 1);
+            stmt.setInt(3, i * 2);
+            stmt.setString(4, "v" + i);
+            stmt.execute();
+        }
+        conn.commit();
+        conn.createStatement().execute(String.format("CREATE INDEX %s ON %s (VAL1) INCLUDE (VAL2, VAL3)",
+                indexTableName, dataTableFullName));
+        // Give the index rows a history: updates that move and keep the index row key, a covered
+        // column set to null and a deleted row
+        for (int i : new int[] { 1, 5, 9 }) {
+            stmt.setInt(1, i);
+            stmt.setInt(2, i + 100);
+            stmt.setInt(3, i * 3);
+            stmt.setString(4, "u" + i);
+            stmt.execute();
+        }
+        stmt.setInt(1, 3);
+        stmt.setInt(2, 4);
+        stmt.setNull(3, Types.INTEGER);
+        stmt.setNull(4, Types.VARCHAR);
+        stmt.execute();
+        conn.createStatement().execute("DELETE FROM " + dataTableFullName + " WHERE ID = 7");
+        conn.commit();
+        String indexTableFullName = SchemaUtil.getTableName(
+                SchemaUtil.getSchemaNameFromFullName(dataTableFullName), indexTableName);
+        TestUtil.addCoprocessor(conn, indexTableFullName, VerifyScanCountingObserver.class);
+        return indexTableFullName;
+    }
+
+    @Test
+    public void testConsistentIndexMatchesChecksum() throws Exception {
+        String schemaName = generateUniqueName();
+        String dataTableName = generateUniqueName();
+        String dataTableFullName = SchemaUtil.getTableName(schemaName, dataTableName);
+        String indexTableName = generateUniqueName();
+        try (Connection conn = DriverManager.getConnection(getUrl())) {
+            createTableAndIndex(conn, dataTableFullName, indexTableName);
+            IndexTool indexTool = IndexToolIT.runIndexTool(true, false, schemaName, dataTableName,
+                    indexTableName, null, 0, IndexTool.IndexVerifyType.ONLY);
+            assertEquals(NROWS,
+                    indexTool.getJob().getCounters().findCounter(SCANNED_DATA_ROW_COUNT).getValue());
+            assertTrue(indexTool.getJob().getCounters()
+                    .findCounter(BEFORE_REBUILD_VALID_INDEX_ROW_COUNT).getValue() >= NROWS);
+            assertEquals(0, indexTool.getJob().getCounters()
+                    .findCounter(BEFORE_REBUILD_INVALID_INDEX_ROW_COUNT).getValue());
+            assertEquals(0, indexTool.getJob().getCounters()
+                    .findCounter(BEFORE_REBUILD_MISSING_INDEX_ROW_COUNT).getValue());
+            // Every batch is verified by its checksum and none of them row by row
+            assertTrue(checksumScanCount.get() > 0);
+            assertEquals(0, rowByRowScanCount.get());
+        }
+    }
+
+    @Test
+    public void testDeletedIndexRowFallsBackToRowByRow() throws Exception {
+        String schemaName = generateUniqueName();
+        String dataTableName = generateUniqueName();
+        String dataTableFullName = SchemaUtil.getTableName(schemaName, dataTableName);
+        String indexTableName = generateUniqueName();
+        try (Connection conn = DriverManager.getConnection(getUrl())) {
+            String indexTableFullName = createTableAndIndex(conn, dataTableFullName, indexTableName);
+            // Remove the latest version of one index row behind the back of the index
+            try (Table indexTable = conn.unwrap(PhoenixConnection.class).getQueryServices()
+                    .getTable(Bytes.toBytes(indexTableFullName));
+                    ResultScanner scanner = indexTable.getScanner(new Scan())) {
+                Result result = scanner.next();
+                assertNotNull(result);
+                indexTable.delete(new Delete(result.getRow()));
+            }
+            IndexTool indexTool = IndexToolIT.runIndexTool(true, false, schemaName, dataTableName,
+                    indexTableName, null, 0, IndexTool.IndexVerifyType.ONLY);
+            // The delete marker makes the row show up as either missing or invalid
+            assertEquals(1, indexTool.getJob().getCounters()
+                    .findCounter(BEFORE_REBUILD_MISSING_INDEX_ROW_COUNT).getValue()
+                    + indexTool.getJob().getCounters()
+                    .findCounter(BEFORE_REBUILD_INVALID_INDEX_ROW_COUNT).getValue());
+            assertTrue(checksumScanCount.get() > 0);
+            assertTrue(rowByRowScanCount.get() > 0);
+        }
+    }
+}
@@ -65,6 +65,7 @@ import java.sql.DriverManager;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.sql.Types;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
@@ -216,6 +217,70 @@ public class IndexToolForNonTxGlobalIndexIT extends BaseUniqueNamesOwnClusterIT
         }
     }
 
+    @Test
+    public void testIncrementalVerify() throws Exception {
+        if (!mutable) {
+            return;
+        }
+        final int NROWS = 20;
+        String schemaName = generateUniqueName();
+        String dataTableName = generateUniqueName();
+        String dataTableFullName = SchemaUtil.getTableName(schemaName, dataTableName);
+        String indexTableName = generateUniqueName();
+        Properties props = PropertiesUtil.deepCopy(TEST_PROPERTIES);
+        try (Connection conn = DriverManager.getConnection(getUrl(), props)) {
+            conn.createStatement().execute("CREATE TABLE " + dataTableFullName
+                    + " (ID INTEGER NOT NULL PRIMARY KEY, VAL1 INTEGER, VAL2 INTEGER) "
+                    + tableDDLOptions);
+            PreparedStatement stmt = conn.prepareStatement("UPSERT INTO " + dataTableFullName + " VALUES(?,?,?)");
+            for (int i = 0; i < NROWS; i++) {
+                stmt.setInt(1, i);
+                stmt.setInt(2, i + 1);
+                stmt.setInt(3, i * 2);
+                stmt.execute();
+            }
+            conn.commit();
+            conn.createStatement().execute(String.format(
+                    "CREATE INDEX %s ON %s (VAL1) INCLUDE (VAL2) ASYNC ", indexTableName, dataTableFullName));
+            IndexToolIT.runIndexTool(directApi, useSnapshot, schemaName, dataTableName, indexTableName);
+
+            // Without a previous incremental verification, all the rows are verified
+            IndexTool indexTool = IndexToolIT.runIndexTool(directApi, useSnapshot, schemaName, dataTableName,
+                    indexTableName, null, 0, IndexTool.IndexVerifyType.ONLY, "-iv");
+            assertEquals(NROWS, indexTool.getJob().getCounters().findCounter(SCANNED_DATA_ROW_COUNT).getValue());
+            assertEquals(NROWS, indexTool.getJob().getCounters().findCounter(BEFORE_REBUILD_VALID_INDEX_ROW_COUNT).getValue());
+
+            // Only the rows changed since then are verified, including one overwritten twice and
+            // one with a column set to null, whose index rows are checked against their history
+            int[] changedRows = {1, 9, 10, 17};
+            for (int i : changedRows) {
+                stmt.setInt(1, i);
+                stmt.setInt(2, i + 1);
+                stmt.setInt(3, i * 3);
+                stmt.execute();
+            }
+            conn.commit();
+            stmt.setInt(1, 9);
+            stmt.setInt(2, 10);
+            stmt.setNull(3, Types.INTEGER);
+            stmt.execute();
+            conn.commit();
+            indexTool = IndexToolIT.runIndexTool(directApi, useSnapshot, schemaName, dataTableName,
+                    indexTableName, null, 0, IndexTool.IndexVerifyType.ONLY, "-iv");
+            assertEquals(changedRows.length,
+                    indexTool.getJob().getCounters().findCounter(SCANNED_DATA_ROW_COUNT).getValue());
+            assertEquals(changedRows.length,
+                    indexTool.getJob().getCounters().findCounter(BEFORE_REBUILD_VALID_INDEX_ROW_COUNT).getValue());
+            assertEquals(0, indexTool.getJob().getCounters().findCounter(BEFORE_REBUILD_INVALID_INDEX_ROW_COUNT).getValue());
+            assertEquals(0, indexTool.getJob().getCounters().findCounter(BEFORE_REBUILD_MISSING_INDEX_ROW_COUNT).getValue());
+
+            // Nothing changed since the last verification
+            indexTool = IndexToolIT.runIndexTool(directApi, useSnapshot, schemaName, dataTableName,
+                    indexTableName, null, 0, IndexTool.IndexVerifyType.ONLY, "-iv");
+            assertEquals(0, indexTool.getJob().getCounters().findCounter(SCANNED_DATA_ROW_COUNT).getValue());
+        }
+    }
+
     // This test will only work with HBASE-22710 which is in 2.2.5+
     // TODO: Enable once we move to these versions
     @Ignore
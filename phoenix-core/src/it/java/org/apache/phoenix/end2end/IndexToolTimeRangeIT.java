@@ -35,7 +35,6 @@ import org.junit.AfterClass;
 import org.junit.Assert;
 import org.junit.Before;
 import org.junit.BeforeClass;
-import org.junit.Ignore;
 import org.junit.Test;
 
 import com.google.common.collect.Maps;
@@ -137,7 +136,6 @@ public class IndexToolTimeRangeIT extends BaseUniqueNamesOwnClusterIT {
         Assert.assertEquals(5, countRowsInIndex());
     }
 
-    @Ignore("Until PHOENIX-5783 is fixed")
     @Test
     public void testValidTimeRange_startTimeInBetween() throws Exception {
         String [] args = {"--delete-all-and-rebuild",
@@ -166,7 +164,6 @@ public class IndexToolTimeRangeIT extends BaseUniqueNamesOwnClusterIT {
         Assert.assertEquals(5, countRowsInIndex());
     }
 
-    @Ignore("Until PHOENIX-5783 is fixed")
     @Test
     public void testValidTimeRange_onlyStartTimePassed() throws Exception {
         //starttime passed of last upsert
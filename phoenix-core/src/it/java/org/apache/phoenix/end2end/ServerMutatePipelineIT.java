@@ -0,0 +1,176 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.phoenix.end2end;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Map;
+
+import org.apache.hadoop.hbase.DoNotRetryIOException;
+import org.apache.hadoop.hbase.client.Mutation;
+import org.apache.hadoop.hbase.coprocessor.ObserverContext;
+import org.apache.hadoop.hbase.coprocessor.RegionCoprocessorEnvironment;
+import org.apache.hadoop.hbase.coprocessor.SimpleRegionObserver;
+import org.apache.hadoop.hbase.regionserver.MiniBatchOperationInProgress;
+import org.apache.hadoop.hbase.util.Bytes;
+import org.apache.phoenix.query.QueryServices;
+import org.apache.phoenix.schema.types.PInteger;
+import org.apache.phoenix.util.ReadOnlyProps;
+import org.apache.phoenix.util.TestUtil;
+import org.junit.After;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import com.google.common.collect.Maps;
+
+/**
+ * Tests server side UPSERT SELECT and DELETE writing their batches in the background while they
+ * keep scanning.
+ */
+public class ServerMutatePipelineIT extends BaseUniqueNamesOwnClusterIT {
+    private static final int NROWS = 100;
+
+    private static volatile byte[] failingRowKey;
+
+    /**
+     * Fails the writes of the row set in {@link #failingRowKey}
+     */
+    public static class FailingWriteObserver extends SimpleRegionObserver {
+        @Override
+        public void preBatchMutate(ObserverContext<RegionCoprocessorEnvironment> c,
+                MiniBatchOperationInProgress<Mutation> miniBatchOp) throws IOException {
+            byte[] rowKey = failingRowKey;
+            if (rowKey == null) {
+                return;
+            }
+            for (int i = 0; i < miniBatchOp.size(); i++) {
+                if (Bytes.equals(rowKey, miniBatchOp.getOperation(i).getRow())) {
+                    throw new DoNotRetryIOException("Failing the write of " + Bytes.toStringBinary(rowKey));
+                }
+            }
+        }
+    }
+
+    @BeforeClass
+    public static synchronized void doSetup() throws Exception {
+        Map<String, String> serverProps = Maps.newHashMapWithExpectedSize(2);
+        serverProps.put(QueryServices.SERVER_MUTATE_PIPELINE_MAX_PENDING_BATCHES, Integer.toString(2));
+        // Many small batches, so that several of them are pending at a time
+        serverProps.put(QueryServices.MUTATE_BATCH_SIZE_ATTRIB, Integer.toString(7));
+        setUpTestDriver(new ReadOnlyProps(serverProps.entrySet().iterator()), ReadOnlyProps.EMPTY_PROPS);
+    }
+
+    @After
+    public void stopFailingWrites() {
+        failingRowKey = null;
+    }
+
+    private String createTable(Connection conn) throws Exception {
+        String tableName = generateUniqueName();
+        conn.createStatement().execute("CREATE TABLE " + tableName
+                + " (K INTEGER NOT NULL PRIMARY KEY, V INTEGER)");
+        upsertRows(conn, tableName);
+        TestUtil.addCoprocessor(conn, tableName, FailingWriteObserver.class);
+        return tableName;
+    }
+
+    private static void upsertRows(Connection conn, String tableName) throws Exception {
+        PreparedStatement stmt = conn.prepareStatement("UPSERT INTO " + tableName + " VALUES(?,?)");
+        for (int i = 0; i < NROWS; i++) {
+            stmt.setInt(1, i);
+            stmt.setInt(2, i);
+            stmt.execute();
+        }
+        conn.commit();
+    }
+
+    private static void assertRows(Connection conn, String tableName, int expectedCount,
+            long expectedSum) throws Exception {
+        ResultSet rs = conn.createStatement().executeQuery(
+                "SELECT COUNT(*), SUM(V) FROM " + tableName);
+        assertTrue(rs.next());
+        assertEquals(expectedCount, rs.getInt(1));
+        assertEquals(expectedSum, rs.getLong(2));
+    }
+
+    @Test
+    public void testUpsertSelect() throws Exception {
+        try (Connection conn = DriverManager.getConnection(getUrl())) {
+            String tableName = createTable(conn);
+            conn.setAutoCommit(true);
+            assertEquals(NROWS, conn.createStatement().executeUpdate(
+                    "UPSERT INTO " + tableName + " (K, V) SELECT K, V + 1000 FROM " + tableName));
+            assertRows(conn, tableName, NROWS, NROWS * (NROWS - 1) / 2 + NROWS * 1000);
+        }
+    }
+
+    @Test
+    public void testDelete() throws Exception {
+        try (Connection conn = DriverManager.getConnection(getUrl())) {
+            String tableName = createTable(conn);
+            conn.setAutoCommit(true);
+            assertEquals(NROWS - 10, conn.createStatement().executeUpdate(
+                    "DELETE FROM " + tableName + " WHERE K >= 10"));
+            assertRows(conn, tableName, 10, 45);
+        }
+    }
+
+    @Test
+    public void testFailingWrite() throws Exception {
+        try (Connection conn = DriverManager.getConnection(getUrl())) {
+            String tableName = createTable(conn);
+            conn.setAutoCommit(true);
+            failingRowKey = PInteger.INSTANCE.toBytes(NROWS / 2);
+            try {
+                conn.createStatement().executeUpdate(
+                        "UPSERT INTO " + tableName + " (K, V) SELECT K, V + 1000 FROM " + tableName);
+                fail();
+            } catch (SQLException e) {
+                // expected
+            }
+            try {
+                conn.createStatement().executeUpdate("DELETE FROM " + tableName);
+                fail();
+            } catch (SQLException e) {
+                // expected
+            }
+            // The failing row was never written
+            ResultSet rs = conn.createStatement().executeQuery(
+                    "SELECT V FROM " + tableName + " WHERE K = " + (NROWS / 2));
+            assertTrue(rs.next());
+            assertEquals(NROWS / 2, rs.getInt(1));
+
+            // The region servers are still able to run pipelined writes
+            failingRowKey = null;
+            upsertRows(conn, tableName);
+            assertEquals(NROWS, conn.createStatement().executeUpdate(
+                    "UPSERT INTO " + tableName + " (K, V) SELECT K, V + 1000 FROM " + tableName));
+            assertRows(conn, tableName, NROWS, NROWS * (NROWS - 1) / 2 + NROWS * 1000);
+            assertEquals(NROWS, conn.createStatement().executeUpdate("DELETE FROM " + tableName));
+            assertRows(conn, tableName, 0, 0);
+        }
+    }
+}
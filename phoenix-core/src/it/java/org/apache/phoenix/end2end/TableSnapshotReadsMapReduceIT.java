@@ -49,6 +49,7 @@ import org.apache.phoenix.jdbc.PhoenixConnection;
 import org.apache.phoenix.mapreduce.index.PhoenixIndexDBWritable;
 import org.apache.phoenix.mapreduce.util.PhoenixMapReduceUtil;
 import org.apache.phoenix.query.BaseTest;
+import org.apache.phoenix.util.QueryUtil;
 import org.apache.phoenix.util.ReadOnlyProps;
 import org.junit.Assert;
 import org.junit.Before;
@@ -127,6 +128,28 @@ public class TableSnapshotReadsMapReduceIT extends BaseUniqueNamesOwnClusterIT {
     configureJob(job, tableName, inputQuery, null, false);
   }
 
+  @Test
+  public void testSnapshotHintQuery() throws Exception {
+    try {
+      upsertAndSnapshot(tableName, true);
+      try (Connection conn = DriverManager.getConnection(getUrl())) {
+        String query = "SELECT /*+ SNAPSHOT(" + SNAPSHOT_NAME + ") */ "
+            + FIELD1 + " FROM " + tableName + " WHERE " + FIELD3 + " > 20 ORDER BY " + FIELD2;
+        String plan = QueryUtil.getExplainPlan(conn.createStatement().executeQuery("EXPLAIN " + query));
+        assertTrue(plan, plan.contains("SNAPSHOT " + SNAPSHOT_NAME + " "));
+        ResultSet rs = conn.createStatement().executeQuery(query);
+        // DDDD was upserted after the snapshot was taken, CCCC is filtered out
+        for (String expected : new String[] { "PPPP", "XXXX", "SSSS", "AAAA", "BBBB" }) {
+          assertTrue(rs.next());
+          assertEquals(expected, rs.getString(1));
+        }
+        assertFalse(rs.next());
+      }
+    } finally {
+      deleteSnapshot(tableName);
+    }
+  }
+
   private void configureJob(Job job, String tableName, String inputQuery, String condition, boolean shouldSplit) throws Exception {
     try {
       upsertAndSnapshot(tableName, shouldSplit);
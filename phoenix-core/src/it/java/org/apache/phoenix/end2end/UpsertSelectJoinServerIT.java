@@ -0,0 +1,211 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.phoenix.end2end;
+
+import static org.apache.phoenix.util.TestUtil.TEST_PROPERTIES;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Properties;
+
+import org.apache.phoenix.query.QueryServices;
+import org.apache.phoenix.util.PropertiesUtil;
+import org.apache.phoenix.util.QueryUtil;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+import org.junit.runners.Parameterized.Parameters;
+
+/**
+ * Tests the rows written by hash joined UPSERT SELECT statements run on the region servers.
+ */
+@RunWith(Parameterized.class)
+public class UpsertSelectJoinServerIT extends ParallelStatsDisabledIT {
+    private static final int NORDERS = 20;
+    private static final int NCUSTOMERS = 3;
+
+    private final boolean saltSource;
+    private final boolean localIndex;
+    private String ordersTable;
+    private String customersTable;
+    private String targetTable;
+    private String targetIndex;
+
+    public UpsertSelectJoinServerIT(boolean saltSource, boolean localIndex) {
+        this.saltSource = saltSource;
+        this.localIndex = localIndex;
+    }
+
+    @Parameters(name="UpsertSelectJoinServerIT_saltSource={0},localIndex={1}")
+    public static synchronized Collection<Boolean[]> data() {
+        return Arrays.asList(new Boolean[][] {
+                { false, false }, { true, false }, { false, true } });
+    }
+
+    private Connection getConnection() throws Exception {
+        Properties props = PropertiesUtil.deepCopy(TEST_PROPERTIES);
+        props.setProperty(QueryServices.ENABLE_SERVER_UPSERT_SELECT, Boolean.TRUE.toString());
+        props.setProperty(QueryServices.ENABLE_SERVER_UPSERT_SELECT_JOIN, Boolean.TRUE.toString());
+        Connection conn = DriverManager.getConnection(getUrl(), props);
+        conn.setAutoCommit(true);
+        return conn;
+    }
+
+    @Before
+    public void createTables() throws Exception {
+        ordersTable = generateUniqueName();
+        customersTable = generateUniqueName();
+        targetTable = generateUniqueName();
+        targetIndex = generateUniqueName();
+        try (Connection conn = getConnection()) {
+            conn.createStatement().execute("CREATE TABLE " + ordersTable
+                    + " (ID INTEGER NOT NULL PRIMARY KEY, CUST_ID INTEGER, AMT INTEGER)"
+                    + (saltSource ? " SALT_BUCKETS = 4" : ""));
+            conn.createStatement().execute("CREATE TABLE " + customersTable
+                    + " (ID INTEGER NOT NULL PRIMARY KEY, NAME VARCHAR)");
+            conn.createStatement().execute("CREATE TABLE " + targetTable
+                    + " (ORDER_ID INTEGER NOT NULL PRIMARY KEY, NAME VARCHAR, AMT INTEGER)");
+            if (localIndex) {
+                conn.createStatement().execute("CREATE LOCAL INDEX " + targetIndex + " ON "
+                        + targetTable + " (NAME) INCLUDE (AMT)");
+            }
+            // Orders of customers 0 to 4, of which only 1 to 3 exist
+            PreparedStatement stmt = conn.prepareStatement(
+                    "UPSERT INTO " + ordersTable + " VALUES(?,?,?)");
+            for (int i = 1; i <= NORDERS; i++) {
+                stmt.setInt(1, i);
+                stmt.setInt(2, i % 5);
+                stmt.setInt(3, i * 10);
+                stmt.execute();
+            }
+            stmt = conn.prepareStatement("UPSERT INTO " + customersTable + " VALUES(?,?)");
+            for (int i = 1; i <= NCUSTOMERS; i++) {
+                stmt.setInt(1, i);
+                stmt.setString(2, "c" + i);
+                stmt.execute();
+            }
+        }
+    }
+
+    private static String getCustomerName(int customerId) {
+        return customerId >= 1 && customerId <= NCUSTOMERS ? "c" + customerId : null;
+    }
+
+    private static void assertRunsOnServer(Connection conn, String upsert) throws Exception {
+        ResultSet rs = conn.createStatement().executeQuery("EXPLAIN " + upsert);
+        String explainPlan = QueryUtil.getExplainPlan(rs);
+        assertTrue(explainPlan, explainPlan.startsWith("UPSERT ROWS\n"));
+    }
+
+    /**
+     * Checks the rows of the target table, and those of its local index if any
+     * @param expectedRows the expected ORDER_ID, NAME and AMT of each row, ordered by ORDER_ID
+     */
+    private void assertTargetRows(Connection conn, List<Object[]> expectedRows) throws Exception {
+        ResultSet rs = conn.createStatement().executeQuery("SELECT /*+ NO_INDEX */ ORDER_ID, NAME, AMT FROM "
+                + targetTable + " ORDER BY ORDER_ID");
+        for (Object[] expectedRow : expectedRows) {
+            assertTrue(rs.next());
+            assertEquals(expectedRow[0], rs.getInt(1));
+            assertEquals(expectedRow[1], rs.getString(2));
+            assertEquals(expectedRow[2], rs.getInt(3));
+        }
+        assertFalse(rs.next());
+        if (!localIndex) {
+            return;
+        }
+        for (int customerId = 1; customerId <= NCUSTOMERS; customerId++) {
+            String query = "SELECT ORDER_ID, AMT FROM " + targetTable + " WHERE NAME = '"
+                    + getCustomerName(customerId) + "' ORDER BY ORDER_ID";
+            String explainPlan = QueryUtil.getExplainPlan(
+                    conn.createStatement().executeQuery("EXPLAIN " + query));
+            assertTrue(explainPlan, explainPlan.contains(targetIndex));
+            rs = conn.createStatement().executeQuery(query);
+            for (Object[] expectedRow : expectedRows) {
+                if (getCustomerName(customerId).equals(expectedRow[1])) {
+                    assertTrue(rs.next());
+                    assertEquals(expectedRow[0], rs.getInt(1));
+                    assertEquals(expectedRow[2], rs.getInt(2));
+                }
+            }
+            assertFalse(rs.next());
+        }
+    }
+
+    @Test
+    public void testInnerJoin() throws Exception {
+        try (Connection conn = getConnection()) {
+            String upsert = "UPSERT INTO " + targetTable + " SELECT o.ID, c.NAME, o.AMT FROM "
+                    + ordersTable + " o JOIN " + customersTable + " c ON o.CUST_ID = c.ID";
+            assertRunsOnServer(conn, upsert);
+            List<Object[]> expectedRows = new ArrayList<>();
+            for (int i = 1; i <= NORDERS; i++) {
+                String name = getCustomerName(i % 5);
+                if (name != null) {
+                    expectedRows.add(new Object[] { i, name, i * 10 });
+                }
+            }
+            assertEquals(expectedRows.size(), conn.createStatement().executeUpdate(upsert));
+            assertTargetRows(conn, expectedRows);
+        }
+    }
+
+    @Test
+    public void testLeftJoin() throws Exception {
+        try (Connection conn = getConnection()) {
+            String upsert = "UPSERT INTO " + targetTable + " SELECT o.ID, c.NAME, o.AMT FROM "
+                    + ordersTable + " o LEFT JOIN " + customersTable + " c ON o.CUST_ID = c.ID";
+            assertRunsOnServer(conn, upsert);
+            List<Object[]> expectedRows = new ArrayList<>();
+            for (int i = 1; i <= NORDERS; i++) {
+                expectedRows.add(new Object[] { i, getCustomerName(i % 5), i * 10 });
+            }
+            assertEquals(NORDERS, conn.createStatement().executeUpdate(upsert));
+            assertTargetRows(conn, expectedRows);
+        }
+    }
+
+    @Test
+    public void testDynamicServerFilter() throws Exception {
+        try (Connection conn = getConnection()) {
+            // Joining on the row key of the orders narrows their scan down to the customer ids
+            String upsert = "UPSERT INTO " + targetTable + " SELECT o.ID, c.NAME, o.AMT FROM "
+                    + ordersTable + " o JOIN " + customersTable + " c ON o.ID = c.ID WHERE o.AMT > 10";
+            assertRunsOnServer(conn, upsert);
+            String explainPlan = QueryUtil.getExplainPlan(
+                    conn.createStatement().executeQuery("EXPLAIN " + upsert));
+            assertTrue(explainPlan, explainPlan.contains("DYNAMIC SERVER FILTER BY"));
+            List<Object[]> expectedRows = new ArrayList<>();
+            for (int i = 2; i <= NCUSTOMERS; i++) {
+                expectedRows.add(new Object[] { i, getCustomerName(i), i * 10 });
+            }
+            assertEquals(expectedRows.size(), conn.createStatement().executeUpdate(upsert));
+            assertTargetRows(conn, expectedRows);
+        }
+    }
+}
@@ -0,0 +1,169 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.phoenix.end2end;
+
+import static org.apache.phoenix.util.TestUtil.TEST_PROPERTIES;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+
+import org.apache.hadoop.hbase.client.Scan;
+import org.apache.phoenix.coprocessor.BaseScannerRegionObserver;
+import org.apache.phoenix.jdbc.PhoenixResultSet;
+import org.apache.phoenix.query.QueryServices;
+import org.apache.phoenix.util.EnvironmentEdgeManager;
+import org.apache.phoenix.util.PhoenixRuntime;
+import org.apache.phoenix.util.PropertiesUtil;
+import org.apache.phoenix.util.ReadOnlyProps;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import com.google.common.collect.Maps;
+
+/**
+ * Tests that the zone maps collected along with the statistics of the ZONE_MAP_COLUMNS of a
+ * table skip the chunks of a scan that cannot match its WHERE clause, and that rows written
+ * after the statistics were collected, or read as of a time before, are still found.
+ */
+public class ZoneMapPruningIT extends BaseUniqueNamesOwnClusterIT {
+    private static final int NROWS = 100;
+
+    @BeforeClass
+    public static synchronized void doSetup() throws Exception {
+        Map<String, String> props = Maps.newHashMapWithExpectedSize(4);
+        props.put(QueryServices.STATS_GUIDEPOST_WIDTH_BYTES_ATTRIB, Long.toString(20));
+        props.put(QueryServices.STATS_UPDATE_FREQ_MS_ATTRIB, Long.toString(5));
+        props.put(QueryServices.USE_STATS_FOR_PARALLELIZATION, Boolean.TRUE.toString());
+        props.put(QueryServices.USE_STATS_FOR_ZONE_MAP_PRUNING, Boolean.TRUE.toString());
+        setUpTestDriver(new ReadOnlyProps(props.entrySet().iterator()));
+    }
+
+    private String createTable(Connection conn) throws Exception {
+        String tableName = generateUniqueName();
+        conn.createStatement().execute("CREATE TABLE " + tableName
+                + " (K INTEGER NOT NULL PRIMARY KEY, V INTEGER, W VARCHAR) ZONE_MAP_COLUMNS='V'");
+        // V grows with the row key so that every chunk has its own range of values
+        PreparedStatement stmt = conn.prepareStatement("UPSERT INTO " + tableName + " VALUES(?,?,?)");
+        for (int i = 0; i < NROWS; i++) {
+            stmt.setInt(1, i);
+            stmt.setInt(2, i * 10);
+            stmt.setString(3, "w" + i);
+            stmt.execute();
+        }
+        conn.commit();
+        conn.createStatement().execute("UPDATE STATISTICS " + tableName);
+        return tableName;
+    }
+
+    private static void upsert(Connection conn, String tableName, int k, int v) throws Exception {
+        conn.createStatement().execute("UPSERT INTO " + tableName + " VALUES(" + k + "," + v + ",'new')");
+        conn.commit();
+    }
+
+    /**
+     * Runs the query and checks the keys it returns
+     * @return the number of chunks of the scan pruned by their zone map
+     */
+    private static int assertKeys(Connection conn, String query, int... expectedKeys) throws Exception {
+        ResultSet rs = conn.createStatement().executeQuery(query);
+        List<Integer> keys = new ArrayList<>();
+        while (rs.next()) {
+            keys.add(rs.getInt(1));
+        }
+        List<Integer> expected = new ArrayList<>();
+        for (int key : expectedKeys) {
+            expected.add(key);
+        }
+        assertEquals(expected, keys);
+        int prunedChunks = 0;
+        for (List<Scan> scans : rs.unwrap(PhoenixResultSet.class).getStatement().getQueryPlan().getScans()) {
+            for (Scan scan : scans) {
+                if (scan.getAttribute(BaseScannerRegionObserver.ZONE_MAP_TIMESTAMP) != null) {
+                    prunedChunks++;
+                }
+            }
+        }
+        return prunedChunks;
+    }
+
+    @Test
+    public void testChunksPrunedByZoneMap() throws Exception {
+        try (Connection conn = DriverManager.getConnection(getUrl())) {
+            String tableName = createTable(conn);
+            assertTrue(assertKeys(conn, "SELECT K FROM " + tableName + " WHERE V = 500", 50) > 0);
+            assertTrue(assertKeys(conn, "SELECT K FROM " + tableName + " WHERE V > 950 ORDER BY K",
+                    96, 97, 98, 99) > 0);
+            assertTrue(assertKeys(conn, "SELECT K FROM " + tableName + " WHERE V < 0 OR V > 5000") > 0);
+            // Nothing can be pruned without a comparison on a zone map column
+            assertEquals(0, assertKeys(conn, "SELECT K FROM " + tableName + " WHERE W = 'w7'", 7));
+        }
+    }
+
+    @Test
+    public void testRowsWrittenAfterStatsCollection() throws Exception {
+        try (Connection conn = DriverManager.getConnection(getUrl())) {
+            String tableName = createTable(conn);
+            String query = "SELECT K FROM " + tableName + " WHERE V = 700 ORDER BY K";
+            // Prunes the chunk of row 3, and remembers on the server that it has no newer rows
+            assertTrue(assertKeys(conn, query, 70) > 0);
+            assertKeys(conn, query, 70);
+            // The zone maps are stale for the chunk of row 3 until the stats are collected again
+            upsert(conn, tableName, 3, 700);
+            assertTrue(assertKeys(conn, query, 3, 70) > 0);
+            assertKeys(conn, query, 3, 70);
+            // A row moving out of the range of its zone is no longer returned
+            upsert(conn, tableName, 70, 1);
+            assertKeys(conn, query, 3);
+            conn.createStatement().execute("UPDATE STATISTICS " + tableName);
+            assertKeys(conn, query, 3);
+            assertKeys(conn, "SELECT K FROM " + tableName + " WHERE V = 1 ORDER BY K", 70);
+        }
+    }
+
+    @Test
+    public void testPointInTimeReadBeforeStatsCollection() throws Exception {
+        String tableName;
+        long scn;
+        try (Connection conn = DriverManager.getConnection(getUrl())) {
+            tableName = createTable(conn);
+            scn = EnvironmentEdgeManager.currentTimeMillis();
+            Thread.sleep(10);
+            conn.createStatement().execute("DELETE FROM " + tableName + " WHERE K = 50");
+            conn.commit();
+            upsert(conn, tableName, 60, 1);
+            conn.createStatement().execute("UPDATE STATISTICS " + tableName);
+            // The zone maps collected after the delete rule out the deleted value
+            assertTrue(assertKeys(conn, "SELECT K FROM " + tableName + " WHERE V = 500") > 0);
+        }
+        Properties props = PropertiesUtil.deepCopy(TEST_PROPERTIES);
+        props.setProperty(PhoenixRuntime.CURRENT_SCN_ATTRIB, Long.toString(scn));
+        try (Connection conn = DriverManager.getConnection(getUrl(), props)) {
+            // The rows as they were before the delete and the update are still visible at the SCN
+            assertEquals(0, assertKeys(conn, "SELECT K FROM " + tableName + " WHERE V = 500", 50));
+            assertEquals(0, assertKeys(conn, "SELECT K FROM " + tableName + " WHERE V = 600", 60));
+        }
+    }
+}
@@ -20,15 +20,24 @@ package org.apache.phoenix.end2end.index;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
+import static org.apache.phoenix.util.TestUtil.TEST_PROPERTIES;
 
 import java.sql.Connection;
 import java.sql.DriverManager;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.util.Properties;
 import java.util.regex.Pattern;
 
+import org.apache.hadoop.hbase.client.Delete;
+import org.apache.hadoop.hbase.client.Table;
+import org.apache.hadoop.hbase.util.Bytes;
 import org.apache.phoenix.end2end.ParallelStatsDisabledIT;
+import org.apache.phoenix.jdbc.PhoenixConnection;
+import org.apache.phoenix.query.QueryServices;
+import org.apache.phoenix.util.EnvironmentEdgeManager;
 import org.apache.phoenix.util.PhoenixRuntime;
+import org.apache.phoenix.util.PropertiesUtil;
 import org.apache.phoenix.util.QueryUtil;
 import org.apache.phoenix.util.SchemaUtil;
 import org.junit.Test;
@@ -496,4 +505,75 @@ public class GlobalIndexOptimizationIT extends ParallelStatsDisabledIT {
         }
     }
 
+    @Test
+    public void testUncoveredGlobalIndexJoinedBackOnServer() throws Exception {
+        String dataTableName = generateUniqueName();
+        String indexTableName = generateUniqueName();
+        Properties props = PropertiesUtil.deepCopy(TEST_PROPERTIES);
+        props.setProperty(QueryServices.UNCOVERED_GLOBAL_INDEX_ENABLED_ATTRIB, Boolean.TRUE.toString());
+        try (Connection conn = DriverManager.getConnection(getUrl(), props)) {
+            conn.createStatement().execute("CREATE TABLE " + dataTableName
+                    + " (k VARCHAR NOT NULL PRIMARY KEY, v1 VARCHAR, v2 VARCHAR) SPLIT ON ('b')");
+            conn.createStatement().execute("CREATE INDEX " + indexTableName + " ON " + dataTableName + " (v1)");
+            conn.createStatement().execute("UPSERT INTO " + dataTableName + " VALUES ('a', 'x', '1')");
+            conn.createStatement().execute("UPSERT INTO " + dataTableName + " VALUES ('b', 'x', '2')");
+            conn.createStatement().execute("UPSERT INTO " + dataTableName + " VALUES ('c', 'y', '3')");
+            conn.commit();
+
+            String query = "SELECT /*+ INDEX(" + dataTableName + " " + indexTableName + ")*/ k, v2 FROM "
+                    + dataTableName + " WHERE v1 = 'x'";
+            String explainPlan = QueryUtil.getExplainPlan(conn.createStatement().executeQuery("EXPLAIN " + query));
+            assertTrue(explainPlan, explainPlan.startsWith(
+                    "CLIENT PARALLEL 1-WAY RANGE SCAN OVER " + indexTableName + " ['x']"));
+            assertFalse(explainPlan, explainPlan.contains("SKIP-SCAN-JOIN"));
+            ResultSet rs = conn.createStatement().executeQuery(query);
+            assertTrue(rs.next());
+            assertEquals("a", rs.getString(1));
+            assertEquals("1", rs.getString(2));
+            assertTrue(rs.next());
+            assertEquals("b", rs.getString(1));
+            assertEquals("2", rs.getString(2));
+            assertFalse(rs.next());
+
+            // Filter on a column the index does not cover, evaluated after the join
+            rs = conn.createStatement().executeQuery(query + " AND v2 = '2'");
+            assertTrue(rs.next());
+            assertEquals("b", rs.getString(1));
+            assertFalse(rs.next());
+
+            // A query at an SCN does not see data rows written after it
+            long scn = EnvironmentEdgeManager.currentTimeMillis();
+            Thread.sleep(2);
+            conn.createStatement().execute("UPSERT INTO " + dataTableName + " VALUES ('a', 'x', '9')");
+            conn.commit();
+            Properties scnProps = PropertiesUtil.deepCopy(props);
+            scnProps.setProperty(PhoenixRuntime.CURRENT_SCN_ATTRIB, Long.toString(scn));
+            try (Connection scnConn = DriverManager.getConnection(getUrl(), scnProps)) {
+                rs = scnConn.createStatement().executeQuery(query);
+                assertTrue(rs.next());
+                assertEquals("a", rs.getString(1));
+                assertEquals("1", rs.getString(2));
+                assertTrue(rs.next());
+                assertEquals("2", rs.getString(2));
+                assertFalse(rs.next());
+            }
+            rs = conn.createStatement().executeQuery(query);
+            assertTrue(rs.next());
+            assertEquals("9", rs.getString(2));
+
+            // An index row whose data row is missing is dropped rather than joined as nulls
+            try (Table table = conn.unwrap(PhoenixConnection.class).getQueryServices()
+                    .getTable(Bytes.toBytes(dataTableName))) {
+                table.delete(new Delete(Bytes.toBytes("b")));
+            }
+            rs = conn.createStatement().executeQuery("SELECT COUNT(*) FROM " + indexTableName);
+            assertTrue(rs.next());
+            assertEquals(3, rs.getInt(1));
+            rs = conn.createStatement().executeQuery(query);
+            assertTrue(rs.next());
+            assertEquals("a", rs.getString(1));
+            assertFalse(rs.next());
+        }
+    }
+
 }
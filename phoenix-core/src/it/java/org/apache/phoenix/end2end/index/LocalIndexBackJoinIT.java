@@ -0,0 +1,142 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.phoenix.end2end.index;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Map;
+import java.util.Properties;
+
+import org.apache.hadoop.hbase.HConstants;
+import org.apache.phoenix.end2end.BaseUniqueNamesOwnClusterIT;
+import org.apache.phoenix.jdbc.PhoenixResultSet;
+import org.apache.phoenix.query.QueryServices;
+import org.apache.phoenix.util.PropertiesUtil;
+import org.apache.phoenix.util.ReadOnlyProps;
+import org.apache.phoenix.util.TestUtil;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import com.google.common.collect.Maps;
+
+/**
+ * Tests the batched join back of uncovered local index rows to their data rows, with batches
+ * smaller than the number of rows and scanner results limited to a few bytes, so that batches
+ * span several RPCs.
+ */
+public class LocalIndexBackJoinIT extends BaseUniqueNamesOwnClusterIT {
+    private static final int BATCH_SIZE = 3;
+    private static final int ROW_COUNT = 50;
+
+    @BeforeClass
+    public static synchronized void doSetup() throws Exception {
+        Map<String, String> serverProps = Maps.newHashMapWithExpectedSize(1);
+        serverProps.put(QueryServices.LOCAL_INDEX_BACK_JOIN_BATCH_SIZE_ATTRIB, Integer.toString(BATCH_SIZE));
+        setUpTestDriver(new ReadOnlyProps(serverProps.entrySet().iterator()), ReadOnlyProps.EMPTY_PROPS);
+    }
+
+    private static Connection getConnection() throws SQLException {
+        Properties props = PropertiesUtil.deepCopy(TestUtil.TEST_PROPERTIES);
+        props.setProperty(HConstants.HBASE_CLIENT_SCANNER_MAX_RESULT_SIZE_KEY, "10");
+        return DriverManager.getConnection(getUrl(), props);
+    }
+
+    private static String value(String prefix, int k) {
+        return prefix + (k < 10 ? "0" : "") + k;
+    }
+
+    private static boolean isDeleted(int k) {
+        return k % 4 == 0 || (k >= 21 && k <= 25);
+    }
+
+    @Test
+    public void testUncoveredLocalIndexRowsJoinedInBatches() throws Exception {
+        String tableName = generateUniqueName();
+        String indexName = generateUniqueName();
+        try (Connection conn = getConnection()) {
+            conn.createStatement().execute("CREATE TABLE " + tableName
+                    + " (k INTEGER NOT NULL PRIMARY KEY, v1 VARCHAR, v2 VARCHAR, v3 INTEGER)"
+                    + " SPLIT ON (10, 30)");
+            conn.createStatement().execute("CREATE LOCAL INDEX " + indexName + " ON " + tableName + " (v1)");
+            PreparedStatement stmt = conn.prepareStatement("UPSERT INTO " + tableName + " VALUES (?, ?, ?, ?)");
+            for (int k = 0; k < ROW_COUNT; k++) {
+                stmt.setInt(1, k);
+                stmt.setString(2, value("v", k));
+                stmt.setString(3, value("w", k));
+                stmt.setInt(4, k * 10);
+                stmt.execute();
+            }
+            conn.commit();
+            // Leaves holes in the data rows, including a run longer than a batch, that the data
+            // region scanner reseeks past
+            for (int k = 0; k < ROW_COUNT; k++) {
+                if (isDeleted(k)) {
+                    conn.createStatement().execute("DELETE FROM " + tableName + " WHERE k = " + k);
+                }
+            }
+            conn.commit();
+
+            String query = "SELECT /*+ INDEX(" + tableName + " " + indexName + ") */ k, v1, v2, v3 FROM "
+                    + tableName + " WHERE v1 >= 'v' ORDER BY v1";
+            ResultSet rs = conn.createStatement().executeQuery(query);
+            assertEquals(indexName, rs.unwrap(PhoenixResultSet.class).getStatement().getQueryPlan()
+                    .getTableRef().getTable().getTableName().getString());
+            for (int k = 0; k < ROW_COUNT; k++) {
+                if (isDeleted(k)) {
+                    continue;
+                }
+                assertTrue(rs.next());
+                assertEquals(k, rs.getInt(1));
+                assertEquals(value("v", k), rs.getString(2));
+                assertEquals(value("w", k), rs.getString(3));
+                assertEquals(k * 10, rs.getInt(4));
+            }
+            assertFalse(rs.next());
+
+            // Filtering on an uncovered column leaves nothing to return from most batches
+            rs = conn.createStatement().executeQuery("SELECT /*+ INDEX(" + tableName + " " + indexName
+                    + ") */ k, v2 FROM " + tableName + " WHERE v1 >= 'v' AND v3 > 400 ORDER BY v1");
+            for (int k = 41; k < ROW_COUNT; k++) {
+                if (isDeleted(k)) {
+                    continue;
+                }
+                assertTrue(rs.next());
+                assertEquals(k, rs.getInt(1));
+                assertEquals(value("w", k), rs.getString(2));
+            }
+            assertFalse(rs.next());
+
+            // A limit stops in the middle of a batch
+            rs = conn.createStatement().executeQuery("SELECT /*+ INDEX(" + tableName + " " + indexName
+                    + ") */ k, v2 FROM " + tableName + " WHERE v1 >= 'v' ORDER BY v1 LIMIT 5");
+            for (int k : new int[] { 1, 2, 3, 5, 6 }) {
+                assertTrue(rs.next());
+                assertEquals(k, rs.getInt(1));
+                assertEquals(value("w", k), rs.getString(2));
+            }
+            assertFalse(rs.next());
+        }
+    }
+}
@@ -115,7 +115,6 @@ import org.apache.phoenix.schema.LocalIndexDataColumnRef;
 import org.apache.phoenix.schema.PColumn;
 import org.apache.phoenix.schema.PDatum;
 import org.apache.phoenix.schema.PTable;
-import org.apache.phoenix.schema.PTable.IndexType;
 import org.apache.phoenix.schema.PTableType;
 import org.apache.phoenix.schema.SortOrder;
 import org.apache.phoenix.schema.TableRef;
@@ -369,8 +368,9 @@ public class ExpressionCompiler extends UnsupportedAllParseNodeVisitor<Expressio
         } catch (ColumnNotFoundException e) {
             // Rather than not use a local index when a column not contained by it is referenced, we
             // join back to the data table in our coprocessor since this is a relatively cheap
-            // operation given that we know the join is local.
-            if (context.getCurrentTable().getTable().getIndexType() == IndexType.LOCAL) {
+            // operation given that we know the join is local. Hinted global indexes join back the
+            // same way, with batched lookups against the data table.
+            if (IndexUtil.shouldIndexBeUsedForUncoveredQuery(context.getCurrentTable())) {
                 try {
                     return new LocalIndexDataColumnRef(context, context.getCurrentTable(), node.getName());
                 } catch (ColumnFamilyNotFoundException c) {
@@ -1123,13 +1123,12 @@ public class FromCompiler {
     }
     
     private static class ProjectedTableColumnResolver extends MultiTableColumnResolver {
-        private final boolean isLocalIndex;
+        private final boolean isUncoveredIndex;
         private final List<TableRef> theTableRefs;
         private final Map<ColumnRef, Integer> columnRefMap;
         private ProjectedTableColumnResolver(PTable projectedTable, PhoenixConnection conn, Map<String, UDFParseNode> udfParseNodes) throws SQLException {
             super(conn, 0, udfParseNodes, null);
             Preconditions.checkArgument(projectedTable.getType() == PTableType.PROJECTED);
-            this.isLocalIndex = projectedTable.getIndexType() == IndexType.LOCAL;
             this.columnRefMap = new HashMap<ColumnRef, Integer>();
             long ts = Long.MAX_VALUE;
             for (int i = projectedTable.getBucketNum() == null ? 0 : 1; i < projectedTable.getColumns().size(); i++) {
@@ -1152,7 +1151,11 @@ public class FromCompiler {
                 }
                 this.columnRefMap.put(new ColumnRef(tableRef, colRef.getColumnPosition()), column.getPosition());
             }
-            this.theTableRefs = ImmutableList.of(new TableRef(ParseNodeFactory.createTempAlias(), projectedTable, ts, false));
+            TableRef projectedTableRef = new TableRef(ParseNodeFactory.createTempAlias(), projectedTable, ts, false);
+            // The source index comes first, followed by the data table of the columns it does not cover
+            projectedTableRef.setHinted(!tables.isEmpty() && tables.get(0).isHinted());
+            this.theTableRefs = ImmutableList.of(projectedTableRef);
+            this.isUncoveredIndex = IndexUtil.shouldIndexBeUsedForUncoveredQuery(projectedTableRef);
             
         }
         
@@ -1168,8 +1171,8 @@ public class FromCompiler {
                 colRef = super.resolveColumn(schemaName, tableName, colName);
             } catch (ColumnNotFoundException e) {
                 // This could be a ColumnRef for local index data column.
-                TableRef tableRef = isLocalIndex ? super.getTables().get(0) : super.resolveTable(schemaName, tableName);
-                if (tableRef.getTable().getIndexType() == IndexType.LOCAL) {
+                TableRef tableRef = isUncoveredIndex ? super.getTables().get(0) : super.resolveTable(schemaName, tableName);
+                if (IndexUtil.shouldIndexBeUsedForUncoveredQuery(tableRef)) {
                     try {
                         TableRef parentTableRef = super.resolveTable(
                                 tableRef.getTable().getSchemaName().getString(),
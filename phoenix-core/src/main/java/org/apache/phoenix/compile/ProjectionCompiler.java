@@ -201,7 +201,7 @@ public class ProjectionCompiler {
         int tableOffset = dataTable.getBucketNum() == null ? 0 : 1;
         int minTablePKOffset = getMinPKOffset(dataTable, tenantId);
         int minIndexPKOffset = getMinPKOffset(index, tenantId);
-        if (index.getIndexType() != IndexType.LOCAL) {
+        if (!IndexUtil.shouldIndexBeUsedForUncoveredQuery(tableRef)) {
             if (index.getColumns().size()-minIndexPKOffset != dataTable.getColumns().size()-minTablePKOffset) {
                 // We'll end up not using this by the optimizer, so just throw
                 String schemaNameStr = dataTable.getSchemaName()==null?null:dataTable.getSchemaName().getString();
@@ -224,7 +224,7 @@ public class ProjectionCompiler {
                 indexColumn = index.getColumnForColumnName(indexColName);
                 ref = new ColumnRef(tableRef, indexColumn.getPosition());
             } catch (ColumnNotFoundException e) {
-                if (index.getIndexType() == IndexType.LOCAL) {
+                if (IndexUtil.shouldIndexBeUsedForUncoveredQuery(tableRef)) {
                     try {
                         ref = new LocalIndexDataColumnRef(context, tableRef, indexColName);
                         indexColumn = ref.getColumn();
@@ -297,7 +297,7 @@ public class ProjectionCompiler {
                 ref = new ColumnRef(tableRef, indexColumn.getPosition());
                 indexColumnFamily = indexColumn.getFamilyName() == null ? null : indexColumn.getFamilyName().getString();
             } catch (ColumnNotFoundException e) {
-                if (index.getIndexType() == IndexType.LOCAL) {
+                if (IndexUtil.shouldIndexBeUsedForUncoveredQuery(tableRef)) {
                     try {
                         ref = new LocalIndexDataColumnRef(context, tableRef, indexColName);
                         indexColumn = ref.getColumn();
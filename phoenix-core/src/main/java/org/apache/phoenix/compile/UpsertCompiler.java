@@ -48,10 +48,14 @@ import org.apache.phoenix.coprocessor.UngroupedAggregateRegionObserver;
 import org.apache.phoenix.exception.SQLExceptionCode;
 import org.apache.phoenix.exception.SQLExceptionInfo;
 import org.apache.phoenix.execute.AggregatePlan;
+import org.apache.phoenix.execute.HashJoinPlan;
+import org.apache.phoenix.execute.HashJoinPlan.HashSubPlan;
+import org.apache.phoenix.execute.HashJoinPlan.SubPlan;
 import org.apache.phoenix.execute.MutationState;
 import org.apache.phoenix.execute.MutationState.MultiRowMutationState;
 import org.apache.phoenix.execute.MutationState.RowMutationState;
 import org.apache.phoenix.execute.MutationState.RowTimestampColInfo;
+import org.apache.phoenix.execute.ScanPlan;
 import org.apache.phoenix.expression.Determinism;
 import org.apache.phoenix.expression.Expression;
 import org.apache.phoenix.expression.LiteralExpression;
@@ -361,10 +365,14 @@ public class UpsertCompiler {
         QueryPlan queryPlanToBe = null;
         int nValuesToSet;
         boolean sameTable = false;
+        boolean isJoin = false;
         boolean runOnServer = false;
         boolean serverUpsertSelectEnabled =
                 services.getProps().getBoolean(QueryServices.ENABLE_SERVER_UPSERT_SELECT,
                         QueryServicesOptions.DEFAULT_ENABLE_SERVER_UPSERT_SELECT);
+        boolean serverUpsertSelectJoinEnabled = serverUpsertSelectEnabled
+                && services.getProps().getBoolean(QueryServices.ENABLE_SERVER_UPSERT_SELECT_JOIN,
+                        QueryServicesOptions.DEFAULT_ENABLE_SERVER_UPSERT_SELECT_JOIN);
         boolean allowServerMutations =
                 services.getProps().getBoolean(QueryServices.ENABLE_SERVER_SIDE_UPSERT_MUTATIONS,
                         QueryServicesOptions.DEFAULT_ENABLE_SERVER_SIDE_UPSERT_MUTATIONS);
@@ -551,10 +559,12 @@ public class UpsertCompiler {
                 selectResolver = FromCompiler.getResolverForQuery(transformedSelect, connection, false, upsert.getTable().getName());
                 select = StatementNormalizer.normalize(transformedSelect, selectResolver);
             }
-            sameTable = !select.isJoin()
+            isJoin = select.isJoin();
+            sameTable = !isJoin
                 && tableRefToBe.equals(selectResolver.getTables().get(0));
             /* We can run the upsert in a coprocessor if:
-             * 1) from has only 1 table or server UPSERT SELECT is enabled
+             * 1) from has only 1 table or server UPSERT SELECT is enabled, and the select isn't
+             *    a join unless server UPSERT SELECT joins are enabled too
              * 2) the select query isn't doing aggregation (which requires a client-side final merge)
              * 3) autoCommit is on
              * 4) the table is not immutable with indexes, as the client is the one that figures out the additional
@@ -581,7 +591,8 @@ public class UpsertCompiler {
                         // usage on successfully writing all data rows.
                         && (!table.isTransactional() || table.getType() == PTableType.INDEX)
                         && !(table.isImmutableRows() && !table.getIndexes().isEmpty())
-                        && !select.isJoin() && !hasWhereSubquery && table.getRowTimestampColPos() == -1;
+                        && (!isJoin || serverUpsertSelectJoinEnabled)
+                        && !hasWhereSubquery && table.getRowTimestampColPos() == -1;
             }
             runOnServer &= allowServerMutations;
             // If we may be able to run on the server, add a hint that favors using the data table
@@ -724,6 +735,12 @@ public class UpsertCompiler {
                         .isPkPositionChanging(new TableRef(table), projectedExpressions)) {
                     runOnServer = false;
                 }
+                // A join can only run on the server as a hash join of the regions of its left
+                // hand side table, each one writing its share of the joined rows
+                final HashJoinPlan serverJoinPlan = isJoin ? getServerHashJoinPlan(queryPlan) : null;
+                if (isJoin && serverJoinPlan == null) {
+                    runOnServer = false;
+                }
                 ////////////////////////////////////////////////////////////////////
                 // UPSERT SELECT run server-side
                 /////////////////////////////////////////////////////////////////////
@@ -767,7 +784,20 @@ public class UpsertCompiler {
                     scan.setAttribute(BaseScannerRegionObserver.UPSERT_SELECT_EXPRS, UngroupedAggregateRegionObserver.serialize(projectedExpressions));
                     
                     // Ignore order by - it has no impact
-                    final QueryPlan aggPlan = new AggregatePlan(context, select, statementContext.getCurrentTable(), aggProjector, null,null, OrderBy.EMPTY_ORDER_BY, null, GroupBy.EMPTY_GROUP_BY, null, originalQueryPlan);
+                    QueryPlan aggPlanToBe;
+                    if (serverJoinPlan == null) {
+                        aggPlanToBe = new AggregatePlan(context, select, statementContext.getCurrentTable(), aggProjector, null,null, OrderBy.EMPTY_ORDER_BY, null, GroupBy.EMPTY_GROUP_BY, null, originalQueryPlan);
+                    } else {
+                        // Keep the WHERE clause of the left hand side in case the hash join
+                        // recompiles it to narrow the scan down to the keys of the right hand side
+                        SelectStatement joinSelect = SelectStatement.create(
+                                (SelectStatement) serverJoinPlan.getDelegate().getStatement(), select.getSelect());
+                        aggPlanToBe = new AggregatePlan(context, joinSelect, statementContext.getCurrentTable(), aggProjector, null,null, OrderBy.EMPTY_ORDER_BY, null, GroupBy.EMPTY_GROUP_BY, null, originalQueryPlan);
+                        // Ship the hash caches of the right hand sides to the regions before scanning
+                        aggPlanToBe = HashJoinPlan.create((SelectStatement) serverJoinPlan.getStatement(),
+                                aggPlanToBe, serverJoinPlan.getJoinInfo(), serverJoinPlan.getSubPlans());
+                    }
+                    final QueryPlan aggPlan = aggPlanToBe;
                     return new ServerUpsertSelectMutationPlan(queryPlan, tableRef, originalQueryPlan, context, connection, scan, aggPlan, aggProjector, maxSize, maxSizeBytes);
                 }
             }
@@ -1015,6 +1045,31 @@ public class UpsertCompiler {
         }
     }
 
+    /**
+     * Returns the given plan if it is a hash join the regions of its left hand side table can run
+     * on their own, without any client side post processing of the joined rows.
+     * @param plan the optimized plan of the select of an UPSERT SELECT
+     * @return the hash join plan or null if the join has to run on the client
+     */
+    private static HashJoinPlan getServerHashJoinPlan(QueryPlan plan) {
+        if (!(plan instanceof HashJoinPlan)) {
+            return null;
+        }
+        HashJoinPlan hashJoinPlan = (HashJoinPlan) plan;
+        if (hashJoinPlan.getJoinInfo() == null
+                || !(hashJoinPlan.getDelegate() instanceof ScanPlan)
+                || !(hashJoinPlan.getDelegate().getStatement() instanceof SelectStatement)
+                || ((SelectStatement) hashJoinPlan.getStatement()).getInnerSelectStatement() != null) {
+            return null;
+        }
+        for (SubPlan subPlan : hashJoinPlan.getSubPlans()) {
+            if (!(subPlan instanceof HashSubPlan)) {
+                return null;
+            }
+        }
+        return hashJoinPlan;
+    }
+
     private class ServerUpsertSelectMutationPlan implements MutationPlan {
         private final QueryPlan queryPlan;
         private final TableRef tableRef;
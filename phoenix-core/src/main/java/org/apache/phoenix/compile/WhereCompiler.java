@@ -37,7 +37,9 @@ import org.apache.phoenix.expression.Determinism;
 import org.apache.phoenix.expression.Expression;
 import org.apache.phoenix.expression.KeyValueColumnExpression;
 import org.apache.phoenix.expression.LiteralExpression;
+import org.apache.phoenix.expression.ProjectedColumnExpression;
 import org.apache.phoenix.expression.visitor.KeyValueExpressionVisitor;
+import org.apache.phoenix.expression.visitor.ProjectedColumnExpressionVisitor;
 import org.apache.phoenix.filter.MultiCFCQKeyValueComparisonFilter;
 import org.apache.phoenix.filter.MultiCQKeyValueComparisonFilter;
 import org.apache.phoenix.filter.MultiEncodedCQKeyValueComparisonFilter;
@@ -67,6 +69,7 @@ import org.apache.phoenix.schema.TypeMismatchException;
 import org.apache.phoenix.schema.types.PBoolean;
 import org.apache.phoenix.util.ByteUtil;
 import org.apache.phoenix.util.ExpressionUtil;
+import org.apache.phoenix.util.IndexUtil;
 import org.apache.phoenix.util.ScanUtil;
 import org.apache.phoenix.util.SchemaUtil;
 
@@ -249,6 +252,11 @@ public class WhereCompiler {
 
         if (LiteralExpression.isBooleanFalseOrNull(whereClause)) {
             context.setScanRanges(ScanRanges.NOTHING);
+        } else if (whereClause != null && !ExpressionUtil.evaluatesToTrue(whereClause)
+                && isEvaluatedAfterDataTableJoin(context, whereClause)) {
+            // The data table columns referenced by the filter are only available once the rows of
+            // an uncovered global index have been joined back to the data table on the server
+            IndexUtil.serializeUncoveredGlobalIndexFilter(scan, whereClause);
         } else if (whereClause != null && !ExpressionUtil.evaluatesToTrue(whereClause)) {
             Filter filter = null;
             final Counter counter = new Counter();
@@ -315,6 +323,23 @@ public class WhereCompiler {
         }
     }
     
+    private static boolean isEvaluatedAfterDataTableJoin(StatementContext context, Expression whereClause) {
+        TableRef tableRef = context.getCurrentTable();
+        if (tableRef.getTable().getIndexType() != IndexType.GLOBAL
+                || !IndexUtil.shouldIndexBeUsedForUncoveredQuery(tableRef)) {
+            return false;
+        }
+        final boolean[] referencesDataColumn = new boolean[1];
+        whereClause.accept(new ProjectedColumnExpressionVisitor() {
+            @Override
+            public Void visit(ProjectedColumnExpression node) {
+                referencesDataColumn[0] = true;
+                return null;
+            }
+        });
+        return referencesDataColumn[0];
+    }
+
     private static class SubqueryParseNodeVisitor extends StatelessTraverseAllParseNodeVisitor {
         private final StatementContext context;
         private final Set<SubqueryParseNode> subqueryNodes;
@@ -18,6 +18,7 @@
 package org.apache.phoenix.coprocessor;
 
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.List;
 
 import org.apache.hadoop.hbase.Cell;
@@ -27,12 +28,14 @@ import org.apache.hadoop.hbase.client.Scan;
 import org.apache.hadoop.hbase.coprocessor.ObserverContext;
 import org.apache.hadoop.hbase.coprocessor.RegionCoprocessorEnvironment;
 import org.apache.hadoop.hbase.coprocessor.RegionObserver;
+import org.apache.hadoop.hbase.filter.FirstKeyOnlyFilter;
 import org.apache.hadoop.hbase.io.ImmutableBytesWritable;
 import org.apache.hadoop.hbase.io.TimeRange;
 import org.apache.hadoop.hbase.regionserver.Region;
 import org.apache.hadoop.hbase.regionserver.RegionScanner;
 import org.apache.hadoop.hbase.regionserver.ScannerContext;
 import org.apache.hadoop.hbase.regionserver.ScannerContextUtil;
+import org.apache.hadoop.hbase.regionserver.Store;
 import org.apache.hadoop.hbase.util.Bytes;
 import org.apache.htrace.Span;
 import org.apache.htrace.Trace;
@@ -46,6 +49,9 @@ import org.apache.phoenix.schema.types.PUnsignedTinyint;
 import org.apache.phoenix.util.ScanUtil;
 import org.apache.phoenix.util.ServerUtil;
 
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+
 
 abstract public class BaseScannerRegionObserver implements RegionObserver {
 
@@ -72,6 +78,8 @@ abstract public class BaseScannerRegionObserver implements RegionObserver {
     // Index verification type done by the index tool
     public static final String INDEX_REBUILD_VERIFY_TYPE = "_IndexRebuildVerifyType";
     public static final String INDEX_RETRY_VERIFY = "_IndexRetryVerify";
+    // Checksum the index rows of an IndexTool verification batch instead of returning them
+    public static final String INDEX_VERIFY_CHECKSUM = "_IndexVerifyChecksum";
     public static final String INDEX_REBUILD_DISABLE_LOGGING_VERIFY_TYPE =
         "_IndexRebuildDisableLoggingVerifyType";
 
@@ -113,6 +121,16 @@ abstract public class BaseScannerRegionObserver implements RegionObserver {
     public static final String EMPTY_COLUMN_FAMILY_NAME = "_EmptyCFName";
     public static final String EMPTY_COLUMN_QUALIFIER_NAME = "_EmptyCQName";
     public static final String INDEX_ROW_KEY = "_IndexRowKey";
+    // Batch size and projected expressions of scans returning columnar batches
+    public static final String COLUMNAR_BATCH = "_ColumnarBatch";
+    // Array indexes per column family that packed single cells are trimmed to
+    public static final String SINGLE_CELL_PROJECTION = "_SingleCellProjection";
+    // Max cell timestamp covered by the zone map that rules out the rows of the scan
+    public static final String ZONE_MAP_TIMESTAMP = "_ZoneMapTimestamp";
+    // Physical name of the data table that rows of an uncovered global index scan are joined back to
+    public static final String UNCOVERED_GLOBAL_INDEX = "_UncoveredGlobalIndex";
+    // Filter on data table columns evaluated after rows of an uncovered global index scan are joined back
+    public static final String UNCOVERED_GLOBAL_INDEX_FILTER = "_UncoveredGlobalIndexFilter";
     
     public final static byte[] REPLAY_TABLE_AND_INDEX_WRITES = PUnsignedTinyint.INSTANCE.toBytes(1);
     public final static byte[] REPLAY_ONLY_INDEX_WRITES = PUnsignedTinyint.INSTANCE.toBytes(2);
@@ -196,6 +214,162 @@ abstract public class BaseScannerRegionObserver implements RegionObserver {
         }
     }
 
+    /**
+     * A chunk of a region whose scan was pruned by a zone map, along with the time range of the
+     * cells that would make the zone map stale
+     */
+    private static final class ZoneMapChunk {
+        private final String regionName;
+        private final byte[] startRow;
+        private final byte[] stopRow;
+        private final long minTimestamp;
+        private final long maxTimestamp;
+        private final List<byte[]> families;
+
+        private ZoneMapChunk(String regionName, Scan scan, long minTimestamp, long maxTimestamp) {
+            this.regionName = regionName;
+            this.startRow = scan.getStartRow();
+            this.stopRow = scan.getStopRow();
+            this.minTimestamp = minTimestamp;
+            this.maxTimestamp = maxTimestamp;
+            this.families = new ArrayList<>(scan.getFamilyMap().keySet());
+        }
+
+        @Override
+        public int hashCode() {
+            int result = regionName.hashCode();
+            result = 31 * result + Bytes.hashCode(startRow);
+            result = 31 * result + Bytes.hashCode(stopRow);
+            result = 31 * result + Long.hashCode(minTimestamp);
+            result = 31 * result + Long.hashCode(maxTimestamp);
+            for (byte[] family : families) {
+                result = 31 * result + Bytes.hashCode(family);
+            }
+            return result;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (!(obj instanceof ZoneMapChunk)) {
+                return false;
+            }
+            ZoneMapChunk other = (ZoneMapChunk) obj;
+            if (!regionName.equals(other.regionName) || !Bytes.equals(startRow, other.startRow)
+                    || !Bytes.equals(stopRow, other.stopRow) || minTimestamp != other.minTimestamp
+                    || maxTimestamp != other.maxTimestamp || families.size() != other.families.size()) {
+                return false;
+            }
+            for (int i = 0; i < families.size(); i++) {
+                if (!Bytes.equals(families.get(i), other.families.get(i))) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+    /**
+     * The outcome of probing a pruned chunk for cells newer than its zone map. Newer cells make
+     * the zone map stale for good, while their absence only holds until the region is written to
+     * or gets new store files, such as by a bulk load.
+     */
+    private static final class ZoneMapProbe {
+        private final boolean hasNewerCells;
+        private final long writeRequestsCount;
+        private final int storeFilesCount;
+
+        private ZoneMapProbe(boolean hasNewerCells, long writeRequestsCount, int storeFilesCount) {
+            this.hasNewerCells = hasNewerCells;
+            this.writeRequestsCount = writeRequestsCount;
+            this.storeFilesCount = storeFilesCount;
+        }
+    }
+
+    // Chunks pruned by a zone map are scanned repeatedly by queries with the same WHERE clause
+    private static final int MAX_ZONE_MAP_PROBES = 10000;
+    private static final Cache<ZoneMapChunk, ZoneMapProbe> zoneMapProbes =
+            CacheBuilder.newBuilder().maximumSize(MAX_ZONE_MAP_PROBES).<ZoneMapChunk, ZoneMapProbe>build();
+
+    private static int getStoreFilesCount(Region region) {
+        int storeFilesCount = 0;
+        for (Store store : region.getStores()) {
+            storeFilesCount += store.getStorefilesCount();
+        }
+        return storeFilesCount;
+    }
+
+    /**
+     * The client sets the timestamp of the zone map of a guidepost on the scan of its chunk when
+     * the zone map rules out every row of the chunk. The rows are skipped unless the chunk has
+     * cells written after the zone map was collected, as values may then be outside of it.
+     * Scans that read as of a time before the zone map was collected are never skipped, as the
+     * zone map does not describe the rows deleted or updated since then.
+     */
+    private static RegionScanner skipIfPrunedByZoneMap(Region region, Scan scan, RegionScanner s)
+            throws IOException {
+        byte[] zoneMapTimestamp = scan.getAttribute(ZONE_MAP_TIMESTAMP);
+        if (zoneMapTimestamp == null || scan.isRaw()) {
+            return s;
+        }
+        long minTimestamp = Bytes.toLong(zoneMapTimestamp) + 1;
+        long maxTimestamp = scan.getTimeRange().getMax();
+        if (maxTimestamp < minTimestamp) {
+            return s;
+        }
+        if (minTimestamp < maxTimestamp) {
+            // Read the counts before probing so that a concurrent write invalidates the probe
+            long writeRequestsCount = region.getWriteRequestsCount();
+            int storeFilesCount = getStoreFilesCount(region);
+            ZoneMapChunk chunk = new ZoneMapChunk(region.getRegionInfo().getEncodedName(), scan,
+                    minTimestamp, maxTimestamp);
+            ZoneMapProbe cachedProbe = zoneMapProbes.getIfPresent(chunk);
+            if (cachedProbe != null) {
+                if (cachedProbe.hasNewerCells) {
+                    return s;
+                }
+                if (cachedProbe.writeRequestsCount == writeRequestsCount
+                        && cachedProbe.storeFilesCount == storeFilesCount) {
+                    return skipAll(s);
+                }
+            }
+            // Store files that only have older cells are skipped based on their time range
+            Scan probe = new Scan().withStartRow(scan.getStartRow(), scan.includeStartRow())
+                    .withStopRow(scan.getStopRow(), scan.includeStopRow())
+                    .setReversed(scan.isReversed())
+                    .setTimeRange(minTimestamp, maxTimestamp)
+                    .setFilter(new FirstKeyOnlyFilter());
+            for (byte[] family : scan.getFamilyMap().keySet()) {
+                probe.addFamily(family);
+            }
+            List<Cell> results = new ArrayList<>(1);
+            try (RegionScanner probeScanner = region.getScanner(probe)) {
+                probeScanner.next(results);
+            }
+            zoneMapProbes.put(chunk, new ZoneMapProbe(!results.isEmpty(), writeRequestsCount, storeFilesCount));
+            if (!results.isEmpty()) {
+                return s;
+            }
+        }
+        return skipAll(s);
+    }
+
+    private static RegionScanner skipAll(RegionScanner s) {
+        return new DelegateRegionScanner(s) {
+            @Override
+            public boolean next(List<Cell> result) {
+                return false;
+            }
+
+            @Override
+            public boolean nextRaw(List<Cell> result) {
+                return false;
+            }
+        };
+    }
+
     abstract protected boolean isRegionObserverFor(Scan scan);
     abstract protected RegionScanner doPostScannerOpen(ObserverContext<RegionCoprocessorEnvironment> c, final Scan scan, final RegionScanner s) throws Throwable;
 
@@ -251,7 +425,8 @@ abstract public class BaseScannerRegionObserver implements RegionObserver {
                 final Span savedSpan = Trace.currentSpan();
                 final Span child = Trace.startSpan(SCANNER_OPENED_TRACE_INFO, savedSpan).getSpan();
                 try {
-                    RegionScanner scanner = doPostScannerOpen(c, scan, delegate);
+                    RegionScanner scanner = doPostScannerOpen(c, scan,
+                            skipIfPrunedByZoneMap(c.getEnvironment().getRegion(), scan, delegate));
                     scanner = new DelegateRegionScanner(scanner) {
                         // This isn't very obvious but close() could be called in a thread
                         // that is different from the thread that created the scanner.
@@ -154,7 +154,7 @@ public class GroupedAggregateRegionObserver extends BaseScannerRegionObserver im
             final TupleProjector p = TupleProjector.deserializeProjectorFromScan(scan);
             final HashJoinInfo j = HashJoinInfo.deserializeHashJoinFromScan(scan);
             boolean useQualifierAsIndex = EncodedColumnsUtil.useQualifierAsIndex(EncodedColumnsUtil.getMinMaxQualifiersFromScan(scan));
-            if (ScanUtil.isLocalIndex(scan) || (j == null && p != null)) {
+            if (ScanUtil.isLocalIndex(scan) || ScanUtil.isUncoveredGlobalIndex(scan) || (j == null && p != null)) {
                 if (dataColumns != null) {
                     tupleProjector = IndexUtil.getTupleProjector(scan, dataColumns);
                     viewConstants = IndexUtil.deserializeViewConstantsFromScan(scan);
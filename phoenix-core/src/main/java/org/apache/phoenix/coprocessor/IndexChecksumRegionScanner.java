@@ -0,0 +1,95 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.phoenix.coprocessor;
+
+import static org.apache.phoenix.query.QueryConstants.AGG_TIMESTAMP;
+import static org.apache.phoenix.query.QueryConstants.SINGLE_COLUMN;
+import static org.apache.phoenix.query.QueryConstants.SINGLE_COLUMN_FAMILY;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.hadoop.hbase.Cell;
+import org.apache.hadoop.hbase.CellUtil;
+import org.apache.hadoop.hbase.client.Scan;
+import org.apache.hadoop.hbase.regionserver.Region;
+import org.apache.hadoop.hbase.regionserver.RegionScanner;
+import org.apache.phoenix.util.PhoenixKeyValueUtil;
+
+/**
+ * Scanner run on an index region for IndexTool verification. Instead of returning the index rows,
+ * it folds the latest version of the cells of every row scanned, except for the empty column that
+ * only holds the verification status of the row, into an {@link IndexRowChecksum} and returns it
+ * as a single cell keyed by the last row scanned, so that the checksums of consecutive index
+ * regions come back as distinct rows of the same client scan.
+ */
+public class IndexChecksumRegionScanner extends BaseRegionScanner {
+
+    private final Region region;
+    private final byte[] emptyCF;
+    private final byte[] emptyCQ;
+    private boolean done = false;
+
+    public IndexChecksumRegionScanner(RegionScanner innerScanner, Region region, Scan scan) {
+        super(innerScanner);
+        this.region = region;
+        this.emptyCF = scan.getAttribute(BaseScannerRegionObserver.EMPTY_COLUMN_FAMILY_NAME);
+        this.emptyCQ = scan.getAttribute(BaseScannerRegionObserver.EMPTY_COLUMN_QUALIFIER_NAME);
+    }
+
+    @Override
+    public boolean next(List<Cell> results) throws IOException {
+        if (done) {
+            return false;
+        }
+        IndexRowChecksum checksum = new IndexRowChecksum();
+        Cell lastCell = null;
+        region.startRegionOperation();
+        try {
+            synchronized (delegate) {
+                boolean hasMore;
+                List<Cell> row = new ArrayList<Cell>();
+                do {
+                    row.clear();
+                    hasMore = delegate.nextRaw(row);
+                    if (row.isEmpty()) {
+                        continue;
+                    }
+                    lastCell = row.get(0);
+                    checksum.addRow(lastCell.getRowArray(), lastCell.getRowOffset(),
+                            lastCell.getRowLength());
+                    for (Cell cell : row) {
+                        if (!CellUtil.matchingColumn(cell, emptyCF, emptyCQ)) {
+                            checksum.add(cell);
+                        }
+                    }
+                } while (hasMore);
+            }
+        } finally {
+            region.closeRegionOperation();
+            done = true;
+        }
+        if (lastCell != null) {
+            byte[] value = checksum.toBytes();
+            results.add(PhoenixKeyValueUtil.newKeyValue(CellUtil.cloneRow(lastCell),
+                    SINGLE_COLUMN_FAMILY, SINGLE_COLUMN, AGG_TIMESTAMP, value, 0, value.length));
+        }
+        return false;
+    }
+}
@@ -79,11 +79,14 @@ import org.apache.phoenix.index.PhoenixIndexCodec;
 import org.apache.phoenix.mapreduce.index.IndexTool;
 import org.apache.phoenix.mapreduce.index.IndexVerificationResultRepository;
 import org.apache.phoenix.query.KeyRange;
+import org.apache.phoenix.query.QueryConstants;
+import org.apache.phoenix.query.QueryServices;
 import org.apache.phoenix.query.QueryServicesOptions;
 import org.apache.phoenix.schema.types.PLong;
 import org.apache.phoenix.schema.types.PVarbinary;
 import org.apache.phoenix.util.IndexUtil;
 import org.apache.phoenix.util.PhoenixKeyValueUtil;
+import org.apache.phoenix.util.ScanUtil;
 import org.apache.phoenix.util.ServerUtil;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -96,24 +99,31 @@ public class IndexRebuildRegionScanner extends GlobalIndexRegionScanner {
     private static final Logger LOGGER = LoggerFactory.getLogger(IndexRebuildRegionScanner.class);
     private final long maxBatchSizeBytes;
     private final long blockingMemstoreSize;
+    private final IndexRebuildThrottle throttle;
     private final byte[] clientVersionBytes;
     private boolean useProto = true;
     private byte[] indexRowKey;
     private IndexTool.IndexVerifyType verifyType = IndexTool.IndexVerifyType.NONE;
     private IndexTool.IndexDisableLoggingType disableLoggingVerifyType = IndexTool.IndexDisableLoggingType.NONE;
     private boolean verify = false;
+    private boolean checksumVerification = false;
     private Map<byte[], List<Mutation>> indexKeyToMutationMap;
     private Map<byte[], Pair<Put, Delete>> dataKeyToMutationMap;
     private UngroupedAggregateRegionObserver ungroupedAggregateRegionObserver;
     protected UngroupedAggregateRegionObserver.MutationList mutations;
     private boolean isBeforeRebuilt = true;
     private boolean partialRebuild = false;
+    // true if only the data rows changed within the time range of the scan are rebuilt or verified
+    private boolean incremental = false;
+    private Scan fullRowScan;
     private int singleRowRebuildReturnCode;
     private Map<byte[], NavigableSet<byte[]>> familyMap;
     private byte[][] viewConstants;
     private IndexVerificationOutputRepository verificationOutputRepository;
     protected IndexVerificationResultRepository verificationResultRepository;
     private boolean skipped = false;
+    // true once the scan has been exhausted, so the verification result covers the whole range
+    private boolean scanCompleted = false;
     private boolean shouldVerifyCheckDone = false;
 
     @VisibleForTesting
@@ -129,6 +139,7 @@ public class IndexRebuildRegionScanner extends GlobalIndexRegionScanner {
                 QueryServicesOptions.DEFAULT_MUTATE_BATCH_SIZE_BYTES);
         mutations = new UngroupedAggregateRegionObserver.MutationList(maxBatchSize);
         blockingMemstoreSize = UngroupedAggregateRegionObserver.getBlockingMemstoreSize(region, config);
+        throttle = new IndexRebuildThrottle(config, maxBatchSize, blockingMemstoreSize);
         clientVersionBytes = scan.getAttribute(BaseScannerRegionObserver.CLIENT_VERSION);
         indexMetaData = scan.getAttribute(PhoenixIndexCodec.INDEX_PROTO_MD);
         if (indexMetaData == null) {
@@ -144,11 +155,18 @@ public class IndexRebuildRegionScanner extends GlobalIndexRegionScanner {
             setReturnCodeForSingleRowRebuild();
             pageSizeInRows = 1;
         }
+        if (isIncrementalScan(scan)) {
+            incremental = true;
+            fullRowScan = UngroupedAggregateRegionObserver.getRawRebuildScan(scan);
+            fullRowScan.setTimeRange(0, scan.getTimeRange().getMax());
+        }
         byte[] valueBytes = scan.getAttribute(BaseScannerRegionObserver.INDEX_REBUILD_VERIFY_TYPE);
         if (valueBytes != null) {
             verifyType = IndexTool.IndexVerifyType.fromValue(valueBytes);
             if (verifyType != IndexTool.IndexVerifyType.NONE) {
                 verify = true;
+                checksumVerification = config.getBoolean(QueryServices.INDEX_VERIFY_CHECKSUM_ENABLED,
+                        QueryServicesOptions.DEFAULT_INDEX_VERIFY_CHECKSUM_ENABLED);
                 viewConstants = IndexUtil.deserializeViewConstantsFromScan(scan);
                 byte[] disableLoggingValueBytes =
                     scan.getAttribute(BaseScannerRegionObserver.INDEX_REBUILD_DISABLE_LOGGING_VERIFY_TYPE);
@@ -173,6 +191,44 @@ public class IndexRebuildRegionScanner extends GlobalIndexRegionScanner {
         }
     }
 
+    /**
+     * @return true if the given IndexTool scan is to rebuild or verify only the data rows that have
+     * changed within its time range. The scan then only finds these rows, and their index rows are
+     * built from the full history of each row.
+     */
+    public static boolean isIncrementalScan(Scan scan) {
+        return scan.getAttribute(BaseScannerRegionObserver.INDEX_REBUILD_PAGING) != null
+                && scan.getAttribute(BaseScannerRegionObserver.INDEX_ROW_KEY) == null
+                && scan.getTimeRange().getMin() > 0;
+    }
+
+    /**
+     * Reads the full history of the given data rows, found by the incremental scan, with a single
+     * skip scan over the region
+     */
+    private List<List<Cell>> getFullRows(List<List<Cell>> rows) throws IOException {
+        List<KeyRange> keys = new ArrayList<>(rows.size());
+        for (List<Cell> row : rows) {
+            keys.add(PVarbinary.INSTANCE.getKeyRange(CellUtil.cloneRow(row.get(0))));
+        }
+        ScanRanges scanRanges = ScanRanges.createPointLookup(keys);
+        Scan rowScan = new Scan(fullRowScan);
+        scanRanges.initializeScan(rowScan);
+        ScanUtil.andFilterAtBeginning(rowScan, scanRanges.getSkipScanFilter());
+        List<List<Cell>> fullRows = new ArrayList<>(rows.size());
+        try (RegionScanner scanner = region.getScanner(rowScan)) {
+            boolean more;
+            do {
+                List<Cell> row = new ArrayList<Cell>();
+                more = scanner.next(row);
+                if (!row.isEmpty()) {
+                    fullRows.add(row);
+                }
+            } while (more);
+        }
+        return fullRows;
+    }
+
     @VisibleForTesting
     public boolean shouldVerify(IndexTool.IndexVerifyType verifyType,
             byte[] indexRowKey, Scan scan, Region region, IndexMaintainer indexMaintainer,
@@ -243,7 +299,9 @@ public class IndexRebuildRegionScanner extends GlobalIndexRegionScanner {
         innerScanner.close();
         if (verify) {
             try {
-                if (verificationResultRepository != null) {
+                // A restarted IndexTool skips the ranges that have a result logged, so only log
+                // the result of a range once it has been fully processed
+                if (verificationResultRepository != null && scanCompleted) {
                     verificationResultRepository.logToIndexToolResultTable(verificationResult,
                         verifyType, region.getRegionInfo().getRegionName(), skipped);
                 }
@@ -272,15 +330,21 @@ public class IndexRebuildRegionScanner extends GlobalIndexRegionScanner {
     }
 
     private byte[] commitIfReady(byte[] uuidValue, UngroupedAggregateRegionObserver.MutationList mutationList) throws IOException {
-        if (ServerUtil.readyToCommit(mutationList.size(), mutationList.byteSize(), maxBatchSize, maxBatchSizeBytes)) {
-            ungroupedAggregateRegionObserver.checkForRegionClosingOrSplitting();
-            ungroupedAggregateRegionObserver.commitBatchWithRetries(region, mutationList, blockingMemstoreSize);
+        if (ServerUtil.readyToCommit(mutationList.size(), mutationList.byteSize(), throttle.getBatchSize(),
+                maxBatchSizeBytes)) {
+            commitBatch(mutationList);
             uuidValue = ServerCacheClient.generateId();
             mutationList.clear();
         }
         return uuidValue;
     }
 
+    private void commitBatch(List<Mutation> mutationList) throws IOException {
+        ungroupedAggregateRegionObserver.checkForRegionClosingOrSplitting();
+        throttle.beforeCommit(region);
+        ungroupedAggregateRegionObserver.commitBatchWithRetries(region, mutationList, blockingMemstoreSize);
+    }
+
     @VisibleForTesting
     public int setIndexTableTTL(int ttl) {
         indexTableTTL = ttl;
@@ -715,12 +779,113 @@ public class IndexRebuildRegionScanner extends GlobalIndexRegionScanner {
         return true;
     }
 
+    /**
+     * Adds the cells an index row is expected to show to a reader to the given checksum, that is
+     * the latest version of each column put after the last row delete, except for the empty column
+     * which only holds the verification status of the row. Nothing is added for a deleted row.
+     */
+    private void addExpectedIndexRow(byte[] indexRowKey, IndexRowChecksum checksum) {
+        List<Mutation> mutationList = indexKeyToMutationMap.get(indexRowKey);
+        long deleteTs = -1;
+        for (Mutation mutation : mutationList) {
+            if (mutation instanceof Delete) {
+                deleteTs = Math.max(deleteTs, getTimestamp(mutation));
+            }
+        }
+        byte[] emptyCF = indexMaintainer.getEmptyKeyValueFamily().copyBytesIfNecessary();
+        byte[] emptyCQ = indexMaintainer.getEmptyKeyValueQualifier();
+        List<Cell> latestCells = new ArrayList<>();
+        boolean rowExists = false;
+        for (Mutation mutation : mutationList) {
+            if (!(mutation instanceof Put) || getTimestamp(mutation) <= deleteTs) {
+                continue;
+            }
+            rowExists = true;
+            for (List<Cell> cells : mutation.getFamilyCellMap().values()) {
+                for (Cell cell : cells) {
+                    if (CellUtil.matchingColumn(cell, emptyCF, emptyCQ)) {
+                        continue;
+                    }
+                    int i = 0;
+                    while (i < latestCells.size() && !CellUtil.matchingColumn(latestCells.get(i), cell)) {
+                        i++;
+                    }
+                    if (i == latestCells.size()) {
+                        latestCells.add(cell);
+                    } else if (latestCells.get(i).getTimestamp() < cell.getTimestamp()) {
+                        latestCells.set(i, cell);
+                    }
+                }
+            }
+        }
+        if (rowExists) {
+            checksum.addRow(indexRowKey, 0, indexRowKey.length);
+            for (Cell cell : latestCells) {
+                checksum.add(cell);
+            }
+        }
+    }
+
+    /**
+     * Compares the checksum of the expected index rows for the given keys with the checksum of the
+     * actual index rows computed on the index regions by {@link IndexChecksumRegionScanner}. Both
+     * sides cover the latest version of the rows without their empty column, so the verification
+     * status of a row, which is not part of the expected mutations, does not change the checksum.
+     * If they match, the index rows hold exactly the expected values and so all of them are valid.
+     * If they do not, the rows have to be verified one by one to find out which ones are not valid,
+     * as some differences such as unverified rows left behind by failed writes are not errors.
+     */
+    private boolean isChecksumMatching(List<KeyRange> keys) throws IOException {
+        IndexRowChecksum expectedChecksum = new IndexRowChecksum();
+        for (KeyRange keyRange : keys) {
+            addExpectedIndexRow(keyRange.getLowerRange(), expectedChecksum);
+        }
+        ScanRanges scanRanges = ScanRanges.createPointLookup(keys);
+        Scan indexScan = new Scan();
+        indexScan.setTimeRange(incremental ? 0 : scan.getTimeRange().getMin(), scan.getTimeRange().getMax());
+        scanRanges.initializeScan(indexScan);
+        if (scanRanges.getSkipScanFilter() != null) {
+            indexScan.setFilter(scanRanges.getSkipScanFilter());
+        }
+        indexScan.setCacheBlocks(false);
+        indexScan.setAttribute(BaseScannerRegionObserver.UNGROUPED_AGG, QueryConstants.TRUE);
+        indexScan.setAttribute(BaseScannerRegionObserver.SKIP_REGION_BOUNDARY_CHECK, Bytes.toBytes(true));
+        indexScan.setAttribute(BaseScannerRegionObserver.INDEX_VERIFY_CHECKSUM, QueryConstants.TRUE);
+        indexScan.setAttribute(BaseScannerRegionObserver.EMPTY_COLUMN_FAMILY_NAME,
+                indexMaintainer.getEmptyKeyValueFamily().copyBytesIfNecessary());
+        indexScan.setAttribute(BaseScannerRegionObserver.EMPTY_COLUMN_QUALIFIER_NAME,
+                indexMaintainer.getEmptyKeyValueQualifier());
+        IndexRowChecksum actualChecksum = new IndexRowChecksum();
+        try (ResultScanner resultScanner = indexHTable.getScanner(indexScan)) {
+            for (Result result = resultScanner.next(); (result != null); result = resultScanner.next()) {
+                Cell cell = result.getColumnLatestCell(SINGLE_COLUMN_FAMILY, SINGLE_COLUMN);
+                if (result.rawCells().length != 1 || cell == null
+                        || cell.getValueLength() != IndexRowChecksum.SERIALIZED_LENGTH) {
+                    // The index region returned rows instead of their checksum
+                    return false;
+                }
+                actualChecksum.add(IndexRowChecksum.fromBytes(cell.getValueArray(),
+                        cell.getValueOffset(), cell.getValueLength()));
+            }
+        } catch (Throwable t) {
+            ServerUtil.throwIOException(indexHTable.getName().toString(), t);
+        }
+        return expectedChecksum.equals(actualChecksum);
+    }
+
     private void verifyIndexRows(List<KeyRange> keys,
             IndexToolVerificationResult.PhaseResult verificationPhaseResult) throws IOException {
+        // Expired rows are counted separately, which only the row by row verification can do
+        if (checksumVerification && indexTableTTL == HConstants.FOREVER && isChecksumMatching(keys)) {
+            verificationPhaseResult.setValidIndexRowCount(verificationPhaseResult.getValidIndexRowCount() + keys.size());
+            keys.clear();
+            return;
+        }
         List<KeyRange> invalidKeys = new ArrayList<>();
         ScanRanges scanRanges = ScanRanges.createPointLookup(keys);
         Scan indexScan = new Scan();
-        indexScan.setTimeRange(scan.getTimeRange().getMin(), scan.getTimeRange().getMax());
+        // The index rows of the changed data rows are compared with their full history
+        indexScan.setTimeRange(incremental ? 0 : scan.getTimeRange().getMin(), scan.getTimeRange().getMax());
         scanRanges.initializeScan(indexScan);
         /*
         SkipScanFilter skipScanFilter = scanRanges.getSkipScanFilter();
@@ -881,8 +1046,7 @@ public class IndexRebuildRegionScanner extends GlobalIndexRegionScanner {
             }
         }
         if (!currentMutationList.isEmpty()) {
-            ungroupedAggregateRegionObserver.checkForRegionClosingOrSplitting();
-            ungroupedAggregateRegionObserver.commitBatchWithRetries(region, currentMutationList, blockingMemstoreSize);
+            commitBatch(currentMutationList);
         }
     }
 
@@ -1202,66 +1366,74 @@ public class IndexRebuildRegionScanner extends GlobalIndexRegionScanner {
             synchronized (innerScanner) {
                 if(!shouldVerify()) {
                     skipped = true;
+                    scanCompleted = true;
                     return false;
                 }
+                List<List<Cell>> rows = new ArrayList<>();
                 do {
                     List<Cell> row = new ArrayList<Cell>();
                     hasMore = innerScanner.nextRaw(row);
                     if (!row.isEmpty()) {
                         lastCell = row.get(0); // lastCell is any cell from the last visited row
-                        Put put = null;
-                        Delete del = null;
-                        for (Cell cell : row) {
-                            if (KeyValue.Type.codeToType(cell.getTypeByte()) == KeyValue.Type.Put) {
-                                if (!partialRebuild && familyMap != null && !isColumnIncluded(cell)) {
-                                    continue;
-                                }
-                                if (put == null) {
-                                    put = new Put(CellUtil.cloneRow(cell));
-                                }
-                                put.add(cell);
-                            } else {
-                                if (del == null) {
-                                    del = new Delete(CellUtil.cloneRow(cell));
-                                }
-                                del.addDeleteMarker(cell);
+                        rows.add(row);
+                    }
+                } while (hasMore && rows.size() < pageSizeInRows);
+                if (incremental && !rows.isEmpty()) {
+                    rows = getFullRows(rows);
+                }
+                for (List<Cell> row : rows) {
+                    Put put = null;
+                    Delete del = null;
+                    for (Cell cell : row) {
+                        if (KeyValue.Type.codeToType(cell.getTypeByte()) == KeyValue.Type.Put) {
+                            if (!partialRebuild && familyMap != null && !isColumnIncluded(cell)) {
+                                continue;
                             }
+                            if (put == null) {
+                                put = new Put(CellUtil.cloneRow(cell));
+                            }
+                            put.add(cell);
+                        } else {
+                            if (del == null) {
+                                del = new Delete(CellUtil.cloneRow(cell));
+                            }
+                            del.addDeleteMarker(cell);
                         }
-                        if (put == null && del == null) {
-                            continue;
-                        }
-                        // Always add the put first and then delete for a given row. This simplifies the logic in
-                        // IndexRegionObserver
+                    }
+                    if (put == null && del == null) {
+                        continue;
+                    }
+                    // Always add the put first and then delete for a given row. This simplifies the logic in
+                    // IndexRegionObserver
+                    if (put != null) {
+                        mutations.add(put);
+                    }
+                    if (del != null) {
+                        mutations.add(del);
+                    }
+                    if (!verify) {
                         if (put != null) {
-                            mutations.add(put);
+                            setMutationAttributes(put, uuidValue);
                         }
                         if (del != null) {
-                            mutations.add(del);
+                            setMutationAttributes(del, uuidValue);
                         }
-                        if (!verify) {
-                            if (put != null) {
-                                setMutationAttributes(put, uuidValue);
-                            }
-                            if (del != null) {
-                                setMutationAttributes(del, uuidValue);
-                            }
-                            uuidValue = commitIfReady(uuidValue, mutations);
-                        } else {
-                            byte[] dataKey = (put != null) ? put.getRow() : del.getRow();
-                            prepareIndexMutations(put, del);
-                            dataKeyToMutationMap.put(dataKey, new Pair<Put, Delete>(put, del));
-                        }
-                        rowCount++;
+                        uuidValue = commitIfReady(uuidValue, mutations);
+                    } else {
+                        byte[] dataKey = (put != null) ? put.getRow() : del.getRow();
+                        prepareIndexMutations(put, del);
+                        dataKeyToMutationMap.put(dataKey, new Pair<Put, Delete>(put, del));
                     }
-                } while (hasMore && rowCount < pageSizeInRows);
+                    rowCount++;
+                }
                 if (!mutations.isEmpty()) {
                     if (verify) {
                         verifyAndOrRebuildIndex();
                     } else {
-                        ungroupedAggregateRegionObserver.checkForRegionClosingOrSplitting();
-                        ungroupedAggregateRegionObserver.commitBatchWithRetries(region, mutations, blockingMemstoreSize);
+                        commitBatch(mutations);
                     }
                 }
+                scanCompleted = !hasMore;
             }
         } catch (Throwable e) {
             LOGGER.error("Exception in IndexRebuildRegionScanner for region "
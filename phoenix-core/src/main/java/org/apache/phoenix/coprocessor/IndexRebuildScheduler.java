@@ -0,0 +1,267 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.phoenix.coprocessor;
+
+import static org.apache.phoenix.query.QueryServices.INDEX_REBUILD_LATENCY_BACKOFF_FACTOR;
+import static org.apache.phoenix.query.QueryServices.INDEX_REBUILD_MAX_CONCURRENT;
+import static org.apache.phoenix.query.QueryServices.INDEX_REBUILD_MAX_ROWS_PER_SEC;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.phoenix.query.QueryServicesOptions;
+import org.apache.phoenix.util.EnvironmentEdgeManager;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+/**
+ * Runs the partial index rebuild batches found by
+ * {@link MetaDataRegionObserver.BuildIndexScheduleTask}, up to a configured number of data tables
+ * at a time.
+ * <p>
+ * Since the task only runs on the region server hosting the first region of SYSTEM.CATALOG, the
+ * scheduler paces all the partial index rebuilds of the cluster: every batch is charged for the
+ * rows it read against a rows per second budget, and the next batch does not start before the
+ * budget allows it. As the rows of a batch are only known once it is done, a batch reserves its
+ * start time along with the budget of the last batch, and is charged the difference once done,
+ * so that concurrent batches do not all start against the same budget. The time a batch takes
+ * per row is also tracked for each data table, and a
+ * batch taking much longer than usual, which means the region servers are slowing down, halves
+ * the budget. The budget then grows back additively with every normal batch.
+ */
+public class IndexRebuildScheduler {
+    private static final Logger LOGGER = LoggerFactory.getLogger(IndexRebuildScheduler.class);
+    // Weight of the last batch in the moving average of the time a batch takes per row
+    private static final double LATENCY_WEIGHT = 0.2;
+
+    private final int maxConcurrentRebuilds;
+    private final long maxRowsPerSec;
+    private final float latencyBackoffFactor;
+    private final Map<String, Double> msPerRowByTable = new HashMap<>();
+    // Budget reserved by the batches in progress
+    private final Map<String, Long> reservedMsByTable = new HashMap<>();
+    private long lastRowCount;
+    private double rowsPerSec;
+    private long nextStartTime;
+
+    public IndexRebuildScheduler(Configuration config) {
+        this(config.getInt(INDEX_REBUILD_MAX_CONCURRENT,
+                        QueryServicesOptions.DEFAULT_INDEX_REBUILD_MAX_CONCURRENT),
+                config.getLong(INDEX_REBUILD_MAX_ROWS_PER_SEC,
+                        QueryServicesOptions.DEFAULT_INDEX_REBUILD_MAX_ROWS_PER_SEC),
+                config.getFloat(INDEX_REBUILD_LATENCY_BACKOFF_FACTOR,
+                        QueryServicesOptions.DEFAULT_INDEX_REBUILD_LATENCY_BACKOFF_FACTOR));
+    }
+
+    @VisibleForTesting
+    IndexRebuildScheduler(int maxConcurrentRebuilds, long maxRowsPerSec, float latencyBackoffFactor) {
+        this.maxConcurrentRebuilds = Math.max(1, maxConcurrentRebuilds);
+        this.maxRowsPerSec = Math.max(0, maxRowsPerSec);
+        this.latencyBackoffFactor = latencyBackoffFactor;
+        this.rowsPerSec = this.maxRowsPerSec;
+    }
+
+    /**
+     * The next batch of the partial rebuild of the disabled indexes of a data table
+     */
+    public abstract static class Rebuild {
+        private final String dataTableName;
+        private final boolean writesBlocked;
+        private final int priority;
+        private final long disableTimestamp;
+
+        /**
+         * @param writesBlocked true if writes to the data table are blocked until its indexes
+         *                      are rebuilt
+         * @param priority the priority of the rebuild, higher first
+         * @param disableTimestamp the earliest time the indexes failed to be updated
+         */
+        public Rebuild(String dataTableName, boolean writesBlocked, int priority,
+                long disableTimestamp) {
+            this.dataTableName = dataTableName;
+            this.writesBlocked = writesBlocked;
+            this.priority = priority;
+            this.disableTimestamp = disableTimestamp;
+        }
+
+        /**
+         * Rebuilds the batch
+         * @return the number of data table rows read
+         */
+        protected abstract long rebuildBatch() throws Exception;
+
+        public String getDataTableName() {
+            return dataTableName;
+        }
+
+        @Override
+        public String toString() {
+            return dataTableName;
+        }
+    }
+
+    /**
+     * Orders the rebuilds blocking writes first, then by descending priority, then by how long
+     * their indexes have been out of date
+     */
+    public static final Comparator<Rebuild> PRIORITY_COMPARATOR = new Comparator<Rebuild>() {
+        @Override
+        public int compare(Rebuild o1, Rebuild o2) {
+            if (o1.writesBlocked != o2.writesBlocked) {
+                return o1.writesBlocked ? -1 : 1;
+            }
+            if (o1.priority != o2.priority) {
+                return o1.priority > o2.priority ? -1 : 1;
+            }
+            return Long.compare(o1.disableTimestamp, o2.disableTimestamp);
+        }
+    };
+
+    /**
+     * Runs the given rebuilds in their order and returns once all of them are done
+     */
+    public void run(List<Rebuild> rebuilds) throws InterruptedException {
+        if (maxConcurrentRebuilds == 1 || rebuilds.size() <= 1) {
+            for (Rebuild rebuild : rebuilds) {
+                runBatch(rebuild);
+            }
+            return;
+        }
+        ExecutorService pool = Executors.newFixedThreadPool(
+                Math.min(maxConcurrentRebuilds, rebuilds.size()),
+                new ThreadFactoryBuilder().setDaemon(true)
+                        .setNameFormat("IndexRebuildScheduler-%d").build());
+        try {
+            List<Future<Void>> futures = new ArrayList<>(rebuilds.size());
+            for (final Rebuild rebuild : rebuilds) {
+                futures.add(pool.submit(new Callable<Void>() {
+                    @Override
+                    public Void call() throws Exception {
+                        runBatch(rebuild);
+                        return null;
+                    }
+                }));
+            }
+            for (Future<Void> future : futures) {
+                try {
+                    future.get();
+                } catch (ExecutionException e) {
+                    LOGGER.error("Partial index rebuild failed", e.getCause());
+                }
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    private void runBatch(Rebuild rebuild) throws InterruptedException {
+        long startTime = EnvironmentEdgeManager.currentTimeMillis();
+        long rowCount = 0;
+        try {
+            long waitMs = reserveBatch(rebuild.getDataTableName(), startTime) - startTime;
+            if (waitMs > 0) {
+                LOGGER.info("Waiting " + waitMs + " ms before rebuilding the indexes of " + rebuild);
+                Thread.sleep(waitMs);
+                startTime = EnvironmentEdgeManager.currentTimeMillis();
+            }
+            rowCount = rebuild.rebuildBatch();
+        } catch (InterruptedException e) {
+            throw e;
+        } catch (Exception e) {
+            LOGGER.error("Unable to rebuild the indexes of " + rebuild, e);
+        } finally {
+            // Also releases the reservation of a batch that failed
+            onBatchCompleted(rebuild.getDataTableName(), rowCount, startTime,
+                    EnvironmentEdgeManager.currentTimeMillis());
+        }
+    }
+
+    /**
+     * Reserves the start time of the next batch of a data table, along with the budget of the
+     * rows of the last batch
+     * @return the time the batch may start at
+     */
+    @VisibleForTesting
+    synchronized long reserveBatch(String dataTableName, long now) {
+        long startTime = Math.max(now, nextStartTime);
+        if (maxRowsPerSec > 0) {
+            long reservedMs = (long) Math.ceil(lastRowCount * 1000 / rowsPerSec);
+            reservedMsByTable.put(dataTableName, reservedMs);
+            nextStartTime = startTime + reservedMs;
+        }
+        return startTime;
+    }
+
+    /**
+     * Charges a completed batch against the budget and adjusts the budget to its latency
+     * @return the time in milliseconds before the next batch may start
+     */
+    @VisibleForTesting
+    synchronized long onBatchCompleted(String dataTableName, long rowCount, long startTime,
+            long endTime) {
+        Long reservedMs = reservedMsByTable.remove(dataTableName);
+        if (reservedMs != null) {
+            nextStartTime -= reservedMs;
+        }
+        if (rowCount <= 0) {
+            return Math.max(0, nextStartTime - endTime);
+        }
+        lastRowCount = rowCount;
+        long elapsedMs = Math.max(1, endTime - startTime);
+        double msPerRow = (double) elapsedMs / rowCount;
+        Double usualMsPerRow = msPerRowByTable.get(dataTableName);
+        boolean degraded = usualMsPerRow != null && latencyBackoffFactor > 0
+                && msPerRow > usualMsPerRow * latencyBackoffFactor;
+        msPerRowByTable.put(dataTableName, usualMsPerRow == null ? msPerRow
+                : usualMsPerRow * (1 - LATENCY_WEIGHT) + msPerRow * LATENCY_WEIGHT);
+        if (degraded) {
+            LOGGER.warn("Rebuilding the indexes of " + dataTableName + " took " + msPerRow
+                    + " ms per row instead of " + usualMsPerRow + ", backing off");
+        }
+        if (maxRowsPerSec > 0) {
+            if (degraded) {
+                rowsPerSec = Math.max(1, rowsPerSec / 2);
+            } else {
+                rowsPerSec = Math.min(maxRowsPerSec, rowsPerSec + maxRowsPerSec / 10.0);
+            }
+            long budgetMs = (long) Math.ceil(rowCount * 1000 / rowsPerSec);
+            nextStartTime = Math.max(nextStartTime, startTime) + budgetMs;
+        } else if (degraded) {
+            // Without a budget, back off by idling as long as the degraded batch took
+            nextStartTime = Math.max(nextStartTime, endTime) + elapsedMs;
+        }
+        return Math.max(0, nextStartTime - endTime);
+    }
+
+    @VisibleForTesting
+    synchronized double getRowsPerSec() {
+        return rowsPerSec;
+    }
+}
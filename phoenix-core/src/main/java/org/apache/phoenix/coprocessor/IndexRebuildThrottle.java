@@ -0,0 +1,99 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.phoenix.coprocessor;
+
+import static org.apache.phoenix.query.QueryServices.INDEX_REBUILD_THROTTLE_ENABLED;
+import static org.apache.phoenix.query.QueryServices.INDEX_REBUILD_THROTTLE_MEMSTORE_LOW_WATERMARK;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.hbase.regionserver.Region;
+import org.apache.phoenix.query.QueryServicesOptions;
+
+import com.google.common.annotations.VisibleForTesting;
+
+/**
+ * Adapts the size of index rebuild batches to the memstore pressure of the data region.
+ * <p>
+ * Below the low watermark, a fraction of the blocking memstore size, batches grow additively back
+ * up to the configured mutate batch size. Above it, every commit halves the batch size, down to an
+ * eighth of the configured size, so that a rebuild writes smaller batches as flushes fall behind.
+ * The throttle never pauses by itself: a region past its blocking memstore size is waited on by
+ * {@link UngroupedAggregateRegionObserver#commitBatchWithRetries} as for any other server side
+ * mutation.
+ */
+public class IndexRebuildThrottle {
+    // Smallest batch size as a fraction of the configured one
+    private static final int MIN_BATCH_SIZE_DIVISOR = 8;
+
+    private final boolean enabled;
+    private final int maxBatchSize;
+    private final int minBatchSize;
+    private final long blockingMemstoreSize;
+    private final float lowWatermark;
+    private int batchSize;
+
+    public IndexRebuildThrottle(Configuration config, int maxBatchSize, long blockingMemstoreSize) {
+        this(config.getBoolean(INDEX_REBUILD_THROTTLE_ENABLED,
+                        QueryServicesOptions.DEFAULT_INDEX_REBUILD_THROTTLE_ENABLED),
+                maxBatchSize, blockingMemstoreSize,
+                config.getFloat(INDEX_REBUILD_THROTTLE_MEMSTORE_LOW_WATERMARK,
+                        QueryServicesOptions.DEFAULT_INDEX_REBUILD_THROTTLE_MEMSTORE_LOW_WATERMARK));
+    }
+
+    @VisibleForTesting
+    IndexRebuildThrottle(boolean enabled, int maxBatchSize, long blockingMemstoreSize,
+            float lowWatermark) {
+        this.enabled = enabled && blockingMemstoreSize > 0 && lowWatermark < 1;
+        this.maxBatchSize = Math.max(1, maxBatchSize);
+        this.minBatchSize = Math.max(1, this.maxBatchSize / MIN_BATCH_SIZE_DIVISOR);
+        this.blockingMemstoreSize = blockingMemstoreSize;
+        this.lowWatermark = Math.max(0, lowWatermark);
+        this.batchSize = this.maxBatchSize;
+    }
+
+    /**
+     * @return the number of mutations to accumulate before the next commit
+     */
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    /**
+     * Called before committing a batch to the region. Adjusts the size of the next batch to the
+     * current memstore pressure.
+     */
+    public void beforeCommit(Region region) {
+        if (!enabled) {
+            return;
+        }
+        adjust(region.getMemStoreHeapSize() + region.getMemStoreOffHeapSize());
+    }
+
+    @VisibleForTesting
+    void adjust(long memstoreSize) {
+        if (!enabled) {
+            return;
+        }
+        float ratio = (float) memstoreSize / blockingMemstoreSize;
+        if (ratio < lowWatermark) {
+            batchSize = Math.min(maxBatchSize, batchSize + Math.max(1, maxBatchSize / 10));
+        } else {
+            batchSize = Math.max(minBatchSize, batchSize / 2);
+        }
+    }
+}
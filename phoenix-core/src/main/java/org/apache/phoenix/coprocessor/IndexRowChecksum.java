@@ -0,0 +1,161 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.phoenix.coprocessor;
+
+import org.apache.hadoop.hbase.Cell;
+import org.apache.hadoop.hbase.util.Bytes;
+
+/**
+ * Order independent checksum of a set of index table cells, used by IndexTool verification to
+ * compare the expected index rows of a batch with the actual ones without shipping the actual
+ * rows back to the data region.
+ * <p>
+ * Every cell is hashed over its row, family, qualifier, timestamp, type and value with two
+ * independent 64 bit hash functions, and the checksum is the cell count together with the sum of
+ * each hash. Every row is also hashed once over its row key, so that rows without any cell other
+ * than the empty column are accounted for as well. Since the sums are commutative, the checksum can be accumulated in any order and the
+ * partial checksums of the index regions holding a batch can simply be added up.
+ */
+public class IndexRowChecksum {
+    public static final int SERIALIZED_LENGTH = 3 * Bytes.SIZEOF_LONG;
+
+    private static final long FNV_OFFSET_BASIS = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+    private static final long POLY_MULTIPLIER = 0x9e3779b97f4a7c15L;
+
+    private long cellCount;
+    private long fnvSum;
+    private long polySum;
+
+    public IndexRowChecksum() {
+    }
+
+    private IndexRowChecksum(long cellCount, long fnvSum, long polySum) {
+        this.cellCount = cellCount;
+        this.fnvSum = fnvSum;
+        this.polySum = polySum;
+    }
+
+    public void add(Cell cell) {
+        CellHash hash = new CellHash();
+        hash.update(cell.getRowArray(), cell.getRowOffset(), cell.getRowLength());
+        hash.update(cell.getFamilyArray(), cell.getFamilyOffset(), cell.getFamilyLength());
+        hash.update(cell.getQualifierArray(), cell.getQualifierOffset(), cell.getQualifierLength());
+        hash.update(cell.getTimestamp());
+        hash.update(cell.getTypeByte());
+        hash.update(cell.getValueArray(), cell.getValueOffset(), cell.getValueLength());
+        cellCount++;
+        fnvSum += mix(hash.fnv);
+        polySum += mix(hash.poly);
+    }
+
+    public void addRow(byte[] row, int offset, int length) {
+        CellHash hash = new CellHash();
+        hash.update(row, offset, length);
+        cellCount++;
+        fnvSum += mix(hash.fnv);
+        polySum += mix(hash.poly);
+    }
+
+    public void add(IndexRowChecksum other) {
+        cellCount += other.cellCount;
+        fnvSum += other.fnvSum;
+        polySum += other.polySum;
+    }
+
+    public long getCellCount() {
+        return cellCount;
+    }
+
+    public byte[] toBytes() {
+        byte[] bytes = new byte[SERIALIZED_LENGTH];
+        Bytes.putLong(bytes, 0, cellCount);
+        Bytes.putLong(bytes, Bytes.SIZEOF_LONG, fnvSum);
+        Bytes.putLong(bytes, 2 * Bytes.SIZEOF_LONG, polySum);
+        return bytes;
+    }
+
+    public static IndexRowChecksum fromBytes(byte[] bytes, int offset, int length) {
+        if (length != SERIALIZED_LENGTH) {
+            throw new IllegalArgumentException("Invalid index row checksum length: " + length);
+        }
+        return new IndexRowChecksum(Bytes.toLong(bytes, offset),
+                Bytes.toLong(bytes, offset + Bytes.SIZEOF_LONG),
+                Bytes.toLong(bytes, offset + 2 * Bytes.SIZEOF_LONG));
+    }
+
+    // Finalization step of MurmurHash3, spreading every input bit over the whole hash
+    private static long mix(long h) {
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        }
+        if (!(obj instanceof IndexRowChecksum)) {
+            return false;
+        }
+        IndexRowChecksum other = (IndexRowChecksum) obj;
+        return cellCount == other.cellCount && fnvSum == other.fnvSum && polySum == other.polySum;
+    }
+
+    @Override
+    public int hashCode() {
+        return (int) (fnvSum ^ (fnvSum >>> 32));
+    }
+
+    @Override
+    public String toString() {
+        return "IndexRowChecksum [cellCount=" + cellCount + ", fnvSum=" + fnvSum + ", polySum="
+                + polySum + "]";
+    }
+
+    /**
+     * FNV-1a and a polynomial rolling hash over the fields of a cell. Every variable length field
+     * is preceded by its length so that the field boundaries are part of the hash.
+     */
+    private static class CellHash {
+        private long fnv = FNV_OFFSET_BASIS;
+        private long poly = 0;
+
+        void update(byte b) {
+            fnv = (fnv ^ (b & 0xff)) * FNV_PRIME;
+            poly = poly * POLY_MULTIPLIER + (b & 0xff) + 1;
+        }
+
+        void update(long value) {
+            for (int shift = 56; shift >= 0; shift -= 8) {
+                update((byte) (value >>> shift));
+            }
+        }
+
+        void update(byte[] bytes, int offset, int length) {
+            update((long) length);
+            for (int i = offset; i < offset + length; i++) {
+                update(bytes[i]);
+            }
+        }
+    }
+}
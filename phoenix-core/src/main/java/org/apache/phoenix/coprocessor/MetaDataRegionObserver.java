@@ -22,14 +22,17 @@ import static org.apache.phoenix.schema.types.PDataType.TRUE_BYTES;
 import java.io.IOException;
 import java.security.PrivilegedExceptionAction;
 import java.sql.SQLException;
+import java.sql.Timestamp;
 import java.util.ArrayList;
 import java.util.Collections;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
 import java.util.Properties;
+import java.util.Set;
 import java.util.TimerTask;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ScheduledThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
 
@@ -56,6 +59,7 @@ import org.apache.hadoop.hbase.util.Pair;
 import org.apache.phoenix.cache.GlobalCache;
 import org.apache.phoenix.compile.MutationPlan;
 import org.apache.phoenix.compile.PostDDLCompiler;
+import org.apache.phoenix.coprocessor.tasks.PartialIndexRebuildTask;
 import org.apache.phoenix.execute.MutationState;
 import org.apache.phoenix.hbase.index.util.IndexManagementUtil;
 import org.apache.phoenix.index.IndexMaintainer;
@@ -71,10 +75,12 @@ import org.apache.phoenix.schema.PName;
 import org.apache.phoenix.schema.PTable;
 import org.apache.phoenix.schema.SortOrder;
 import org.apache.phoenix.schema.TableRef;
+import org.apache.phoenix.schema.task.Task;
 import org.apache.phoenix.schema.types.PLong;
 import org.apache.phoenix.util.ByteUtil;
 import org.apache.phoenix.util.EnvironmentEdgeManager;
 import org.apache.phoenix.util.IndexUtil;
+import org.apache.phoenix.util.JacksonUtil;
 import org.apache.phoenix.util.MetaDataUtil;
 import org.apache.phoenix.util.PhoenixRuntime;
 import org.apache.phoenix.util.PropertiesUtil;
@@ -87,10 +93,15 @@ import org.apache.phoenix.util.UpgradeUtil;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
 import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Joiner;
+import com.google.common.base.Strings;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
 
 
 /**
@@ -111,7 +122,7 @@ public class MetaDataRegionObserver implements RegionObserver,RegionCoprocessor
     protected ScheduledThreadPoolExecutor executor = new ScheduledThreadPoolExecutor(1);
     private boolean enableRebuildIndex = QueryServicesOptions.DEFAULT_INDEX_FAILURE_HANDLING_REBUILD;
     private long rebuildIndexTimeInterval = QueryServicesOptions.DEFAULT_INDEX_FAILURE_HANDLING_REBUILD_INTERVAL;
-    private static Map<PName, Long> batchExecutedPerTableMap = new HashMap<PName, Long>();
+    private static Map<PName, Long> batchExecutedPerTableMap = new ConcurrentHashMap<PName, Long>();
     @GuardedBy("MetaDataRegionObserver.class")
     private static Properties rebuildIndexConnectionProps;
     // Added for test purposes
@@ -236,6 +247,15 @@ public class MetaDataRegionObserver implements RegionObserver,RegionCoprocessor
         private final long pendingDisableThreshold;
         private final ReadOnlyProps props;
         private final List<String> onlyTheseTables;
+        private final IndexRebuildScheduler scheduler;
+        // 0 or less to keep the progress of the rebuilds out of SYSTEM.TASK
+        private final long progressReportIntervalMs;
+        // SYSTEM.TASK entries of the rebuilds in progress, whose progress is written out when
+        // their state changes and otherwise at most once per progressReportIntervalMs. A server
+        // taking over SYSTEM.CATALOG picks up from the last progress written. Only kept in
+        // memory when the progress is not reported.
+        private final Map<PName, Task.TaskRecord> rebuildTaskRecords = new ConcurrentHashMap<PName, Task.TaskRecord>();
+        private final Map<PName, Long> lastProgressReportTimes = new ConcurrentHashMap<PName, Long>();
 
         public BuildIndexScheduleTask(RegionCoprocessorEnvironment env) {
             this(env,null);
@@ -256,6 +276,10 @@ public class MetaDataRegionObserver implements RegionObserver,RegionCoprocessor
                     configuration.getLong(QueryServices.INDEX_PENDING_DISABLE_THRESHOLD,
                         QueryServicesOptions.DEFAULT_INDEX_PENDING_DISABLE_THRESHOLD);
             this.props = new ReadOnlyProps(env.getConfiguration().iterator());
+            this.scheduler = new IndexRebuildScheduler(configuration);
+            this.progressReportIntervalMs =
+                    configuration.getLong(QueryServices.INDEX_REBUILD_PROGRESS_REPORT_INTERVAL_MS,
+                        QueryServicesOptions.DEFAULT_INDEX_REBUILD_PROGRESS_REPORT_INTERVAL_MS);
         }
 
         public List<PTable> decrementIndexesPendingDisableCount(PhoenixConnection conn, PTable dataPTable, List<PTable> indexes){
@@ -454,127 +478,25 @@ public class MetaDataRegionObserver implements RegionObserver,RegionCoprocessor
                     indexesToPartiallyRebuild.add(new Pair<PTable,Long>(indexPTable,upperBoundOfRebuild));
                 } while (hasMore);
 
-				if (dataTableToIndexesMap != null) {
-                    long backwardOverlapDurationMs = env.getConfiguration().getLong(
-							QueryServices.INDEX_FAILURE_HANDLING_REBUILD_OVERLAP_BACKWARD_TIME_ATTRIB,
-							env.getConfiguration().getLong(QueryServices.INDEX_FAILURE_HANDLING_REBUILD_OVERLAP_TIME_ATTRIB, 
-							        QueryServicesOptions.DEFAULT_INDEX_FAILURE_HANDLING_REBUILD_OVERLAP_BACKWARD_TIME));
-					for (Map.Entry<PTable, List<Pair<PTable,Long>>> entry : dataTableToIndexesMap.entrySet()) {
-						PTable dataPTable = entry.getKey();
-						List<Pair<PTable,Long>> pairs = entry.getValue();
-                        List<PTable> indexesToPartiallyRebuild = Lists.newArrayListWithExpectedSize(pairs.size());
-						try (
-                        Table metaTable = env.getConnection().getTable(
-								SchemaUtil.getPhysicalName(PhoenixDatabaseMetaData.SYSTEM_CATALOG_NAME_BYTES, props))) {
-							long earliestDisableTimestamp = Long.MAX_VALUE;
-                            long latestUpperBoundTimestamp = Long.MIN_VALUE;
-							List<IndexMaintainer> maintainers = Lists
-									.newArrayListWithExpectedSize(pairs.size());
-							int signOfDisableTimeStamp = 0;
-							for (Pair<PTable,Long> pair : pairs) {
-					            // We need a way of differentiating the block writes to data table case from
-					            // the leave index active case. In either case, we need to know the time stamp
-					            // at which writes started failing so we can rebuild from that point. If we
-					            // keep the index active *and* have a positive INDEX_DISABLE_TIMESTAMP_BYTES,
-					            // then writes to the data table will be blocked (this is client side logic
-					            // and we can't change this in a minor release). So we use the sign of the
-					            // time stamp to differentiate.
-							    PTable index = pair.getFirst();
-							    Long upperBoundTimestamp = pair.getSecond();
-								long disabledTimeStampVal = index.getIndexDisableTimestamp();
-								if (disabledTimeStampVal != 0) {
-                                    if (signOfDisableTimeStamp != 0 && signOfDisableTimeStamp != Long.signum(disabledTimeStampVal)) {
-                                        LOGGER.warn("Found unexpected mix of signs with " +
-                                                "INDEX_DISABLE_TIMESTAMP for " +
-                                                dataPTable.getName().getString() + " with " +
-                                                indexesToPartiallyRebuild);
-                                    }
-								    signOfDisableTimeStamp = Long.signum(disabledTimeStampVal);
-	                                disabledTimeStampVal = Math.abs(disabledTimeStampVal);
-									if (disabledTimeStampVal < earliestDisableTimestamp) {
-										earliestDisableTimestamp = disabledTimeStampVal;
-									}
-
-									indexesToPartiallyRebuild.add(index);
-									maintainers.add(index.getIndexMaintainer(dataPTable, conn));
-								}
-								if (upperBoundTimestamp > latestUpperBoundTimestamp) {
-								    latestUpperBoundTimestamp = upperBoundTimestamp;
-								}
-							}
-							// No indexes are disabled, so skip this table
-							if (earliestDisableTimestamp == Long.MAX_VALUE) {
-                                LOGGER.debug("No indexes are disabled so continuing");
-								continue;
-							}
-							long scanBeginTime = Math.max(0, earliestDisableTimestamp - backwardOverlapDurationMs);
-                            long scanEndTime = Math.min(latestUpperBoundTimestamp,
-                                    getTimestampForBatch(scanBeginTime,batchExecutedPerTableMap.get(dataPTable.getName())));
-                            LOGGER.info("Starting to build " + dataPTable + " indexes "
-                                    + indexesToPartiallyRebuild + " from timestamp=" +
-                                    scanBeginTime + " until " + scanEndTime);
-							
-							TableRef tableRef = new TableRef(null, dataPTable, HConstants.LATEST_TIMESTAMP, false);
-							// TODO Need to set high timeout
-							PostDDLCompiler compiler = new PostDDLCompiler(conn);
-							MutationPlan plan = compiler.compile(Collections.singletonList(tableRef), null, null, null, scanEndTime);
-							Scan dataTableScan = IndexManagementUtil.newLocalStateScan(plan.getContext().getScan(), maintainers);
-
-							dataTableScan.setTimeRange(scanBeginTime, scanEndTime);
-							dataTableScan.setCacheBlocks(false);
-							dataTableScan.setAttribute(BaseScannerRegionObserver.REBUILD_INDEXES, TRUE_BYTES);
-
-							ImmutableBytesWritable indexMetaDataPtr = new ImmutableBytesWritable(
-									ByteUtil.EMPTY_BYTE_ARRAY);
-							IndexMaintainer.serializeAdditional(dataPTable, indexMetaDataPtr, indexesToPartiallyRebuild,
-									conn);
-							byte[] attribValue = ByteUtil.copyKeyBytesIfNecessary(indexMetaDataPtr);
-							dataTableScan.setAttribute(PhoenixIndexCodec.INDEX_PROTO_MD, attribValue);
-							ScanUtil.setClientVersion(dataTableScan, MetaDataProtocol.PHOENIX_VERSION);
-                            LOGGER.info("Starting to partially build indexes:" + indexesToPartiallyRebuild
-                                    + " on data table:" + dataPTable.getName() + " with the earliest disable timestamp:"
-                                    + earliestDisableTimestamp + " till "
-                                    + (scanEndTime == HConstants.LATEST_TIMESTAMP ? "LATEST_TIMESTAMP" : scanEndTime));
-							MutationState mutationState = plan.execute();
-							long rowCount = mutationState.getUpdateCount();
-							decrementIndexesPendingDisableCount(conn, dataPTable, indexesToPartiallyRebuild);
-                            if (scanEndTime == latestUpperBoundTimestamp) {
-                                LOGGER.info("Rebuild completed for all inactive/disabled indexes in data table:"
-                                        + dataPTable.getName());
-                            }
-                            LOGGER.info(" no. of datatable rows read in rebuilding process is " + rowCount);
-							for (PTable indexPTable : indexesToPartiallyRebuild) {
-								String indexTableFullName = SchemaUtil.getTableName(
-										indexPTable.getSchemaName().getString(),
-										indexPTable.getTableName().getString());
-								try {
-								    if (scanEndTime == latestUpperBoundTimestamp) {
-								        IndexUtil.updateIndexState(conn, indexTableFullName, PIndexState.ACTIVE, 0L,
-								            latestUpperBoundTimestamp);
-								        batchExecutedPerTableMap.remove(dataPTable.getName());
-                                        LOGGER.info("Making Index:" + indexPTable.getTableName() + " active after rebuilding");
-								    } else {
-								        // Increment timestamp so that client sees updated disable timestamp
-								        IndexUtil.updateIndexState(conn, indexTableFullName, indexPTable.getIndexState(),
-								            scanEndTime * signOfDisableTimeStamp, latestUpperBoundTimestamp);
-								        Long noOfBatches = batchExecutedPerTableMap.get(dataPTable.getName());
-								        if (noOfBatches == null) {
-								            noOfBatches = 0l;
-								        }
-								        batchExecutedPerTableMap.put(dataPTable.getName(), ++noOfBatches);
-                                        LOGGER.info(
-								            "During Round-robin build: Successfully updated index disabled timestamp  for "
-								                + indexTableFullName + " to " + scanEndTime);
-								    }
-								} catch (SQLException e) {
-                                    LOGGER.error("Unable to rebuild " + dataPTable + " index " + indexTableFullName, e);
-								}
-							}
-						} catch (Exception e) {
-                            LOGGER.error("Unable to rebuild " + dataPTable + " indexes " + indexesToPartiallyRebuild, e);
-						}
-					}
-				}
+                if (dataTableToIndexesMap != null) {
+                    List<TableRebuild> rebuilds = Lists.newArrayListWithExpectedSize(dataTableToIndexesMap.size());
+                    Set<PName> dataTableNames = Sets.newHashSetWithExpectedSize(dataTableToIndexesMap.size());
+                    for (Map.Entry<PTable, List<Pair<PTable,Long>>> entry : dataTableToIndexesMap.entrySet()) {
+                        TableRebuild rebuild = newTableRebuild(conn, entry.getKey(), entry.getValue());
+                        if (rebuild != null) {
+                            rebuilds.add(rebuild);
+                            dataTableNames.add(entry.getKey().getName());
+                        }
+                    }
+                    // Forget the entries of the rebuilds that are no longer needed
+                    rebuildTaskRecords.keySet().retainAll(dataTableNames);
+                    lastProgressReportTimes.keySet().retainAll(dataTableNames);
+                    Collections.sort(rebuilds, IndexRebuildScheduler.PRIORITY_COMPARATOR);
+                    for (int i = 0; i < rebuilds.size(); i++) {
+                        rebuilds.get(i).reportQueued(conn, i);
+                    }
+                    scheduler.run(new ArrayList<IndexRebuildScheduler.Rebuild>(rebuilds));
+                }
 			} catch (Throwable t) {
                 LOGGER.warn("ScheduledBuildIndexTask failed!", t);
 			} finally {
@@ -595,6 +517,314 @@ public class MetaDataRegionObserver implements RegionObserver,RegionCoprocessor
 			}
         }
 
+        private TableRebuild newTableRebuild(PhoenixConnection conn, PTable dataPTable,
+                List<Pair<PTable,Long>> pairs) {
+            long earliestDisableTimestamp = Long.MAX_VALUE;
+            long latestUpperBoundTimestamp = Long.MIN_VALUE;
+            List<PTable> indexesToPartiallyRebuild = Lists.newArrayListWithExpectedSize(pairs.size());
+            int signOfDisableTimeStamp = 0;
+            for (Pair<PTable,Long> pair : pairs) {
+                // We need a way of differentiating the block writes to data table case from
+                // the leave index active case. In either case, we need to know the time stamp
+                // at which writes started failing so we can rebuild from that point. If we
+                // keep the index active *and* have a positive INDEX_DISABLE_TIMESTAMP_BYTES,
+                // then writes to the data table will be blocked (this is client side logic
+                // and we can't change this in a minor release). So we use the sign of the
+                // time stamp to differentiate.
+                PTable index = pair.getFirst();
+                Long upperBoundTimestamp = pair.getSecond();
+                long disabledTimeStampVal = index.getIndexDisableTimestamp();
+                if (disabledTimeStampVal != 0) {
+                    if (signOfDisableTimeStamp != 0 && signOfDisableTimeStamp != Long.signum(disabledTimeStampVal)) {
+                        LOGGER.warn("Found unexpected mix of signs with " +
+                                "INDEX_DISABLE_TIMESTAMP for " +
+                                dataPTable.getName().getString() + " with " +
+                                indexesToPartiallyRebuild);
+                    }
+                    signOfDisableTimeStamp = Long.signum(disabledTimeStampVal);
+                    disabledTimeStampVal = Math.abs(disabledTimeStampVal);
+                    if (disabledTimeStampVal < earliestDisableTimestamp) {
+                        earliestDisableTimestamp = disabledTimeStampVal;
+                    }
+                    indexesToPartiallyRebuild.add(index);
+                }
+                if (upperBoundTimestamp > latestUpperBoundTimestamp) {
+                    latestUpperBoundTimestamp = upperBoundTimestamp;
+                }
+            }
+            // No indexes are disabled, so skip this table
+            if (earliestDisableTimestamp == Long.MAX_VALUE) {
+                LOGGER.debug("No indexes are disabled so continuing");
+                return null;
+            }
+            return new TableRebuild(dataPTable, indexesToPartiallyRebuild, earliestDisableTimestamp,
+                    latestUpperBoundTimestamp, signOfDisableTimeStamp,
+                    getRebuildTaskRecord(conn, dataPTable, indexesToPartiallyRebuild));
+        }
+
+        /**
+         * Whether the rebuilds are tracked in SYSTEM.TASK. Region servers older than the
+         * PARTIAL_INDEX_REBUILD task type fail to read SYSTEM.TASK once it holds such entries, so
+         * this must only be turned on once all the region servers have been upgraded.
+         */
+        private boolean isProgressReported() {
+            return progressReportIntervalMs > 0;
+        }
+
+        /**
+         * @return the open SYSTEM.TASK entry tracking the partial rebuild of the indexes of the
+         * given data table, or a new one if there is none
+         */
+        private Task.TaskRecord getRebuildTaskRecord(PhoenixConnection conn, PTable dataPTable,
+                List<PTable> indexes) {
+            Task.TaskRecord cachedTaskRecord = rebuildTaskRecords.get(dataPTable.getName());
+            if (cachedTaskRecord != null) {
+                return cachedTaskRecord;
+            }
+            Task.TaskRecord taskRecord = isProgressReported()
+                    ? findRebuildTaskRecord(conn, dataPTable, indexes)
+                    : newRebuildTaskRecord(dataPTable, indexes);
+            rebuildTaskRecords.put(dataPTable.getName(), taskRecord);
+            // What was read is what SYSTEM.TASK already holds
+            lastProgressReportTimes.put(dataPTable.getName(), EnvironmentEdgeManager.currentTimeMillis());
+            return taskRecord;
+        }
+
+        private Task.TaskRecord findRebuildTaskRecord(PhoenixConnection conn, PTable dataPTable,
+                List<PTable> indexes) {
+            String schemaName = dataPTable.getSchemaName().getString();
+            String tableName = dataPTable.getTableName().getString();
+            try {
+                for (Task.TaskRecord taskRecord : Task.queryTaskTable(conn, null, schemaName, tableName,
+                        PTable.TaskType.PARTIAL_INDEX_REBUILD, null, null)) {
+                    if (PTable.TaskStatus.STARTED.toString().equals(taskRecord.getStatus())
+                            && Objects.equals(Strings.emptyToNull(schemaName),
+                                    Strings.emptyToNull(taskRecord.getSchemaName()))) {
+                        return taskRecord;
+                    }
+                }
+            } catch (SQLException e) {
+                LOGGER.warn("Unable to read the index rebuild task of " + dataPTable.getName(), e);
+            }
+            return newRebuildTaskRecord(dataPTable, indexes);
+        }
+
+        private Task.TaskRecord newRebuildTaskRecord(PTable dataPTable, List<PTable> indexes) {
+            String schemaName = dataPTable.getSchemaName().getString();
+            String tableName = dataPTable.getTableName().getString();
+            List<String> indexNames = Lists.newArrayListWithExpectedSize(indexes.size());
+            for (PTable index : indexes) {
+                indexNames.add(index.getName().getString());
+            }
+            ObjectNode data = JsonNodeFactory.instance.objectNode();
+            data.put(PartialIndexRebuildTask.INDEX_NAMES, Joiner.on(',').join(indexNames));
+            Task.TaskRecord taskRecord = new Task.TaskRecord();
+            taskRecord.setTaskType(PTable.TaskType.PARTIAL_INDEX_REBUILD);
+            taskRecord.setSchemaName(schemaName);
+            taskRecord.setTableName(tableName);
+            taskRecord.setStatus(PTable.TaskStatus.STARTED.toString());
+            taskRecord.setTimeStamp(new Timestamp(EnvironmentEdgeManager.currentTimeMillis()));
+            taskRecord.setData(data.toString());
+            return taskRecord;
+        }
+
+        /**
+         * Next batch of the partial rebuild of the disabled indexes of a data table, reporting its
+         * progress in SYSTEM.TASK
+         */
+        private class TableRebuild extends IndexRebuildScheduler.Rebuild {
+            private final PTable dataPTable;
+            private final List<PTable> indexesToPartiallyRebuild;
+            private final long earliestDisableTimestamp;
+            private final long latestUpperBoundTimestamp;
+            private final int signOfDisableTimeStamp;
+            private final Task.TaskRecord taskRecord;
+
+            TableRebuild(PTable dataPTable, List<PTable> indexesToPartiallyRebuild,
+                    long earliestDisableTimestamp, long latestUpperBoundTimestamp,
+                    int signOfDisableTimeStamp, Task.TaskRecord taskRecord) {
+                super(dataPTable.getName().getString(), signOfDisableTimeStamp > 0,
+                        taskRecord.getPriority(), earliestDisableTimestamp);
+                this.dataPTable = dataPTable;
+                this.indexesToPartiallyRebuild = indexesToPartiallyRebuild;
+                this.earliestDisableTimestamp = earliestDisableTimestamp;
+                this.latestUpperBoundTimestamp = latestUpperBoundTimestamp;
+                this.signOfDisableTimeStamp = signOfDisableTimeStamp;
+                this.taskRecord = taskRecord;
+            }
+
+            @Override
+            protected long rebuildBatch() throws Exception {
+                try (PhoenixConnection conn = getRebuildIndexConnection(env.getConfiguration())) {
+                    long backwardOverlapDurationMs = env.getConfiguration().getLong(
+                            QueryServices.INDEX_FAILURE_HANDLING_REBUILD_OVERLAP_BACKWARD_TIME_ATTRIB,
+                            env.getConfiguration().getLong(QueryServices.INDEX_FAILURE_HANDLING_REBUILD_OVERLAP_TIME_ATTRIB,
+                                    QueryServicesOptions.DEFAULT_INDEX_FAILURE_HANDLING_REBUILD_OVERLAP_BACKWARD_TIME));
+                    List<IndexMaintainer> maintainers = Lists
+                            .newArrayListWithExpectedSize(indexesToPartiallyRebuild.size());
+                    for (PTable index : indexesToPartiallyRebuild) {
+                        maintainers.add(index.getIndexMaintainer(dataPTable, conn));
+                    }
+                    long scanBeginTime = Math.max(0, earliestDisableTimestamp - backwardOverlapDurationMs);
+                    long scanEndTime = Math.min(latestUpperBoundTimestamp,
+                            getTimestampForBatch(scanBeginTime,batchExecutedPerTableMap.get(dataPTable.getName())));
+                    LOGGER.info("Starting to build " + dataPTable + " indexes "
+                            + indexesToPartiallyRebuild + " from timestamp=" +
+                            scanBeginTime + " until " + scanEndTime);
+                    reportProgress(conn, PartialIndexRebuildTask.STATE_REBUILDING, null);
+
+                    TableRef tableRef = new TableRef(null, dataPTable, HConstants.LATEST_TIMESTAMP, false);
+                    // TODO Need to set high timeout
+                    PostDDLCompiler compiler = new PostDDLCompiler(conn);
+                    MutationPlan plan = compiler.compile(Collections.singletonList(tableRef), null, null, null, scanEndTime);
+                    Scan dataTableScan = IndexManagementUtil.newLocalStateScan(plan.getContext().getScan(), maintainers);
+
+                    dataTableScan.setTimeRange(scanBeginTime, scanEndTime);
+                    dataTableScan.setCacheBlocks(false);
+                    dataTableScan.setAttribute(BaseScannerRegionObserver.REBUILD_INDEXES, TRUE_BYTES);
+
+                    ImmutableBytesWritable indexMetaDataPtr = new ImmutableBytesWritable(
+                            ByteUtil.EMPTY_BYTE_ARRAY);
+                    IndexMaintainer.serializeAdditional(dataPTable, indexMetaDataPtr, indexesToPartiallyRebuild,
+                            conn);
+                    byte[] attribValue = ByteUtil.copyKeyBytesIfNecessary(indexMetaDataPtr);
+                    dataTableScan.setAttribute(PhoenixIndexCodec.INDEX_PROTO_MD, attribValue);
+                    ScanUtil.setClientVersion(dataTableScan, MetaDataProtocol.PHOENIX_VERSION);
+                    LOGGER.info("Starting to partially build indexes:" + indexesToPartiallyRebuild
+                            + " on data table:" + dataPTable.getName() + " with the earliest disable timestamp:"
+                            + earliestDisableTimestamp + " till "
+                            + (scanEndTime == HConstants.LATEST_TIMESTAMP ? "LATEST_TIMESTAMP" : scanEndTime));
+                    MutationState mutationState = plan.execute();
+                    long rowCount = mutationState.getUpdateCount();
+                    decrementIndexesPendingDisableCount(conn, dataPTable, indexesToPartiallyRebuild);
+                    if (scanEndTime == latestUpperBoundTimestamp) {
+                        LOGGER.info("Rebuild completed for all inactive/disabled indexes in data table:"
+                                + dataPTable.getName());
+                    }
+                    LOGGER.info(" no. of datatable rows read in rebuilding process is " + rowCount);
+                    boolean completed = true;
+                    for (PTable indexPTable : indexesToPartiallyRebuild) {
+                        String indexTableFullName = SchemaUtil.getTableName(
+                                indexPTable.getSchemaName().getString(),
+                                indexPTable.getTableName().getString());
+                        try {
+                            if (scanEndTime == latestUpperBoundTimestamp) {
+                                IndexUtil.updateIndexState(conn, indexTableFullName, PIndexState.ACTIVE, 0L,
+                                    latestUpperBoundTimestamp);
+                                batchExecutedPerTableMap.remove(dataPTable.getName());
+                                LOGGER.info("Making Index:" + indexPTable.getTableName() + " active after rebuilding");
+                            } else {
+                                completed = false;
+                                // Increment timestamp so that client sees updated disable timestamp
+                                IndexUtil.updateIndexState(conn, indexTableFullName, indexPTable.getIndexState(),
+                                    scanEndTime * signOfDisableTimeStamp, latestUpperBoundTimestamp);
+                                Long noOfBatches = batchExecutedPerTableMap.get(dataPTable.getName());
+                                if (noOfBatches == null) {
+                                    noOfBatches = 0l;
+                                }
+                                batchExecutedPerTableMap.put(dataPTable.getName(), ++noOfBatches);
+                                LOGGER.info(
+                                    "During Round-robin build: Successfully updated index disabled timestamp  for "
+                                        + indexTableFullName + " to " + scanEndTime);
+                            }
+                        } catch (SQLException e) {
+                            completed = false;
+                            LOGGER.error("Unable to rebuild " + dataPTable + " index " + indexTableFullName, e);
+                        }
+                    }
+                    ObjectNode data = getTaskData();
+                    data.put(PartialIndexRebuildTask.REBUILT_UP_TO, scanEndTime);
+                    data.put(PartialIndexRebuildTask.UPPER_BOUND, latestUpperBoundTimestamp);
+                    data.put(PartialIndexRebuildTask.ROWS_REBUILT,
+                            data.path(PartialIndexRebuildTask.ROWS_REBUILT).asLong() + rowCount);
+                    data.put(PartialIndexRebuildTask.BATCHES,
+                            data.path(PartialIndexRebuildTask.BATCHES).asLong() + 1);
+                    if (completed) {
+                        data.remove(PartialIndexRebuildTask.STATE);
+                        taskRecord.setData(data.toString());
+                        rebuildTaskRecords.remove(dataPTable.getName());
+                        lastProgressReportTimes.remove(dataPTable.getName());
+                        if (isProgressReported()) {
+                            try {
+                                TaskRegionObserver.SelfHealingTask.setEndTaskStatus(conn, taskRecord,
+                                        PTable.TaskStatus.COMPLETED.toString());
+                            } catch (IOException e) {
+                                LOGGER.warn("Unable to complete the index rebuild task of "
+                                        + dataPTable.getName(), e);
+                            }
+                        }
+                    } else {
+                        reportProgress(conn, PartialIndexRebuildTask.STATE_REBUILDING, data);
+                    }
+                    return rowCount;
+                }
+            }
+
+            void reportQueued(PhoenixConnection conn, int queuePosition) {
+                ObjectNode data = getTaskData();
+                // A rebuild that started stays in progress until it completes
+                if (PartialIndexRebuildTask.STATE_REBUILDING.equals(
+                        data.path(PartialIndexRebuildTask.STATE).asText())) {
+                    return;
+                }
+                data.put(PartialIndexRebuildTask.QUEUE_POSITION, queuePosition);
+                reportProgress(conn, PartialIndexRebuildTask.STATE_QUEUED, data);
+            }
+
+            private ObjectNode getTaskData() {
+                String data = taskRecord.getData();
+                try {
+                    if (!Strings.isNullOrEmpty(data)) {
+                        return (ObjectNode) JacksonUtil.getObjectReader().readTree(data);
+                    }
+                } catch (IOException e) {
+                    LOGGER.warn("Invalid index rebuild task data " + data, e);
+                }
+                return JsonNodeFactory.instance.objectNode();
+            }
+
+            /**
+             * Updates the state and progress of the SYSTEM.TASK entry. The entry is written when
+             * the state or the queue position changes, and otherwise at most once per
+             * progressReportIntervalMs, so that a long rebuild shows its progress without writing
+             * SYSTEM.TASK on every batch. Nothing is written when the progress is not reported.
+             */
+            private void reportProgress(PhoenixConnection conn, String state, ObjectNode data) {
+                if (data == null) {
+                    data = getTaskData();
+                }
+                ObjectNode reportedData = getTaskData();
+                boolean changed = !state.equals(reportedData.path(PartialIndexRebuildTask.STATE).asText())
+                        || !data.path(PartialIndexRebuildTask.QUEUE_POSITION).equals(
+                                reportedData.path(PartialIndexRebuildTask.QUEUE_POSITION));
+                data.put(PartialIndexRebuildTask.STATE, state);
+                if (!PartialIndexRebuildTask.STATE_QUEUED.equals(state)) {
+                    data.remove(PartialIndexRebuildTask.QUEUE_POSITION);
+                }
+                String newData = data.toString();
+                boolean progressed = !newData.equals(taskRecord.getData());
+                taskRecord.setData(newData);
+                if (!isProgressReported()) {
+                    return;
+                }
+                long currentTime = EnvironmentEdgeManager.currentTimeMillis();
+                Long lastReportTime = lastProgressReportTimes.get(dataPTable.getName());
+                if (!changed && !(progressed && (lastReportTime == null
+                        || currentTime - lastReportTime >= progressReportIntervalMs))) {
+                    return;
+                }
+                lastProgressReportTimes.put(dataPTable.getName(), currentTime);
+                try {
+                    Task.addTask(conn, PTable.TaskType.PARTIAL_INDEX_REBUILD, null,
+                            taskRecord.getSchemaName(), taskRecord.getTableName(),
+                            PTable.TaskStatus.STARTED.toString(), taskRecord.getData(),
+                            taskRecord.getPriority(), taskRecord.getTimeStamp(), null, true);
+                } catch (IOException e) {
+                    LOGGER.warn("Unable to report the index rebuild progress of " + dataPTable.getName(), e);
+                }
+            }
+        }
+
         private long getTimestampForBatch(long disabledTimeStamp, Long noOfBatches) {
             if (disabledTimeStamp < 0 || rebuildIndexBatchSize > (HConstants.LATEST_TIMESTAMP
                     - disabledTimeStamp)) { return HConstants.LATEST_TIMESTAMP; }
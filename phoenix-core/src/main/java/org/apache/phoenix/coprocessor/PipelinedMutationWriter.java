@@ -0,0 +1,193 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.phoenix.coprocessor;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+
+import org.apache.hadoop.hbase.client.Mutation;
+
+/**
+ * Writes the mutation batches of a server side UPSERT SELECT or DELETE scan in the background, so
+ * that the scan can go on building the next batches while the previous ones are being written.
+ * <p>
+ * Every batch is written by its own task of the given executor. The task of a batch is only
+ * scheduled once the previous batch has been written, so batches are written one at a time, in
+ * the order they were submitted, and no thread of the executor is held while the scan builds
+ * the next batch. At most the given number of batches can be waiting to be written: submitting
+ * one more blocks the scan until the writer catches up. The first failure to write a batch is
+ * rethrown to the scan by the next {@link #submit} or by {@link #finish}, and the batches still
+ * pending at that point are dropped.
+ */
+class PipelinedMutationWriter implements Closeable {
+    /**
+     * Writes a batch of mutations
+     */
+    interface BatchCommitter {
+        void commit(List<Mutation> mutations) throws IOException;
+    }
+
+    private final ExecutorService executor;
+    private final BatchCommitter committer;
+    private final int maxPendingBatches;
+    // Guarded by this
+    private final Deque<List<Mutation>> pendingBatches = new ArrayDeque<List<Mutation>>();
+    // Whether the task of a batch is scheduled or running, guarded by this
+    private boolean writing;
+    private Throwable failure;
+    private boolean aborted;
+
+    PipelinedMutationWriter(ExecutorService executor, int maxPendingBatches,
+            BatchCommitter committer) {
+        this.executor = executor;
+        this.committer = committer;
+        this.maxPendingBatches = Math.max(1, maxPendingBatches);
+    }
+
+    /**
+     * Writes the oldest pending batch, then schedules the task of the next one
+     */
+    private class WriteBatchTask implements Runnable {
+        @Override
+        public void run() {
+            List<Mutation> mutations;
+            synchronized (PipelinedMutationWriter.this) {
+                mutations = pendingBatches.poll();
+                // Room for one more batch
+                PipelinedMutationWriter.this.notifyAll();
+            }
+            Throwable t = null;
+            if (mutations != null) {
+                try {
+                    committer.commit(mutations);
+                } catch (Throwable e) {
+                    t = e;
+                }
+            }
+            synchronized (PipelinedMutationWriter.this) {
+                if (t != null && failure == null) {
+                    failure = t;
+                }
+                if (failure != null || aborted) {
+                    pendingBatches.clear();
+                }
+                scheduleNextBatch();
+                PipelinedMutationWriter.this.notifyAll();
+            }
+        }
+    }
+
+    // Called while holding the lock on this
+    private void scheduleNextBatch() {
+        writing = !pendingBatches.isEmpty();
+        if (writing) {
+            try {
+                executor.submit(new WriteBatchTask());
+            } catch (RejectedExecutionException e) {
+                failure = e;
+                pendingBatches.clear();
+                writing = false;
+            }
+        }
+    }
+
+    /**
+     * Queues a batch to be written, waiting for the writer to catch up if too many batches are
+     * already pending. The batch must not be modified afterwards.
+     * @throws IOException if a previous batch failed to be written
+     */
+    synchronized void submit(List<Mutation> mutations) throws IOException {
+        throwIfFailed();
+        try {
+            while (pendingBatches.size() >= maxPendingBatches) {
+                wait();
+                throwIfFailed();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting to submit a batch");
+        }
+        pendingBatches.add(mutations);
+        if (!writing) {
+            scheduleNextBatch();
+        }
+    }
+
+    /**
+     * Waits until all the submitted batches have been written
+     * @throws IOException if a batch failed to be written
+     */
+    synchronized void finish() throws IOException {
+        try {
+            while (writing) {
+                wait();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for batches to be written");
+        }
+        throwIfFailed();
+    }
+
+    /**
+     * Drops the batches not written yet and waits for the batch being written, if any
+     */
+    @Override
+    public void close() {
+        try {
+            synchronized (this) {
+                aborted = true;
+                pendingBatches.clear();
+                while (writing) {
+                    wait();
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            // releases our reference to the shared pool
+            executor.shutdown();
+        }
+    }
+
+    private void throwIfFailed() throws IOException {
+        Throwable t = failure;
+        if (t == null) {
+            return;
+        }
+        if (t instanceof IOException) {
+            throw (IOException) t;
+        }
+        if (t instanceof InterruptedException) {
+            throw new InterruptedIOException("Interrupted while writing a batch");
+        }
+        if (t instanceof RuntimeException) {
+            throw (RuntimeException) t;
+        }
+        if (t instanceof Error) {
+            throw (Error) t;
+        }
+        throw new IOException(t);
+    }
+}
@@ -72,6 +72,7 @@ public class TaskRegionObserver implements RegionObserver, RegionCoprocessor {
     private static Map<TaskType, String> classMap = ImmutableMap.<TaskType, String>builder()
             .put(TaskType.DROP_CHILD_VIEWS, "org.apache.phoenix.coprocessor.tasks.DropChildViewsTask")
             .put(TaskType.INDEX_REBUILD, "org.apache.phoenix.coprocessor.tasks.IndexRebuildTask")
+            .put(TaskType.PARTIAL_INDEX_REBUILD, "org.apache.phoenix.coprocessor.tasks.PartialIndexRebuildTask")
             .build();
 
     public enum TaskResultCode {
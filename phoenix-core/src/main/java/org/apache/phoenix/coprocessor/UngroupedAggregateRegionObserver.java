@@ -26,6 +26,8 @@ import static org.apache.phoenix.query.QueryConstants.SINGLE_COLUMN_FAMILY;
 import static org.apache.phoenix.query.QueryConstants.UNGROUPED_AGG_ROW_KEY;
 import static org.apache.phoenix.query.QueryServices.MUTATE_BATCH_SIZE_ATTRIB;
 import static org.apache.phoenix.query.QueryServices.MUTATE_BATCH_SIZE_BYTES_ATTRIB;
+import static org.apache.phoenix.query.QueryServices.SERVER_MUTATE_PIPELINE_MAX_PENDING_BATCHES;
+import static org.apache.phoenix.query.QueryServices.SERVER_MUTATE_PIPELINE_WRITER_THREADS;
 import static org.apache.phoenix.schema.PTableImpl.getColumnsToClone;
 import static org.apache.phoenix.schema.stats.StatisticsCollectionRunTracker.COMPACTION_UPDATE_STATS_ROW_COUNT;
 import static org.apache.phoenix.schema.stats.StatisticsCollectionRunTracker.CONCURRENT_UPDATE_STATS_ROW_COUNT;
@@ -46,6 +48,7 @@ import java.util.Optional;
 import java.util.Set;
 import java.util.concurrent.Callable;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
 
 import javax.annotation.concurrent.GuardedBy;
 
@@ -452,6 +455,8 @@ public class UngroupedAggregateRegionObserver extends BaseScannerRegionObserver
                     return rebuildIndices(s, region, scan, env);
                 }
             });
+        } else if (ScanUtil.isIndexVerifyChecksum(scan)) {
+            return new IndexChecksumRegionScanner(s, region, scan);
         }
 
         PTable.QualifierEncodingScheme encodingScheme = EncodedColumnsUtil.getQualifierEncodingScheme(scan);
@@ -541,7 +546,8 @@ public class UngroupedAggregateRegionObserver extends BaseScannerRegionObserver
         final TupleProjector p = TupleProjector.deserializeProjectorFromScan(scan);
         final HashJoinInfo j = HashJoinInfo.deserializeHashJoinFromScan(scan);
         boolean useQualifierAsIndex = EncodedColumnsUtil.useQualifierAsIndex(EncodedColumnsUtil.getMinMaxQualifiersFromScan(scan));
-        if ((localIndexScan && !isDelete && !isDescRowKeyOrderUpgrade) || (j == null && p != null)) {
+        if (((localIndexScan || ScanUtil.isUncoveredGlobalIndex(scan)) && !isDelete && !isDescRowKeyOrderUpgrade)
+                || (j == null && p != null)) {
             if (dataColumns != null) {
                 tupleProjector = IndexUtil.getTupleProjector(scan, dataColumns);
                 viewConstants = IndexUtil.deserializeViewConstantsFromScan(scan);
@@ -593,6 +599,7 @@ public class UngroupedAggregateRegionObserver extends BaseScannerRegionObserver
         boolean incrScanRefCount = false;
         Aggregators aggregators = null;
         Aggregator[] rowAggregators = null;
+        PipelinedMutationWriter pipelinedWriter = null;
         final RegionScanner innerScanner = theScanner;
         final TenantCache tenantCache = GlobalCache.getTenantCache(env, ScanUtil.getTenantId(scan));
         try (MemoryChunk em = tenantCache.getMemoryManager().allocate(0)) {
@@ -624,6 +631,14 @@ public class UngroupedAggregateRegionObserver extends BaseScannerRegionObserver
             }
             region.startRegionOperation();
             acquiredLock = true;
+            int maxPendingBatches = conf.getInt(SERVER_MUTATE_PIPELINE_MAX_PENDING_BATCHES,
+                QueryServicesOptions.DEFAULT_SERVER_MUTATE_PIPELINE_MAX_PENDING_BATCHES);
+            if (maxPendingBatches > 0 && maxBatchSize > 0 && !buildLocalIndex) {
+                // keep scanning while the previous batches are written
+                pipelinedWriter = newPipelinedMutationWriter(env, region, maxPendingBatches, indexUUID,
+                    blockingMemStoreSize, indexMaintainersPtr, txState, targetHTable, useIndexProto,
+                    isPKChanging, clientVersionBytes);
+            }
             synchronized (innerScanner) {
                 do {
                     List<Cell> results = useQualifierAsIndex ? new EncodedColumnQualiferCellsList(minMaxQualifiers.getFirst(), minMaxQualifiers.getSecond(), encodingScheme) : new ArrayList<Cell>();
@@ -850,9 +865,14 @@ public class UngroupedAggregateRegionObserver extends BaseScannerRegionObserver
                             }
                         }
                         if (ServerUtil.readyToCommit(mutations.size(), mutations.byteSize(), maxBatchSize, maxBatchSizeBytes)) {
-                            commit(region, mutations, indexUUID, blockingMemStoreSize, indexMaintainersPtr,
-                                txState, targetHTable, useIndexProto, isPKChanging, clientVersionBytes);
-                            mutations.clear();
+                            if (pipelinedWriter != null) {
+                                pipelinedWriter.submit(mutations);
+                                mutations = new MutationList(Ints.saturatedCast(maxBatchSize + maxBatchSize / 10));
+                            } else {
+                                commit(region, mutations, indexUUID, blockingMemStoreSize, indexMaintainersPtr,
+                                    txState, targetHTable, useIndexProto, isPKChanging, clientVersionBytes);
+                                mutations.clear();
+                            }
                         }
                         // Commit in batches based on UPSERT_BATCH_SIZE_BYTES_ATTRIB in config
 
@@ -865,7 +885,13 @@ public class UngroupedAggregateRegionObserver extends BaseScannerRegionObserver
                         hasAny = true;
                     }
                 } while (hasMore);
-                if (!mutations.isEmpty()) {
+                if (pipelinedWriter != null) {
+                    if (!mutations.isEmpty()) {
+                        pipelinedWriter.submit(mutations);
+                        mutations = new MutationList();
+                    }
+                    pipelinedWriter.finish();
+                } else if (!mutations.isEmpty()) {
                     commit(region, mutations, indexUUID, blockingMemStoreSize, indexMaintainersPtr, txState,
                         targetHTable, useIndexProto, isPKChanging, clientVersionBytes);
                     mutations.clear();
@@ -877,6 +903,10 @@ public class UngroupedAggregateRegionObserver extends BaseScannerRegionObserver
                 }
             }
         } finally {
+            if (pipelinedWriter != null) {
+                // make sure no batch is still being written once the scan is done
+                pipelinedWriter.close();
+            }
             if (needToWrite && incrScanRefCount) {
                 synchronized (lock) {
                     scansReferenceCount--;
@@ -977,6 +1007,27 @@ public class UngroupedAggregateRegionObserver extends BaseScannerRegionObserver
         }
     }
 
+    private PipelinedMutationWriter newPipelinedMutationWriter(RegionCoprocessorEnvironment env,
+            final Region region, int maxPendingBatches, final byte[] indexUUID,
+            final long blockingMemStoreSize, final byte[] indexMaintainersPtr, final byte[] txState,
+            final Table targetHTable, final boolean useIndexProto, final boolean isPKChanging,
+            final byte[] clientVersionBytes) {
+        ExecutorService executor = ThreadPoolManager.getExecutor(
+            new ThreadPoolBuilder("ServerMutatePipeline", env.getConfiguration())
+                .setMaxThread(SERVER_MUTATE_PIPELINE_WRITER_THREADS,
+                    QueryServicesOptions.DEFAULT_SERVER_MUTATE_PIPELINE_WRITER_THREADS)
+                .setCoreTimeout(INDEX_WRITER_KEEP_ALIVE_TIME_CONF_KEY), env);
+        return new PipelinedMutationWriter(executor, maxPendingBatches,
+            new PipelinedMutationWriter.BatchCommitter() {
+                @Override
+                public void commit(List<Mutation> mutations) throws IOException {
+                    UngroupedAggregateRegionObserver.this.commit(region, mutations, indexUUID,
+                        blockingMemStoreSize, indexMaintainersPtr, txState, targetHTable,
+                        useIndexProto, isPKChanging, clientVersionBytes);
+                }
+            });
+    }
+
     private void commit(Region region, List<Mutation> mutations, byte[] indexUUID,
             long blockingMemStoreSize, byte[] indexMaintainersPtr, byte[] txState,
             Table targetHTable, boolean useIndexProto, boolean isPKChanging,
@@ -1126,25 +1177,20 @@ public class UngroupedAggregateRegionObserver extends BaseScannerRegionObserver
         IndexTool.IndexVerifyType verifyType = (valueBytes != null) ?
                 IndexTool.IndexVerifyType.fromValue(valueBytes):IndexTool.IndexVerifyType.NONE;
         if(oldCoproc  && verifyType == IndexTool.IndexVerifyType.ONLY) {
+            if (scan.getTimeRange().getMin() > 0) {
+                throw new DoNotRetryIOException("Verifying the index rows of the data rows changed "
+                        + "within a time range is not supported for "
+                        + region.getRegionInfo().getTable().getNameAsString()
+                        + " as it still uses the Indexer coprocessor");
+            }
             return new IndexerRegionScanner(innerScanner, region, scan, env);
         }
         if (!scan.isRaw()) {
-            Scan rawScan = new Scan(scan);
-            rawScan.setRaw(true);
-            rawScan.setMaxVersions();
-            rawScan.getFamilyMap().clear();
-            // For rebuilds we use count (*) as query for regular tables which ends up setting the FKOF on scan
-            // This filter doesn't give us all columns and skips to the next row as soon as it finds 1 col
-            // For rebuilds we need all columns and all versions
-            if (scan.getFilter() instanceof FirstKeyOnlyFilter) {
+            Scan rawScan = getRawRebuildScan(scan);
+            if (IndexRebuildRegionScanner.isIncrementalScan(scan)) {
+                // The filter is applied when the full history of a changed row is read, as the
+                // cells it depends on may not have changed within the time range
                 rawScan.setFilter(null);
-            } else if (scan.getFilter() != null) {
-                // Override the filter so that we get all versions
-                rawScan.setFilter(new AllVersionsIndexRebuildFilter(scan.getFilter()));
-            }
-            rawScan.setCacheBlocks(false);
-            for (byte[] family : scan.getFamilyMap().keySet()) {
-                rawScan.addFamily(family);
             }
             innerScanner.close();
             RegionScanner scanner = region.getScanner(rawScan);
@@ -1152,6 +1198,31 @@ public class UngroupedAggregateRegionObserver extends BaseScannerRegionObserver
         }
         return new IndexRebuildRegionScanner(innerScanner, region, scan, env, this);
     }
+
+    /**
+     * @return a raw scan returning all the columns and versions of the data rows that the given
+     * index rebuild scan would return
+     */
+    static Scan getRawRebuildScan(Scan scan) throws IOException {
+        Scan rawScan = new Scan(scan);
+        rawScan.setRaw(true);
+        rawScan.setMaxVersions();
+        rawScan.getFamilyMap().clear();
+        // For rebuilds we use count (*) as query for regular tables which ends up setting the FKOF on scan
+        // This filter doesn't give us all columns and skips to the next row as soon as it finds 1 col
+        // For rebuilds we need all columns and all versions
+        if (scan.getFilter() instanceof FirstKeyOnlyFilter) {
+            rawScan.setFilter(null);
+        } else if (scan.getFilter() != null) {
+            // Override the filter so that we get all versions
+            rawScan.setFilter(new AllVersionsIndexRebuildFilter(scan.getFilter()));
+        }
+        rawScan.setCacheBlocks(false);
+        for (byte[] family : scan.getFamilyMap().keySet()) {
+            rawScan.addFamily(family);
+        }
+        return rawScan;
+    }
     
     private RegionScanner collectStats(final RegionScanner innerScanner, StatisticsCollector stats,
             final Region region, final Scan scan, Configuration config) throws IOException {
@@ -0,0 +1,98 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.phoenix.coprocessor.tasks;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.google.common.base.Strings;
+import org.apache.phoenix.coprocessor.TaskRegionObserver;
+import org.apache.phoenix.jdbc.PhoenixConnection;
+import org.apache.phoenix.schema.PIndexState;
+import org.apache.phoenix.schema.PTable;
+import org.apache.phoenix.schema.TableNotFoundException;
+import org.apache.phoenix.schema.task.Task;
+import org.apache.phoenix.util.JacksonUtil;
+import org.apache.phoenix.util.PhoenixRuntime;
+import org.apache.phoenix.util.QueryUtil;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * System.Task entry tracking the partial rebuild of the disabled indexes of a data table. The
+ * rebuild itself is run by MetaDataRegionObserver, which keeps the entry up to date with its
+ * position in the rebuild backlog and its progress. This task only closes the entry once the
+ * indexes no longer need to be rebuilt, in case the rebuild stopped before it could do so.
+ */
+public class PartialIndexRebuildTask extends BaseTask {
+    public static final String INDEX_NAMES = "IndexNames";
+    public static final String STATE = "State";
+    public static final String STATE_QUEUED = "Queued";
+    public static final String STATE_REBUILDING = "Rebuilding";
+    public static final String QUEUE_POSITION = "QueuePosition";
+    public static final String REBUILT_UP_TO = "RebuiltUpTo";
+    public static final String UPPER_BOUND = "UpperBound";
+    public static final String ROWS_REBUILT = "RowsRebuilt";
+    public static final String BATCHES = "Batches";
+
+    public static final Logger LOGGER = LoggerFactory.getLogger(PartialIndexRebuildTask.class);
+
+    @Override
+    public TaskRegionObserver.TaskResult run(Task.TaskRecord taskRecord) {
+        try {
+            return checkCurrentResult(taskRecord);
+        } catch (Exception e) {
+            LOGGER.warn("Unable to check the partial index rebuild of " + taskRecord.getSchemaName()
+                    + "." + taskRecord.getTableName(), e);
+            return new TaskRegionObserver.TaskResult(TaskRegionObserver.TaskResultCode.SKIPPED, "");
+        }
+    }
+
+    @Override
+    public TaskRegionObserver.TaskResult checkCurrentResult(Task.TaskRecord taskRecord)
+            throws Exception {
+        String data = taskRecord.getData();
+        if (Strings.isNullOrEmpty(data)) {
+            data = "{}";
+        }
+        JsonNode jsonNode = JacksonUtil.getObjectReader().readTree(data);
+        if (!jsonNode.has(INDEX_NAMES)) {
+            return new TaskRegionObserver.TaskResult(TaskRegionObserver.TaskResultCode.FAIL,
+                    "Index names are not found. Data : " + data);
+        }
+        try (PhoenixConnection conn = QueryUtil.getConnectionOnServer(env.getConfiguration())
+                .unwrap(PhoenixConnection.class)) {
+            for (String indexName : jsonNode.get(INDEX_NAMES).asText().split(",")) {
+                PTable index;
+                try {
+                    index = PhoenixRuntime.getTableNoCache(conn, indexName);
+                } catch (TableNotFoundException e) {
+                    continue;
+                }
+                if (index.getIndexDisableTimestamp() != 0) {
+                    // Still to be rebuilt by MetaDataRegionObserver
+                    return new TaskRegionObserver.TaskResult(
+                            TaskRegionObserver.TaskResultCode.SKIPPED, "");
+                }
+                if (index.getIndexState() == PIndexState.DISABLE) {
+                    return new TaskRegionObserver.TaskResult(TaskRegionObserver.TaskResultCode.FAIL,
+                            "Index " + indexName + " is DISABLED");
+                }
+            }
+        }
+        return new TaskRegionObserver.TaskResult(TaskRegionObserver.TaskResultCode.SUCCESS, "");
+    }
+}
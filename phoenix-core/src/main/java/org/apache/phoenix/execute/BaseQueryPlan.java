@@ -325,9 +325,14 @@ public abstract class BaseQueryPlan implements QueryPlan {
         ScanUtil.setTenantId(scan, tenantIdBytes);
         String customAnnotations = LogUtil.customAnnotationsToString(connection);
         ScanUtil.setCustomAnnotations(scan, customAnnotations == null ? null : customAnnotations.getBytes());
-        // Set local index related scan attributes. 
-        if (table.getIndexType() == IndexType.LOCAL) {
-            ScanUtil.setLocalIndex(scan);
+        // Set local index related scan attributes. Hinted global indexes that do not cover the
+        // query join back to the data table using the same attributes.
+        boolean isUncoveredGlobalIndex = table.getIndexType() == IndexType.GLOBAL
+                && IndexUtil.shouldIndexBeUsedForUncoveredQuery(tableRef);
+        if (table.getIndexType() == IndexType.LOCAL || isUncoveredGlobalIndex) {
+            if (table.getIndexType() == IndexType.LOCAL) {
+                ScanUtil.setLocalIndex(scan);
+            }
             Set<PColumn> dataColumns = context.getDataColumns();
             // If any data columns to join back from data table are present then we set following attributes
             // 1. data columns to be projected and their key value schema.
@@ -356,6 +361,9 @@ public abstract class BaseQueryPlan implements QueryPlan {
                 serializeIndexMaintainerIntoScan(scan, dataTable);
                 // Set view constants if exists.
                 serializeViewConstantsIntoScan(scan, dataTable);
+                if (isUncoveredGlobalIndex) {
+                    ScanUtil.setUncoveredGlobalIndex(scan, dataTable.getPhysicalName().getBytes());
+                }
             }
         }
         
@@ -383,7 +391,7 @@ public abstract class BaseQueryPlan implements QueryPlan {
         PName name = context.getCurrentTable().getTable().getName();
         List<PTable> indexes = Lists.newArrayListWithExpectedSize(1);
         for (PTable index : dataTable.getIndexes()) {
-            if (index.getName().equals(name) && index.getIndexType() == IndexType.LOCAL) {
+            if (index.getName().equals(name)) {
                 indexes.add(index);
                 break;
             }
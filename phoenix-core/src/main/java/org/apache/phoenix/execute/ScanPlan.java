@@ -21,16 +21,20 @@ package org.apache.phoenix.execute;
 import static org.apache.phoenix.util.ScanUtil.isPacingScannersPossible;
 import static org.apache.phoenix.util.ScanUtil.isRoundRobinPossible;
 
+import java.io.IOException;
 import java.sql.SQLException;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
+import java.util.SortedSet;
 
 import com.google.common.base.Optional;
 import org.apache.hadoop.hbase.HConstants;
 import org.apache.hadoop.hbase.client.Scan;
+import org.apache.hadoop.hbase.util.Bytes;
 import org.apache.hadoop.hbase.util.Pair;
 import org.apache.phoenix.cache.ServerCacheClient.ServerCache;
+import org.apache.phoenix.compile.ColumnProjector;
 import org.apache.phoenix.compile.GroupByCompiler.GroupBy;
 import org.apache.phoenix.compile.OrderByCompiler.OrderBy;
 import org.apache.phoenix.compile.QueryPlan;
@@ -42,10 +46,17 @@ import org.apache.phoenix.coprocessor.ScanRegionObserver;
 import org.apache.phoenix.execute.visitor.ByteCountVisitor;
 import org.apache.phoenix.execute.visitor.QueryPlanVisitor;
 import org.apache.phoenix.expression.Expression;
+import org.apache.phoenix.expression.KeyValueColumnExpression;
+import org.apache.phoenix.expression.OrderByExpression;
+import org.apache.phoenix.expression.ProjectedColumnExpression;
+import org.apache.phoenix.expression.SingleCellColumnExpression;
+import org.apache.phoenix.expression.visitor.StatelessTraverseAllExpressionVisitor;
 import org.apache.phoenix.hbase.index.util.ImmutableBytesPtr;
 import org.apache.phoenix.iterate.BaseResultIterators;
 import org.apache.phoenix.iterate.ChunkedResultIterator;
 import org.apache.phoenix.iterate.ConcatResultIterator;
+import org.apache.phoenix.iterate.DefaultParallelScanGrouper;
+import org.apache.phoenix.iterate.DelegateResultIterator;
 import org.apache.phoenix.iterate.LimitingResultIterator;
 import org.apache.phoenix.iterate.MergeSortRowKeyResultIterator;
 import org.apache.phoenix.iterate.MergeSortTopNResultIterator;
@@ -57,7 +68,10 @@ import org.apache.phoenix.iterate.ResultIterator;
 import org.apache.phoenix.iterate.RoundRobinResultIterator;
 import org.apache.phoenix.iterate.SequenceResultIterator;
 import org.apache.phoenix.iterate.SerialIterators;
+import org.apache.phoenix.iterate.SingleCellProjectionRegionScanner;
+import org.apache.phoenix.iterate.SnapshotParallelScanGrouper;
 import org.apache.phoenix.iterate.SpoolingResultIterator;
+import org.apache.phoenix.join.HashJoinInfo;
 import org.apache.phoenix.optimize.Cost;
 import org.apache.phoenix.parse.FilterableStatement;
 import org.apache.phoenix.parse.HintNode;
@@ -66,7 +80,9 @@ import org.apache.phoenix.query.KeyRange;
 import org.apache.phoenix.query.QueryConstants;
 import org.apache.phoenix.query.QueryServices;
 import org.apache.phoenix.query.QueryServicesOptions;
+import org.apache.phoenix.schema.PColumnFamily;
 import org.apache.phoenix.schema.PTable;
+import org.apache.phoenix.schema.PTable.ImmutableStorageScheme;
 import org.apache.phoenix.schema.PTable.IndexType;
 import org.apache.phoenix.schema.SaltingUtil;
 import org.apache.phoenix.schema.TableRef;
@@ -76,9 +92,13 @@ import org.apache.phoenix.util.ExpressionUtil;
 import org.apache.phoenix.util.QueryUtil;
 import org.apache.phoenix.util.ScanUtil;
 import org.apache.phoenix.util.SchemaUtil;
+import org.apache.phoenix.util.ServerUtil;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+
 
 
 /**
@@ -104,7 +124,11 @@ public class ScanPlan extends BaseQueryPlan {
     public ScanPlan(StatementContext context, FilterableStatement statement, TableRef table, RowProjector projector, Integer limit,
             Integer offset, OrderBy orderBy, ParallelIteratorFactory parallelIteratorFactory, boolean allowPageFilter, 
             QueryPlan dataPlan, Optional<byte[]> rowOffset) throws SQLException {
-        this(context, statement, table, projector, limit, offset, orderBy, parallelIteratorFactory, allowPageFilter, null, dataPlan, rowOffset);
+        // Rows of an uncovered global index may still be filtered out after they are joined back
+        // to the data table, so the limit cannot be pushed down as a page filter
+        this(context, statement, table, projector, limit, offset, orderBy, parallelIteratorFactory,
+                allowPageFilter && context.getScan().getAttribute(BaseScannerRegionObserver.UNCOVERED_GLOBAL_INDEX_FILTER) == null,
+                null, dataPlan, rowOffset);
     }
     
     private ScanPlan(StatementContext context, FilterableStatement statement, TableRef table, RowProjector projector, Integer limit, Integer offset,
@@ -132,6 +156,74 @@ public class ScanPlan extends BaseQueryPlan {
         }
         this.actualOutputOrderBy = convertActualOutputOrderBy(orderBy, context);
         this.rowOffset = rowOffset;
+        serializeSingleCellProjectionIntoScan(context, table.getTable(), projector, orderBy, dataPlan);
+    }
+
+    /**
+     * Asks the region servers to trim the packed cells of a table stored with
+     * SINGLE_CELL_ARRAY_WITH_OFFSETS to the columns evaluated on the client, when the rows are not
+     * already projected on the server.
+     */
+    private static void serializeSingleCellProjectionIntoScan(StatementContext context, PTable table,
+            RowProjector projector, OrderBy orderBy, QueryPlan dataPlan) throws SQLException {
+        Scan scan = context.getScan();
+        if (table.getImmutableStorageScheme() != ImmutableStorageScheme.SINGLE_CELL_ARRAY_WITH_OFFSETS
+                || table.getIndexType() == IndexType.LOCAL
+                || dataPlan != null
+                || TupleProjector.hasProjector(scan)
+                || scan.getAttribute(BaseScannerRegionObserver.SPECIFIC_ARRAY_INDEX) != null) {
+            return;
+        }
+        SingleCellColumnVisitor visitor = new SingleCellColumnVisitor();
+        for (ColumnProjector columnProjector : projector.getColumnProjectors()) {
+            columnProjector.getExpression().accept(visitor);
+        }
+        for (OrderByExpression orderByExpression : orderBy.getOrderByExpressions()) {
+            orderByExpression.getExpression().accept(visitor);
+        }
+        if (visitor.isWholeCellReferenced) {
+            return;
+        }
+        Map<byte[], SortedSet<Integer>> arrayIndexesByFamily = Maps.newTreeMap(Bytes.BYTES_COMPARATOR);
+        for (PColumnFamily family : table.getColumnFamilies()) {
+            SortedSet<Integer> arrayIndexes = visitor.arrayIndexesByFamily.get(family.getName().getBytes());
+            if (arrayIndexes == null) {
+                arrayIndexes = Sets.newTreeSet();
+            }
+            // Nothing to trim if every column of the family is evaluated
+            if (arrayIndexes.size() < family.getColumns().size()) {
+                arrayIndexesByFamily.put(family.getName().getBytes(), arrayIndexes);
+            }
+        }
+        if (!arrayIndexesByFamily.isEmpty()) {
+            SingleCellProjectionRegionScanner.serializeIntoScan(scan, arrayIndexesByFamily);
+        }
+    }
+
+    private static class SingleCellColumnVisitor extends StatelessTraverseAllExpressionVisitor<Void> {
+        private final Map<byte[], SortedSet<Integer>> arrayIndexesByFamily = Maps.newTreeMap(Bytes.BYTES_COMPARATOR);
+        private boolean isWholeCellReferenced;
+
+        @Override
+        public Void visit(KeyValueColumnExpression node) {
+            if (node instanceof SingleCellColumnExpression) {
+                SortedSet<Integer> arrayIndexes = arrayIndexesByFamily.get(node.getColumnFamily());
+                if (arrayIndexes == null) {
+                    arrayIndexes = Sets.newTreeSet();
+                    arrayIndexesByFamily.put(node.getColumnFamily(), arrayIndexes);
+                }
+                arrayIndexes.add(((SingleCellColumnExpression) node).getArrayIndex());
+            } else if (Bytes.equals(node.getColumnQualifier(), QueryConstants.SINGLE_KEYVALUE_COLUMN_QUALIFIER_BYTES)) {
+                isWholeCellReferenced = true;
+            }
+            return null;
+        }
+
+        @Override
+        public Void visit(ProjectedColumnExpression node) {
+            isWholeCellReferenced = true;
+            return null;
+        }
     }
 
     private static boolean isSerial(StatementContext context, FilterableStatement statement,
@@ -253,6 +345,13 @@ public class ScanPlan extends BaseQueryPlan {
     protected ResultIterator newIterator(ParallelScanGrouper scanGrouper, Scan scan, Map<ImmutableBytesPtr,ServerCache> caches) throws SQLException {
         // Set any scan attributes before creating the scanner, as it will be too late afterwards
         scan.setAttribute(BaseScannerRegionObserver.NON_AGGREGATE_QUERY, QueryConstants.TRUE);
+        // Read from the snapshot in the client when hinted, unless the scans depend on server
+        // caches (hash joins) or a caller such as an M/R job already chose how to group them
+        String snapshotName = getSnapshotName();
+        if (snapshotName != null && (caches == null || caches.isEmpty()) && scanGrouper == DefaultParallelScanGrouper.getInstance()) {
+            scanGrouper = new SnapshotParallelScanGrouper(
+                    context.getConnection().getQueryServices().getConfiguration(), snapshotName);
+        }
         ResultIterator scanner;
         TableRef tableRef = this.getTableRef();
         PTable table = tableRef.getTable();
@@ -320,9 +419,39 @@ public class ScanPlan extends BaseQueryPlan {
         if (context.getSequenceManager().getSequenceCount() > 0) {
             scanner = new SequenceResultIterator(scanner, context.getSequenceManager());
         }
+        if (scanGrouper instanceof SnapshotParallelScanGrouper) {
+            // The scans share a single restored copy of the snapshot, deleted once they are done
+            final SnapshotParallelScanGrouper snapshotScanGrouper = (SnapshotParallelScanGrouper) scanGrouper;
+            scanner = new DelegateResultIterator(scanner) {
+                @Override
+                public void close() throws SQLException {
+                    try {
+                        super.close();
+                    } finally {
+                        try {
+                            snapshotScanGrouper.close();
+                        } catch (IOException e) {
+                            throw ServerUtil.parseServerException(e);
+                        }
+                    }
+                }
+            };
+        }
         return scanner;
     }
     
+    /**
+     * @return the name of the snapshot given by the {@link HintNode.Hint#SNAPSHOT} hint, or null
+     *         if the hint is not present or is ignored because the plan probes the hash join caches
+     *         of the region servers
+     */
+    public String getSnapshotName() {
+        if (HashJoinInfo.isHashJoin(context.getScan())) {
+            return null;
+        }
+        return SnapshotParallelScanGrouper.getSnapshotName(statement.getHint());
+    }
+
     @Override
     public boolean useRoundRobinIterator() throws SQLException {
         return ScanUtil.isRoundRobinPossible(orderBy, context);
@@ -163,6 +163,10 @@ public class TupleProjector {
         }
     }
     
+    public static boolean hasProjector(Scan scan) {
+        return scan.getAttribute(SCAN_PROJECTOR) != null;
+    }
+
     public static TupleProjector deserializeProjectorFromScan(Scan scan) {
         return deserializeProjectorFromBytes(scan.getAttribute(SCAN_PROJECTOR));
     }
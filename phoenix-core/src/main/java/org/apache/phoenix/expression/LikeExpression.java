@@ -24,6 +24,7 @@ import java.util.List;
 
 import org.apache.hadoop.hbase.io.ImmutableBytesWritable;
 import org.apache.phoenix.expression.util.regex.AbstractBasePattern;
+import org.apache.phoenix.expression.util.regex.LiteralPattern;
 import org.apache.phoenix.expression.visitor.ExpressionVisitor;
 import org.apache.phoenix.parse.LikeParseNode.LikeType;
 import org.apache.phoenix.schema.SortOrder;
@@ -248,7 +249,10 @@ public abstract class LikeExpression extends BaseCompoundExpression {
 
     protected AbstractBasePattern compilePattern(String value) {
         if (likeType == LikeType.CASE_SENSITIVE) {
-            return compilePatternSpec(toPattern(value));
+            AbstractBasePattern pattern = compilePatternSpec(toPattern(value));
+            // patterns made of literals and '%' are matched on the bytes directly
+            LiteralPattern literalPattern = LiteralPattern.forLike(value, pattern);
+            return literalPattern == null ? pattern : literalPattern;
         } else {
             return compilePatternSpec("(?i)" + toPattern(value));
         }
@@ -91,11 +91,9 @@ public class SingleCellColumnExpression extends KeyValueColumnExpression {
         } else if (ptr.getLength() == 0) { 
         	return true; 
         }
-    	// the first position is reserved and we offset maxEncodedColumnQualifier by ENCODED_CQ_COUNTER_INITIAL_VALUE (which is the minimum encoded column qualifier)
-    	int index = decodedColumnQualifier-QueryConstants.ENCODED_CQ_COUNTER_INITIAL_VALUE+1;
         // Given a ptr to the entire array, set ptr to point to a particular element within that array
     	ColumnValueDecoder encoderDecoder = immutableStorageScheme.getDecoder();
-    	return encoderDecoder.decode(ptr, index);
+    	return encoderDecoder.decode(ptr, getArrayIndex());
     }
 
     @Override
@@ -171,6 +169,14 @@ public class SingleCellColumnExpression extends KeyValueColumnExpression {
         return arrayColDisplayName;
     }
     
+    /**
+     * @return the position of the column value within the array stored in the single cell
+     */
+    public int getArrayIndex() {
+        // the first position is reserved and we offset maxEncodedColumnQualifier by ENCODED_CQ_COUNTER_INITIAL_VALUE (which is the minimum encoded column qualifier)
+        return decodedColumnQualifier - QueryConstants.ENCODED_CQ_COUNTER_INITIAL_VALUE + 1;
+    }
+
     public byte[] getPositionInArray() {
         return encodingScheme.encode(decodedColumnQualifier);
     }
@@ -25,6 +25,7 @@ import org.apache.hadoop.hbase.io.ImmutableBytesWritable;
 import org.apache.phoenix.expression.Determinism;
 import org.apache.phoenix.expression.Expression;
 import org.apache.phoenix.expression.util.regex.AbstractBasePattern;
+import org.apache.phoenix.expression.util.regex.LiteralPattern;
 import org.apache.phoenix.parse.FunctionParseNode;
 import org.apache.phoenix.parse.FunctionParseNode.Argument;
 import org.apache.phoenix.parse.FunctionParseNode.BuiltInFunction;
@@ -75,12 +76,16 @@ public abstract class RegexpReplaceFunction extends ScalarFunction {
 
     protected abstract AbstractBasePattern compilePatternSpec(String value);
 
+    private AbstractBasePattern compilePattern(String value) {
+        return LiteralPattern.forRegex(value, compilePatternSpec(value));
+    }
+
     private void init() {
         ImmutableBytesWritable tmpPtr = new ImmutableBytesWritable();
         Expression e = getPatternStrExpression();
         if (e.isStateless() && e.getDeterminism() == Determinism.ALWAYS && e.evaluate(null, tmpPtr)) {
             String patternStr = (String) TYPE.toObject(tmpPtr, e.getDataType(), e.getSortOrder());
-            if (patternStr != null) pattern = compilePatternSpec(patternStr);
+            if (patternStr != null) pattern = compilePattern(patternStr);
         }
         e = getReplaceStrExpression();
         if (e.isStateless() && e.getDeterminism() == Determinism.ALWAYS && e.evaluate(null, tmpPtr)) {
@@ -108,7 +113,7 @@ public abstract class RegexpReplaceFunction extends ScalarFunction {
             if (patternStr == null) {
                 return false;
             } else {
-                pattern = compilePatternSpec(patternStr);
+                pattern = compilePattern(patternStr);
             }
         }
 
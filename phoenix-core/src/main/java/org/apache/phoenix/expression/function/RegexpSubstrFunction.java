@@ -25,6 +25,7 @@ import org.apache.hadoop.hbase.io.ImmutableBytesWritable;
 import org.apache.phoenix.expression.Determinism;
 import org.apache.phoenix.expression.Expression;
 import org.apache.phoenix.expression.util.regex.AbstractBasePattern;
+import org.apache.phoenix.expression.util.regex.LiteralPattern;
 import org.apache.phoenix.parse.FunctionParseNode;
 import org.apache.phoenix.parse.FunctionParseNode.Argument;
 import org.apache.phoenix.parse.FunctionParseNode.BuiltInFunction;
@@ -74,13 +75,17 @@ public abstract class RegexpSubstrFunction extends PrefixFunction {
 
     protected abstract AbstractBasePattern compilePatternSpec(String value);
 
+    private AbstractBasePattern compilePattern(String value) {
+        return LiteralPattern.forRegex(value, compilePatternSpec(value));
+    }
+
     private void init() {
         ImmutableBytesWritable ptr = new ImmutableBytesWritable();
         Expression patternExpr = getPatternExpression();
         if (patternExpr.isStateless() && patternExpr.getDeterminism() == Determinism.ALWAYS && patternExpr.evaluate(null, ptr)) {
             String patternStr = (String) patternExpr.getDataType().toObject(ptr, patternExpr.getSortOrder());
             if (patternStr != null) {
-                pattern = compilePatternSpec(patternStr);
+                pattern = compilePattern(patternStr);
             }
         }
         // If the source string has a fixed width, then the max length would be the length 
@@ -115,7 +120,7 @@ public abstract class RegexpSubstrFunction extends PrefixFunction {
             if (ptr.getLength() == 0) {
                 return true;
             }
-            pattern = compilePatternSpec((String) patternExpr.getDataType().toObject(ptr, patternExpr.getSortOrder()));
+            pattern = compilePattern((String) patternExpr.getDataType().toObject(ptr, patternExpr.getSortOrder()));
         }
         int offset;
         if (this.offset == null) {
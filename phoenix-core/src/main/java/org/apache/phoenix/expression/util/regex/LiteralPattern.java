@@ -0,0 +1,279 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.phoenix.expression.util.regex;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.hadoop.hbase.io.ImmutableBytesWritable;
+import org.apache.hadoop.hbase.util.Bytes;
+import org.apache.phoenix.schema.SortOrder;
+import org.apache.phoenix.schema.types.PDataType;
+import org.apache.phoenix.util.ByteUtil;
+import org.apache.phoenix.util.StringUtil;
+import org.apache.phoenix.util.TrustedByteArrayOutputStream;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * Pattern for literal strings and LIKE patterns made of literals and '%' wildcards, evaluated
+ * directly on the UTF-8 bytes without decoding them or running a regex engine. Since UTF-8 is
+ * self-synchronizing, a byte level substring match is also a character level match. Each literal
+ * is searched with a Boyer-Moore-Horspool skip table.
+ * <p>
+ * The regex the pattern was derived from is kept as a delegate. It provides {@link #pattern()}
+ * and handles the operations the literal form cannot answer exactly.
+ */
+public class LiteralPattern extends AbstractBasePattern {
+
+    private static final String REGEX_META_CHARS = "\\^$.|?*+()[]{}";
+
+    private final AbstractBasePattern delegate;
+    // true if the pattern contains at least one '%', false if it must match exactly
+    private final boolean hasWildcard;
+    private final Literal prefix;
+    private final Literal suffix;
+    private final Literal[] middles;
+
+    private LiteralPattern(AbstractBasePattern delegate, boolean hasWildcard, byte[] prefix,
+            byte[] suffix, List<byte[]> middles) {
+        this.delegate = delegate;
+        this.hasWildcard = hasWildcard;
+        this.prefix = new Literal(prefix);
+        this.suffix = new Literal(suffix);
+        this.middles = new Literal[middles.size()];
+        for (int i = 0; i < this.middles.length; i++) {
+            this.middles[i] = new Literal(middles.get(i));
+        }
+    }
+
+    /**
+     * @param like case sensitive LIKE pattern, with '\' escaping the next character
+     * @param delegate the compiled regex equivalent of the LIKE pattern
+     * @return a literal pattern, or null if the LIKE pattern uses the '_' wildcard
+     */
+    public static LiteralPattern forLike(String like, AbstractBasePattern delegate) {
+        List<String> parts = new ArrayList<String>();
+        StringBuilder buf = new StringBuilder(like.length());
+        boolean wasSlash = false;
+        for (int i = 0; i < like.length(); i++) {
+            char c = like.charAt(i);
+            if (wasSlash) {
+                buf.append(c);
+                wasSlash = false;
+            } else if (c == StringUtil.SINGLE_CHAR_LIKE) {
+                return null;
+            } else if (c == StringUtil.MULTI_CHAR_LIKE) {
+                parts.add(buf.toString());
+                buf.setLength(0);
+            } else if (c == '\\') {
+                wasSlash = true;
+            } else {
+                buf.append(c);
+            }
+        }
+        parts.add(buf.toString());
+        byte[] prefix = Bytes.toBytes(parts.get(0));
+        if (parts.size() == 1) {
+            return new LiteralPattern(delegate, false, prefix, ByteUtil.EMPTY_BYTE_ARRAY,
+                    new ArrayList<byte[]>(0));
+        }
+        List<byte[]> middles = new ArrayList<byte[]>(parts.size() - 2);
+        for (int i = 1; i < parts.size() - 1; i++) {
+            if (!parts.get(i).isEmpty()) {
+                middles.add(Bytes.toBytes(parts.get(i)));
+            }
+        }
+        return new LiteralPattern(delegate, true, prefix,
+                Bytes.toBytes(parts.get(parts.size() - 1)), middles);
+    }
+
+    /**
+     * @param regex regular expression
+     * @param delegate the compiled regex
+     * @return a literal pattern if the regex is a non empty string without any meta characters,
+     *         or the delegate otherwise
+     */
+    public static AbstractBasePattern forRegex(String regex, AbstractBasePattern delegate) {
+        if (regex == null || regex.isEmpty()) {
+            return delegate;
+        }
+        for (int i = 0; i < regex.length(); i++) {
+            if (REGEX_META_CHARS.indexOf(regex.charAt(i)) >= 0) {
+                return delegate;
+            }
+        }
+        return new LiteralPattern(delegate, false, Bytes.toBytes(regex),
+                ByteUtil.EMPTY_BYTE_ARRAY, new ArrayList<byte[]>(0));
+    }
+
+    @Override
+    public void matches(ImmutableBytesWritable srcPtr) {
+        Preconditions.checkNotNull(srcPtr);
+        boolean ret = matches(srcPtr.get(), srcPtr.getOffset(), srcPtr.getLength());
+        srcPtr.set(ret ? PDataType.TRUE_BYTES : PDataType.FALSE_BYTES);
+    }
+
+    private boolean matches(byte[] bytes, int offset, int length) {
+        if (!hasWildcard) {
+            return prefix.length() == length && prefix.startsAt(bytes, offset);
+        }
+        if (length < prefix.length() + suffix.length()) {
+            return false;
+        }
+        int end = offset + length - suffix.length();
+        if (!prefix.startsAt(bytes, offset) || !suffix.startsAt(bytes, end)) {
+            return false;
+        }
+        int pos = offset + prefix.length();
+        for (Literal middle : middles) {
+            int found = middle.indexOf(bytes, pos, end);
+            if (found < 0) {
+                return false;
+            }
+            pos = found + middle.length();
+        }
+        return true;
+    }
+
+    private boolean isSearchable() {
+        return !hasWildcard && prefix.length() > 0;
+    }
+
+    @Override
+    public void replaceAll(ImmutableBytesWritable srcPtr, byte[] rStrBytes, int rStrOffset,
+            int rStrLen) {
+        if (!isSearchable() || hasReplacementEscapes(rStrBytes, rStrOffset, rStrLen)) {
+            delegate.replaceAll(srcPtr, rStrBytes, rStrOffset, rStrLen);
+            return;
+        }
+        Preconditions.checkNotNull(srcPtr);
+        byte[] src = srcPtr.get();
+        int cur = srcPtr.getOffset();
+        int end = cur + srcPtr.getLength();
+        int found = prefix.indexOf(src, cur, end);
+        if (found < 0) {
+            return;
+        }
+        TrustedByteArrayOutputStream out = new TrustedByteArrayOutputStream(srcPtr.getLength());
+        while (found >= 0) {
+            out.write(src, cur, found - cur);
+            out.write(rStrBytes, rStrOffset, rStrLen);
+            cur = found + prefix.length();
+            found = prefix.indexOf(src, cur, end);
+        }
+        out.write(src, cur, end - cur);
+        srcPtr.set(out.toByteArray());
+    }
+
+    // the Java regex engine interprets '$' and '\' in the replacement string
+    private static boolean hasReplacementEscapes(byte[] bytes, int offset, int length) {
+        for (int i = offset; i < offset + length; i++) {
+            if (bytes[i] == '$' || bytes[i] == '\\') {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public void substr(ImmutableBytesWritable ptr, int offsetInStr) {
+        if (!isSearchable()) {
+            delegate.substr(ptr, offsetInStr);
+            return;
+        }
+        Preconditions.checkNotNull(ptr);
+        int offsetInBytes = StringUtil.calculateUTF8Offset(ptr.get(), ptr.getOffset(),
+                ptr.getLength(), SortOrder.ASC, offsetInStr);
+        int found = offsetInBytes < 0 ? -1
+                : prefix.indexOf(ptr.get(), offsetInBytes, ptr.getOffset() + ptr.getLength());
+        if (found < 0) {
+            ptr.set(ByteUtil.EMPTY_BYTE_ARRAY);
+        } else {
+            ptr.set(ptr.get(), found, prefix.length());
+        }
+    }
+
+    @Override
+    public String pattern() {
+        return delegate.pattern();
+    }
+
+    /**
+     * Literal byte sequence with a Boyer-Moore-Horspool bad character skip table.
+     */
+    private static class Literal {
+        private final byte[] bytes;
+        private final int[] skip;
+
+        Literal(byte[] bytes) {
+            this.bytes = bytes;
+            if (bytes.length > 1) {
+                skip = new int[256];
+                for (int i = 0; i < skip.length; i++) {
+                    skip[i] = bytes.length;
+                }
+                for (int i = 0; i < bytes.length - 1; i++) {
+                    skip[bytes[i] & 0xFF] = bytes.length - 1 - i;
+                }
+            } else {
+                skip = null;
+            }
+        }
+
+        int length() {
+            return bytes.length;
+        }
+
+        boolean startsAt(byte[] src, int offset) {
+            return Bytes.equals(bytes, 0, bytes.length, src, offset, bytes.length);
+        }
+
+        /**
+         * @return the position of the first occurrence in src[from, to), or -1 if there is none
+         */
+        int indexOf(byte[] src, int from, int to) {
+            int n = bytes.length;
+            if (n == 0) {
+                return from <= to ? from : -1;
+            }
+            if (skip == null) {
+                byte b = bytes[0];
+                for (int i = from; i < to; i++) {
+                    if (src[i] == b) {
+                        return i;
+                    }
+                }
+                return -1;
+            }
+            int last = n - 1;
+            int i = from;
+            while (i + last < to) {
+                int j = last;
+                while (src[i + j] == bytes[j]) {
+                    if (j == 0) {
+                        return i;
+                    }
+                    j--;
+                }
+                i += skip[src[i + last] & 0xFF];
+            }
+            return -1;
+        }
+    }
+}
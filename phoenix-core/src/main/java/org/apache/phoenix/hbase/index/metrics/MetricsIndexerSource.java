@@ -79,6 +79,11 @@ public interface MetricsIndexerSource extends BaseSource {
   String POST_INDEX_UPDATE_FAILURE = "postIndexUpdateFailure";
   String POST_INDEX_UPDATE_FAILURE_DESC = "The number of failures of index updates post data updates";
 
+  // Per index table metrics, the index table name is appended to the metric name
+  String INDEX_TABLE_WRITE_TIME = "indexTableWriteTime_";
+  String INDEX_TABLE_WRITE_QUEUE_DEPTH = "indexTableWriteQueueDepth_";
+  String INDEX_TABLE_WRITE_REJECTIONS = "indexTableWriteRejections_";
+
   /**
    * Updates the index preparation time histogram (preBatchMutate).
    *
@@ -201,4 +206,28 @@ public interface MetricsIndexerSource extends BaseSource {
    * Increments the number of post index update failures.
    */
   void incrementPostIndexUpdateFailures();
+
+  /**
+   * Updates the write time histogram of an index table.
+   *
+   * @param indexTableName name of the index table
+   * @param t time taken in milliseconds
+   */
+  void updateIndexTableWriteTime(String indexTableName, long t);
+
+  /**
+   * Sets the number of writes to an index table waiting for a permit or in flight.
+   *
+   * @param indexTableName name of the index table
+   * @param depth number of writes
+   */
+  void setIndexTableWriteQueueDepth(String indexTableName, long depth);
+
+  /**
+   * Increments the number of writes to an index table failed because the writes to that table
+   * already in flight did not give back a permit in time.
+   *
+   * @param indexTableName name of the index table
+   */
+  void incrementIndexTableWriteRejections(String indexTableName);
 }
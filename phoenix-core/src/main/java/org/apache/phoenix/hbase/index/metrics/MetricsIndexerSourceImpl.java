@@ -183,4 +183,19 @@ public class MetricsIndexerSourceImpl extends BaseSourceImpl implements MetricsI
     public void incrementPostIndexUpdateFailures() {
         postIndexUpdateFailures.incr();
     }
+
+    @Override
+    public void updateIndexTableWriteTime(String indexTableName, long t) {
+        updateHistogram(INDEX_TABLE_WRITE_TIME + indexTableName, t);
+    }
+
+    @Override
+    public void setIndexTableWriteQueueDepth(String indexTableName, long depth) {
+        setGauge(INDEX_TABLE_WRITE_QUEUE_DEPTH + indexTableName, depth);
+    }
+
+    @Override
+    public void incrementIndexTableWriteRejections(String indexTableName) {
+        incCounters(INDEX_TABLE_WRITE_REJECTIONS + indexTableName, 1);
+    }
 }
\ No newline at end of file
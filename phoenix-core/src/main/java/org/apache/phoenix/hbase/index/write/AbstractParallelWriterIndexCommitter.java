@@ -32,7 +32,6 @@ import org.apache.hadoop.hbase.coprocessor.RegionCoprocessorEnvironment;
 import org.apache.phoenix.coprocessor.MetaDataProtocol;
 import org.apache.phoenix.hbase.index.exception.SingleIndexWriteFailureException;
 import org.apache.phoenix.hbase.index.parallel.QuickFailingTaskRunner;
-import org.apache.phoenix.hbase.index.parallel.Task;
 import org.apache.phoenix.hbase.index.parallel.TaskBatch;
 import org.apache.phoenix.hbase.index.parallel.ThreadPoolBuilder;
 import org.apache.phoenix.hbase.index.parallel.ThreadPoolManager;
@@ -64,6 +63,8 @@ public abstract class AbstractParallelWriterIndexCommitter implements IndexCommi
     protected RegionCoprocessorEnvironment env;
     protected TaskBatch<Void> tasks;
     protected boolean disableIndexOnFailure = false;
+    protected boolean colocatedRegionWrites = false;
+    protected IndexWriteLimiter writeLimiter;
 
 
     public AbstractParallelWriterIndexCommitter() {}
@@ -84,6 +85,7 @@ public abstract class AbstractParallelWriterIndexCommitter implements IndexCommi
                                 DEFAULT_CONCURRENT_INDEX_WRITER_THREADS).setCoreTimeout(
                                 INDEX_WRITER_KEEP_ALIVE_TIME_CONF_KEY), env), parent, env);
         this.kvBuilder = KeyValueBuilder.get(env.getHBaseVersion());
+        this.colocatedRegionWrites = IndexWriterUtils.isColocatedRegionWritesEnabled(env);
     }
 
     /**
@@ -97,6 +99,7 @@ public abstract class AbstractParallelWriterIndexCommitter implements IndexCommi
         this.pool = new QuickFailingTaskRunner(pool);
         this.stopped = stop;
         this.env = env;
+        this.writeLimiter = IndexWriteLimiter.getInstance(env);
     }
 
     @Override
@@ -133,16 +136,11 @@ public abstract class AbstractParallelWriterIndexCommitter implements IndexCommi
              * batch, depending on the underlying writer implementation (HTableInterface#batch is blocking, but doesn't
              * elaborate when is supports an interrupt).
              */
-            tasks.add(new Task<Void>() {
+            tasks.add(new LimitedIndexWriteTask<Void>(writeLimiter, tableReference, mutations, env) {
 
-                /**
-                 * Do the actual write to the primary table.
-                 * 
-                 * @return
-                 */
                 @SuppressWarnings("deprecation")
                 @Override
-                public Void call() throws Exception {
+                protected Void writeIndexUpdates() throws Exception {
                     // this may have been queued, so another task infront of us may have failed, so we should
                     // early exit, if that's the case
                     throwFailureIfDone();
@@ -175,9 +173,17 @@ public abstract class AbstractParallelWriterIndexCommitter implements IndexCommi
                         else {
                             factory = retryingFactory;
                         }
+                        List<Mutation> remoteMutations = mutations;
+                        if (colocatedRegionWrites && env != null) {
+                            throwFailureIfDone();
+                            remoteMutations = IndexWriterUtils.writeToColocatedRegions(env, tableReference, mutations);
+                            if (remoteMutations.isEmpty()) {
+                                return null;
+                            }
+                        }
                         try (Table table = factory.getTable(tableReference.get())) {
                             throwFailureIfDone();
-                            table.batch(mutations, null);
+                            table.batch(remoteMutations, null);
                         }
                     } catch (SingleIndexWriteFailureException e) {
                         throw e;
@@ -191,7 +197,8 @@ public abstract class AbstractParallelWriterIndexCommitter implements IndexCommi
                     return null;
                 }
 
-                private void throwFailureIfDone() throws SingleIndexWriteFailureException {
+                @Override
+                protected void throwFailureIfDone() throws SingleIndexWriteFailureException {
                     if (this.isBatchFailed() || Thread.currentThread().isInterrupted()) { throw new SingleIndexWriteFailureException(
                             "Pool closed, not attempting to write to the index!", null); }
 
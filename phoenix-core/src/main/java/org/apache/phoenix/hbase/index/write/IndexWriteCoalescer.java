@@ -0,0 +1,315 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.phoenix.hbase.index.write;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.hbase.client.Mutation;
+import org.apache.hadoop.hbase.client.Table;
+import org.apache.hadoop.hbase.coprocessor.RegionCoprocessorEnvironment;
+import org.apache.phoenix.hbase.index.table.HTableFactory;
+import org.apache.phoenix.hbase.index.table.HTableInterfaceReference;
+import org.apache.phoenix.util.EnvironmentEdgeManager;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.annotations.VisibleForTesting;
+
+/**
+ * Coalesces the index updates of concurrent writers targeting the same index table into a single
+ * {@link Table#batch(List, Object[])} call.
+ * <p>
+ * There is no background flusher. The first writer to find no batch in flight for a table becomes
+ * the leader and sends everything queued for that table, up to
+ * {@link #INDEX_WRITE_COALESCING_MAX_BATCH_SIZE_CONF_KEY} mutations per call, until its own
+ * updates have been written. Writers arriving while a batch is in flight queue up behind it and
+ * are sent together by the next leader, so an uncontended writer pays no extra latency while many
+ * small concurrent writes collapse into a few larger RPCs. A leader may optionally wait up to
+ * {@link #INDEX_WRITE_COALESCING_WINDOW_MS_CONF_KEY} for more updates to arrive before sending.
+ * <p>
+ * A failed batch fails every writer whose updates were part of it, since the individual
+ * mutations of a batch cannot be attributed back to their writers.
+ * <p>
+ * The index writers of all the regions of a region server share the same coalescers, see
+ * {@link #getInstance(RegionCoprocessorEnvironment, boolean)}, so that the updates of different
+ * regions to the same index table are sent together.
+ */
+public class IndexWriteCoalescer {
+    private static final Logger LOGGER = LoggerFactory.getLogger(IndexWriteCoalescer.class);
+
+    public static final String INDEX_WRITE_COALESCING_ENABLED_CONF_KEY =
+            "phoenix.index.writes.coalescing.enabled";
+    public static final boolean DEFAULT_INDEX_WRITE_COALESCING_ENABLED = false;
+    public static final String INDEX_WRITE_COALESCING_WINDOW_MS_CONF_KEY =
+            "phoenix.index.writes.coalescing.window.ms";
+    public static final long DEFAULT_INDEX_WRITE_COALESCING_WINDOW_MS = 0;
+    public static final String INDEX_WRITE_COALESCING_MAX_BATCH_SIZE_CONF_KEY =
+            "phoenix.index.writes.coalescing.max.batch.size";
+    public static final int DEFAULT_INDEX_WRITE_COALESCING_MAX_BATCH_SIZE = 1000;
+
+    private static final String RETRYING_SHARED_DATA_KEY = IndexWriteCoalescer.class.getName() + ".retrying";
+    private static final String NO_RETRIES_SHARED_DATA_KEY = IndexWriteCoalescer.class.getName() + ".noRetries";
+
+    private final HTableFactory factory;
+    private final long windowMs;
+    private final int maxBatchSize;
+    private final ConcurrentMap<HTableInterfaceReference, TableQueue> queues =
+            new ConcurrentHashMap<HTableInterfaceReference, TableQueue>();
+
+    public IndexWriteCoalescer(HTableFactory factory, Configuration conf) {
+        this(factory,
+                conf.getLong(INDEX_WRITE_COALESCING_WINDOW_MS_CONF_KEY,
+                        DEFAULT_INDEX_WRITE_COALESCING_WINDOW_MS),
+                conf.getInt(INDEX_WRITE_COALESCING_MAX_BATCH_SIZE_CONF_KEY,
+                        DEFAULT_INDEX_WRITE_COALESCING_MAX_BATCH_SIZE));
+    }
+
+    @VisibleForTesting
+    IndexWriteCoalescer(HTableFactory factory, long windowMs, int maxBatchSize) {
+        this.factory = factory;
+        this.windowMs = Math.max(0, windowMs);
+        this.maxBatchSize = Math.max(1, maxBatchSize);
+    }
+
+    /**
+     * @param retrying whether the batches are sent through the connection that retries failed
+     *            writes or through the one that doesn't
+     * @return the coalescer shared through the given environment by the index writers of all the
+     *         regions of the region server, created on first use. The batches go through the
+     *         index writer connections, which are shared across the server as well.
+     */
+    public static IndexWriteCoalescer getInstance(RegionCoprocessorEnvironment env, boolean retrying) {
+        String sharedDataKey = retrying ? RETRYING_SHARED_DATA_KEY : NO_RETRIES_SHARED_DATA_KEY;
+        ConcurrentMap<String, Object> sharedData = env.getSharedData();
+        IndexWriteCoalescer coalescer = (IndexWriteCoalescer) sharedData.get(sharedDataKey);
+        if (coalescer == null) {
+            HTableFactory factory = retrying ? IndexWriterUtils.getDefaultDelegateHTableFactory(env)
+                    : IndexWriterUtils.getNoRetriesHTableFactory(env);
+            coalescer = new IndexWriteCoalescer(factory, env.getConfiguration());
+            IndexWriteCoalescer existing = (IndexWriteCoalescer) sharedData.putIfAbsent(sharedDataKey, coalescer);
+            if (existing != null) {
+                coalescer = existing;
+            }
+        }
+        return coalescer;
+    }
+
+    public static boolean isEnabled(Configuration conf) {
+        return conf.getBoolean(INDEX_WRITE_COALESCING_ENABLED_CONF_KEY,
+                DEFAULT_INDEX_WRITE_COALESCING_ENABLED);
+    }
+
+    /**
+     * Write the mutations to the given index table, possibly together with the mutations of other
+     * concurrent writers. Blocks until the batch holding the mutations has been written.
+     * @throws IOException if the batch holding the mutations failed
+     * @throws InterruptedException if interrupted while waiting. The mutations may still be
+     *             written if a batch already picked them up.
+     */
+    public void write(HTableInterfaceReference tableReference, List<Mutation> mutations)
+            throws IOException, InterruptedException {
+        if (mutations.isEmpty()) {
+            return;
+        }
+        TableQueue queue = queues.get(tableReference);
+        if (queue == null) {
+            queue = new TableQueue(tableReference);
+            TableQueue existing = queues.putIfAbsent(tableReference, queue);
+            if (existing != null) {
+                queue = existing;
+            }
+        }
+        PendingWrite write = new PendingWrite(mutations);
+        synchronized (queue) {
+            queue.add(write);
+            // wake up a leader waiting for its window to fill
+            queue.notifyAll();
+            try {
+                while (!write.done && queue.flushing) {
+                    queue.wait();
+                }
+            } catch (InterruptedException e) {
+                queue.remove(write);
+                throw e;
+            }
+            if (write.done) {
+                write.throwIfFailed();
+                return;
+            }
+            queue.flushing = true;
+        }
+        try {
+            while (!write.done) {
+                List<PendingWrite> batch;
+                synchronized (queue) {
+                    try {
+                        waitForWindow(queue);
+                    } catch (InterruptedException e) {
+                        // don't leave the updates behind for the next leader to write
+                        if (!write.done) {
+                            queue.remove(write);
+                        }
+                        throw e;
+                    }
+                    batch = queue.take(maxBatchSize);
+                }
+                flush(queue, batch);
+            }
+        } finally {
+            synchronized (queue) {
+                queue.flushing = false;
+                queue.notifyAll();
+            }
+        }
+        write.throwIfFailed();
+    }
+
+    private void waitForWindow(TableQueue queue) throws InterruptedException {
+        if (windowMs == 0) {
+            return;
+        }
+        long deadline = EnvironmentEdgeManager.currentTimeMillis() + windowMs;
+        long remaining = windowMs;
+        while (queue.pendingMutations < maxBatchSize && remaining > 0) {
+            queue.wait(remaining);
+            remaining = deadline - EnvironmentEdgeManager.currentTimeMillis();
+        }
+    }
+
+    private void flush(TableQueue queue, List<PendingWrite> batch) {
+        List<Mutation> mutations;
+        if (batch.size() == 1) {
+            mutations = batch.get(0).mutations;
+        } else {
+            int size = 0;
+            for (PendingWrite write : batch) {
+                size += write.mutations.size();
+            }
+            mutations = new ArrayList<Mutation>(size);
+            for (PendingWrite write : batch) {
+                mutations.addAll(write.mutations);
+            }
+        }
+        if (LOGGER.isTraceEnabled()) {
+            LOGGER.trace("Writing " + mutations.size() + " coalesced index updates from "
+                    + batch.size() + " writers to table: " + queue.tableReference);
+        }
+        Throwable failure = null;
+        try (Table table = factory.getTable(queue.tableReference.get())) {
+            table.batch(mutations, null);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            failure = e;
+        } catch (Throwable t) {
+            failure = t;
+        }
+        synchronized (queue) {
+            for (PendingWrite write : batch) {
+                write.failure = failure;
+                write.done = true;
+            }
+            queue.notifyAll();
+        }
+    }
+
+    @VisibleForTesting
+    int getQueuedMutationCount(HTableInterfaceReference tableReference) {
+        TableQueue queue = queues.get(tableReference);
+        if (queue == null) {
+            return 0;
+        }
+        synchronized (queue) {
+            return queue.pendingMutations;
+        }
+    }
+
+    /**
+     * Updates queued for a single index table. All state is guarded by the queue's monitor.
+     */
+    private static class TableQueue {
+        private final HTableInterfaceReference tableReference;
+        private final Deque<PendingWrite> pending = new ArrayDeque<PendingWrite>();
+        private int pendingMutations;
+        private boolean flushing;
+
+        TableQueue(HTableInterfaceReference tableReference) {
+            this.tableReference = tableReference;
+        }
+
+        void add(PendingWrite write) {
+            pending.addLast(write);
+            pendingMutations += write.mutations.size();
+        }
+
+        void remove(PendingWrite write) {
+            if (pending.remove(write)) {
+                pendingMutations -= write.mutations.size();
+            }
+        }
+
+        /**
+         * Take the oldest queued writes holding up to maxBatchSize mutations, but always at least
+         * one write so that a single large write is not starved.
+         */
+        List<PendingWrite> take(int maxBatchSize) {
+            List<PendingWrite> batch = new ArrayList<PendingWrite>();
+            int size = 0;
+            while (!pending.isEmpty()) {
+                PendingWrite next = pending.peekFirst();
+                if (!batch.isEmpty() && size + next.mutations.size() > maxBatchSize) {
+                    break;
+                }
+                pending.removeFirst();
+                batch.add(next);
+                size += next.mutations.size();
+            }
+            pendingMutations -= size;
+            return batch;
+        }
+    }
+
+    private static class PendingWrite {
+        private final List<Mutation> mutations;
+        private boolean done;
+        private Throwable failure;
+
+        PendingWrite(List<Mutation> mutations) {
+            this.mutations = mutations;
+        }
+
+        void throwIfFailed() throws IOException, InterruptedException {
+            if (failure == null) {
+                return;
+            }
+            if (failure instanceof IOException) {
+                throw (IOException)failure;
+            }
+            if (failure instanceof InterruptedException) {
+                throw (InterruptedException)failure;
+            }
+            throw new IOException(failure);
+        }
+    }
+}
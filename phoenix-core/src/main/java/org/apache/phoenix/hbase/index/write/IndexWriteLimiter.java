@@ -0,0 +1,200 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.phoenix.hbase.index.write;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.hbase.coprocessor.RegionCoprocessorEnvironment;
+import org.apache.phoenix.hbase.index.metrics.MetricsIndexerSource;
+import org.apache.phoenix.hbase.index.metrics.MetricsIndexerSourceFactory;
+import org.apache.phoenix.hbase.index.table.HTableInterfaceReference;
+import org.apache.phoenix.util.EnvironmentEdgeManager;
+
+import com.google.common.annotations.VisibleForTesting;
+
+/**
+ * Isolates the index tables sharing the index writer thread pool from each other.
+ * <p>
+ * All the index writes of a region server go through a single pool of
+ * {@link AbstractParallelWriterIndexCommitter#NUM_CONCURRENT_INDEX_WRITER_THREADS_CONF_KEY}
+ * threads, so a single slow index table, for instance one with a region in transition, can end
+ * up holding every writer thread and stall the index writes of all the other tables. When
+ * {@link #INDEX_WRITES_MAX_PER_TABLE_CONF_KEY} is set, a write has to get one of the
+ * permits of its index table before writing to it. The permit is taken by the handler thread before
+ * the write is handed to the pool, so that no writer thread ever waits for a permit. The writes
+ * to a busy but healthy table give their permits back quickly, so a write finding all the permits
+ * of its table taken waits for one on the handler thread for up to
+ * {@link #INDEX_WRITES_PERMIT_WAIT_MS_CONF_KEY}. Only when the writes in flight
+ * hold on to the permits longer than that, as they do on a slow table, does the write fail. It is
+ * then handled by the configured index failure policy like any other failed index write, and the
+ * writer threads left over stay available to the other index tables.
+ * <p>
+ * Like the writer thread pool, a single limiter is shared by all the regions of a region server,
+ * see {@link #getInstance(RegionCoprocessorEnvironment)}.
+ * <p>
+ * The number of writes waiting for a permit or in flight and the write latency of every index
+ * table are published in {@link MetricsIndexerSource}.
+ */
+public class IndexWriteLimiter {
+    /**
+     * Maximum number of concurrent writes to a single index table. 0, the default, means no
+     * limit. Should be lower than the size of the writer thread pool to isolate the tables.
+     */
+    public static final String INDEX_WRITES_MAX_PER_TABLE_CONF_KEY =
+            "phoenix.index.writes.max.per.table";
+    public static final int DEFAULT_INDEX_WRITES_MAX_PER_TABLE = 0;
+    /**
+     * How long a write waits for a permit of its index table before failing
+     */
+    public static final String INDEX_WRITES_PERMIT_WAIT_MS_CONF_KEY =
+            "phoenix.index.writes.permit.wait.ms";
+    public static final long DEFAULT_INDEX_WRITES_PERMIT_WAIT_MS = 1000;
+
+    private static final String SHARED_DATA_KEY = IndexWriteLimiter.class.getName();
+
+    private final int maxWritesPerTable;
+    private final long permitWaitMs;
+    private final MetricsIndexerSource metricSource;
+    private final ConcurrentMap<HTableInterfaceReference, TableState> tables =
+            new ConcurrentHashMap<HTableInterfaceReference, TableState>();
+
+    public IndexWriteLimiter(Configuration conf, MetricsIndexerSource metricSource) {
+        this(conf.getInt(INDEX_WRITES_MAX_PER_TABLE_CONF_KEY, DEFAULT_INDEX_WRITES_MAX_PER_TABLE),
+                conf.getLong(INDEX_WRITES_PERMIT_WAIT_MS_CONF_KEY, DEFAULT_INDEX_WRITES_PERMIT_WAIT_MS),
+                metricSource);
+    }
+
+    /**
+     * @return the limiter shared through the given environment by the index writers of all the
+     *         regions of the region server, created on first use
+     */
+    public static IndexWriteLimiter getInstance(RegionCoprocessorEnvironment env) {
+        ConcurrentMap<String, Object> sharedData = env.getSharedData();
+        IndexWriteLimiter limiter = (IndexWriteLimiter) sharedData.get(SHARED_DATA_KEY);
+        if (limiter == null) {
+            limiter = new IndexWriteLimiter(env.getConfiguration(),
+                    MetricsIndexerSourceFactory.getInstance().getIndexerSource());
+            IndexWriteLimiter existing = (IndexWriteLimiter) sharedData.putIfAbsent(SHARED_DATA_KEY, limiter);
+            if (existing != null) {
+                limiter = existing;
+            }
+        }
+        return limiter;
+    }
+
+    @VisibleForTesting
+    IndexWriteLimiter(int maxWritesPerTable, long permitWaitMs, MetricsIndexerSource metricSource) {
+        this.maxWritesPerTable = Math.max(0, maxWritesPerTable);
+        this.permitWaitMs = Math.max(0, permitWaitMs);
+        this.metricSource = metricSource;
+    }
+
+    /**
+     * Called before handing a write to the given index table to a writer thread, waiting for a
+     * permit of the table if needed. A write that was allowed to start has to be followed by a call
+     * to {@link #completed}.
+     * @return the time the write started, or -1 if the writes to the table in flight did not
+     *         give back a permit in time
+     */
+    public long tryStart(HTableInterfaceReference tableReference) throws InterruptedException {
+        long startTime = tryStart(tableReference, permitWaitMs);
+        if (startTime < 0) {
+            metricSource.incrementIndexTableWriteRejections(tableReference.getTableName());
+        }
+        return startTime;
+    }
+
+    /**
+     * Like {@link #tryStart(HTableInterfaceReference)}, but doesn't wait if all the permits of the
+     * table are taken, and doesn't count it as a rejection
+     */
+    public long tryStartNow(HTableInterfaceReference tableReference) {
+        try {
+            return tryStart(tableReference, 0);
+        } catch (InterruptedException e) {
+            // can't happen without waiting
+            Thread.currentThread().interrupt();
+            return -1;
+        }
+    }
+
+    private long tryStart(HTableInterfaceReference tableReference, long waitMs)
+            throws InterruptedException {
+        TableState state = getTableState(tableReference);
+        metricSource.setIndexTableWriteQueueDepth(tableReference.getTableName(),
+                state.pendingWrites.incrementAndGet());
+        boolean started = false;
+        try {
+            started = state.permits == null || (waitMs == 0 ? state.permits.tryAcquire()
+                    : state.permits.tryAcquire(waitMs, TimeUnit.MILLISECONDS));
+        } finally {
+            if (!started) {
+                metricSource.setIndexTableWriteQueueDepth(tableReference.getTableName(),
+                        state.pendingWrites.decrementAndGet());
+            }
+        }
+        return started ? EnvironmentEdgeManager.currentTimeMillis() : -1;
+    }
+
+    /**
+     * Called once done with a write to the given index table, whether it succeeded, failed or
+     * never ran
+     * @param startTime the time returned by {@link #tryStart}
+     */
+    public void completed(HTableInterfaceReference tableReference, long startTime) {
+        TableState state = getTableState(tableReference);
+        if (state.permits != null) {
+            state.permits.release();
+        }
+        metricSource.updateIndexTableWriteTime(tableReference.getTableName(),
+                EnvironmentEdgeManager.currentTimeMillis() - startTime);
+        metricSource.setIndexTableWriteQueueDepth(tableReference.getTableName(),
+                state.pendingWrites.decrementAndGet());
+    }
+
+    @VisibleForTesting
+    long getPendingWrites(HTableInterfaceReference tableReference) {
+        return getTableState(tableReference).pendingWrites.get();
+    }
+
+    private TableState getTableState(HTableInterfaceReference tableReference) {
+        TableState state = tables.get(tableReference);
+        if (state == null) {
+            state = new TableState(maxWritesPerTable);
+            TableState existing = tables.putIfAbsent(tableReference, state);
+            if (existing != null) {
+                state = existing;
+            }
+        }
+        return state;
+    }
+
+    private static class TableState {
+        private final Semaphore permits;
+        private final AtomicLong pendingWrites = new AtomicLong();
+
+        TableState(int maxWrites) {
+            this.permits = maxWrites > 0 ? new Semaphore(maxWrites) : null;
+        }
+    }
+}
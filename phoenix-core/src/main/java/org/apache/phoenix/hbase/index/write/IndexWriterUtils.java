@@ -18,16 +18,26 @@
 package org.apache.phoenix.hbase.index.write;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.concurrent.ExecutorService;
 
 import javax.annotation.concurrent.GuardedBy;
 
 import org.apache.hadoop.hbase.TableName;
 import org.apache.hadoop.hbase.client.Connection;
+import org.apache.hadoop.hbase.client.Mutation;
 import org.apache.hadoop.hbase.client.Table;
 import org.apache.hadoop.hbase.coprocessor.RegionCoprocessorEnvironment;
 import org.apache.hadoop.hbase.HConstants;
+import org.apache.hadoop.hbase.HConstants.OperationStatusCode;
+import org.apache.hadoop.hbase.regionserver.OnlineRegions;
+import org.apache.hadoop.hbase.regionserver.OperationStatus;
+import org.apache.hadoop.hbase.regionserver.Region;
 import org.apache.phoenix.hbase.index.table.HTableFactory;
+import org.apache.phoenix.hbase.index.table.HTableInterfaceReference;
 import org.apache.phoenix.hbase.index.util.ImmutableBytesPtr;
 import org.apache.phoenix.hbase.index.util.IndexManagementUtil;
 import org.apache.phoenix.util.PropertiesUtil;
@@ -83,6 +93,15 @@ public class IndexWriterUtils {
    @Deprecated
    public static final int DEFAULT_INDEX_WRITER_RPC_PAUSE = 100;
 
+   /**
+    * Whether updates to global index regions that are online in the same region server as the
+    * data region are applied directly through the {@link Region} API instead of an RPC. Updates
+    * that cannot be applied locally still go through the regular remote write.
+    */
+   public static final String INDEX_WRITER_COLOCATED_REGION_WRITES_CONF_KEY =
+           "phoenix.index.writes.colocated.region.enabled";
+   public static final boolean DEFAULT_INDEX_WRITER_COLOCATED_REGION_WRITES = false;
+
   private IndexWriterUtils() {
     // private ctor for utilites
   }
@@ -101,6 +120,78 @@ public class IndexWriterUtils {
                 ConnectionType.INDEX_WRITER_CONNECTION_WITH_CUSTOM_THREADS_NO_RETRIES);
     }
 
+    public static boolean isColocatedRegionWritesEnabled(RegionCoprocessorEnvironment env) {
+        return env.getConfiguration().getBoolean(INDEX_WRITER_COLOCATED_REGION_WRITES_CONF_KEY,
+                DEFAULT_INDEX_WRITER_COLOCATED_REGION_WRITES);
+    }
+
+    /**
+     * Apply the index updates whose target index region is online in this region server directly
+     * to that region, skipping the RPC stack.
+     * @return the updates that could not be applied locally, either because their region is not
+     *         hosted here or because the local write did not succeed. These still need to be
+     *         written to the index table the usual way.
+     */
+    public static List<Mutation> writeToColocatedRegions(RegionCoprocessorEnvironment env,
+            HTableInterfaceReference tableReference, List<Mutation> mutations) {
+        OnlineRegions onlineRegions = env.getOnlineRegions();
+        if (onlineRegions == null) {
+            return mutations;
+        }
+        List<? extends Region> regions;
+        try {
+            regions = onlineRegions.getRegions(
+                    TableName.valueOf(tableReference.get().copyBytesIfNecessary()));
+        } catch (IOException e) {
+            return mutations;
+        }
+        if (regions == null || regions.isEmpty()) {
+            return mutations;
+        }
+        Map<Region, List<Mutation>> regionMutations = new IdentityHashMap<>();
+        List<Mutation> remaining = new ArrayList<>();
+        for (Mutation m : mutations) {
+            Region region = null;
+            for (Region candidate : regions) {
+                if (candidate.getRegionInfo().containsRow(m.getRow())) {
+                    region = candidate;
+                    break;
+                }
+            }
+            if (region == null) {
+                remaining.add(m);
+                continue;
+            }
+            List<Mutation> list = regionMutations.get(region);
+            if (list == null) {
+                list = new ArrayList<>();
+                regionMutations.put(region, list);
+            }
+            list.add(m);
+        }
+        for (Map.Entry<Region, List<Mutation>> entry : regionMutations.entrySet()) {
+            List<Mutation> list = entry.getValue();
+            try {
+                OperationStatus[] statuses =
+                        entry.getKey().batchMutate(list.toArray(new Mutation[list.size()]));
+                for (int i = 0; i < statuses.length; i++) {
+                    if (statuses[i].getOperationStatusCode() != OperationStatusCode.SUCCESS) {
+                        remaining.add(list.get(i));
+                    }
+                }
+            } catch (IOException e) {
+                // the region may be closing or moving; fall back to the remote write
+                if (LOGGER.isDebugEnabled()) {
+                    LOGGER.debug("Colocated index region write to "
+                            + entry.getKey().getRegionInfo().getRegionNameAsString()
+                            + " failed, falling back to a remote write. Got error=" + e);
+                }
+                remaining.addAll(list);
+            }
+        }
+        return remaining;
+    }
+
     /**
      * {@code HTableFactory} that creates HTables by using a {@link CoprocessorHConnection} This
      * factory was added as a workaround to the bug reported in
@@ -0,0 +1,136 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.phoenix.hbase.index.write;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.apache.hadoop.hbase.client.Mutation;
+import org.apache.hadoop.hbase.coprocessor.RegionCoprocessorEnvironment;
+import org.apache.phoenix.hbase.index.exception.SingleIndexWriteFailureException;
+import org.apache.phoenix.hbase.index.parallel.Task;
+import org.apache.phoenix.hbase.index.parallel.TaskBatch;
+import org.apache.phoenix.hbase.index.table.HTableInterfaceReference;
+import org.apache.phoenix.index.PhoenixIndexFailurePolicy;
+
+/**
+ * Task writing a batch of index updates to an index table once the {@link IndexWriteLimiter}
+ * lets it start. The permit is taken on the handler thread by {@link #admit(TaskBatch)} before
+ * the batch is submitted to the writer pool, so a writer thread never waits for a permit: a task
+ * that didn't get one fails as soon as it runs.
+ */
+abstract class LimitedIndexWriteTask<V> extends Task<V> {
+    private final IndexWriteLimiter writeLimiter;
+    private final HTableInterfaceReference tableReference;
+    private final List<Mutation> mutations;
+    private final RegionCoprocessorEnvironment env;
+    // -1 until the task has a permit
+    private volatile long startTime = -1;
+    // set by whoever gives the permit back, the task once done or the handler if it never ran
+    private final AtomicBoolean finished = new AtomicBoolean();
+
+    LimitedIndexWriteTask(IndexWriteLimiter writeLimiter, HTableInterfaceReference tableReference,
+            List<Mutation> mutations, RegionCoprocessorEnvironment env) {
+        this.writeLimiter = writeLimiter;
+        this.tableReference = tableReference;
+        this.mutations = mutations;
+        this.env = env;
+    }
+
+    /**
+     * Takes the permits of the tasks of the given batch, on the calling handler thread. The tasks
+     * whose table has a permit available are admitted first, then the handler waits a bounded time
+     * for the permits of the others, one table after the other. Once the batch has been submitted,
+     * {@link #release(TaskBatch)} has to be called.
+     */
+    static <V> void admit(TaskBatch<V> tasks) {
+        List<LimitedIndexWriteTask<V>> waiting = new ArrayList<LimitedIndexWriteTask<V>>();
+        for (Task<V> task : tasks.getTasks()) {
+            if (task instanceof LimitedIndexWriteTask) {
+                LimitedIndexWriteTask<V> limitedTask = (LimitedIndexWriteTask<V>) task;
+                limitedTask.startTime = limitedTask.writeLimiter.tryStartNow(limitedTask.tableReference);
+                if (limitedTask.startTime < 0) {
+                    waiting.add(limitedTask);
+                }
+            }
+        }
+        for (LimitedIndexWriteTask<V> task : waiting) {
+            try {
+                // don't wait on behalf of a batch that is bound to fail
+                task.throwFailureIfDone();
+                task.startTime = task.writeLimiter.tryStart(task.tableReference);
+            } catch (SingleIndexWriteFailureException e) {
+                // the tasks left without a permit fail when they run
+                return;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    /**
+     * Gives back the permits of the tasks of the given batch that were admitted but never ran,
+     * because the batch failed before they got a writer thread
+     */
+    static <V> void release(TaskBatch<V> tasks) {
+        for (Task<V> task : tasks.getTasks()) {
+            if (task instanceof LimitedIndexWriteTask) {
+                ((LimitedIndexWriteTask<V>) task).finish();
+            }
+        }
+    }
+
+    private void finish() {
+        if (startTime >= 0 && finished.compareAndSet(false, true)) {
+            writeLimiter.completed(tableReference, startTime);
+        }
+    }
+
+    @Override
+    public final V call() throws Exception {
+        if (startTime < 0) {
+            throw new SingleIndexWriteFailureException(tableReference.toString(), mutations,
+                    new IOException("Timed out waiting for the concurrent writes to index table "
+                            + tableReference),
+                    PhoenixIndexFailurePolicy.getDisableIndexOnFailure(env));
+        }
+        if (!finished.compareAndSet(false, true)) {
+            // the handler already gave the permit back as it stopped waiting for the batch
+            throw new SingleIndexWriteFailureException(
+                    "Pool closed, not attempting to write to the index!", null);
+        }
+        try {
+            return writeIndexUpdates();
+        } finally {
+            writeLimiter.completed(tableReference, startTime);
+        }
+    }
+
+    /**
+     * Do the actual write to the index table.
+     */
+    protected abstract V writeIndexUpdates() throws Exception;
+
+    /**
+     * Throws if the batch is bound to fail, so that its remaining writes don't start
+     */
+    protected abstract void throwFailureIfDone() throws SingleIndexWriteFailureException;
+}
@@ -47,6 +47,8 @@ public class ParallelWriterIndexCommitter extends AbstractParallelWriterIndexCom
     public void write(Multimap<HTableInterfaceReference, Mutation> toWrite, final boolean allowLocalUpdates, final int clientVersion) throws SingleIndexWriteFailureException {
 
         super.write(toWrite, allowLocalUpdates, clientVersion);
+        // take the index table permits on this thread rather than on the writer threads
+        LimitedIndexWriteTask.admit(tasks);
         // actually submit the tasks to the pool and wait for them to finish/fail
         try {
             pool.submitUninterruptible(tasks);
@@ -55,6 +57,8 @@ public class ParallelWriterIndexCommitter extends AbstractParallelWriterIndexCom
         } catch (ExecutionException e) {
             LOGGER.error("Found a failed index update!");
             propagateFailure(e.getCause());
+        } finally {
+            LimitedIndexWriteTask.release(tasks);
         }
 
     }
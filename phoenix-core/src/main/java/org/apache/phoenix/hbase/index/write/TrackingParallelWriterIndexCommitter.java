@@ -31,7 +31,6 @@ import org.apache.phoenix.coprocessor.MetaDataProtocol;
 import org.apache.phoenix.hbase.index.exception.MultiIndexWriteFailureException;
 import org.apache.phoenix.hbase.index.exception.SingleIndexWriteFailureException;
 import org.apache.phoenix.hbase.index.parallel.EarlyExitFailure;
-import org.apache.phoenix.hbase.index.parallel.Task;
 import org.apache.phoenix.hbase.index.parallel.TaskBatch;
 import org.apache.phoenix.hbase.index.parallel.TaskRunner;
 import org.apache.phoenix.hbase.index.parallel.ThreadPoolBuilder;
@@ -81,10 +80,14 @@ public class TrackingParallelWriterIndexCommitter implements IndexCommitter {
     private TaskRunner pool;
     private HTableFactory retryingFactory;
     private HTableFactory noRetriesFactory;
+    private IndexWriteCoalescer retryingCoalescer;
+    private IndexWriteCoalescer noRetriesCoalescer;
     private Stoppable stopped;
     private RegionCoprocessorEnvironment env;
     private KeyValueBuilder kvBuilder;
     protected boolean disableIndexOnFailure = false;
+    private boolean colocatedRegionWrites = false;
+    private IndexWriteLimiter writeLimiter;
 
     // for testing
     public TrackingParallelWriterIndexCommitter(String hbaseVersion) {
@@ -105,6 +108,11 @@ public class TrackingParallelWriterIndexCommitter implements IndexCommitter {
                                 DEFAULT_CONCURRENT_INDEX_WRITER_THREADS).setCoreTimeout(
                                 INDEX_WRITER_KEEP_ALIVE_TIME_CONF_KEY), env), parent, env);
         this.kvBuilder = KeyValueBuilder.get(env.getHBaseVersion());
+        this.colocatedRegionWrites = IndexWriterUtils.isColocatedRegionWritesEnabled(env);
+        if (IndexWriteCoalescer.isEnabled(conf)) {
+            this.retryingCoalescer = IndexWriteCoalescer.getInstance(env, true);
+            this.noRetriesCoalescer = IndexWriteCoalescer.getInstance(env, false);
+        }
     }
 
     /**
@@ -119,6 +127,7 @@ public class TrackingParallelWriterIndexCommitter implements IndexCommitter {
         this.noRetriesFactory = IndexWriterUtils.getNoRetriesHTableFactory(env);
         this.stopped = stop;
         this.env = env;
+        this.writeLimiter = IndexWriteLimiter.getInstance(env);
     }
 
     @Override
@@ -150,14 +159,11 @@ public class TrackingParallelWriterIndexCommitter implements IndexCommitter {
              * batch, depending on the underlying writer implementation (HTableInterface#batch is blocking, but doesn't
              * elaborate when is supports an interrupt).
              */
-            tasks.add(new Task<Boolean>() {
+            tasks.add(new LimitedIndexWriteTask<Boolean>(writeLimiter, tableReference, mutations, env) {
 
-                /**
-                 * Do the actual write to the primary table.
-                 */
                 @SuppressWarnings("deprecation")
                 @Override
-                public Boolean call() throws Exception {
+                protected Boolean writeIndexUpdates() throws Exception {
                     try {
                         // this may have been queued, but there was an abort/stop so we try to early exit
                         throwFailureIfDone();
@@ -190,9 +196,24 @@ public class TrackingParallelWriterIndexCommitter implements IndexCommitter {
                         else {
                             factory = retryingFactory;
                         }
+                        List<Mutation> remoteMutations = mutations;
+                        if (colocatedRegionWrites && env != null) {
+                            throwFailureIfDone();
+                            remoteMutations = IndexWriterUtils.writeToColocatedRegions(env, tableReference, mutations);
+                            if (remoteMutations.isEmpty()) {
+                                return Boolean.TRUE;
+                            }
+                        }
+                        IndexWriteCoalescer coalescer = factory == retryingFactory ? retryingCoalescer : noRetriesCoalescer;
+                        if (coalescer != null) {
+                            // share the batch with concurrent writers to the same index table
+                            throwFailureIfDone();
+                            coalescer.write(tableReference, remoteMutations);
+                            return Boolean.TRUE;
+                        }
                         try (Table table = factory.getTable(tableReference.get())) {
                             throwFailureIfDone();
-                            table.batch(mutations, null);
+                            table.batch(remoteMutations, null);
                         }
                     } catch (InterruptedException e) {
                         // reset the interrupt status on the thread
@@ -204,7 +225,8 @@ public class TrackingParallelWriterIndexCommitter implements IndexCommitter {
                     return Boolean.TRUE;
                 }
 
-                private void throwFailureIfDone() throws SingleIndexWriteFailureException {
+                @Override
+                protected void throwFailureIfDone() throws SingleIndexWriteFailureException {
                     if (stopped.isStopped()
                             || (env != null && (env.getConnection() == null || env.getConnection().isClosed()
                             || env.getConnection().isAborted()))
@@ -216,6 +238,8 @@ public class TrackingParallelWriterIndexCommitter implements IndexCommitter {
         }
 
         Pair<List<Boolean>, List<Future<Boolean>>> resultsAndFutures = null;
+        // take the index table permits on this thread rather than on the writer threads
+        LimitedIndexWriteTask.admit(tasks);
         try {
             LOGGER.debug("Waiting on index update tasks to complete...");
             resultsAndFutures = this.pool.submitUninterruptible(tasks);
@@ -223,6 +247,8 @@ public class TrackingParallelWriterIndexCommitter implements IndexCommitter {
             throw new RuntimeException("Should not fail on the results while using a WaitForCompletionTaskRunner", e);
         } catch (EarlyExitFailure e) {
             throw new RuntimeException("Stopped while waiting for batch, quiting!", e);
+        } finally {
+            LimitedIndexWriteTask.release(tasks);
         }
 
         // track the failures. We only ever access this on return from our calls, so no extra
@@ -82,6 +82,7 @@ import org.apache.phoenix.exception.SQLExceptionCode;
 import org.apache.phoenix.exception.SQLExceptionInfo;
 import org.apache.phoenix.execute.MutationState;
 import org.apache.phoenix.execute.ScanPlan;
+import org.apache.phoenix.expression.Expression;
 import org.apache.phoenix.filter.BooleanExpressionFilter;
 import org.apache.phoenix.filter.ColumnProjectionFilter;
 import org.apache.phoenix.filter.DistinctPrefixFilter;
@@ -114,6 +115,7 @@ import org.apache.phoenix.schema.ValueSchema.Field;
 import org.apache.phoenix.schema.stats.GuidePostsInfo;
 import org.apache.phoenix.schema.stats.GuidePostsKey;
 import org.apache.phoenix.schema.stats.StatisticsUtil;
+import org.apache.phoenix.schema.stats.ZoneMap;
 import org.apache.phoenix.util.ByteUtil;
 import org.apache.phoenix.util.Closeables;
 import org.apache.phoenix.util.EncodedColumnsUtil;
@@ -907,6 +909,7 @@ public abstract class BaseResultIterators extends ExplainTable implements Result
         // case we generate an empty guide post with the byte estimate being set as guide post
         // width. 
         boolean emptyGuidePost = gps.isEmptyGuidePost();
+        Expression zoneMapPruningExpression = hasGuidePosts ? getZoneMapPruningExpression(table, isLocalIndex) : null;
         byte[] startRegionBoundaryKey = startKey;
         byte[] stopRegionBoundaryKey = stopKey;
         int columnsInCommon = 0;
@@ -1061,6 +1064,15 @@ public abstract class BaseResultIterators extends ExplainTable implements Result
                         ScanUtil.setLocalIndexAttributes(newScan, keyOffset,
                             regionInfo.getStartKey(), regionInfo.getEndKey(),
                             newScan.getStartRow(), newScan.getStopRow());
+                        // Let the server skip the chunk unless rows were written since its zone map was collected
+                        if (zoneMapPruningExpression != null) {
+                            ZoneMap zoneMap = gps.getZoneMap(guideIndex);
+                            if (zoneMap != null && Bytes.compareTo(zoneMap.getStartKey(), newScan.getStartRow()) <= 0
+                                    && zoneMap.isPruned(zoneMapPruningExpression)) {
+                                newScan.setAttribute(BaseScannerRegionObserver.ZONE_MAP_TIMESTAMP,
+                                    Bytes.toBytes(zoneMap.getTimestamp()));
+                            }
+                        }
                         // If we've delaying adding estimates, add the previous
                         // gp estimates now that we know they are in range.
                         if (delayAddingEst) {
@@ -1189,6 +1201,29 @@ public abstract class BaseResultIterators extends ExplainTable implements Result
         return pageLimit;
     }
 
+    /**
+     * Return the WHERE clause expression that the chunks of the scan between guideposts may be
+     * pruned by using the zone maps of the guideposts, or null if zone maps are not applicable.
+     * They are not for point-in-time reads, which may be older than the zone maps.
+     */
+    private Expression getZoneMapPruningExpression(PTable table, boolean isLocalIndex) {
+        if (!useStatsForParallelization || isLocalIndex || table.isTransactional()
+                || context.getConnection().getSCN() != null
+                || !context.getConnection().getQueryServices().getProps().getBoolean(
+                        QueryServices.USE_STATS_FOR_ZONE_MAP_PRUNING,
+                        QueryServicesOptions.DEFAULT_USE_STATS_FOR_ZONE_MAP_PRUNING)) {
+            return null;
+        }
+        Iterator<Filter> filters = ScanUtil.getFilterIterator(scan);
+        while (filters.hasNext()) {
+            Filter filter = filters.next();
+            if (filter instanceof BooleanExpressionFilter) {
+                return ((BooleanExpressionFilter)filter).getExpression();
+            }
+        }
+        return null;
+    }
+
     private static Long computeMinTimestamp(boolean gpsAvailableForAllRegions, 
             GuidePostEstimate estimates,
             long fallbackTs) {
@@ -1572,6 +1607,10 @@ public abstract class BaseResultIterators extends ExplainTable implements Result
                 buf.append("With RVC Offset " + "0x" + Hex.encodeHexString(scanPlan.getRowOffset().get()) + " ");
             }
         }
+        if (scanGrouper instanceof SnapshotParallelScanGrouper) {
+            buf.append("SNAPSHOT ").append(((SnapshotParallelScanGrouper) scanGrouper)
+                    .getConfiguration().get(PhoenixConfigurationUtil.SNAPSHOT_NAME_KEY)).append(" ");
+        }
 
         explain(buf.toString(),planSteps);
     }
@@ -0,0 +1,265 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.phoenix.iterate;
+
+import java.util.Arrays;
+
+import org.apache.hadoop.hbase.io.ImmutableBytesWritable;
+import org.apache.hadoop.hbase.util.Bytes;
+import org.apache.phoenix.expression.Expression;
+import org.apache.phoenix.schema.SortOrder;
+import org.apache.phoenix.schema.tuple.Tuple;
+import org.apache.phoenix.schema.types.PDataType;
+import org.apache.phoenix.schema.types.PVarbinary;
+import org.apache.phoenix.util.DateUtil;
+import org.apache.phoenix.util.TrustedByteArrayOutputStream;
+
+/**
+ * Read only view over a batch of rows encoded column by column by {@link Encoder}.
+ * <p/>
+ * The layout follows the Arrow columnar format: every column has a validity bitmap followed by
+ * either a fixed width value buffer or an offset buffer and a variable width value buffer. Values
+ * are stored in their Phoenix serialized form, always in ascending sort order, and are read in place
+ * without copying:
+ * <pre>
+ * int rowCount, int columnCount
+ * for each column:
+ *   int sqlType, int width (0 for variable width)
+ *   byte[(rowCount + 7) / 8] null bitmap
+ *   width > 0: byte[rowCount * width] values
+ *   width = 0: int[rowCount + 1] offsets, byte[offsets[rowCount]] values
+ * </pre>
+ */
+public class ColumnarBatch {
+    private final byte[] buffer;
+    private final int rowCount;
+    private final PDataType[] types;
+    private final int[] widths;
+    private final int[] nullOffsets;
+    private final int[] valueOffsets;
+    private final int[] dataOffsets;
+
+    public ColumnarBatch(byte[] buffer, int offset, int length) {
+        this.buffer = buffer;
+        int position = offset;
+        rowCount = Bytes.toInt(buffer, position);
+        int columnCount = Bytes.toInt(buffer, position + Bytes.SIZEOF_INT);
+        position += 2 * Bytes.SIZEOF_INT;
+        types = new PDataType[columnCount];
+        widths = new int[columnCount];
+        nullOffsets = new int[columnCount];
+        valueOffsets = new int[columnCount];
+        dataOffsets = new int[columnCount];
+        for (int i = 0; i < columnCount; i++) {
+            types[i] = PDataType.fromTypeId(Bytes.toInt(buffer, position));
+            widths[i] = Bytes.toInt(buffer, position + Bytes.SIZEOF_INT);
+            position += 2 * Bytes.SIZEOF_INT;
+            nullOffsets[i] = position;
+            position += getNullBitmapLength(rowCount);
+            if (widths[i] > 0) {
+                dataOffsets[i] = position;
+                position += rowCount * widths[i];
+            } else {
+                valueOffsets[i] = position;
+                position += (rowCount + 1) * Bytes.SIZEOF_INT;
+                dataOffsets[i] = position;
+                position += Bytes.toInt(buffer, position - Bytes.SIZEOF_INT);
+            }
+        }
+        if (position != offset + length) {
+            throw new IllegalArgumentException("Columnar batch of " + length + " bytes is malformed");
+        }
+    }
+
+    private static int getNullBitmapLength(int rowCount) {
+        return (rowCount + Byte.SIZE - 1) / Byte.SIZE;
+    }
+
+    public int getRowCount() {
+        return rowCount;
+    }
+
+    public int getColumnCount() {
+        return types.length;
+    }
+
+    /**
+     * @param column 0-based column position
+     */
+    public PDataType getDataType(int column) {
+        return types[column];
+    }
+
+    public boolean isNull(int column, int row) {
+        return (buffer[nullOffsets[column] + row / Byte.SIZE] & (1 << (row % Byte.SIZE))) != 0;
+    }
+
+    /**
+     * Points ptr at the serialized value of the given cell, which is empty for null values.
+     */
+    public void getValue(int column, int row, ImmutableBytesWritable ptr) {
+        int width = widths[column];
+        if (width > 0) {
+            ptr.set(buffer, dataOffsets[column] + row * width, isNull(column, row) ? 0 : width);
+        } else {
+            int offsetPosition = valueOffsets[column] + row * Bytes.SIZEOF_INT;
+            int start = Bytes.toInt(buffer, offsetPosition);
+            int end = Bytes.toInt(buffer, offsetPosition + Bytes.SIZEOF_INT);
+            ptr.set(buffer, dataOffsets[column] + start, end - start);
+        }
+    }
+
+    /**
+     * Decodes an integral, date, time or timestamp value, the latter as milliseconds since the epoch.
+     * @return the value or 0 if it is null
+     */
+    public long getLong(int column, int row) {
+        if (isNull(column, row)) {
+            return 0;
+        }
+        return DateUtil.getCodecFor(types[column]).decodeLong(buffer, dataOffsets[column] + row * widths[column],
+            SortOrder.ASC);
+    }
+
+    /**
+     * Decodes a fixed width numeric value.
+     * @return the value or 0 if it is null
+     */
+    public double getDouble(int column, int row) {
+        if (isNull(column, row)) {
+            return 0;
+        }
+        return types[column].getCodec().decodeDouble(buffer, dataOffsets[column] + row * widths[column],
+            SortOrder.ASC);
+    }
+
+    /**
+     * @return the value converted to the Java type of its column or null
+     */
+    public Object getObject(int column, int row) {
+        if (isNull(column, row)) {
+            return null;
+        }
+        ImmutableBytesWritable ptr = new ImmutableBytesWritable();
+        getValue(column, row, ptr);
+        return types[column].toObject(ptr);
+    }
+
+    /**
+     * Encodes rows into the columnar layout of {@link ColumnarBatch}, evaluating one expression per
+     * column. Buffers are retained across batches.
+     */
+    public static class Encoder {
+        private final Expression[] expressions;
+        private final PDataType[] types;
+        private final int[] widths;
+        private final TrustedByteArrayOutputStream[] values;
+        private final int[][] offsets;
+        private final byte[][] nulls;
+        private final ImmutableBytesWritable ptr = new ImmutableBytesWritable();
+        private final byte[] padding;
+        private int rowCount;
+
+        public Encoder(Expression[] expressions, int capacity) {
+            this.expressions = expressions;
+            int columnCount = expressions.length;
+            types = new PDataType[columnCount];
+            widths = new int[columnCount];
+            values = new TrustedByteArrayOutputStream[columnCount];
+            offsets = new int[columnCount][];
+            nulls = new byte[columnCount][getNullBitmapLength(capacity)];
+            int maxWidth = 0;
+            for (int i = 0; i < columnCount; i++) {
+                PDataType type = expressions[i].getDataType();
+                types[i] = type == null ? PVarbinary.INSTANCE : type;
+                if (types[i].isFixedWidth() && types[i].getByteSize() != null) {
+                    widths[i] = types[i].getByteSize();
+                    maxWidth = Math.max(maxWidth, widths[i]);
+                } else {
+                    offsets[i] = new int[capacity + 1];
+                }
+                values[i] = new TrustedByteArrayOutputStream(Math.max(1, widths[i]) * capacity);
+            }
+            padding = new byte[maxWidth];
+        }
+
+        public int getRowCount() {
+            return rowCount;
+        }
+
+        public void reset() {
+            rowCount = 0;
+            for (int i = 0; i < values.length; i++) {
+                values[i].reset();
+                Arrays.fill(nulls[i], (byte) 0);
+            }
+        }
+
+        public void add(Tuple tuple) {
+            for (int i = 0; i < expressions.length; i++) {
+                TrustedByteArrayOutputStream out = values[i];
+                int start = out.size();
+                Expression expression = expressions[i];
+                if (!expression.evaluate(tuple, ptr) || ptr.getLength() == 0) {
+                    nulls[i][rowCount / Byte.SIZE] |= 1 << (rowCount % Byte.SIZE);
+                    out.write(padding, 0, widths[i]);
+                } else {
+                    int length = widths[i] > 0 ? Math.min(widths[i], ptr.getLength()) : ptr.getLength();
+                    out.write(ptr.get(), ptr.getOffset(), length);
+                    if (expression.getSortOrder() == SortOrder.DESC) {
+                        SortOrder.invert(out.getBuffer(), start, out.getBuffer(), start, length);
+                    }
+                    if (length < widths[i]) {
+                        // Timestamps without nanos may be serialized as dates
+                        out.write(padding, 0, widths[i] - length);
+                    }
+                }
+                if (widths[i] == 0) {
+                    offsets[i][rowCount + 1] = out.size();
+                }
+            }
+            rowCount++;
+        }
+
+        public byte[] toBytes() {
+            int nullBitmapLength = getNullBitmapLength(rowCount);
+            int length = 2 * Bytes.SIZEOF_INT;
+            for (int i = 0; i < values.length; i++) {
+                length += 2 * Bytes.SIZEOF_INT + nullBitmapLength + values[i].size();
+                if (widths[i] == 0) {
+                    length += (rowCount + 1) * Bytes.SIZEOF_INT;
+                }
+            }
+            byte[] bytes = new byte[length];
+            int position = Bytes.putInt(bytes, 0, rowCount);
+            position = Bytes.putInt(bytes, position, values.length);
+            for (int i = 0; i < values.length; i++) {
+                position = Bytes.putInt(bytes, position, types[i].getSqlType());
+                position = Bytes.putInt(bytes, position, widths[i]);
+                position = Bytes.putBytes(bytes, position, nulls[i], 0, nullBitmapLength);
+                if (widths[i] == 0) {
+                    for (int row = 0; row <= rowCount; row++) {
+                        position = Bytes.putInt(bytes, position, offsets[i][row]);
+                    }
+                }
+                position = Bytes.putBytes(bytes, position, values[i].getBuffer(), 0, values[i].size());
+            }
+            return bytes;
+        }
+    }
+}
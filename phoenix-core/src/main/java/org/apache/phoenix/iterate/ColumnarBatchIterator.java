@@ -0,0 +1,72 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.phoenix.iterate;
+
+import java.sql.SQLException;
+
+import org.apache.hadoop.hbase.Cell;
+import org.apache.phoenix.compile.RowProjector;
+import org.apache.phoenix.jdbc.PhoenixResultSet;
+import org.apache.phoenix.schema.tuple.Tuple;
+import org.apache.phoenix.util.SQLCloseable;
+
+/**
+ * Iterates over the {@link ColumnarBatch} batches returned by
+ * {@link org.apache.phoenix.jdbc.PhoenixStatement#executeColumnarQuery(String, int)}.
+ * Batch columns are in the order of the select list.
+ */
+public class ColumnarBatchIterator implements SQLCloseable {
+    private final PhoenixResultSet delegate;
+    private final RowProjector projector;
+
+    /**
+     * @param delegate result set whose rows each hold a single batch
+     */
+    public ColumnarBatchIterator(PhoenixResultSet delegate, RowProjector projector) {
+        this.delegate = delegate;
+        this.projector = projector;
+    }
+
+    /**
+     * @return the next batch or null once all of them have been read
+     */
+    public ColumnarBatch next() throws SQLException {
+        if (!delegate.next()) {
+            return null;
+        }
+        Tuple tuple = delegate.getCurrentRow();
+        Cell cell = tuple.getValue(0);
+        return new ColumnarBatch(cell.getValueArray(), cell.getValueOffset(), cell.getValueLength());
+    }
+
+    /**
+     * @param column 0-based column position
+     */
+    public String getColumnName(int column) {
+        return projector.getColumnProjector(column).getName();
+    }
+
+    public int getColumnCount() {
+        return projector.getColumnCount();
+    }
+
+    @Override
+    public void close() throws SQLException {
+        delegate.close();
+    }
+}
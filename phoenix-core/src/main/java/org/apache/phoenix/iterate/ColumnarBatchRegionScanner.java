@@ -0,0 +1,123 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.phoenix.iterate;
+
+import static org.apache.phoenix.query.QueryConstants.AGG_TIMESTAMP;
+import static org.apache.phoenix.query.QueryConstants.SINGLE_COLUMN;
+import static org.apache.phoenix.query.QueryConstants.SINGLE_COLUMN_FAMILY;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.hadoop.hbase.Cell;
+import org.apache.hadoop.hbase.CellUtil;
+import org.apache.hadoop.hbase.client.Scan;
+import org.apache.hadoop.hbase.regionserver.RegionScanner;
+import org.apache.hadoop.io.WritableUtils;
+import org.apache.phoenix.coprocessor.BaseRegionScanner;
+import org.apache.phoenix.coprocessor.BaseScannerRegionObserver;
+import org.apache.phoenix.expression.Expression;
+import org.apache.phoenix.expression.ExpressionType;
+import org.apache.phoenix.schema.tuple.MultiKeyValueTuple;
+import org.apache.phoenix.util.PhoenixKeyValueUtil;
+
+/**
+ * Region scanner that evaluates the projected expressions of a query over the rows of the wrapped
+ * scanner and returns them as {@link ColumnarBatch} encoded batches, a single cell per batch. The
+ * cell is keyed by the last row of the batch, so that a scan restarted by the client resumes after it.
+ */
+public class ColumnarBatchRegionScanner extends BaseRegionScanner {
+    private final int batchSize;
+    private final ColumnarBatch.Encoder encoder;
+    private final List<Cell> row = new ArrayList<>();
+    private final MultiKeyValueTuple tuple = new MultiKeyValueTuple();
+
+    public ColumnarBatchRegionScanner(RegionScanner scanner, int batchSize, Expression[] expressions) {
+        super(scanner);
+        this.batchSize = batchSize;
+        this.encoder = new ColumnarBatch.Encoder(expressions, batchSize);
+    }
+
+    @Override
+    public boolean next(List<Cell> results) throws IOException {
+        encoder.reset();
+        byte[] lastRowKey = null;
+        boolean hasMore;
+        do {
+            row.clear();
+            hasMore = delegate.nextRaw(row);
+            if (!row.isEmpty()) {
+                tuple.setKeyValues(row);
+                encoder.add(tuple);
+                lastRowKey = CellUtil.cloneRow(row.get(0));
+            }
+        } while (hasMore && encoder.getRowCount() < batchSize);
+        if (lastRowKey != null) {
+            results.add(PhoenixKeyValueUtil.newKeyValue(lastRowKey, SINGLE_COLUMN_FAMILY, SINGLE_COLUMN,
+                AGG_TIMESTAMP, encoder.toBytes()));
+        }
+        return hasMore;
+    }
+
+    /**
+     * Requests the rows of the scan to be returned as batches of up to batchSize rows holding the
+     * values of the given expressions.
+     */
+    public static void serializeIntoScan(Scan scan, int batchSize, Expression[] expressions) {
+        ByteArrayOutputStream stream = new ByteArrayOutputStream();
+        try {
+            DataOutputStream output = new DataOutputStream(stream);
+            WritableUtils.writeVInt(output, batchSize);
+            WritableUtils.writeVInt(output, expressions.length);
+            for (Expression expression : expressions) {
+                WritableUtils.writeVInt(output, ExpressionType.valueOf(expression).ordinal());
+                expression.write(output);
+            }
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+        scan.setAttribute(BaseScannerRegionObserver.COLUMNAR_BATCH, stream.toByteArray());
+    }
+
+    /**
+     * @return the wrapped scanner if the scan requests columnar batches and the given one otherwise
+     */
+    public static RegionScanner wrapIfRequested(Scan scan, RegionScanner scanner) {
+        byte[] columnarBatch = scan.getAttribute(BaseScannerRegionObserver.COLUMNAR_BATCH);
+        if (columnarBatch == null) {
+            return scanner;
+        }
+        try {
+            DataInputStream input = new DataInputStream(new ByteArrayInputStream(columnarBatch));
+            int batchSize = WritableUtils.readVInt(input);
+            Expression[] expressions = new Expression[WritableUtils.readVInt(input)];
+            for (int i = 0; i < expressions.length; i++) {
+                expressions[i] = ExpressionType.values()[WritableUtils.readVInt(input)].newInstance();
+                expressions[i].readFields(input);
+            }
+            return new ColumnarBatchRegionScanner(scanner, batchSize, expressions);
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+}
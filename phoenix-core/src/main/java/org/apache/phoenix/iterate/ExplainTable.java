@@ -36,6 +36,7 @@ import org.apache.phoenix.compile.OrderByCompiler.OrderBy;
 import org.apache.phoenix.compile.ScanRanges;
 import org.apache.phoenix.compile.StatementContext;
 import org.apache.phoenix.coprocessor.BaseScannerRegionObserver;
+import org.apache.phoenix.expression.Expression;
 import org.apache.phoenix.filter.BooleanExpressionFilter;
 import org.apache.phoenix.filter.DistinctPrefixFilter;
 import org.apache.phoenix.parse.HintNode;
@@ -47,6 +48,7 @@ import org.apache.phoenix.schema.SortOrder;
 import org.apache.phoenix.schema.TableRef;
 import org.apache.phoenix.schema.types.PDataType;
 import org.apache.phoenix.schema.types.PInteger;
+import org.apache.phoenix.util.IndexUtil;
 import org.apache.phoenix.util.MetaDataUtil;
 import org.apache.phoenix.util.ScanUtil;
 import org.apache.phoenix.util.StringUtil;
@@ -158,6 +160,10 @@ public abstract class ExplainTable {
         } else if (firstKeyOnlyFilter != null) {
             planSteps.add("    SERVER FILTER BY FIRST KEY ONLY");
         }
+        Expression uncoveredGlobalIndexFilter = IndexUtil.deserializeUncoveredGlobalIndexFilter(scan);
+        if (uncoveredGlobalIndexFilter != null) {
+            planSteps.add("    SERVER FILTER BY " + uncoveredGlobalIndexFilter.toString() + " AFTER DATA TABLE JOIN");
+        }
         if (distinctFilter != null) {
             planSteps.add("    SERVER DISTINCT PREFIX FILTER OVER "+groupBy.getExpressions().toString());
         }
@@ -66,28 +66,35 @@ public class MapReduceParallelScanGrouper implements ParallelScanGrouper {
 		String snapshotName;
 		Configuration conf = context.getConnection().getQueryServices().getConfiguration();
 		if((snapshotName = getSnapshotName(conf)) != null) {
-			try {
-				Path rootDir = new Path(conf.get(HConstants.HBASE_DIR));
-				FileSystem fs = rootDir.getFileSystem(conf);
-				Path snapshotDir = SnapshotDescriptionUtils.getCompletedSnapshotDir(snapshotName, rootDir);
-				SnapshotDescription snapshotDescription = SnapshotDescriptionUtils.readSnapshotInfo(fs, snapshotDir);
-				SnapshotManifest manifest = SnapshotManifest.open(conf, fs, snapshotDir, snapshotDescription);
-				return getRegionLocationsFromManifest(manifest);
-			}
-			catch (Exception e) {
-				throw new RuntimeException(e);
-			}
+			return getRegionLocationsFromSnapshot(conf, snapshotName);
 		}
 		else {
 			return context.getConnection().getQueryServices().getAllTableRegions(tableName);
 		}
 	}
 
+	/**
+	 * Get list of region locations from the manifest of the given snapshot
+	 */
+	static List<HRegionLocation> getRegionLocationsFromSnapshot(Configuration conf, String snapshotName) {
+		try {
+			Path rootDir = new Path(conf.get(HConstants.HBASE_DIR));
+			FileSystem fs = rootDir.getFileSystem(conf);
+			Path snapshotDir = SnapshotDescriptionUtils.getCompletedSnapshotDir(snapshotName, rootDir);
+			SnapshotDescription snapshotDescription = SnapshotDescriptionUtils.readSnapshotInfo(fs, snapshotDir);
+			SnapshotManifest manifest = SnapshotManifest.open(conf, fs, snapshotDir, snapshotDescription);
+			return getRegionLocationsFromManifest(manifest);
+		}
+		catch (Exception e) {
+			throw new RuntimeException(e);
+		}
+	}
+
 	/**
 	 * Get list of region locations from SnapshotManifest
 	 * BaseResultIterators assume that regions are sorted using RegionInfo.COMPARATOR
 	 */
-	private List<HRegionLocation> getRegionLocationsFromManifest(SnapshotManifest manifest) {
+	private static List<HRegionLocation> getRegionLocationsFromManifest(SnapshotManifest manifest) {
 		List<SnapshotRegionManifest> regionManifests = manifest.getRegionManifests();
 		Preconditions.checkNotNull(regionManifests);
 
@@ -111,7 +118,7 @@ public class MapReduceParallelScanGrouper implements ParallelScanGrouper {
 	}
 
 	// Exclude offline split parent regions
-	private boolean isValidRegion(RegionInfo hri) {
+	private static boolean isValidRegion(RegionInfo hri) {
 		if (hri.isOffline() && (hri.isSplit() || hri.isSplitParent())) {
 			return false;
 		}
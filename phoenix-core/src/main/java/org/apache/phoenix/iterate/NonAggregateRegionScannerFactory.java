@@ -154,6 +154,7 @@ public class NonAggregateRegionScannerFactory extends RegionScannerFactory {
     innerScanner = getWrappedScanner(env, innerScanner, arrayKVRefs, arrayFuncRefs, offset, scan, dataColumns,
         tupleProjector, dataRegion, indexMaintainer, tx, viewConstants, kvSchema, kvSchemaBitSet, j == null ? p : null,
         ptr, useQualifierAsIndex);
+    innerScanner = SingleCellProjectionRegionScanner.wrapIfRequested(scan, innerScanner);
 
     final ImmutableBytesPtr tenantId = ScanUtil.getTenantId(scan);
     if (j != null) {
@@ -176,7 +177,7 @@ public class NonAggregateRegionScannerFactory extends RegionScannerFactory {
     final OrderedResultIterator iterator =
             deserializeFromScan(scan, innerScanner, spoolingEnabled, thresholdBytes);
     if (iterator == null) {
-      return innerScanner;
+      return ColumnarBatchRegionScanner.wrapIfRequested(scan, innerScanner);
     }
     // TODO:the above wrapped scanner should be used here also
     return getTopNScanner(env, innerScanner, iterator, tenantId);
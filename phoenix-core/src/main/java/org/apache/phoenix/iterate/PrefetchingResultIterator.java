@@ -0,0 +1,196 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.phoenix.iterate;
+
+import java.sql.SQLException;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.hadoop.hbase.Cell;
+import org.apache.hadoop.hbase.KeyValue;
+import org.apache.hadoop.hbase.client.Result;
+import org.apache.phoenix.exception.SQLExceptionCode;
+import org.apache.phoenix.exception.SQLExceptionInfo;
+import org.apache.phoenix.schema.tuple.ResultTuple;
+import org.apache.phoenix.schema.tuple.Tuple;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.base.Throwables;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+/**
+ * Iterator that reads the rows of the wrapped iterator on a background thread into a bounded
+ * queue, so that the caller processes rows while the next ones are being scanned. The wrapped
+ * iterator must return a distinct {@link Tuple} per row. The thread is owned by the iterator and
+ * stopped by {@link #close()}.
+ */
+public class PrefetchingResultIterator implements ResultIterator {
+    private static final Logger LOGGER = LoggerFactory.getLogger(PrefetchingResultIterator.class);
+    private static final Tuple END_OF_RESULTS = new ResultTuple(Result.EMPTY_RESULT);
+
+    private final ResultIterator delegate;
+    private final BlockingQueue<Tuple> queue;
+    private final long closeTimeoutMs;
+    private final ExecutorService prefetcher;
+    private final AtomicLong prefetchedBytes = new AtomicLong();
+    private final AtomicLong scanNanos = new AtomicLong();
+    private long waitNanos;
+    private volatile boolean closed;
+    private volatile Throwable error;
+    private boolean done;
+
+    /**
+     * @param closeTimeoutMs how long {@link #close()} waits for the background thread to finish
+     *            reading the current row, usually the query timeout
+     */
+    public PrefetchingResultIterator(ResultIterator delegate, int queueSize, long closeTimeoutMs) {
+        this.delegate = delegate;
+        this.queue = new ArrayBlockingQueue<>(queueSize);
+        this.closeTimeoutMs = closeTimeoutMs;
+        this.prefetcher = Executors.newSingleThreadExecutor(new ThreadFactoryBuilder()
+                .setDaemon(true).setNameFormat("phoenix-prefetch-%d").build());
+        this.prefetcher.submit(new Runnable() {
+            @Override
+            public void run() {
+                prefetch();
+            }
+        });
+    }
+
+    private void prefetch() {
+        try {
+            while (!closed) {
+                long start = System.nanoTime();
+                Tuple tuple = delegate.next();
+                scanNanos.addAndGet(System.nanoTime() - start);
+                if (tuple == null) {
+                    break;
+                }
+                long size = 0;
+                for (int i = 0; i < tuple.size(); i++) {
+                    Cell cell = tuple.getValue(i);
+                    size += KeyValue.getKeyValueDataStructureSize(cell.getRowLength(),
+                        cell.getFamilyLength(), cell.getQualifierLength(), cell.getValueLength());
+                }
+                prefetchedBytes.addAndGet(size);
+                queue.put(tuple);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return;
+        } catch (Throwable t) {
+            error = t;
+        }
+        try {
+            while (!closed && !queue.offer(END_OF_RESULTS, 100, TimeUnit.MILLISECONDS)) {
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Override
+    public Tuple next() throws SQLException {
+        if (done) {
+            return null;
+        }
+        Tuple tuple = queue.poll();
+        if (tuple == null) {
+            long start = System.nanoTime();
+            try {
+                tuple = queue.take();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new SQLExceptionInfo.Builder(SQLExceptionCode.INTERRUPTED_EXCEPTION)
+                        .setRootCause(e).build().buildException();
+            } finally {
+                waitNanos += System.nanoTime() - start;
+            }
+        }
+        if (tuple == END_OF_RESULTS) {
+            done = true;
+            if (error != null) {
+                Throwables.propagateIfInstanceOf(error, SQLException.class);
+                throw Throwables.propagate(error);
+            }
+            return null;
+        }
+        return tuple;
+    }
+
+    /**
+     * @return the total size of the rows read by the background thread so far
+     */
+    public long getPrefetchedBytes() {
+        return prefetchedBytes.get();
+    }
+
+    /**
+     * @return the time the background thread spent reading rows so far
+     */
+    public long getScanTimeMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(scanNanos.get());
+    }
+
+    /**
+     * @return the time the caller spent waiting for rows to be read so far
+     */
+    public long getWaitTimeMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(waitNanos);
+    }
+
+    @Override
+    public void close() throws SQLException {
+        closed = true;
+        // Unblock the background thread if it is waiting for room in the queue, it stops once
+        // done with the row it is reading
+        queue.clear();
+        prefetcher.shutdown();
+        try {
+            // The delegate shouldn't be closed while the background thread may still be reading it
+            if (!prefetcher.awaitTermination(closeTimeoutMs, TimeUnit.MILLISECONDS)) {
+                prefetcher.shutdownNow();
+                LOGGER.warn("Prefetching of " + delegate + " did not stop within " + closeTimeoutMs
+                        + " ms, closing it while a row may still be read");
+            }
+        } catch (InterruptedException e) {
+            prefetcher.shutdownNow();
+            Thread.currentThread().interrupt();
+        } finally {
+            delegate.close();
+        }
+    }
+
+    @Override
+    public void explain(List<String> planSteps) {
+        delegate.explain(planSteps);
+    }
+
+    @Override
+    public String toString() {
+        return "PrefetchingResultIterator [delegate=" + delegate + ", queueSize="
+                + (queue.size() + queue.remainingCapacity()) + "]";
+    }
+}
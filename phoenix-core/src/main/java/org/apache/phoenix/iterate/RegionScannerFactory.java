@@ -26,9 +26,12 @@ import com.google.common.collect.ImmutableList;
 import org.apache.hadoop.hbase.Cell;
 import org.apache.hadoop.hbase.HConstants;
 import org.apache.hadoop.hbase.KeyValue;
+import org.apache.hadoop.hbase.KeyValueUtil;
+import org.apache.hadoop.hbase.TableName;
 import org.apache.hadoop.hbase.client.RegionInfo;
 import org.apache.hadoop.hbase.client.Result;
 import org.apache.hadoop.hbase.client.Scan;
+import org.apache.hadoop.hbase.client.Table;
 import org.apache.hadoop.hbase.coprocessor.RegionCoprocessorEnvironment;
 import org.apache.hadoop.hbase.io.ImmutableBytesWritable;
 import org.apache.hadoop.hbase.regionserver.Region;
@@ -37,6 +40,7 @@ import org.apache.hadoop.hbase.regionserver.ScannerContext;
 import org.apache.hadoop.hbase.regionserver.ScannerContextUtil;
 import org.apache.hadoop.hbase.util.Bytes;
 import org.apache.hadoop.hbase.util.Pair;
+import org.apache.phoenix.coprocessor.BaseScannerRegionObserver;
 import org.apache.phoenix.coprocessor.generated.DynamicColumnMetaDataProtos;
 import org.apache.phoenix.execute.TupleProjector;
 import org.apache.phoenix.expression.Expression;
@@ -44,6 +48,8 @@ import org.apache.phoenix.expression.KeyValueColumnExpression;
 import org.apache.phoenix.hbase.index.covered.update.ColumnReference;
 import org.apache.phoenix.index.IndexMaintainer;
 import org.apache.phoenix.query.QueryConstants;
+import org.apache.phoenix.query.QueryServices;
+import org.apache.phoenix.query.QueryServicesOptions;
 import org.apache.phoenix.schema.KeyValueSchema;
 import org.apache.phoenix.schema.PColumn;
 import org.apache.phoenix.schema.PColumnImpl;
@@ -52,14 +58,18 @@ import org.apache.phoenix.schema.tuple.MultiKeyValueTuple;
 import org.apache.phoenix.schema.tuple.PositionBasedResultTuple;
 import org.apache.phoenix.schema.tuple.ResultTuple;
 import org.apache.phoenix.schema.tuple.Tuple;
+import org.apache.phoenix.schema.types.PBoolean;
 import org.apache.phoenix.transaction.PhoenixTransactionContext;
 import org.apache.phoenix.util.EncodedColumnsUtil;
 import org.apache.phoenix.util.IndexUtil;
 import org.apache.phoenix.util.ScanUtil;
 import org.apache.phoenix.util.ServerUtil;
+import org.apache.phoenix.util.ServerUtil.ConnectionType;
 
 import java.io.IOException;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Deque;
 import java.util.List;
 import java.util.ListIterator;
 import java.util.Set;
@@ -118,6 +128,25 @@ public abstract class RegionScannerFactory {
       private RegionInfo regionInfo = env.getRegionInfo();
       private byte[] actualStartKey = getActualStartKey();
       private boolean useNewValueColumnQualifier = EncodedColumnsUtil.useNewValueColumnQualifier(scan);
+      private boolean isUncoveredGlobalIndex = ScanUtil.isUncoveredGlobalIndex(scan) && tupleProjector != null;
+      // Index rows read ahead whose data rows are looked up together for uncovered indexes
+      private int backJoinBatchSize = getBackJoinBatchSize();
+      private boolean readAhead = isUncoveredGlobalIndex || backJoinBatchSize > 1;
+      private final Deque<Pair<List<Cell>, Cell>> backJoinedRows = new ArrayDeque<>();
+      private boolean backJoinHasMore = true;
+      private final Expression uncoveredGlobalIndexFilter = IndexUtil.deserializeUncoveredGlobalIndexFilter(scan);
+      private Table dataTable;
+
+      private int getBackJoinBatchSize() {
+        if (isUncoveredGlobalIndex) {
+          return Math.max(1, env.getConfiguration().getInt(QueryServices.UNCOVERED_GLOBAL_INDEX_BATCH_SIZE_ATTRIB,
+              QueryServicesOptions.DEFAULT_UNCOVERED_GLOBAL_INDEX_BATCH_SIZE));
+        }
+        return ScanUtil.isLocalIndex(scan) && !ScanUtil.isAnalyzeTable(scan)
+            && tupleProjector != null && dataRegion != null
+            ? env.getConfiguration().getInt(QueryServices.LOCAL_INDEX_BACK_JOIN_BATCH_SIZE_ATTRIB,
+                QueryServicesOptions.DEFAULT_LOCAL_INDEX_BACK_JOIN_BATCH_SIZE) : 0;
+      }
 
       // Get the actual scan start row of local index. This will be used to compare the row
       // key of the results less than scan start row when there are references.
@@ -143,7 +172,13 @@ public abstract class RegionScannerFactory {
 
       @Override
       public void close() throws IOException {
-        s.close();
+        try {
+          s.close();
+        } finally {
+          if (dataTable != null) {
+            dataTable.close();
+          }
+        }
       }
 
       @Override
@@ -169,16 +204,31 @@ public abstract class RegionScannerFactory {
       @Override
       public boolean nextRaw(List<Cell> result) throws IOException {
         try {
-          boolean next = s.nextRaw(result);
+          boolean next;
           Cell arrayElementCell = null;
-          if (result.size() == 0) {
-            return next;
-          }
-          if (arrayFuncRefs != null && arrayFuncRefs.length > 0 && arrayKVRefs.size() > 0) {
-            int arrayElementCellPosition = replaceArrayIndexElement(arrayKVRefs, arrayFuncRefs, result);
-            arrayElementCell = result.get(arrayElementCellPosition);
+          if (readAhead) {
+            // Rows of a batch may all be filtered out after the join
+            while (backJoinedRows.isEmpty() && backJoinHasMore) {
+              backJoinHasMore = readBackJoinBatch();
+            }
+            Pair<List<Cell>, Cell> row = backJoinedRows.poll();
+            if (row == null) {
+              return backJoinHasMore;
+            }
+            result.addAll(row.getFirst());
+            arrayElementCell = row.getSecond();
+            next = backJoinHasMore || !backJoinedRows.isEmpty();
+          } else {
+            next = s.nextRaw(result);
+            if (result.size() == 0) {
+              return next;
+            }
+            if (arrayFuncRefs != null && arrayFuncRefs.length > 0 && arrayKVRefs.size() > 0) {
+              int arrayElementCellPosition = replaceArrayIndexElement(arrayKVRefs, arrayFuncRefs, result);
+              arrayElementCell = result.get(arrayElementCellPosition);
+            }
           }
-          if (ScanUtil.isLocalIndex(scan) && !ScanUtil.isAnalyzeTable(scan)) {
+          if (!readAhead && ScanUtil.isLocalIndex(scan) && !ScanUtil.isAnalyzeTable(scan)) {
             if(actualStartKey!=null) {
               next = scanTillScanStartRow(s, arrayKVRefs, arrayFuncRefs, result,
                   null, arrayElementCell);
@@ -217,6 +267,78 @@ public abstract class RegionScannerFactory {
         }
       }
 
+      /**
+       * Reads up to backJoinBatchSize index rows and joins them back to their data rows with a
+       * single lookup, instead of one Get per index row. For global indexes the lookup is a
+       * multi-get against the data table, after which the filter on data table columns is applied.
+       */
+      private boolean readBackJoinBatch() throws IOException {
+        boolean next = true;
+        List<List<Cell>> rows = new ArrayList<>(backJoinBatchSize);
+        List<Cell> arrayElementCells = new ArrayList<>(backJoinBatchSize);
+        while (next && rows.size() < backJoinBatchSize) {
+          List<Cell> row = new ArrayList<>();
+          next = s.nextRaw(row);
+          if (row.isEmpty()) {
+            break;
+          }
+          Cell arrayElementCell = null;
+          if (arrayFuncRefs != null && arrayFuncRefs.length > 0 && arrayKVRefs.size() > 0) {
+            int arrayElementCellPosition = replaceArrayIndexElement(arrayKVRefs, arrayFuncRefs, row);
+            arrayElementCell = row.get(arrayElementCellPosition);
+          }
+          if (actualStartKey != null) {
+            next = scanTillScanStartRow(s, arrayKVRefs, arrayFuncRefs, row, null, arrayElementCell);
+            if (row.isEmpty()) {
+              break;
+            }
+          }
+          // The rows are kept past this call, while the cells returned by the scanner may
+          // reference block buffers only valid until the scanner is shipped
+          for (ListIterator<Cell> cells = row.listIterator(); cells.hasNext();) {
+            cells.set(KeyValueUtil.copyToNewKeyValue(cells.next()));
+          }
+          rows.add(row);
+          arrayElementCells.add(arrayElementCell);
+        }
+        if (rows.isEmpty()) {
+          return next;
+        }
+        if (isUncoveredGlobalIndex) {
+          IndexUtil.wrapResultsUsingDataTable(rows, dataColumns, tupleProjector, getDataTable(),
+              indexMaintainer, viewConstants, scan.getTimeRange(), ptr);
+        } else {
+          IndexUtil.wrapResultsUsingOffset(rows, offset, dataColumns, tupleProjector, dataRegion,
+              indexMaintainer, viewConstants, ptr);
+        }
+        for (int i = 0; i < rows.size(); i++) {
+          List<Cell> row = rows.get(i);
+          // Index rows without a valid data row are left empty by the join
+          if (row.isEmpty()) {
+            continue;
+          }
+          if (uncoveredGlobalIndexFilter == null || isFilterPassed(row)) {
+            backJoinedRows.add(new Pair<>(row, arrayElementCells.get(i)));
+          }
+        }
+        return next;
+      }
+
+      private boolean isFilterPassed(List<Cell> row) {
+        Tuple tuple = new ResultTuple(Result.create(row));
+        return uncoveredGlobalIndexFilter.evaluate(tuple, ptr) && ptr.getLength() > 0
+            && Boolean.TRUE.equals(PBoolean.INSTANCE.toObject(ptr));
+      }
+
+      private Table getDataTable() throws IOException {
+        if (dataTable == null) {
+          byte[] dataTableName = scan.getAttribute(BaseScannerRegionObserver.UNCOVERED_GLOBAL_INDEX);
+          dataTable = ServerUtil.ConnectionFactory.getConnection(ConnectionType.DEFAULT_SERVER_CONNECTION, env)
+              .getTable(TableName.valueOf(dataTableName));
+        }
+        return dataTable;
+      }
+
       /**
        * Iterate over the list of cells returned from the scan and use the dynamic column metadata
        * to create a tuple projector for dynamic columns. Finally, merge this with the projected
@@ -0,0 +1,180 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.phoenix.iterate;
+
+import static org.apache.phoenix.query.QueryConstants.SINGLE_KEYVALUE_COLUMN_QUALIFIER_BYTES;
+import static org.apache.phoenix.schema.PTable.ImmutableStorageScheme.SINGLE_CELL_ARRAY_WITH_OFFSETS;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedSet;
+
+import org.apache.hadoop.hbase.Cell;
+import org.apache.hadoop.hbase.CellUtil;
+import org.apache.hadoop.hbase.KeyValue;
+import org.apache.hadoop.hbase.client.Scan;
+import org.apache.hadoop.hbase.io.ImmutableBytesWritable;
+import org.apache.hadoop.hbase.regionserver.RegionScanner;
+import org.apache.hadoop.hbase.util.Bytes;
+import org.apache.hadoop.io.WritableUtils;
+import org.apache.phoenix.coprocessor.BaseScannerRegionObserver;
+import org.apache.phoenix.coprocessor.DelegateRegionScanner;
+import org.apache.phoenix.expression.SingleCellColumnExpression;
+import org.apache.phoenix.hbase.index.util.ImmutableBytesPtr;
+import org.apache.phoenix.schema.ColumnValueDecoder;
+import org.apache.phoenix.schema.ColumnValueEncoder;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.collect.Maps;
+
+/**
+ * Region scanner that trims the packed cells of tables stored with
+ * SINGLE_CELL_ARRAY_WITH_OFFSETS down to the column values referenced by the query, for scans
+ * whose rows are not otherwise projected on the server. The trimmed array keeps the referenced
+ * values at their original positions, so {@link SingleCellColumnExpression} reads it as is, and
+ * ends at the last referenced position.
+ */
+public class SingleCellProjectionRegionScanner extends DelegateRegionScanner {
+    private final Map<ImmutableBytesPtr, int[]> arrayIndexesByFamily;
+    private final List<Cell> row = new ArrayList<>();
+    private final ImmutableBytesWritable ptr = new ImmutableBytesWritable();
+
+    public SingleCellProjectionRegionScanner(RegionScanner scanner,
+            Map<ImmutableBytesPtr, int[]> arrayIndexesByFamily) {
+        super(scanner);
+        this.arrayIndexesByFamily = arrayIndexesByFamily;
+    }
+
+    @Override
+    public boolean next(List<Cell> results) throws IOException {
+        row.clear();
+        boolean hasMore = delegate.next(row);
+        project(results);
+        return hasMore;
+    }
+
+    @Override
+    public boolean nextRaw(List<Cell> results) throws IOException {
+        row.clear();
+        boolean hasMore = delegate.nextRaw(row);
+        project(results);
+        return hasMore;
+    }
+
+    private void project(List<Cell> results) {
+        for (Cell cell : row) {
+            int[] arrayIndexes = null;
+            if (CellUtil.matchingQualifier(cell, SINGLE_KEYVALUE_COLUMN_QUALIFIER_BYTES)) {
+                arrayIndexes = arrayIndexesByFamily.get(new ImmutableBytesPtr(cell.getFamilyArray(),
+                        cell.getFamilyOffset(), cell.getFamilyLength()));
+            }
+            results.add(arrayIndexes == null || cell.getValueLength() == 0 ? cell : project(cell, arrayIndexes));
+        }
+    }
+
+    private Cell project(Cell cell, int[] arrayIndexes) {
+        byte[] value = projectValue(cell.getValueArray(), cell.getValueOffset(), cell.getValueLength(),
+                arrayIndexes, ptr);
+        return new KeyValue(cell.getRowArray(), cell.getRowOffset(), cell.getRowLength(),
+                cell.getFamilyArray(), cell.getFamilyOffset(), cell.getFamilyLength(),
+                cell.getQualifierArray(), cell.getQualifierOffset(), cell.getQualifierLength(),
+                cell.getTimestamp(), KeyValue.Type.Put, value, 0, value.length);
+    }
+
+    /**
+     * Re-encodes a packed array keeping only the values at the given sorted array indexes, and the
+     * reserved first position that allows absent values to be represented. An empty set of array
+     * indexes is used for column families that are scanned but not evaluated on the client.
+     */
+    @VisibleForTesting
+    static byte[] projectValue(byte[] bytes, int offset, int length, int[] arrayIndexes,
+            ImmutableBytesWritable ptr) {
+        ColumnValueDecoder decoder = SINGLE_CELL_ARRAY_WITH_OFFSETS.getDecoder();
+        int maxIndex = arrayIndexes.length == 0 ? 0 : arrayIndexes[arrayIndexes.length - 1];
+        ColumnValueEncoder encoder = SINGLE_CELL_ARRAY_WITH_OFFSETS.getEncoder(maxIndex + 1);
+        int next = 0;
+        for (int i = 0; i <= maxIndex; i++) {
+            boolean referenced = next < arrayIndexes.length && arrayIndexes[next] == i;
+            if (referenced) {
+                next++;
+            }
+            ptr.set(bytes, offset, length);
+            if ((referenced || i == 0) && decoder.decode(ptr, i)) {
+                encoder.appendValue(ptr.get(), ptr.getOffset(), ptr.getLength());
+            } else {
+                encoder.appendAbsentValue();
+            }
+        }
+        return encoder.encode();
+    }
+
+    /**
+     * Requests the packed cells of the given column families to be trimmed to the given array
+     * indexes, as computed by {@link SingleCellColumnExpression#getArrayIndex()}.
+     */
+    public static void serializeIntoScan(Scan scan, Map<byte[], SortedSet<Integer>> arrayIndexesByFamily) {
+        ByteArrayOutputStream stream = new ByteArrayOutputStream();
+        try {
+            DataOutputStream output = new DataOutputStream(stream);
+            WritableUtils.writeVInt(output, arrayIndexesByFamily.size());
+            for (Map.Entry<byte[], SortedSet<Integer>> entry : arrayIndexesByFamily.entrySet()) {
+                Bytes.writeByteArray(output, entry.getKey());
+                WritableUtils.writeVInt(output, entry.getValue().size());
+                for (int arrayIndex : entry.getValue()) {
+                    WritableUtils.writeVInt(output, arrayIndex);
+                }
+            }
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+        scan.setAttribute(BaseScannerRegionObserver.SINGLE_CELL_PROJECTION, stream.toByteArray());
+    }
+
+    /**
+     * @return the wrapped scanner if the scan requests packed cells to be trimmed and the given
+     *         one otherwise
+     */
+    public static RegionScanner wrapIfRequested(Scan scan, RegionScanner scanner) {
+        byte[] projection = scan.getAttribute(BaseScannerRegionObserver.SINGLE_CELL_PROJECTION);
+        if (projection == null) {
+            return scanner;
+        }
+        try {
+            DataInputStream input = new DataInputStream(new ByteArrayInputStream(projection));
+            int familyCount = WritableUtils.readVInt(input);
+            Map<ImmutableBytesPtr, int[]> arrayIndexesByFamily = Maps.newHashMapWithExpectedSize(familyCount);
+            for (int i = 0; i < familyCount; i++) {
+                ImmutableBytesPtr family = new ImmutableBytesPtr(Bytes.readByteArray(input));
+                int[] arrayIndexes = new int[WritableUtils.readVInt(input)];
+                for (int j = 0; j < arrayIndexes.length; j++) {
+                    arrayIndexes[j] = WritableUtils.readVInt(input);
+                }
+                arrayIndexesByFamily.put(family, arrayIndexes);
+            }
+            return new SingleCellProjectionRegionScanner(scanner, arrayIndexesByFamily);
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+}
@@ -0,0 +1,159 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.phoenix.iterate;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.UUID;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.hbase.HConstants;
+import org.apache.hadoop.hbase.HRegionLocation;
+import org.apache.hadoop.hbase.TableName;
+import org.apache.hadoop.hbase.client.RegionInfo;
+import org.apache.hadoop.hbase.client.Scan;
+import org.apache.hadoop.hbase.client.TableDescriptor;
+import org.apache.hadoop.hbase.snapshot.RestoreSnapshotHelper;
+import org.apache.hadoop.hbase.util.Bytes;
+import org.apache.hadoop.hbase.util.FSUtils;
+import org.apache.phoenix.compile.StatementContext;
+import org.apache.phoenix.mapreduce.util.PhoenixConfigurationUtil;
+import org.apache.phoenix.monitoring.ScanMetricsHolder;
+import org.apache.phoenix.parse.HintNode;
+import org.apache.phoenix.parse.HintNode.Hint;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Scan grouper used for queries with the {@link Hint#SNAPSHOT} hint. Groups the scans like
+ * {@link DefaultParallelScanGrouper}, but takes the region boundaries from the snapshot manifest.
+ * {@link TableResultIterator} reads the scans of such a grouper through
+ * {@link TableSnapshotResultIterator}, so the query runs entirely in the client.
+ * <p>
+ * The snapshot is restored once, when the first scan starts, and all the scans of the query
+ * read that same copy. Closing the grouper deletes it.
+ */
+public class SnapshotParallelScanGrouper extends DefaultParallelScanGrouper implements Closeable {
+    private static final Logger LOGGER = LoggerFactory.getLogger(SnapshotParallelScanGrouper.class);
+
+    private final Configuration configuration;
+    private FileSystem fs;
+    private Path restoreDir;
+    private TableDescriptor htd;
+    private List<RegionInfo> restoredRegions;
+    private boolean closed;
+
+    public SnapshotParallelScanGrouper(Configuration configuration, String snapshotName) {
+        this.configuration = new Configuration(configuration);
+        this.configuration.set(PhoenixConfigurationUtil.SNAPSHOT_NAME_KEY, snapshotName);
+        if (this.configuration.get(PhoenixConfigurationUtil.RESTORE_DIR_KEY) == null) {
+            this.configuration.set(PhoenixConfigurationUtil.RESTORE_DIR_KEY,
+                this.configuration.get(HConstants.TEMPORARY_FS_DIRECTORY_KEY,
+                    HConstants.DEFAULT_TEMPORARY_HDFS_DIRECTORY));
+        }
+    }
+
+    /**
+     * @return the name of the snapshot given by the {@link Hint#SNAPSHOT} hint or null if
+     * the hint is not present
+     */
+    public static String getSnapshotName(HintNode hint) {
+        String value = hint.getHint(Hint.SNAPSHOT);
+        if (value == null || value.length() <= HintNode.PREFIX.length() + HintNode.SUFFIX.length()) {
+            return null;
+        }
+        return value.substring(HintNode.PREFIX.length(), value.length() - HintNode.SUFFIX.length()).trim();
+    }
+
+    /**
+     * @return the configuration to restore and scan the snapshot with
+     */
+    public Configuration getConfiguration() {
+        return configuration;
+    }
+
+    /**
+     * @return an iterator over the given scan of the snapshot, restoring the snapshot first if
+     *         no other scan of the query did already
+     */
+    public ResultIterator newIterator(Scan scan, ScanMetricsHolder scanMetricsHolder) throws IOException {
+        synchronized (this) {
+            if (closed) {
+                throw new IOException("Scans of snapshot "
+                        + configuration.get(PhoenixConfigurationUtil.SNAPSHOT_NAME_KEY) + " are closed");
+            }
+            if (restoreDir == null) {
+                restore();
+            }
+        }
+        return new TableSnapshotResultIterator(configuration, scan, scanMetricsHolder, fs, restoreDir,
+                htd, restoredRegions);
+    }
+
+    private void restore() throws IOException {
+        String snapshotName = configuration.get(PhoenixConfigurationUtil.SNAPSHOT_NAME_KEY);
+        Path rootDir = FSUtils.getRootDir(configuration);
+        FileSystem fs = rootDir.getFileSystem(configuration);
+        Path restoreDir = new Path(configuration.get(PhoenixConfigurationUtil.RESTORE_DIR_KEY),
+                UUID.randomUUID().toString());
+        try {
+            RestoreSnapshotHelper.RestoreMetaChanges meta =
+                    RestoreSnapshotHelper.copySnapshotForScanner(configuration, fs, rootDir, restoreDir,
+                            snapshotName);
+            this.htd = meta.getTableDescriptor();
+            this.restoredRegions = meta.getRegionsToAdd();
+        } catch (IOException | RuntimeException e) {
+            fs.delete(restoreDir, true);
+            throw e;
+        }
+        LOGGER.info("Restored snapshot " + snapshotName + " to " + restoreDir);
+        this.fs = fs;
+        this.restoreDir = restoreDir;
+    }
+
+    /**
+     * Deletes the restored snapshot. Must be called once all the scans are closed.
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        closed = true;
+        if (restoreDir != null) {
+            fs.delete(restoreDir, true);
+            restoreDir = null;
+        }
+    }
+
+    @Override
+    public List<HRegionLocation> getRegionBoundaries(StatementContext context, byte[] tableName) throws SQLException {
+        String snapshotName = configuration.get(PhoenixConfigurationUtil.SNAPSHOT_NAME_KEY);
+        List<HRegionLocation> regionLocations =
+                MapReduceParallelScanGrouper.getRegionLocationsFromSnapshot(configuration, snapshotName);
+        if (!regionLocations.isEmpty()) {
+            TableName snapshotTableName = regionLocations.get(0).getRegion().getTable();
+            if (!Bytes.equals(snapshotTableName.getName(), tableName)) {
+                throw new SQLException("Snapshot " + snapshotName + " is a snapshot of table "
+                        + snapshotTableName + " and not of " + Bytes.toString(tableName));
+            }
+        }
+        return regionLocations;
+    }
+}
@@ -229,8 +229,13 @@ public class TableResultIterator implements ResultIterator {
             ResultIterator delegate = this.scanIterator;
             if (delegate == UNINITIALIZED_SCANNER) {
                 try {
-                    this.scanIterator =
-                            new ScanningResultIterator(htable.getScanner(scan), scan, scanMetricsHolder);
+                    if (scanGrouper instanceof SnapshotParallelScanGrouper) {
+                        this.scanIterator = ((SnapshotParallelScanGrouper) scanGrouper)
+                                .newIterator(scan, scanMetricsHolder);
+                    } else {
+                        this.scanIterator =
+                                new ScanningResultIterator(htable.getScanner(scan), scan, scanMetricsHolder);
+                    }
                 } catch (IOException e) {
                     Closeables.closeQuietly(htable);
                     throw ServerUtil.parseServerException(e);
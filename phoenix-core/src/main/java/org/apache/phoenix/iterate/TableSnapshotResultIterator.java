@@ -68,6 +68,8 @@ public class TableSnapshotResultIterator implements ResultIterator {
   private FileSystem fs;
   private int currentRegion;
   private boolean closed = false;
+  // false when the snapshot was restored for several iterators, which delete it once all done
+  private final boolean ownsRestoreDir;
 
   public TableSnapshotResultIterator(Configuration configuration, Scan scan, ScanMetricsHolder scanMetricsHolder)
       throws IOException {
@@ -82,15 +84,33 @@ public class TableSnapshotResultIterator implements ResultIterator {
         PhoenixConfigurationUtil.SNAPSHOT_NAME_KEY);
     this.rootDir = FSUtils.getRootDir(configuration);
     this.fs = rootDir.getFileSystem(configuration);
-    init();
-  }
-
-  private void init() throws IOException {
+    this.ownsRestoreDir = true;
     RestoreSnapshotHelper.RestoreMetaChanges meta =
         RestoreSnapshotHelper.copySnapshotForScanner(this.configuration, this.fs,
             this.rootDir, this.restoreDir, this.snapshotName);
-    List<RegionInfo> restoredRegions = meta.getRegionsToAdd();
     this.htd = meta.getTableDescriptor();
+    init(meta.getRegionsToAdd());
+  }
+
+  /**
+   * Scans a snapshot already restored in the given directory, which is left in place on close
+   */
+  TableSnapshotResultIterator(Configuration configuration, Scan scan, ScanMetricsHolder scanMetricsHolder,
+      FileSystem fs, Path restoreDir, TableDescriptor htd, List<RegionInfo> restoredRegions) {
+    this.configuration = configuration;
+    this.currentRegion = -1;
+    this.scan = scan;
+    this.scanMetricsHolder = scanMetricsHolder;
+    this.scanIterator = UNINITIALIZED_SCANNER;
+    this.restoreDir = restoreDir;
+    this.snapshotName = configuration.get(PhoenixConfigurationUtil.SNAPSHOT_NAME_KEY);
+    this.fs = fs;
+    this.htd = htd;
+    this.ownsRestoreDir = false;
+    init(restoredRegions);
+  }
+
+  private void init(List<RegionInfo> restoredRegions) {
     this.regions = new ArrayList<RegionInfo>(restoredRegions.size());
 
     for (RegionInfo restoredRegion : restoredRegions) {
@@ -162,7 +182,9 @@ public class TableSnapshotResultIterator implements ResultIterator {
     closed = true; // ok to say closed even if the below code throws an exception
     try {
       scanIterator.close();
-      fs.delete(this.restoreDir, true);
+      if (ownsRestoreDir) {
+        fs.delete(this.restoreDir, true);
+      }
     } catch (IOException e) {
       throw ServerUtil.parseServerException(e);
     } finally {
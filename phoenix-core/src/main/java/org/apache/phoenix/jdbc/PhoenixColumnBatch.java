@@ -0,0 +1,317 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.phoenix.jdbc;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.List;
+
+import org.apache.hadoop.hbase.io.ImmutableBytesWritable;
+import org.apache.phoenix.schema.SortOrder;
+import org.apache.phoenix.schema.TypeMismatchException;
+import org.apache.phoenix.schema.types.PDataType;
+import org.apache.phoenix.schema.types.PDouble;
+import org.apache.phoenix.schema.types.PLong;
+import org.apache.phoenix.schema.types.PTimestamp;
+import org.apache.phoenix.util.DateUtil;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * Column oriented buffer filled by {@link PhoenixResultSet#nextBatch(PhoenixColumnBatch)}.
+ * <p/>
+ * Each column added to the batch is bound to a (1-based) column of the result set and backed by
+ * primitive arrays, which may be supplied by the caller. The arrays are overwritten by every call
+ * to {@link PhoenixResultSet#nextBatch(PhoenixColumnBatch)}, so no object is created per value:
+ * <pre>
+ * PhoenixColumnBatch batch = new PhoenixColumnBatch(1024);
+ * PhoenixColumnBatch.LongColumn ids = batch.addLongColumn(1);
+ * PhoenixColumnBatch.BytesColumn names = batch.addBytesColumn(2);
+ * PhoenixResultSet rs = stmt.executeQuery(sql).unwrap(PhoenixResultSet.class);
+ * int rows;
+ * while ((rows = rs.nextBatch(batch)) > 0) {
+ *     for (int i = 0; i < rows; i++) {
+ *         if (!ids.isNull(i)) {
+ *             consume(ids.getValues()[i], names.getBuffer(), names.getOffsets()[i], names.getLength(i));
+ *         }
+ *     }
+ * }
+ * </pre>
+ */
+public class PhoenixColumnBatch {
+    private final int capacity;
+    private final List<Column> columns = new ArrayList<>();
+    private int size;
+
+    public PhoenixColumnBatch(int capacity) {
+        Preconditions.checkArgument(capacity > 0, "Batch capacity must be greater than zero");
+        this.capacity = capacity;
+    }
+
+    /**
+     * @return the maximum number of rows read into the batch at once
+     */
+    public int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * @return the number of rows read by the last call to
+     * {@link PhoenixResultSet#nextBatch(PhoenixColumnBatch)}
+     */
+    public int getSize() {
+        return size;
+    }
+
+    public List<Column> getColumns() {
+        return Collections.unmodifiableList(columns);
+    }
+
+    public LongColumn addLongColumn(int columnIndex) {
+        return addLongColumn(columnIndex, new long[capacity]);
+    }
+
+    /**
+     * Adds a column decoded into the given array. Integral types are read as is and date, time
+     * and timestamp types as milliseconds since the epoch.
+     */
+    public LongColumn addLongColumn(int columnIndex, long[] values) {
+        checkLength(values.length, capacity);
+        return add(new LongColumn(columnIndex, values));
+    }
+
+    public DoubleColumn addDoubleColumn(int columnIndex) {
+        return addDoubleColumn(columnIndex, new double[capacity]);
+    }
+
+    /**
+     * Adds a column decoded into the given array. Any fixed width numeric type may be read this way.
+     */
+    public DoubleColumn addDoubleColumn(int columnIndex, double[] values) {
+        checkLength(values.length, capacity);
+        return add(new DoubleColumn(columnIndex, values));
+    }
+
+    public BytesColumn addBytesColumn(int columnIndex) {
+        return addBytesColumn(columnIndex, new int[capacity + 1], new byte[capacity * 16]);
+    }
+
+    /**
+     * Adds a column whose serialized values are copied back to back into the given buffer, which
+     * is replaced by a larger one when it fills up. Values are always copied in ascending sort order,
+     * so that VARCHAR and CHAR values are UTF-8 bytes regardless of how they are stored.
+     * @param offsets array of at least capacity + 1 elements
+     */
+    public BytesColumn addBytesColumn(int columnIndex, int[] offsets, byte[] buffer) {
+        checkLength(offsets.length, capacity + 1);
+        return add(new BytesColumn(columnIndex, offsets, buffer));
+    }
+
+    private <T extends Column> T add(T column) {
+        Preconditions.checkArgument(column.getColumnIndex() > 0, "Column index must be greater than zero");
+        columns.add(column);
+        return column;
+    }
+
+    private static void checkLength(int length, int minLength) {
+        Preconditions.checkArgument(length >= minLength,
+            "Array of length " + length + " cannot hold " + minLength + " elements");
+    }
+
+    void reset() {
+        size = 0;
+        for (Column column : columns) {
+            column.reset();
+        }
+    }
+
+    void setSize(int size) {
+        this.size = size;
+    }
+
+    /**
+     * Vector of the values of one result set column.
+     */
+    public static abstract class Column {
+        private final int columnIndex;
+        private final BitSet nulls = new BitSet();
+
+        private Column(int columnIndex) {
+            this.columnIndex = columnIndex;
+        }
+
+        /**
+         * @return the 1-based index of the result set column read into this vector
+         */
+        public int getColumnIndex() {
+            return columnIndex;
+        }
+
+        public boolean isNull(int row) {
+            return nulls.get(row);
+        }
+
+        /**
+         * @return the null bitmap of the vector, with a bit set for each null row
+         */
+        public BitSet getNulls() {
+            return nulls;
+        }
+
+        void reset() {
+            nulls.clear();
+        }
+
+        void setNull(int row) {
+            nulls.set(row);
+        }
+
+        abstract void checkType(PDataType type) throws SQLException;
+
+        abstract void set(int row, ImmutableBytesWritable ptr, PDataType type, SortOrder sortOrder);
+    }
+
+    public static class LongColumn extends Column {
+        private final long[] values;
+
+        private LongColumn(int columnIndex, long[] values) {
+            super(columnIndex);
+            this.values = values;
+        }
+
+        public long[] getValues() {
+            return values;
+        }
+
+        @Override
+        void setNull(int row) {
+            super.setNull(row);
+            values[row] = 0;
+        }
+
+        @Override
+        void checkType(PDataType type) throws SQLException {
+            if (!type.isCoercibleTo(PLong.INSTANCE) && !type.isCoercibleTo(PTimestamp.INSTANCE)) {
+                throw TypeMismatchException.newException(PLong.INSTANCE, type);
+            }
+        }
+
+        @Override
+        void set(int row, ImmutableBytesWritable ptr, PDataType type, SortOrder sortOrder) {
+            values[row] = DateUtil.getCodecFor(type).decodeLong(ptr.get(), ptr.getOffset(), sortOrder);
+        }
+    }
+
+    public static class DoubleColumn extends Column {
+        private final double[] values;
+
+        private DoubleColumn(int columnIndex, double[] values) {
+            super(columnIndex);
+            this.values = values;
+        }
+
+        public double[] getValues() {
+            return values;
+        }
+
+        @Override
+        void setNull(int row) {
+            super.setNull(row);
+            values[row] = 0;
+        }
+
+        @Override
+        void checkType(PDataType type) throws SQLException {
+            // DECIMAL has no fixed width encoding to decode from
+            if (type.getCodec() == null || !type.isCoercibleTo(PDouble.INSTANCE)) {
+                throw TypeMismatchException.newException(PDouble.INSTANCE, type);
+            }
+        }
+
+        @Override
+        void set(int row, ImmutableBytesWritable ptr, PDataType type, SortOrder sortOrder) {
+            values[row] = type.getCodec().decodeDouble(ptr.get(), ptr.getOffset(), sortOrder);
+        }
+    }
+
+    public static class BytesColumn extends Column {
+        private final int[] offsets;
+        private byte[] buffer;
+
+        private BytesColumn(int columnIndex, int[] offsets, byte[] buffer) {
+            super(columnIndex);
+            this.offsets = offsets;
+            this.buffer = buffer;
+        }
+
+        /**
+         * @return the start offsets of the values in the buffer. The value of row i ends at the
+         * offset of row i + 1.
+         */
+        public int[] getOffsets() {
+            return offsets;
+        }
+
+        /**
+         * @return the buffer holding the values, which may differ from the one the column was
+         * created with if that one was too small
+         */
+        public byte[] getBuffer() {
+            return buffer;
+        }
+
+        public int getLength(int row) {
+            return offsets[row + 1] - offsets[row];
+        }
+
+        @Override
+        void reset() {
+            super.reset();
+            offsets[0] = 0;
+        }
+
+        @Override
+        void setNull(int row) {
+            super.setNull(row);
+            offsets[row + 1] = offsets[row];
+        }
+
+        @Override
+        void checkType(PDataType type) {
+        }
+
+        @Override
+        void set(int row, ImmutableBytesWritable ptr, PDataType type, SortOrder sortOrder) {
+            int offset = offsets[row];
+            int length = ptr.getLength();
+            if (offset + length > buffer.length) {
+                byte[] newBuffer = new byte[Math.max(buffer.length * 2, offset + length)];
+                System.arraycopy(buffer, 0, newBuffer, 0, offset);
+                buffer = newBuffer;
+            }
+            if (sortOrder == SortOrder.DESC) {
+                SortOrder.invert(ptr.get(), ptr.getOffset(), buffer, offset, length);
+            } else {
+                System.arraycopy(ptr.get(), ptr.getOffset(), buffer, offset, length);
+            }
+            offsets[row + 1] = offset + length;
+        }
+    }
+}
@@ -19,6 +19,8 @@ package org.apache.phoenix.jdbc;
 
 import static com.google.common.base.Preconditions.checkNotNull;
 import static java.util.Collections.emptyMap;
+import static org.apache.phoenix.monitoring.GlobalClientMetrics.GLOBAL_CLIENT_METADATA_CACHE_HIT_COUNTER;
+import static org.apache.phoenix.monitoring.GlobalClientMetrics.GLOBAL_CLIENT_METADATA_CACHE_MISS_COUNTER;
 import static org.apache.phoenix.monitoring.GlobalClientMetrics.GLOBAL_OPEN_PHOENIX_CONNECTIONS;
 import static org.apache.phoenix.monitoring.GlobalClientMetrics.GLOBAL_PHOENIX_CONNECTIONS_ATTEMPTED_COUNTER;
 
@@ -582,11 +584,21 @@ public class PhoenixConnection implements Connection, MetaDataMutated, SQLClosea
     }
 
     public PTable getTable(PTableKey key) throws TableNotFoundException {
-        return metaData.getTableRef(key).getTable();
+        return getTableRef(key).getTable();
     }
 
     public PTableRef getTableRef(PTableKey key) throws TableNotFoundException {
-        return metaData.getTableRef(key);
+        // Only lookups made on behalf of the caller count towards the hit rate of the cache,
+        // not the ones made internally while it is being updated
+        PTableRef tableRef;
+        try {
+            tableRef = metaData.getTableRef(key);
+        } catch (TableNotFoundException e) {
+            GLOBAL_CLIENT_METADATA_CACHE_MISS_COUNTER.increment();
+            throw e;
+        }
+        GLOBAL_CLIENT_METADATA_CACHE_HIT_COUNTER.increment();
+        return tableRef;
     }
 
     protected MutationState newMutationState(int maxSize, int maxSizeBytes) {
@@ -298,6 +298,11 @@ public class PhoenixDatabaseMetaData implements DatabaseMetaData {
     public static final byte[] GUIDE_POSTS_WIDTH_BYTES = Bytes.toBytes(GUIDE_POSTS_WIDTH);
     public static final String GUIDE_POSTS_ROW_COUNT = "GUIDE_POSTS_ROW_COUNT";
     public static final byte[] GUIDE_POSTS_ROW_COUNT_BYTES = Bytes.toBytes(GUIDE_POSTS_ROW_COUNT);
+    // Min and max values of selected columns per guidepost, stored in SYSTEM.STATS outside of its SQL schema
+    public static final String GUIDE_POSTS_ZONE_MAP = "GUIDE_POSTS_ZONE_MAP";
+    public static final byte[] GUIDE_POSTS_ZONE_MAP_BYTES = Bytes.toBytes(GUIDE_POSTS_ZONE_MAP);
+    // Table property listing the non PK columns to collect zone maps for
+    public static final String ZONE_MAP_COLUMNS = "ZONE_MAP_COLUMNS";
     public static final String MIN_KEY = "MIN_KEY";
     public static final byte[] MIN_KEY_BYTES = Bytes.toBytes(MIN_KEY);
     public static final String MAX_KEY = "MAX_KEY";
@@ -883,6 +883,46 @@ public class PhoenixResultSet implements ResultSet, SQLCloseable {
         return currentRow != null;
     }
 
+    /**
+     * Reads up to {@link PhoenixColumnBatch#getCapacity()} rows into the columns of the given batch.
+     * Values are decoded straight from the projected bytes into the arrays backing the columns, so
+     * unlike the getters no object is created per value. The cursor is left on the last row read.
+     * @return the number of rows read, which is zero once the result set is exhausted
+     */
+    public int nextBatch(PhoenixColumnBatch batch) throws SQLException {
+        checkOpen();
+        batch.reset();
+        List<PhoenixColumnBatch.Column> columns = batch.getColumns();
+        int rows = 0;
+        try {
+            while (rows < batch.getCapacity() && next()) {
+                RowProjector projector = getRowProjector();
+                for (PhoenixColumnBatch.Column column : columns) {
+                    Expression expression = projector.getColumnProjector(column.getColumnIndex() - 1).getExpression();
+                    PDataType type = expression.getDataType();
+                    if (rows == 0) {
+                        column.checkType(type);
+                    }
+                    if (!expression.evaluate(currentRow, ptr) || ptr.getLength() == 0) {
+                        column.setNull(rows);
+                    } else {
+                        column.set(rows, ptr, type, expression.getSortOrder());
+                    }
+                }
+                rows++;
+            }
+        } catch (RuntimeException e) {
+            // FIXME: Expression.evaluate does not throw SQLException
+            // so this will unwrap throws from that.
+            if (e.getCause() instanceof SQLException) {
+                throw (SQLException) e.getCause();
+            }
+            throw e;
+        }
+        batch.setSize(rows);
+        return rows;
+    }
+
     @Override
     public boolean previous() throws SQLException {
         throw new SQLFeatureNotSupportedException();
@@ -87,9 +87,14 @@ import org.apache.phoenix.exception.SQLExceptionCode;
 import org.apache.phoenix.exception.SQLExceptionInfo;
 import org.apache.phoenix.exception.UpgradeRequiredException;
 import org.apache.phoenix.execute.MutationState;
+import org.apache.phoenix.execute.ScanPlan;
 import org.apache.phoenix.execute.visitor.QueryPlanVisitor;
+import org.apache.phoenix.expression.Expression;
 import org.apache.phoenix.expression.KeyValueColumnExpression;
 import org.apache.phoenix.expression.RowKeyColumnExpression;
+import org.apache.phoenix.iterate.ColumnarBatch;
+import org.apache.phoenix.iterate.ColumnarBatchIterator;
+import org.apache.phoenix.iterate.ColumnarBatchRegionScanner;
 import org.apache.phoenix.iterate.MaterializedResultIterator;
 import org.apache.phoenix.iterate.ParallelScanGrouper;
 import org.apache.phoenix.iterate.ResultIterator;
@@ -169,6 +174,7 @@ import org.apache.phoenix.schema.PColumnImpl;
 import org.apache.phoenix.schema.PDatum;
 import org.apache.phoenix.schema.PIndexState;
 import org.apache.phoenix.schema.PNameFactory;
+import org.apache.phoenix.schema.PTable;
 import org.apache.phoenix.schema.PTable.IndexType;
 import org.apache.phoenix.schema.PTableType;
 import org.apache.phoenix.schema.RowKeyValueAccessor;
@@ -190,6 +196,7 @@ import org.apache.phoenix.util.LogUtil;
 import org.apache.phoenix.util.PhoenixContextExecutor;
 import org.apache.phoenix.util.PhoenixRuntime;
 import org.apache.phoenix.util.QueryUtil;
+import org.apache.phoenix.util.ScanUtil;
 import org.apache.phoenix.util.SQLCloseable;
 import org.apache.phoenix.util.SQLCloseables;
 import org.apache.phoenix.util.ServerUtil;
@@ -287,10 +294,16 @@ public class PhoenixStatement implements Statement, SQLCloseable {
     
     protected PhoenixResultSet executeQuery(final CompilableStatement stmt, final QueryLogger queryLogger)
             throws SQLException {
-        return executeQuery(stmt, true, queryLogger);
+        return executeQuery(stmt, true, queryLogger, 0);
     }
+
+    /**
+     * @param columnarBatchSize when greater than zero, the rows are returned in columnar batches
+     *        of up to that many rows, one batch per tuple
+     */
     private PhoenixResultSet executeQuery(final CompilableStatement stmt,
-        final boolean doRetryOnMetaNotFoundError, final QueryLogger queryLogger) throws SQLException {
+        final boolean doRetryOnMetaNotFoundError, final QueryLogger queryLogger,
+        final int columnarBatchSize) throws SQLException {
         GLOBAL_SELECT_SQL_COUNTER.increment();
         
         try {
@@ -314,6 +327,9 @@ public class PhoenixStatement implements Statement, SQLCloseable {
                         Iterator<TableRef> tableRefs = plan.getSourceRefs().iterator();
                         connection.getMutationState().sendUncommitted(tableRefs);
                         plan = connection.getQueryServices().getOptimizer().optimize(PhoenixStatement.this, plan);
+                        if (columnarBatchSize > 0) {
+                            serializeColumnarScan(plan, columnarBatchSize);
+                        }
                          // this will create its own trace internally, so we don't wrap this
                          // whole thing in tracing
                         ResultIterator resultIterator = plan.iterator();
@@ -351,7 +367,7 @@ public class PhoenixStatement implements Statement, SQLCloseable {
                             if(new MetaDataClient(connection).updateCache(connection.getTenantId(),
                                 e.getSchemaName(), e.getTableName(), true).wasUpdated()){
                                 //TODO we can log retry count and error for debugging in LOG table
-                                return executeQuery(stmt, false, queryLogger);
+                                return executeQuery(stmt, false, queryLogger, columnarBatchSize);
                             }
                         }
                         throw e;
@@ -1831,6 +1847,49 @@ public class PhoenixStatement implements Statement, SQLCloseable {
         return connection.getQueryServices().getOptimizer().optimize(this, plan);
     }
 
+    /**
+     * Executes a query whose rows are encoded column by column on the region servers and returned
+     * in {@link ColumnarBatch} batches of up to batchSize rows, skipping the construction of a tuple
+     * per row. Only queries scanning a single table without ordering, limit, offset or sequences
+     * can be executed this way.
+     */
+    public ColumnarBatchIterator executeColumnarQuery(String sql, int batchSize) throws SQLException {
+        if (batchSize <= 0) {
+            throw new IllegalArgumentException("Batch size must be greater than zero");
+        }
+        if (LOGGER.isDebugEnabled()) {
+            LOGGER.debug(LogUtil.addCustomAnnotations(
+                    "Execute columnar query: " + sql, connection));
+        }
+        CompilableStatement stmt = parseStatement(sql);
+        if (stmt.getOperation().isMutation()) {
+            throw new ExecuteQueryNotApplicableException(sql);
+        }
+        PhoenixResultSet rs = executeQuery(stmt, true, createQueryLogger(stmt, sql), batchSize);
+        return new ColumnarBatchIterator(rs, getLastQueryPlan().getProjector());
+    }
+
+    private static void serializeColumnarScan(QueryPlan plan, int batchSize) throws SQLException {
+        StatementContext context = plan.getContext();
+        PTable table = context.getCurrentTable().getTable();
+        OrderBy orderBy = plan.getOrderBy();
+        // Batches can't be merge sorted by row key, which salted tables and local indexes need
+        // to return their rows in row key order
+        boolean isMergeSorted = (table.getBucketNum() != null || table.getIndexType() == IndexType.LOCAL)
+                && ScanUtil.shouldRowsBeInRowKeyOrder(orderBy, context);
+        if (!(plan instanceof ScanPlan) || !orderBy.getOrderByExpressions().isEmpty() || isMergeSorted
+                || plan.getLimit() != null || plan.getOffset() != null
+                || context.getSequenceManager().getSequenceCount() > 0) {
+            throw new SQLFeatureNotSupportedException("Query cannot be executed as a columnar scan");
+        }
+        RowProjector projector = plan.getProjector();
+        Expression[] expressions = new Expression[projector.getColumnCount()];
+        for (int i = 0; i < expressions.length; i++) {
+            expressions[i] = projector.getColumnProjector(i).getExpression();
+        }
+        ColumnarBatchRegionScanner.serializeIntoScan(context.getScan(), batchSize, expressions);
+    }
+
     public QueryPlan compileQuery(String sql) throws SQLException {
         CompilableStatement stmt = parseStatement(sql);
         return compileQuery(stmt, sql);
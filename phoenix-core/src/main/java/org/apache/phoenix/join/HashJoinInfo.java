@@ -169,6 +169,13 @@ public class HashJoinInfo {
 
     }
 
+    /**
+     * @return true if the given scan probes the hash join caches of the region servers
+     */
+    public static boolean isHashJoin(Scan scan) {
+        return scan.getAttribute(HASH_JOIN) != null;
+    }
+
     @SuppressWarnings("unchecked")
     public static HashJoinInfo deserializeHashJoinFromScan(Scan scan) {
         byte[] join = scan.getAttribute(HASH_JOIN);
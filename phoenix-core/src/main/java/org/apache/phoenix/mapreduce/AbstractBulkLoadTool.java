@@ -45,7 +45,10 @@ import org.apache.hadoop.hbase.client.RegionLocator;
 import org.apache.hadoop.hbase.client.Table;
 import org.apache.hadoop.hbase.io.ImmutableBytesWritable;
 import org.apache.hadoop.hbase.tool.LoadIncrementalHFiles;
+import org.apache.hadoop.mapred.LocalJobRunner;
 import org.apache.hadoop.mapreduce.Job;
+import org.apache.hadoop.mapreduce.MRConfig;
+import org.apache.hadoop.mapreduce.MRJobConfig;
 import org.apache.hadoop.mapreduce.lib.input.FileInputFormat;
 import org.apache.hadoop.mapreduce.lib.output.FileOutputFormat;
 import org.apache.hadoop.util.Tool;
@@ -67,6 +70,7 @@ import org.apache.phoenix.util.StringUtil;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Preconditions;
 import com.google.common.base.Splitter;
 import com.google.common.collect.Lists;
@@ -88,6 +92,13 @@ public abstract class AbstractBulkLoadTool extends Configured implements Tool {
     static final Option IGNORE_ERRORS_OPT = new Option("g", "ignore-errors", false, "Ignore input errors");
     static final Option HELP_OPT = new Option("h", "help", false, "Show this help and quit");
     static final Option SKIP_HEADER_OPT = new Option("k", "skip-header", false, "Skip the first line of CSV files (the header)");
+    static final Option LOCAL_OPT = new Option("l", "local", true, "Run the import in this process with the given number of parallel map and reduce threads instead of submitting it to the cluster (optional)");
+
+    /**
+     * Max share of the heap taken by the sort buffers of the concurrent map tasks of a local import,
+     * leaving the rest to the reducers and the HFile writers
+     */
+    private static final double LOCAL_SORT_BUFFERS_MAX_HEAP_FRACTION = 0.5;
 
     /**
      * Set configuration values based on parsed command line options.
@@ -112,6 +123,7 @@ public abstract class AbstractBulkLoadTool extends Configured implements Tool {
         options.addOption(IGNORE_ERRORS_OPT);
         options.addOption(HELP_OPT);
         options.addOption(SKIP_HEADER_OPT);
+        options.addOption(LOCAL_OPT);
         return options;
     }
 
@@ -153,9 +165,60 @@ public abstract class AbstractBulkLoadTool extends Configured implements Tool {
                     "parameter");
         }
 
+        if (cmdLine.hasOption(LOCAL_OPT.getOpt())) {
+            getLocalThreads(cmdLine);
+        }
+
         return cmdLine;
     }
 
+    private static int getLocalThreads(CommandLine cmdLine) {
+        String value = cmdLine.getOptionValue(LOCAL_OPT.getOpt());
+        try {
+            int threads = Integer.parseInt(value);
+            if (threads > 0) {
+                return threads;
+            }
+        } catch (NumberFormatException e) {
+        }
+        throw new IllegalStateException(LOCAL_OPT.getLongOpt() + " must be a positive number of " +
+                "threads, got " + value);
+    }
+
+    /**
+     * Runs the job with the in-process local job runner instead of submitting it to YARN. The
+     * input splits are mapped by {@code threads} concurrent tasks which encode, sort and spill
+     * to local disk within the configured sort buffer exactly as on a cluster, and the
+     * per-region reducers then write the HFiles with the same number of threads, so mid-sized loads
+     * can run on a single machine without a MapReduce cluster.
+     * <p>
+     * Every concurrent map task allocates its own sort buffer in this process, so the number of
+     * threads is capped to keep the sort buffers within half of the heap.
+     */
+    static void configureLocalJob(Configuration conf, int threads) {
+        configureLocalJob(conf, threads, Runtime.getRuntime().maxMemory());
+    }
+
+    @VisibleForTesting
+    static void configureLocalJob(Configuration conf, int threads, long maxHeapBytes) {
+        long sortBufferBytes = conf.getLong(MRJobConfig.IO_SORT_MB, MRJobConfig.DEFAULT_IO_SORT_MB) << 20;
+        if (sortBufferBytes > 0 && maxHeapBytes != Long.MAX_VALUE) {
+            int maxThreads = (int) Math.max(1, Math.min(Integer.MAX_VALUE,
+                    (long) (maxHeapBytes * LOCAL_SORT_BUFFERS_MAX_HEAP_FRACTION) / sortBufferBytes));
+            if (threads > maxThreads) {
+                LOGGER.warn("Reducing the threads of the local import from {} to {}, as {} sort "
+                        + "buffers of {} MB ({}) would not fit in a heap of {} MB", threads,
+                        maxThreads, threads, sortBufferBytes >> 20, MRJobConfig.IO_SORT_MB,
+                        maxHeapBytes >> 20);
+                threads = maxThreads;
+            }
+        }
+        LOGGER.info("Running the import locally with {} threads", threads);
+        conf.set(MRConfig.FRAMEWORK_NAME, MRConfig.LOCAL_FRAMEWORK_NAME);
+        conf.setInt(LocalJobRunner.LOCAL_MAX_MAPS, threads);
+        conf.setInt(LocalJobRunner.LOCAL_MAX_REDUCES, threads);
+    }
+
     private void printHelpAndExit(String errorMessage, Options options) {
         System.err.println(errorMessage);
         printHelpAndExit(options, 1);
@@ -236,6 +299,9 @@ public abstract class AbstractBulkLoadTool extends Configured implements Tool {
         if (cmdLine.hasOption(SKIP_HEADER_OPT.getOpt())) {
             PhoenixTextInputFormat.setSkipHeader(conf);
         }
+        if (cmdLine.hasOption(LOCAL_OPT.getOpt())) {
+            configureLocalJob(conf, getLocalThreads(cmdLine));
+        }
 
         final Connection conn = QueryUtil.getConnection(conf);
         if (LOGGER.isDebugEnabled()) {
@@ -321,6 +387,9 @@ public abstract class AbstractBulkLoadTool extends Configured implements Tool {
         job.setOutputKeyClass(TableRowkeyPair.class);
         job.setOutputValueClass(KeyValue.class);
         job.setReducerClass(FormatToKeyValueReducer.class);
+        if (conf.getBoolean(FormatToBytesWritableMapper.COMBINE_MAP_OUTPUT_CONFKEY, false)) {
+            job.setCombinerClass(FormatToBytesWritableCombiner.class);
+        }
         byte[][] splitKeysBeforeJob = null;
         try(org.apache.hadoop.hbase.client.Connection hbaseConn =
                 ConnectionFactory.createConnection(job.getConfiguration())) {
@@ -0,0 +1,117 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.phoenix.mapreduce;
+
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.Set;
+
+import org.apache.hadoop.hbase.io.ImmutableBytesWritable;
+import org.apache.hadoop.hbase.util.Bytes;
+import org.apache.hadoop.io.WritableUtils;
+import org.apache.hadoop.mapreduce.Reducer;
+import org.apache.phoenix.hbase.index.util.ImmutableBytesPtr;
+import org.apache.phoenix.mapreduce.bulkload.TableRowkeyPair;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.collect.Sets;
+
+/**
+ * Combiner for the bulkload jobs.
+ * <p/>
+ * Merges all the aggregated rows emitted by {@link FormatToBytesWritableMapper} for the same
+ * {@link TableRowkeyPair} in a map spill into a single value, so that the row key is shuffled and
+ * merged once per spill rather than once per input line. Cells with the same column, type and
+ * timestamp as an earlier cell of the row are dropped, as {@link FormatToKeyValueReducer} only
+ * keeps the first of them. The cell encoding is left untouched, so the reducer decodes combined
+ * values the same way as uncombined ones, and a row key with a single value is passed through
+ * as is.
+ * <p/>
+ * Only used when {@link FormatToBytesWritableMapper#COMBINE_MAP_OUTPUT_CONFKEY} is set.
+ */
+public class FormatToBytesWritableCombiner
+        extends Reducer<TableRowkeyPair, ImmutableBytesWritable, TableRowkeyPair, ImmutableBytesWritable> {
+
+    private final ImmutableBytesWritable combined = new ImmutableBytesWritable();
+    // Type, timestamp and column index of the cells of the row being combined, pointing into the
+    // buffers they were appended to, which are never written again during the row
+    private final Set<ImmutableBytesPtr> cellKeys = Sets.newHashSet();
+    private final ImmutableBytesPtr cellKey = new ImmutableBytesPtr();
+    private byte[] buffer = new byte[1024];
+
+    @Override
+    protected void reduce(TableRowkeyPair key, Iterable<ImmutableBytesWritable> values, Context context)
+            throws IOException, InterruptedException {
+        context.write(key, combine(values));
+    }
+
+    /**
+     * Concatenates the cells of the given aggregated rows, preserving their order and skipping
+     * the duplicates of earlier cells.
+     * @return the value itself if there is only one, otherwise a writable backed by a buffer that
+     * is reused on the next call
+     */
+    @VisibleForTesting
+    ImmutableBytesWritable combine(Iterable<ImmutableBytesWritable> values) {
+        Iterator<ImmutableBytesWritable> iterator = values.iterator();
+        ImmutableBytesWritable value = iterator.next();
+        if (!iterator.hasNext()) {
+            // Nothing to merge, the reducer skips the duplicate cells of the row itself
+            return value;
+        }
+        cellKeys.clear();
+        int length = appendCells(0, value);
+        while (iterator.hasNext()) {
+            length = appendCells(length, iterator.next());
+        }
+        combined.set(buffer, 0, length);
+        return combined;
+    }
+
+    private int appendCells(int length, ImmutableBytesWritable value) {
+        // See FormatToBytesWritableMapper.writeAggregatedRow for the encoding
+        byte[] bytes = value.get();
+        int offset = value.getOffset();
+        int end = offset + value.getLength();
+        while (offset < end) {
+            int cellOffset = offset;
+            offset++; // type
+            offset += WritableUtils.decodeVIntSize(bytes[offset]); // timestamp
+            offset += WritableUtils.decodeVIntSize(bytes[offset]); // column index
+            int keyLength = offset - cellOffset;
+            int valueLength = (int) Bytes.readAsVLong(bytes, offset);
+            offset += WritableUtils.decodeVIntSize(bytes[offset]) + valueLength;
+            cellKey.set(bytes, cellOffset, keyLength);
+            if (!cellKeys.contains(cellKey)) {
+                length = append(length, bytes, cellOffset, offset - cellOffset);
+                cellKeys.add(new ImmutableBytesPtr(buffer, length - (offset - cellOffset), keyLength));
+            }
+        }
+        return length;
+    }
+
+    private int append(int length, byte[] bytes, int offset, int count) {
+        if (length + count > buffer.length) {
+            byte[] newBuffer = new byte[Math.max(buffer.length * 2, length + count)];
+            System.arraycopy(buffer, 0, newBuffer, 0, length);
+            buffer = newBuffer;
+        }
+        System.arraycopy(bytes, offset, buffer, length, count);
+        return length + count;
+    }
+}
@@ -95,6 +95,12 @@ public abstract class FormatToBytesWritableMapper<RECORD> extends Mapper<LongWri
     /** Configuration key for the table logical names */
     public static final String LOGICAL_NAMES_CONFKEY = "phoenix.mapreduce.import.logicalnames";
 
+    /**
+     * Configuration key for the flag to combine rows with the same row key on the map side, off
+     * by default. Combining mostly pays off for inputs with many lines per row key.
+     */
+    public static final String COMBINE_MAP_OUTPUT_CONFKEY = "phoenix.mapreduce.import.combine";
+
     /**
      * Parses a single input line, returning a {@code T}.
      */
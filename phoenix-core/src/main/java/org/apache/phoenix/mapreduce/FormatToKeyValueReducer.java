@@ -17,16 +17,15 @@
  */
 package org.apache.phoenix.mapreduce;
 
-import java.io.ByteArrayInputStream;
-import java.io.DataInputStream;
 import java.io.IOException;
 import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Properties;
 import java.util.TreeMap;
-import java.util.TreeSet;
 
 import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.hbase.CellComparatorImpl;
@@ -45,7 +44,6 @@ import org.apache.phoenix.schema.PColumn;
 import org.apache.phoenix.schema.PColumnFamily;
 import org.apache.phoenix.schema.PTable;
 import org.apache.phoenix.schema.PTable.ImmutableStorageScheme;
-import org.apache.phoenix.util.Closeables;
 import org.apache.phoenix.util.EncodedColumnsUtil;
 import org.apache.phoenix.util.PhoenixRuntime;
 import org.apache.phoenix.util.QueryUtil;
@@ -66,6 +64,11 @@ public class FormatToKeyValueReducer
     protected List<String> logicalNames;
     protected KeyValueBuilder builder;
     private Map<Integer, Pair<byte[], byte[]>> columnIndexes;
+    // Column families and qualifiers by column index, to avoid boxing on every cell
+    private byte[][] families;
+    private byte[][] qualifiers;
+    // Cells of the current row, reused across rows
+    private final List<KeyValue> cells = new ArrayList<>();
 
 
     @Override
@@ -132,52 +135,76 @@ public class FormatToKeyValueReducer
             columnIndexes.put(new Integer(columnIndex), pair);
             columnIndex++;
         }
+        families = new byte[columnIndex][];
+        qualifiers = new byte[columnIndex][];
+        for (Map.Entry<Integer, Pair<byte[], byte[]>> entry : columnIndexes.entrySet()) {
+            families[entry.getKey()] = entry.getValue().getFirst();
+            qualifiers[entry.getKey()] = entry.getValue().getSecond();
+        }
     }
 
     @Override
     protected void reduce(TableRowkeyPair key, Iterable<ImmutableBytesWritable> values,
                           Reducer<TableRowkeyPair, ImmutableBytesWritable, TableRowkeyPair, KeyValue>.Context context)
             throws IOException, InterruptedException {
-        TreeSet<KeyValue> map = new TreeSet<KeyValue>(CellComparatorImpl.COMPARATOR);
+        ImmutableBytesWritable rowKey = key.getRowkey();
+        cells.clear();
         for (ImmutableBytesWritable aggregatedArray : values) {
-            DataInputStream input = new DataInputStream(new ByteArrayInputStream(aggregatedArray.get()));
-            while (input.available() != 0) {
-                byte type = input.readByte();
-                long timestamp = WritableUtils.readVLong(input);
-                int index = WritableUtils.readVInt(input);
-                ImmutableBytesWritable family;
-                ImmutableBytesWritable cq;
-                ImmutableBytesWritable value = QueryConstants.EMPTY_COLUMN_VALUE_BYTES_PTR;
-                Pair<byte[], byte[]> pair = columnIndexes.get(index);
-                family = new ImmutableBytesWritable(pair.getFirst());
-                cq = new ImmutableBytesWritable(pair.getSecond());
-                int len = WritableUtils.readVInt(input);
-                if (len > 0) {
-                    byte[] array = new byte[len];
-                    input.read(array);
-                    value = new ImmutableBytesWritable(array);
-                }
+            // Decode the aggregated row written by FormatToBytesWritableMapper.writeAggregatedRow
+            // in place, building each KeyValue directly from the serialized bytes
+            byte[] buffer = aggregatedArray.get();
+            int offset = aggregatedArray.getOffset();
+            int end = offset + aggregatedArray.getLength();
+            while (offset < end) {
+                byte type = buffer[offset++];
+                long timestamp = Bytes.readAsVLong(buffer, offset);
+                offset += WritableUtils.decodeVIntSize(buffer[offset]);
+                int index = (int) Bytes.readAsVLong(buffer, offset);
+                offset += WritableUtils.decodeVIntSize(buffer[offset]);
+                int len = (int) Bytes.readAsVLong(buffer, offset);
+                offset += WritableUtils.decodeVIntSize(buffer[offset]);
+                byte[] family = families[index];
+                byte[] cq = qualifiers[index];
                 KeyValue kv;
                 KeyValue.Type kvType = KeyValue.Type.codeToType(type);
                 switch (kvType) {
                     case Put: // not null value
-                        kv = builder.buildPut(key.getRowkey(), family, cq, timestamp, value);
+                        if (len > 0) {
+                            kv = new KeyValue(rowKey.get(), rowKey.getOffset(), rowKey.getLength(),
+                                    family, 0, family.length, cq, 0, cq.length, timestamp, kvType,
+                                    buffer, offset, len);
+                        } else {
+                            kv = new KeyValue(rowKey.get(), rowKey.getOffset(), rowKey.getLength(),
+                                    family, 0, family.length, cq, 0, cq.length, timestamp, kvType,
+                                    QueryConstants.EMPTY_COLUMN_VALUE_BYTES, 0,
+                                    QueryConstants.EMPTY_COLUMN_VALUE_BYTES.length);
+                        }
                         break;
                     case DeleteColumn: // null value
-                        kv = builder.buildDeleteColumns(key.getRowkey(), family, cq, timestamp);
+                        kv = new KeyValue(rowKey.get(), rowKey.getOffset(), rowKey.getLength(),
+                                family, 0, family.length, cq, 0, cq.length, timestamp, kvType,
+                                null, 0, 0);
                         break;
                     default:
                         throw new IOException("Unsupported KeyValue type " + kvType);
                 }
-                map.add(kv);
+                offset += len;
+                cells.add(kv);
             }
-            Closeables.closeQuietly(input);
         }
-        context.setStatus("Read " + map.getClass());
+        context.setStatus("Read " + cells.size() + " cells");
+        // The sort is stable, so skipping duplicates keeps the first cell seen for a key
+        Collections.sort(cells, CellComparatorImpl.COMPARATOR);
+        KeyValue previous = null;
         int index = 0;
-        for (KeyValue kv : map) {
+        for (KeyValue kv : cells) {
+            if (previous != null && CellComparatorImpl.COMPARATOR.compare(previous, kv) == 0) {
+                continue;
+            }
             context.write(key, kv);
+            previous = kv;
             if (++index % 100 == 0) context.setStatus("Wrote " + index);
         }
+        cells.clear();
     }
 }
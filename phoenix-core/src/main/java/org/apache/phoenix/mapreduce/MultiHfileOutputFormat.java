@@ -144,6 +144,11 @@ public class MultiHfileOutputFormat extends FileOutputFormat<TableRowkeyPair, Ce
             private byte [] previousRow = HConstants.EMPTY_BYTE_ARRAY;
             private final long now = EnvironmentEdgeManager.currentTimeMillis();
             private boolean rollRequested = false;
+            // Table and family of the previous cell, so that the writer key is only rebuilt
+            // when the cell belongs to a different family
+            private String previousTableName = null;
+            private byte [] previousFamily = null;
+            private byte [] previousTableAndFamily = null;
 
             @Override
             public void write(TableRowkeyPair row, V cell)
@@ -159,8 +164,14 @@ public class MultiHfileOutputFormat extends FileOutputFormat<TableRowkeyPair, Ce
                 String tableName = row.getTableName();
                 byte [] rowKey = row.getRowkey().get();
                 int length = (CellUtil.estimatedSerializedSizeOf(kv)) - Bytes.SIZEOF_INT;
-                byte [] family = CellUtil.cloneFamily(kv);
-                byte[] tableAndFamily = join(tableName, Bytes.toString(family));
+                if (previousFamily == null || !tableName.equals(previousTableName)
+                        || !CellUtil.matchingFamily(kv, previousFamily)) {
+                    previousTableName = tableName;
+                    previousFamily = CellUtil.cloneFamily(kv);
+                    previousTableAndFamily = join(tableName, Bytes.toString(previousFamily));
+                }
+                byte [] family = previousFamily;
+                byte[] tableAndFamily = previousTableAndFamily;
                 WriterLength wl = this.writers.get(tableAndFamily);
                 // phoenix-2216: end
 
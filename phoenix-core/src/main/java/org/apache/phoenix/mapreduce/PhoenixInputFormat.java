@@ -17,6 +17,8 @@
  */
 package org.apache.phoenix.mapreduce;
 
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Objects;
 import com.google.common.base.Preconditions;
 import com.google.common.collect.Lists;
 import org.apache.hadoop.conf.Configuration;
@@ -43,8 +45,14 @@ import org.apache.phoenix.mapreduce.util.PhoenixConfigurationUtil;
 import org.apache.phoenix.mapreduce.util.PhoenixConfigurationUtil.MRJobType;
 import org.apache.phoenix.query.HBaseFactoryProvider;
 import org.apache.phoenix.query.KeyRange;
+import org.apache.phoenix.schema.PTable;
+import org.apache.phoenix.schema.stats.GuidePostsInfo;
+import org.apache.phoenix.schema.stats.GuidePostsKey;
 import org.apache.phoenix.schema.stats.StatisticsUtil;
 import org.apache.phoenix.util.PhoenixRuntime;
+import org.apache.phoenix.util.PrefixByteCodec;
+import org.apache.phoenix.util.ScanUtil;
+import org.apache.phoenix.util.SchemaUtil;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -63,6 +71,7 @@ import java.util.Properties;
 public class PhoenixInputFormat<T extends DBWritable> extends InputFormat<NullWritable,T> {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(PhoenixInputFormat.class);
+    private static final int MAX_SCAN_DIVISIONS = 100;
        
     /**
      * instantiated by framework
@@ -87,7 +96,8 @@ public class PhoenixInputFormat<T extends DBWritable> extends InputFormat<NullWr
         return generateSplits(queryPlan, configuration);
     }
 
-    private List<InputSplit> generateSplits(final QueryPlan qplan, Configuration config) throws IOException {
+    private List<InputSplit> generateSplits(final QueryPlan qplan, Configuration config)
+            throws IOException, InterruptedException {
         // We must call this in order to initialize the scans and splits from the query plan
         setupParallelScansFromQueryPlan(qplan);
         final List<KeyRange> splits = qplan.getSplits();
@@ -102,6 +112,17 @@ public class PhoenixInputFormat<T extends DBWritable> extends InputFormat<NullWr
                 .getAdmin());
 
         final List<InputSplit> psplits = Lists.newArrayListWithExpectedSize(splits.size());
+        final long targetSplitBytes = PhoenixConfigurationUtil.getSplitTargetBytes(config);
+        final List<PhoenixInputSplit> scanSplits = Lists.newArrayList();
+        List<byte[]> guidePosts = Collections.emptyList();
+        long[] guidePostBytes = new long[0];
+        if (targetSplitBytes > 0) {
+            GuidePostsInfo gps = getGuidePosts(qplan);
+            if (!gps.isEmptyGuidePost()) {
+                guidePosts = PrefixByteCodec.decodeBytes(gps.getGuidePosts(), gps.getMaxLength());
+                guidePostBytes = gps.getByteCounts();
+            }
+        }
         for (List<Scan> scans : qplan.getScans()) {
             // Get the region location
             HRegionLocation location = regionLocator.getRegionLocation(
@@ -119,7 +140,14 @@ public class PhoenixInputFormat<T extends DBWritable> extends InputFormat<NullWr
             // Generate splits based off statistics, or just region splits?
             boolean splitByStats = PhoenixConfigurationUtil.getSplitByStats(config);
 
-            if(splitByStats) {
+            if (targetSplitBytes > 0) {
+                long[] scanSizes = getScanSizes(scans, guidePosts, guidePostBytes,
+                        regionSize > 0 ? regionSize : targetSplitBytes * scans.size());
+                for (int i = 0; i < scans.size(); i++) {
+                    scanSplits.add(new PhoenixInputSplit(Collections.singletonList(scans.get(i)),
+                            scanSizes[i], regionLocation));
+                }
+            } else if(splitByStats) {
                 for(Scan aScan: scans) {
                     if (LOGGER.isDebugEnabled()) {
                         LOGGER.debug("Split for  scan : " + aScan + "with scanAttribute : " + aScan
@@ -151,9 +179,128 @@ public class PhoenixInputFormat<T extends DBWritable> extends InputFormat<NullWr
                 psplits.add(new PhoenixInputSplit(scans, regionSize, regionLocation));
             }
         }
+        if (targetSplitBytes > 0) {
+            return balanceSplits(scanSplits, targetSplitBytes);
+        }
         return psplits;
     }
     }
+
+    private static GuidePostsInfo getGuidePosts(QueryPlan qplan) throws IOException {
+        PTable table = qplan.getTableRef().getTable();
+        GuidePostsKey key = new GuidePostsKey(table.getPhysicalName().getBytes(),
+                SchemaUtil.getEmptyColumnFamily(table));
+        try {
+            return qplan.getContext().getConnection().getQueryServices().getTableStats(key);
+        } catch (SQLException e) {
+            throw new IOException(e);
+        }
+    }
+
+    /**
+     * Sizes each scan of a region by the byte counts of the guideposts ending inside it. The
+     * scans without a guidepost, such as the last chunk of the region or every scan of a table
+     * without statistics, share what is left of the region size.
+     * @param scans the scans of one region, in key order
+     * @param guidePosts all guidepost keys of the table, in key order
+     * @param guidePostBytes the byte count of the chunk ending at each guidepost
+     */
+    @VisibleForTesting
+    static long[] getScanSizes(List<Scan> scans, List<byte[]> guidePosts, long[] guidePostBytes,
+            long regionSize) {
+        long[] scanSizes = new long[scans.size()];
+        long guidedBytes = 0;
+        int unguidedScans = 0;
+        for (int i = 0; i < scans.size(); i++) {
+            Scan scan = scans.get(i);
+            byte[] stopRow = scan.getStopRow();
+            // The chunk of a guidepost ends at the guidepost, so the scans built from the
+            // statistics stop at the guidepost of their chunk
+            int index = Collections.binarySearch(guidePosts, scan.getStartRow(), Bytes.BYTES_COMPARATOR);
+            index = index < 0 ? -(index + 1) : index + 1;
+            for (; index < guidePosts.size() && (stopRow.length == 0
+                    || Bytes.compareTo(guidePosts.get(index), stopRow) <= 0); index++) {
+                scanSizes[i] += guidePostBytes[index];
+            }
+            if (scanSizes[i] == 0) {
+                unguidedScans++;
+            }
+            guidedBytes += scanSizes[i];
+        }
+        if (unguidedScans > 0) {
+            long unguidedSize = Math.max(regionSize - guidedBytes, 0) / unguidedScans;
+            for (int i = 0; i < scanSizes.length; i++) {
+                if (scanSizes[i] == 0) {
+                    scanSizes[i] = unguidedSize;
+                }
+            }
+        }
+        return scanSizes;
+    }
+
+    /**
+     * Divides the scans larger than twice the target size by key range and merges consecutive
+     * scans served by the same region server, so that splits are about targetBytes in size and
+     * still read locally.
+     * @param scanSplits one split per scan, in scan order
+     */
+    @VisibleForTesting
+    static List<InputSplit> balanceSplits(List<PhoenixInputSplit> scanSplits, long targetBytes)
+            throws IOException, InterruptedException {
+        final List<InputSplit> psplits = Lists.newArrayList();
+        List<Scan> scans = Lists.newArrayList();
+        long splitSize = 0;
+        String splitLocation = null;
+        for (PhoenixInputSplit scanSplit : scanSplits) {
+            String[] locations = scanSplit.getLocations();
+            String location = locations.length == 0 ? null : locations[0];
+            List<Scan> dividedScans = divideScan(scanSplit.getScans().get(0), scanSplit.getLength(), targetBytes);
+            long scanSize = scanSplit.getLength() / dividedScans.size();
+            for (Scan scan : dividedScans) {
+                if (!scans.isEmpty() && (splitSize + scanSize > targetBytes
+                        || !Objects.equal(location, splitLocation))) {
+                    psplits.add(new PhoenixInputSplit(scans, splitSize, splitLocation));
+                    scans = Lists.newArrayList();
+                    splitSize = 0;
+                }
+                scans.add(scan);
+                splitSize += scanSize;
+                splitLocation = location;
+            }
+        }
+        if (!scans.isEmpty()) {
+            psplits.add(new PhoenixInputSplit(scans, splitSize, splitLocation));
+        }
+        return psplits;
+    }
+
+    private static List<Scan> divideScan(Scan scan, long scanSize, long targetBytes) throws IOException {
+        long count = scanSize / targetBytes;
+        // The stop row of the last region is unbounded, reverse and local index scans carry their
+        // own key handling, so those are never divided
+        if (count < 2 || scan.getStopRow().length == 0 || scan.isReversed() || ScanUtil.isLocalIndex(scan)) {
+            return Collections.singletonList(scan);
+        }
+        byte[][] keys;
+        try {
+            keys = Bytes.split(scan.getStartRow(), scan.getStopRow(), (int) Math.min(count, MAX_SCAN_DIVISIONS) - 1);
+        } catch (IllegalArgumentException e) {
+            keys = null;
+        }
+        if (keys == null) {
+            return Collections.singletonList(scan);
+        }
+        List<Scan> scans = Lists.newArrayListWithExpectedSize(keys.length - 1);
+        for (int i = 0; i < keys.length - 1; i++) {
+            Scan dividedScan = new Scan(scan);
+            dividedScan.withStartRow(keys[i]);
+            dividedScan.withStopRow(keys[i + 1]);
+            // A scan that is retried after a split restarts from its actual start row
+            dividedScan.setAttribute(BaseScannerRegionObserver.SCAN_ACTUAL_START_ROW, keys[i]);
+            scans.add(dividedScan);
+        }
+        return scans;
+    }
     
     /**
      * Returns the query plan associated with the select query.
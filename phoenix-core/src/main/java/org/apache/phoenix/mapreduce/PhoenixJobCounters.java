@@ -25,5 +25,11 @@ public enum PhoenixJobCounters {
 
     INPUT_RECORDS,
     FAILED_RECORDS,
-    OUTPUT_RECORDS;
+    OUTPUT_RECORDS,
+    // Bytes of the rows read ahead of the mapper
+    PREFETCHED_BYTES,
+    // Time spent reading the rows ahead of the mapper, for the scan throughput
+    PREFETCH_SCAN_MILLIS,
+    // Time the mapper waited for rows to be read
+    PREFETCH_WAIT_MILLIS;
 }
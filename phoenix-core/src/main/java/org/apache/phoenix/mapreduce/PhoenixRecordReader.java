@@ -26,6 +26,7 @@ import org.apache.hadoop.hbase.TableName;
 import org.apache.hadoop.hbase.client.Scan;
 import org.apache.hadoop.hbase.util.Bytes;
 import org.apache.hadoop.io.NullWritable;
+import org.apache.hadoop.mapreduce.Counter;
 import org.apache.hadoop.mapreduce.InputSplit;
 import org.apache.hadoop.mapreduce.RecordReader;
 import org.apache.hadoop.mapreduce.TaskAttemptContext;
@@ -38,6 +39,7 @@ import org.apache.phoenix.iterate.ConcatResultIterator;
 import org.apache.phoenix.iterate.LookAheadResultIterator;
 import org.apache.phoenix.iterate.ParallelScanGrouper;
 import org.apache.phoenix.iterate.PeekingResultIterator;
+import org.apache.phoenix.iterate.PrefetchingResultIterator;
 import org.apache.phoenix.iterate.ResultIterator;
 import org.apache.phoenix.iterate.RoundRobinResultIterator;
 import org.apache.phoenix.iterate.SequenceResultIterator;
@@ -69,6 +71,11 @@ public class PhoenixRecordReader<T extends DBWritable> extends RecordReader<Null
     private Class<T> inputClass;
     private ResultIterator resultIterator = null;
     private PhoenixResultSet resultSet;
+    private TaskAttemptContext context;
+    private PrefetchingResultIterator prefetchingIterator;
+    private long reportedPrefetchedBytes;
+    private long reportedScanTime;
+    private long reportedWaitTime;
 
     PhoenixRecordReader(Class<T> inputClass, final Configuration configuration,
             final QueryPlan queryPlan, final ParallelScanGrouper scanGrouper) {
@@ -83,6 +90,7 @@ public class PhoenixRecordReader<T extends DBWritable> extends RecordReader<Null
 
     @Override
     public void close() throws IOException {
+       updatePrefetchCounters();
        if(resultIterator != null) {
            try {
                resultIterator.close();
@@ -112,6 +120,7 @@ public class PhoenixRecordReader<T extends DBWritable> extends RecordReader<Null
     public void initialize(InputSplit split, TaskAttemptContext context) throws IOException, InterruptedException {
         final PhoenixInputSplit pSplit = (PhoenixInputSplit)split;
         final List<Scan> scans = pSplit.getScans();
+        this.context = context;
         try {
             LOGGER.info("Generating iterators for " + scans.size() + " scans in keyrange: "
                     + pSplit.getKeyRange());
@@ -152,7 +161,17 @@ public class PhoenixRecordReader<T extends DBWritable> extends RecordReader<Null
                 }
                 iterators.add(peekingResultIterator);
             }
-            ResultIterator iterator = queryPlan.useRoundRobinIterator() ? RoundRobinResultIterator.newIterator(iterators, queryPlan) : ConcatResultIterator.newIterator(iterators);
+            boolean unordered = PhoenixConfigurationUtil.getUnorderedScans(configuration)
+                    && queryPlan.getOrderBy().getOrderByExpressions().isEmpty();
+            ResultIterator iterator = queryPlan.useRoundRobinIterator() || unordered
+                    ? RoundRobinResultIterator.newIterator(iterators, queryPlan)
+                    : ConcatResultIterator.newIterator(iterators);
+            int prefetchRows = PhoenixConfigurationUtil.getPrefetchRows(configuration);
+            if (prefetchRows > 0) {
+                this.prefetchingIterator = new PrefetchingResultIterator(iterator, prefetchRows,
+                        queryPlan.getContext().getStatement().getQueryTimeoutInMillis());
+                iterator = prefetchingIterator;
+            }
             if(queryPlan.getContext().getSequenceManager().getSequenceCount() > 0) {
                 iterator = new SequenceResultIterator(iterator, queryPlan.getContext().getSequenceManager());
             }
@@ -179,6 +198,7 @@ public class PhoenixRecordReader<T extends DBWritable> extends RecordReader<Null
         Preconditions.checkNotNull(this.resultSet);
         try {
             if(!resultSet.next()) {
+                updatePrefetchCounters();
                 return false;
             }
             value.readFields(resultSet);
@@ -190,4 +210,26 @@ public class PhoenixRecordReader<T extends DBWritable> extends RecordReader<Null
         }
     }
 
+    private void updatePrefetchCounters() {
+        if (prefetchingIterator == null || context == null) {
+            return;
+        }
+        long prefetchedBytes = prefetchingIterator.getPrefetchedBytes();
+        long scanTime = prefetchingIterator.getScanTimeMillis();
+        long waitTime = prefetchingIterator.getWaitTimeMillis();
+        incrementCounter(PhoenixJobCounters.PREFETCHED_BYTES, prefetchedBytes - reportedPrefetchedBytes);
+        incrementCounter(PhoenixJobCounters.PREFETCH_SCAN_MILLIS, scanTime - reportedScanTime);
+        incrementCounter(PhoenixJobCounters.PREFETCH_WAIT_MILLIS, waitTime - reportedWaitTime);
+        reportedPrefetchedBytes = prefetchedBytes;
+        reportedScanTime = scanTime;
+        reportedWaitTime = waitTime;
+    }
+
+    private void incrementCounter(PhoenixJobCounters counter, long delta) {
+        Counter taskCounter = context.getCounter(counter);
+        if (taskCounter != null && delta > 0) {
+            taskCounter.increment(delta);
+        }
+    }
+
 }
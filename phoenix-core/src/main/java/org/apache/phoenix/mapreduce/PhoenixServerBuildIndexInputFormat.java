@@ -20,25 +20,30 @@ package org.apache.phoenix.mapreduce;
 import java.io.IOException;
 import java.sql.Connection;
 import java.sql.SQLException;
+import java.util.List;
 import java.util.Properties;
 
 import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.hbase.client.Scan;
 import org.apache.hadoop.hbase.util.Bytes;
 import org.apache.hadoop.mapreduce.InputFormat;
+import org.apache.hadoop.mapreduce.InputSplit;
 import org.apache.hadoop.mapreduce.JobContext;
 import org.apache.hadoop.mapreduce.lib.db.DBWritable;
 import org.apache.phoenix.compile.*;
 import org.apache.phoenix.coprocessor.BaseScannerRegionObserver;
 import org.apache.phoenix.jdbc.PhoenixConnection;
+import org.apache.phoenix.mapreduce.index.IndexVerificationResultRepository;
 import org.apache.phoenix.mapreduce.util.ConnectionUtil;
 import org.apache.phoenix.mapreduce.util.PhoenixConfigurationUtil;
+import org.apache.phoenix.query.ConnectionQueryServices;
 import org.apache.phoenix.schema.*;
 import org.apache.phoenix.util.*;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.google.common.base.Preconditions;
+import com.google.common.collect.Lists;
 
 import static org.apache.phoenix.mapreduce.util.PhoenixConfigurationUtil.getCurrentScnValue;
 import static org.apache.phoenix.mapreduce.util.PhoenixConfigurationUtil.getDisableLoggingVerifyType;
@@ -56,6 +61,7 @@ import static org.apache.phoenix.schema.types.PDataType.TRUE_BYTES;
  */
 public class PhoenixServerBuildIndexInputFormat<T extends DBWritable> extends PhoenixInputFormat {
     QueryPlan queryPlan = null;
+    private byte[] indexPhysicalName;
 
     private static final Logger LOGGER =
             LoggerFactory.getLogger(PhoenixServerBuildIndexInputFormat.class);
@@ -78,8 +84,7 @@ public class PhoenixServerBuildIndexInputFormat<T extends DBWritable> extends Ph
         final String tenantId = configuration.get(PhoenixConfigurationUtil.MAPREDUCE_TENANT_ID);
         final String lastVerifyTime = getIndexToolLastVerifyTime(configuration);
 
-        //until PHOENIX-5783 is fixed; we'll continue with startTime = 0
-        final String startTimeValue = null;
+        final String startTimeValue = getIndexToolStartTime(configuration);
         final Properties overridingProps = new Properties();
         if (txnScnValue==null && currentScnValue!=null) {
             overridingProps.put(PhoenixRuntime.CURRENT_SCN_ATTRIB, currentScnValue);
@@ -95,8 +100,13 @@ public class PhoenixServerBuildIndexInputFormat<T extends DBWritable> extends Ph
             Long scn = (currentScnValue != null) ? Long.valueOf(currentScnValue) : EnvironmentEdgeManager.currentTimeMillis();
             setCurrentScnValue(configuration, scn);
 
-            Long startTime = (startTimeValue == null) ? 0L : Long.valueOf(startTimeValue);
             PTable indexTable = PhoenixRuntime.getTableNoCache(phoenixConnection, indexTableFullName);
+            indexPhysicalName = indexTable.getPhysicalName().getBytes();
+            // With a start time, only the data rows changed since then are scanned. Global index
+            // rebuilds read the full history of these rows on the server side, but local index
+            // builds would only see the changed cells, so they still scan the whole table
+            Long startTime = (startTimeValue == null || indexTable.getIndexType() == PTable.IndexType.LOCAL)
+                    ? 0L : Long.valueOf(startTimeValue);
             ServerBuildIndexCompiler compiler =
                     new ServerBuildIndexCompiler(phoenixConnection, dataTableFullName);
             MutationPlan plan = compiler.compile(indexTable);
@@ -124,4 +134,60 @@ public class PhoenixServerBuildIndexInputFormat<T extends DBWritable> extends Ph
             throw new RuntimeException(exception);
         }
     }
+
+    @Override
+    public List<InputSplit> getSplits(JobContext context) throws IOException, InterruptedException {
+        List<InputSplit> splits = super.getSplits(context);
+        final Configuration configuration = context.getConfiguration();
+        final String lastVerifyTime = getIndexToolLastVerifyTime(configuration);
+        if (lastVerifyTime == null || splits.size() <= 1) {
+            return splits;
+        }
+        try {
+            return skipCompletedSplits(configuration, splits, Long.parseLong(lastVerifyTime),
+                    Long.parseLong(getCurrentScnValue(configuration)));
+        } catch (SQLException e) {
+            throw new IOException(e);
+        }
+    }
+
+    /**
+     * Leaves out the splits whose scans were all completed by the IndexTool run at lastVerifyTime,
+     * so that a restarted IndexTool does not schedule mappers just to skip them on the server. The
+     * results of the completed scans are logged again as skipped by the current run. At least one
+     * split is kept so that the job still runs its reducer, which makes the index active.
+     */
+    private List<InputSplit> skipCompletedSplits(Configuration configuration,
+            List<InputSplit> splits, long lastVerifyTime, long ts) throws SQLException, IOException {
+        final byte[] dataPhysicalName =
+                queryPlan.getTableRef().getTable().getPhysicalName().getBytes();
+        final List<InputSplit> remainingSplits = Lists.newArrayListWithExpectedSize(splits.size());
+        try (Connection connection = ConnectionUtil.getInputConnection(configuration);
+                IndexVerificationResultRepository resultRepository =
+                        new IndexVerificationResultRepository(connection, indexPhysicalName)) {
+            ConnectionQueryServices services =
+                    connection.unwrap(PhoenixConnection.class).getQueryServices();
+            for (InputSplit split : splits) {
+                boolean completed = true;
+                for (Scan scan : ((PhoenixInputSplit) split).getScans()) {
+                    byte[] regionName = services.getTableRegionLocation(dataPhysicalName,
+                            scan.getStartRow()).getRegion().getRegionName();
+                    if (!resultRepository.copyCompletedResult(lastVerifyTime, ts, indexPhysicalName,
+                            regionName, scan.getStartRow(), scan.getStopRow())) {
+                        completed = false;
+                        break;
+                    }
+                }
+                if (!completed) {
+                    remainingSplits.add(split);
+                }
+            }
+        }
+        if (remainingSplits.isEmpty()) {
+            remainingSplits.add(splits.get(splits.size() - 1));
+        }
+        LOGGER.info(String.format("Skipping %d of %d splits completed by the IndexTool run at %d",
+                splits.size() - remainingSplits.size(), splits.size(), lastVerifyTime));
+        return remainingSplits;
+    }
 }
@@ -201,7 +201,7 @@ public class IndexTool extends Configured implements Tool {
     private String schemaName;
     private String dataTable;
     private String indexTable;
-    private boolean isPartialBuild, isForeground;
+    private boolean isPartialBuild, isForeground, incrementalVerify;
     private IndexVerifyType indexVerifyType = IndexVerifyType.NONE;
     private IndexDisableLoggingType disableLoggingType = IndexDisableLoggingType.NONE;
     private String qDataTable;
@@ -284,6 +284,11 @@ public class IndexTool extends Configured implements Tool {
     private static final Option RETRY_VERIFY_OPTION = new Option("rv", "retry-verify",
             true, "Max scan ts of the last rebuild/verify that needs to be retried incrementally");
 
+    private static final Option INCREMENTAL_VERIFY_OPTION = new Option("iv", "incremental-verify",
+            false, "Verify only the data rows changed since the last incremental verification of the "
+            + "index (or since start-time if given) and record end-time (by default the current time) "
+            + "as its last verification time once the verification succeeds");
+
     private static final Option DISABLE_LOGGING_OPTION = new Option("dl",
         "disable-logging", true
         , "Disable logging of failed verification rows for BEFORE, " +
@@ -299,6 +304,9 @@ public class IndexTool extends Configured implements Tool {
             + "applicable for local or non-transactional global indexes";
 
 
+    public static final String INCREMENTAL_VERIFY_NOT_APPLICABLE = "incremental verify feature is "
+            + "only applicable for non-transactional global indexes";
+
     public static final String RETRY_VERIFY_NOT_APPLICABLE = "retry verify feature accepts "
             + "non-zero ts set in the past and ts must be present in PHOENIX_INDEX_TOOL_RESULT table";
 
@@ -326,6 +334,7 @@ public class IndexTool extends Configured implements Tool {
         options.addOption(START_TIME_OPTION);
         options.addOption(END_TIME_OPTION);
         options.addOption(RETRY_VERIFY_OPTION);
+        options.addOption(INCREMENTAL_VERIFY_OPTION);
         options.addOption(DISABLE_LOGGING_OPTION);
         return options;
     }
@@ -381,6 +390,20 @@ public class IndexTool extends Configured implements Tool {
         if (splitIndex && cmdLine.hasOption(PARTIAL_REBUILD_OPTION.getOpt())) {
             throw new IllegalStateException("Cannot split index for a partial rebuild, as the index table is dropped");
         }
+        if (cmdLine.hasOption(INCREMENTAL_VERIFY_OPTION.getOpt())) {
+            if (!cmdLine.hasOption(VERIFY_OPTION.getOpt()) || IndexVerifyType.fromValue(
+                    cmdLine.getOptionValue(VERIFY_OPTION.getOpt())) == IndexVerifyType.NONE) {
+                throw new IllegalStateException(INCREMENTAL_VERIFY_OPTION.getLongOpt()
+                        + " requires " + VERIFY_OPTION.getLongOpt());
+            }
+            if (cmdLine.hasOption(PARTIAL_REBUILD_OPTION.getOpt())
+                    || cmdLine.hasOption(SNAPSHOT_OPTION.getOpt())
+                    || cmdLine.hasOption(RETRY_VERIFY_OPTION.getOpt())) {
+                throw new IllegalStateException(INCREMENTAL_VERIFY_OPTION.getLongOpt()
+                        + " is not compatible with " + PARTIAL_REBUILD_OPTION.getLongOpt() + ", "
+                        + SNAPSHOT_OPTION.getLongOpt() + " or " + RETRY_VERIFY_OPTION.getLongOpt());
+            }
+        }
         if (loggingDisabledMismatchesVerifyOption(cmdLine)){
             throw new IllegalStateException("Can't disable index verification logging when no " +
                 "index verification or the wrong kind of index verification has been requested. " +
@@ -446,6 +469,8 @@ public class IndexTool extends Configured implements Tool {
 
     public Long getLastVerifyTime() { return lastVerifyTime; }
 
+    public boolean isIncrementalVerify() { return incrementalVerify; }
+
     public IndexTool.IndexDisableLoggingType getDisableLoggingType() {
         return disableLoggingType;
     }
@@ -490,6 +515,7 @@ public class IndexTool extends Configured implements Tool {
                     if (lastVerifyTime != null) {
                         PhoenixConfigurationUtil.setIndexToolLastVerifyTime(configuration, lastVerifyTime);
                     }
+                    PhoenixConfigurationUtil.setIndexToolIncrementalVerify(configuration, incrementalVerify);
                     return configureJobForServerBuildIndex();
                 }
             }
@@ -778,6 +804,9 @@ public class IndexTool extends Configured implements Tool {
             createIndexToolTables(conn);
             if (dataTable != null && indexTable != null) {
                 setupIndexAndDataTable(conn);
+                if (incrementalVerify) {
+                    setIncrementalVerifyStartTime(conn);
+                }
                 checkIfFeatureApplicable(startTime, endTime, lastVerifyTime, pDataTable, isLocalIndexBuild);
                 if (shouldDeleteBeforeRebuild) {
                     deleteBeforeRebuild(conn);
@@ -808,6 +837,24 @@ public class IndexTool extends Configured implements Tool {
         }
     }
 
+    private void setIncrementalVerifyStartTime(Connection conn) throws Exception {
+        if (isLocalIndexBuild) {
+            throw new RuntimeException(INCREMENTAL_VERIFY_NOT_APPLICABLE);
+        }
+        if (startTime != null) {
+            return;
+        }
+        startTime = new IndexVerificationResultRepository().getLastVerifyTime(conn, tenantId, qIndexTable);
+        if (startTime == null) {
+            LOGGER.info("No previous verification found for " + qIndexTable
+                    + ", verifying all the rows up to " + endTime);
+        } else {
+            LOGGER.info("Verifying the rows of " + qIndexTable + " changed from " + startTime
+                    + " to " + endTime);
+            validateTimeRange();
+        }
+    }
+
     private boolean submitIndexToolJob(Connection conn, Configuration configuration)
             throws Exception {
         Path outputPath = null;
@@ -841,6 +888,7 @@ public class IndexTool extends Configured implements Tool {
         boolean retryVerify = cmdLine.hasOption(RETRY_VERIFY_OPTION.getOpt());
         boolean verify = cmdLine.hasOption(VERIFY_OPTION.getOpt());
         boolean disableLogging = cmdLine.hasOption(DISABLE_LOGGING_OPTION.getOpt());
+        incrementalVerify = cmdLine.hasOption(INCREMENTAL_VERIFY_OPTION.getOpt());
 
         if (useTenantId) {
             tenantId = cmdLine.getOptionValue(TENANT_ID_OPTION.getOpt());
@@ -850,6 +898,9 @@ public class IndexTool extends Configured implements Tool {
         }
         if (useEndTime) {
             endTime = new Long(cmdLine.getOptionValue(END_TIME_OPTION.getOpt()));
+        } else if (incrementalVerify) {
+            // The end time is recorded as the start time of the next incremental verification
+            endTime = EnvironmentEdgeManager.currentTimeMillis();
         }
         if(retryVerify) {
             lastVerifyTime = new Long(cmdLine.getOptionValue(RETRY_VERIFY_OPTION.getOpt()));
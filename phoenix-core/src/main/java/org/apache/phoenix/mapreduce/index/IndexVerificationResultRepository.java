@@ -18,6 +18,7 @@
 package org.apache.phoenix.mapreduce.index;
 
 import org.apache.hadoop.hbase.Cell;
+import org.apache.hadoop.hbase.CellUtil;
 import org.apache.hadoop.hbase.TableName;
 import org.apache.hadoop.hbase.client.Admin;
 import org.apache.hadoop.hbase.client.ColumnFamilyDescriptor;
@@ -86,6 +87,8 @@ public class IndexVerificationResultRepository implements AutoCloseable {
     public final static byte[] BEFORE_REBUILD_INVALID_INDEX_ROW_COUNT_COZ_EXTRA_CELLS_BYTES = Bytes.toBytes(BEFORE_REBUILD_INVALID_INDEX_ROW_COUNT_COZ_EXTRA_CELLS);
     public static String BEFORE_REBUILD_INVALID_INDEX_ROW_COUNT_COZ_MISSING_CELLS = "BeforeRebuildInvalidIndexRowCountCozMissingCells";
     public final static byte[] BEFORE_REBUILD_INVALID_INDEX_ROW_COUNT_COZ_MISSING_CELLS_BYTES = Bytes.toBytes(BEFORE_REBUILD_INVALID_INDEX_ROW_COUNT_COZ_MISSING_CELLS);
+    public static String LAST_VERIFY_TIME = "LastVerifyTime";
+    public final static byte[] LAST_VERIFY_TIME_BYTES = Bytes.toBytes(LAST_VERIFY_TIME);
 
     /***
      * Only usable for read methods
@@ -204,6 +207,39 @@ public class IndexVerificationResultRepository implements AutoCloseable {
         return getVerificationResult(hTable, ts);
     }
 
+    private static byte[] generateLastVerifyTimeRowKey(String tenantId, String indexFullName) {
+        // The row key for the last verify time of an index : LastVerifyTime | tenant id | index full name
+        // The logical index name is used as view indexes share the same physical table
+        return Bytes.toBytes(LAST_VERIFY_TIME + ROW_KEY_SEPARATOR + (tenantId == null ? "" : tenantId)
+                + ROW_KEY_SEPARATOR + indexFullName);
+    }
+
+    /**
+     * Records ts as the max scan ts of the last successful verification of the given index, which
+     * is where the next incremental verification of the index starts from
+     */
+    public void setLastVerifyTime(Connection conn, String tenantId, String indexFullName, long ts)
+            throws IOException, SQLException {
+        try (Table hTable = getTable(conn, RESULT_TABLE_NAME_BYTES)) {
+            Put put = new Put(generateLastVerifyTimeRowKey(tenantId, indexFullName));
+            put.addColumn(RESULT_TABLE_COLUMN_FAMILY, LAST_VERIFY_TIME_BYTES, Bytes.toBytes(ts));
+            hTable.put(put);
+        }
+    }
+
+    /**
+     * @return the max scan ts of the last successful verification of the given index, or null if
+     * the index has not been verified within the TTL of the result table
+     */
+    public Long getLastVerifyTime(Connection conn, String tenantId, String indexFullName)
+            throws IOException, SQLException {
+        try (Table hTable = getTable(conn, RESULT_TABLE_NAME_BYTES)) {
+            Result result = hTable.get(new Get(generateLastVerifyTimeRowKey(tenantId, indexFullName)));
+            byte[] value = result.getValue(RESULT_TABLE_COLUMN_FAMILY, LAST_VERIFY_TIME_BYTES);
+            return value == null ? null : Bytes.toLong(value);
+        }
+    }
+
     public Table getTable(Connection conn, byte[] tableName) throws SQLException {
         return conn.unwrap(PhoenixConnection.class).getQueryServices()
                 .getTable(tableName);
@@ -267,6 +303,28 @@ public class IndexVerificationResultRepository implements AutoCloseable {
         this.indexHTable = indexTable;
     }
 
+    /**
+     * Checks whether the given range of a data table region was completed by the IndexTool run at
+     * lastVerifyTime and if so, logs its result again as skipped by the run at ts. This lets a
+     * restarted IndexTool leave out the completed ranges without losing their results.
+     * @return true if the range was completed by the earlier run
+     */
+    public boolean copyCompletedResult(long lastVerifyTime, long ts, byte[] indexTableName,
+            byte[] regionName, byte[] startRow, byte[] stopRow) throws IOException {
+        Result result = resultHTable.get(new Get(generateResultTableRowKey(lastVerifyTime,
+                indexTableName, regionName, startRow, stopRow)));
+        if (result.isEmpty()) {
+            return false;
+        }
+        Put put = new Put(generateResultTableRowKey(ts, indexTableName, regionName, startRow, stopRow));
+        for (Cell cell : result.rawCells()) {
+            put.addColumn(RESULT_TABLE_COLUMN_FAMILY, CellUtil.cloneQualifier(cell), CellUtil.cloneValue(cell));
+        }
+        put.addColumn(RESULT_TABLE_COLUMN_FAMILY, INDEX_TOOL_RUN_STATUS_BYTES, Bytes.toBytes(RUN_STATUS_SKIPPED));
+        resultHTable.put(put);
+        return true;
+    }
+
     public IndexToolVerificationResult getVerificationResult(Long ts, Scan scan, Region region, byte[] indexTableName) throws IOException {
         byte [] rowKey = generateResultTableRowKey(ts,
                 indexTableName, region.getRegionInfo().getRegionName(),
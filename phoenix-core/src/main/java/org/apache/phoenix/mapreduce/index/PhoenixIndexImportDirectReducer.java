@@ -132,6 +132,19 @@ public class PhoenixIndexImportDirectReducer extends
                 throw new RuntimeException(e.getMessage());
             }
         }
+        if (PhoenixConfigurationUtil.getIndexToolIncrementalVerify(context.getConfiguration())) {
+            updateLastVerifyTime(context.getConfiguration());
+        }
+    }
+
+    private void updateLastVerifyTime(Configuration configuration) throws IOException {
+        try (final Connection connection = ConnectionUtil.getInputConnection(configuration)) {
+            long ts = Long.valueOf(configuration.get(PhoenixConfigurationUtil.CURRENT_SCN_VALUE));
+            resultRepository.setLastVerifyTime(connection, configuration.get(MAPREDUCE_TENANT_ID, null),
+                    PhoenixConfigurationUtil.getIndexToolIndexTableName(configuration), ts);
+        } catch (SQLException e) {
+            throw new IOException("Fail to update the last verify time", e);
+        }
     }
 
     @Override
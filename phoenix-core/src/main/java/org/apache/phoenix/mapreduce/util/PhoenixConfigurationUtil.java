@@ -161,6 +161,21 @@ public final class PhoenixConfigurationUtil {
 
     public static final boolean DEFAULT_SPLIT_BY_STATS = true;
 
+    // Target size of the input splits, 0 to create one split per region or per guidepost
+    public static final String MAPREDUCE_SPLIT_TARGET_BYTES = "phoenix.mapreduce.split.target.bytes";
+
+    public static final long DEFAULT_SPLIT_TARGET_BYTES = 0;
+
+    // Number of rows read ahead of the mapper on a background thread, 0 to read them inline
+    public static final String MAPREDUCE_PREFETCH_ROWS = "phoenix.mapreduce.input.prefetch.rows";
+
+    public static final int DEFAULT_PREFETCH_ROWS = 0;
+
+    // Whether the scans of a split may be read concurrently, returning rows out of order
+    public static final String MAPREDUCE_UNORDERED_SCANS = "phoenix.mapreduce.input.unordered";
+
+    public static final boolean DEFAULT_UNORDERED_SCANS = false;
+
     public static final String SNAPSHOT_NAME_KEY = "phoenix.mapreduce.snapshot.name";
 
     public static final String RESTORE_DIR_KEY = "phoenix.tableSnapshot.restore.dir";
@@ -169,6 +184,7 @@ public final class PhoenixConfigurationUtil {
     private static final String INDEX_TOOL_END_TIME = "phoenix.mr.index.endtime";
     private static final String INDEX_TOOL_START_TIME = "phoenix.mr.index.starttime";
     private static final String INDEX_TOOL_LAST_VERIFY_TIME = "phoenix.mr.index.last.verify.time";
+    private static final String INDEX_TOOL_INCREMENTAL_VERIFY = "phoenix.mr.index.incremental.verify";
 
     public static final String MAPREDUCE_JOB_TYPE = "phoenix.mapreduce.jobtype";
 
@@ -318,6 +334,16 @@ public final class PhoenixConfigurationUtil {
         Preconditions.checkNotNull(configuration);
         return configuration.get(INDEX_TOOL_LAST_VERIFY_TIME);
     }
+
+    public static void setIndexToolIncrementalVerify(Configuration configuration, boolean incrementalVerify) {
+        Preconditions.checkNotNull(configuration);
+        configuration.setBoolean(INDEX_TOOL_INCREMENTAL_VERIFY, incrementalVerify);
+    }
+
+    public static boolean getIndexToolIncrementalVerify(Configuration configuration) {
+        Preconditions.checkNotNull(configuration);
+        return configuration.getBoolean(INDEX_TOOL_INCREMENTAL_VERIFY, false);
+    }
     
     public static List<String> getUpsertColumnNames(final Configuration configuration) {
         return getValues(configuration, MAPREDUCE_UPSERT_COLUMN_COUNT, MAPREDUCE_UPSERT_COLUMN_VALUE_PREFIX);
@@ -781,6 +807,36 @@ public final class PhoenixConfigurationUtil {
         return split;
     }
 
+    public static void setSplitTargetBytes(final Configuration configuration, long bytes) {
+        Preconditions.checkNotNull(configuration);
+        configuration.setLong(MAPREDUCE_SPLIT_TARGET_BYTES, bytes);
+    }
+
+    public static long getSplitTargetBytes(final Configuration configuration) {
+        Preconditions.checkNotNull(configuration);
+        return configuration.getLong(MAPREDUCE_SPLIT_TARGET_BYTES, DEFAULT_SPLIT_TARGET_BYTES);
+    }
+
+    public static void setPrefetchRows(final Configuration configuration, int rows) {
+        Preconditions.checkNotNull(configuration);
+        configuration.setInt(MAPREDUCE_PREFETCH_ROWS, rows);
+    }
+
+    public static int getPrefetchRows(final Configuration configuration) {
+        Preconditions.checkNotNull(configuration);
+        return configuration.getInt(MAPREDUCE_PREFETCH_ROWS, DEFAULT_PREFETCH_ROWS);
+    }
+
+    public static void setUnorderedScans(final Configuration configuration, boolean value) {
+        Preconditions.checkNotNull(configuration);
+        configuration.setBoolean(MAPREDUCE_UNORDERED_SCANS, value);
+    }
+
+    public static boolean getUnorderedScans(final Configuration configuration) {
+        Preconditions.checkNotNull(configuration);
+        return configuration.getBoolean(MAPREDUCE_UNORDERED_SCANS, DEFAULT_UNORDERED_SCANS);
+    }
+
 	public static boolean getStatsForParallelizationProp(PhoenixConnection conn, PTable table) {
 	    Boolean useStats = table.useStatsForParallelization();
 	    if (useStats != null) {
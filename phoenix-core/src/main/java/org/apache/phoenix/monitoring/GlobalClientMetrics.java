@@ -17,6 +17,9 @@
  */
 package org.apache.phoenix.monitoring;
 
+import static org.apache.phoenix.monitoring.MetricType.CLIENT_METADATA_CACHE_EVICTION_COUNTER;
+import static org.apache.phoenix.monitoring.MetricType.CLIENT_METADATA_CACHE_HIT_COUNTER;
+import static org.apache.phoenix.monitoring.MetricType.CLIENT_METADATA_CACHE_MISS_COUNTER;
 import static org.apache.phoenix.monitoring.MetricType.HCONNECTIONS_COUNTER;
 import static org.apache.phoenix.monitoring.MetricType.MEMORY_CHUNK_BYTES;
 import static org.apache.phoenix.monitoring.MetricType.MEMORY_WAIT_TIME;
@@ -103,6 +106,9 @@ public enum GlobalClientMetrics {
     GLOBAL_HCONNECTIONS_COUNTER(HCONNECTIONS_COUNTER),
     GLOBAL_PHOENIX_CONNECTIONS_THROTTLED_COUNTER(PHOENIX_CONNECTIONS_THROTTLED_COUNTER),
     GLOBAL_PHOENIX_CONNECTIONS_ATTEMPTED_COUNTER(PHOENIX_CONNECTIONS_ATTEMPTED_COUNTER),
+    GLOBAL_CLIENT_METADATA_CACHE_HIT_COUNTER(CLIENT_METADATA_CACHE_HIT_COUNTER, true),
+    GLOBAL_CLIENT_METADATA_CACHE_MISS_COUNTER(CLIENT_METADATA_CACHE_MISS_COUNTER, true),
+    GLOBAL_CLIENT_METADATA_CACHE_EVICTION_COUNTER(CLIENT_METADATA_CACHE_EVICTION_COUNTER),
 
     GLOBAL_HBASE_COUNT_RPC_CALLS(COUNT_RPC_CALLS),
     GLOBAL_HBASE_COUNT_REMOTE_RPC_CALLS(COUNT_REMOTE_RPC_CALLS),
@@ -119,6 +125,8 @@ public enum GlobalClientMetrics {
     private static final Logger LOGGER = LoggerFactory.getLogger(GlobalClientMetrics.class);
     private static final boolean isGlobalMetricsEnabled = QueryServicesOptions.withDefaults().isGlobalMetricsEnabled();
     private MetricType metricType;
+    // whether the metric is updated on a hot path by many threads, e.g. on every metadata lookup
+    private final boolean isContended;
     private GlobalMetric metric;
 
     static {
@@ -132,8 +140,13 @@ public enum GlobalClientMetrics {
 
     private static void initPhoenixGlobalClientMetrics() {
         for (GlobalClientMetrics globalMetric : GlobalClientMetrics.values()) {
-            globalMetric.metric = isGlobalMetricsEnabled ?
-                    new GlobalMetricImpl(globalMetric.metricType) : new NoOpGlobalMetricImpl();
+            if (!isGlobalMetricsEnabled) {
+                globalMetric.metric = new NoOpGlobalMetricImpl();
+            } else if (globalMetric.isContended) {
+                globalMetric.metric = new GlobalCounterMetricImpl(globalMetric.metricType);
+            } else {
+                globalMetric.metric = new GlobalMetricImpl(globalMetric.metricType);
+            }
         }
     }
 
@@ -189,7 +202,12 @@ public enum GlobalClientMetrics {
     }
 
     private GlobalClientMetrics(MetricType metricType) {
+        this(metricType, false);
+    }
+
+    private GlobalClientMetrics(MetricType metricType, boolean isContended) {
         this.metricType = metricType;
+        this.isContended = isContended;
     }
 
     public void increment() {
@@ -0,0 +1,72 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license agreements. See the NOTICE
+ * file distributed with this work for additional information regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0 Unless required by
+ * applicable law or agreed to in writing, software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.apache.phoenix.monitoring;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Version of {@link GlobalMetricImpl} for counters updated by many threads on hot paths, which
+ * would contend on the single value of an {@link AtomicMetric}. Reads are not atomic with respect
+ * to concurrent updates.
+ */
+public class GlobalCounterMetricImpl implements GlobalMetric {
+
+    private final MetricType type;
+    private final LongAdder value = new LongAdder();
+    private final LongAdder numberOfSamples = new LongAdder();
+
+    public GlobalCounterMetricImpl(MetricType type) {
+        this.type = type;
+    }
+
+    @Override
+    public void reset() {
+        value.reset();
+        numberOfSamples.reset();
+    }
+
+    @Override
+    public long getNumberOfSamples() {
+        return numberOfSamples.sum();
+    }
+
+    @Override
+    public void change(long delta) {
+        value.add(delta);
+        numberOfSamples.increment();
+    }
+
+    @Override
+    public void increment() {
+        value.increment();
+        numberOfSamples.increment();
+    }
+
+    @Override
+    public void decrement() {
+        value.decrement();
+        numberOfSamples.increment();
+    }
+
+    @Override
+    public MetricType getMetricType() {
+        return type;
+    }
+
+    @Override
+    public long getValue() {
+        return value.sum();
+    }
+
+    @Override
+    public String getCurrentMetricState() {
+        return type.shortName() + ": " + value.sum() + ", Number of samples: " + numberOfSamples.sum();
+    }
+}
@@ -55,6 +55,9 @@ public enum MetricType {
     MEMORY_CHUNK_BYTES("mc", "Number of bytes allocated by the memory manager",LogLevel.DEBUG, PLong.INSTANCE),
     MEMORY_WAIT_TIME("mw", "Number of milliseconds threads needed to wait for memory to be allocated through memory manager",LogLevel.DEBUG, PLong.INSTANCE),
     CACHE_REFRESH_SPLITS_COUNTER("cr", "Number of times cache was refreshed because of splits",LogLevel.DEBUG, PLong.INSTANCE),
+    CLIENT_METADATA_CACHE_HIT_COUNTER("cmh", "Number of table lookups served by the client metadata cache",LogLevel.OFF, PLong.INSTANCE),
+    CLIENT_METADATA_CACHE_MISS_COUNTER("cmm", "Number of table lookups not found in the client metadata cache",LogLevel.OFF, PLong.INSTANCE),
+    CLIENT_METADATA_CACHE_EVICTION_COUNTER("cme", "Number of tables evicted from the client metadata cache",LogLevel.OFF, PLong.INSTANCE),
     WALL_CLOCK_TIME_MS("tq", "Wall clock time elapsed for the overall query execution",LogLevel.INFO, PLong.INSTANCE),
     RESULT_SET_TIME_MS("tn", "Wall clock time elapsed for reading all records using resultSet.next()",LogLevel.INFO, PLong.INSTANCE),
     OPEN_PHOENIX_CONNECTIONS_COUNTER("o", "Number of open phoenix connections",LogLevel.OFF, PLong.INSTANCE),
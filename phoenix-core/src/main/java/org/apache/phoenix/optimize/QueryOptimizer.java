@@ -38,6 +38,8 @@ import org.apache.phoenix.compile.SequenceManager;
 import org.apache.phoenix.compile.StatementContext;
 import org.apache.phoenix.compile.StatementNormalizer;
 import org.apache.phoenix.compile.SubqueryRewriter;
+import org.apache.phoenix.execute.HashJoinPlan;
+import org.apache.phoenix.execute.ScanPlan;
 import org.apache.phoenix.iterate.ParallelIteratorFactory;
 import org.apache.phoenix.jdbc.PhoenixConnection;
 import org.apache.phoenix.jdbc.PhoenixStatement;
@@ -75,10 +77,13 @@ import org.apache.phoenix.schema.TableRef;
 import org.apache.phoenix.schema.types.PDataType;
 import org.apache.phoenix.util.EnvironmentEdgeManager;
 import org.apache.phoenix.util.IndexUtil;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import com.google.common.collect.Lists;
 
 public class QueryOptimizer {
+    private static final Logger LOGGER = LoggerFactory.getLogger(QueryOptimizer.class);
     private static final ParseNodeFactory FACTORY = new ParseNodeFactory();
 
     private final QueryServices services;
@@ -125,6 +130,11 @@ public class QueryOptimizer {
     }
     
     private List<QueryPlan> getApplicablePlans(QueryPlan dataPlan, PhoenixStatement statement, List<? extends PDatum> targetColumns, ParallelIteratorFactory parallelIteratorFactory, boolean stopAtBestPlan) throws SQLException {
+        if (dataPlan.getStatement().getHint().hasHint(Hint.SNAPSHOT) && !isSnapshotScan(dataPlan)) {
+            // Only plain scans read the snapshot, aggregates and joins go to the region servers
+            LOGGER.warn("Ignoring the " + Hint.SNAPSHOT + " hint of " + dataPlan.getStatement()
+                    + " as only non-aggregate queries without joins can read a snapshot");
+        }
         if (!useIndexes) {
             return Collections.singletonList(dataPlan);
         }
@@ -150,6 +160,11 @@ public class QueryOptimizer {
                     continue;
                 TableRef tableRef = table.getTableRef();
                 SelectStatement stmt = table.getAsSubqueryForOptimization(tableRef.equals(dataPlan.getTableRef()));
+                // The tables probing the hash join caches are read through the region servers,
+                // so the snapshot hint must not keep them off their indexes
+                if (stmt.getHint().hasHint(Hint.SNAPSHOT) && !isSnapshotScan(dataPlan)) {
+                    stmt = FACTORY.select(stmt, HintNode.subtract(stmt.getHint(), new Hint[] {Hint.SNAPSHOT}));
+                }
                 // Replace non-correlated sub-queries in WHERE clause with dummy values
                 // so the filter conditions can be taken into account in optimization.
                 if (stmt.getWhere() != null && stmt.getWhere().hasSubquery()) {
@@ -198,6 +213,18 @@ public class QueryOptimizer {
         return Collections.singletonList(compiler.compile());
     }
 
+    /**
+     * @return true if the given plan reads the snapshot given by the {@link Hint#SNAPSHOT} hint
+     *         rather than scanning the table through the region servers
+     */
+    private static boolean isSnapshotScan(QueryPlan plan) {
+        // a hash join plan without join info only evaluates its sub-queries up front
+        while (plan instanceof HashJoinPlan && ((HashJoinPlan) plan).getJoinInfo() == null) {
+            plan = ((HashJoinPlan) plan).getDelegate();
+        }
+        return plan instanceof ScanPlan && ((ScanPlan) plan).getSnapshotName() != null;
+    }
+
     private List<QueryPlan> getApplicablePlansForSingleFlatQuery(QueryPlan dataPlan, PhoenixStatement statement, List<? extends PDatum> targetColumns, ParallelIteratorFactory parallelIteratorFactory, boolean stopAtBestPlan) throws SQLException {
         SelectStatement select = (SelectStatement)dataPlan.getStatement();
         // Exit early if we have a point lookup as we can't get better than that
@@ -206,7 +233,9 @@ public class QueryOptimizer {
         }
 
         List<PTable>indexes = Lists.newArrayList(dataPlan.getTableRef().getTable().getIndexes());
-        if (dataPlan.isApplicable() && (indexes.isEmpty() || dataPlan.isDegenerate() || dataPlan.getTableRef().hasDynamicCols() || select.getHint().hasHint(Hint.NO_INDEX))) {
+        // The snapshot is of the data table, so the indexes are of no use to a plan reading it
+        if (dataPlan.isApplicable() && (indexes.isEmpty() || dataPlan.isDegenerate() || dataPlan.getTableRef().hasDynamicCols() || select.getHint().hasHint(Hint.NO_INDEX)
+                || isSnapshotScan(dataPlan))) {
             return Collections.<QueryPlan> singletonList(dataPlan);
         }
         
@@ -333,6 +362,12 @@ public class QueryOptimizer {
         boolean isProjected = dataPlan.getContext().getResolver().getTables().get(0).getTable().getType() == PTableType.PROJECTED;
         // Check index state of now potentially updated index table to make sure it's active
         TableRef indexTableRef = resolver.getTables().get(0);
+        // A hinted global index joins the columns it does not cover back from the data table on
+        // the server instead of through a subquery on the data table, if enabled for the connection
+        boolean useUncoveredGlobalIndex = statement.getConnection().getQueryServices().getProps().getBoolean(
+                QueryServices.UNCOVERED_GLOBAL_INDEX_ENABLED_ATTRIB,
+                QueryServicesOptions.DEFAULT_UNCOVERED_GLOBAL_INDEX_ENABLED);
+        indexTableRef.setHinted(isHinted && useUncoveredGlobalIndex);
         Map<TableRef, QueryPlan> dataPlans = Collections.singletonMap(indexTableRef, dataPlan);
         PTable indexTable = indexTableRef.getTable();
         PIndexState indexState = indexTable.getIndexState();
@@ -118,6 +118,14 @@ public class HintNode {
          * Issue https://issues.apache.org/jira/browse/PHOENIX-4751.
          */
         HASH_AGGREGATE,
+        /**
+         * Hint of the form SNAPSHOT(<snapshot_name>) to run a non aggregate
+         * query over a table directly against an HBase snapshot of it, reading
+         * the region files from the client instead of through the region servers.
+         * The snapshot name may be surrounded by double quotes if it is case
+         * sensitive.
+         */
+        SNAPSHOT,
     };
 
     private final Map<Hint,String> hints;
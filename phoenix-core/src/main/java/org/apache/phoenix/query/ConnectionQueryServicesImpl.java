@@ -98,8 +98,10 @@ import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.ThreadLocalRandom;
@@ -276,8 +278,8 @@ import org.apache.phoenix.util.PropertiesUtil;
 import org.apache.phoenix.util.QueryUtil;
 import org.apache.phoenix.util.ReadOnlyProps;
 import org.apache.phoenix.util.SchemaUtil;
+import org.apache.phoenix.util.SequenceUtil;
 import org.apache.phoenix.util.ServerUtil;
-import org.apache.phoenix.util.TimeKeeper;
 import org.apache.phoenix.util.UpgradeUtil;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -293,6 +295,7 @@ import com.google.common.collect.Iterables;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
 import com.google.common.collect.Sets;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 
 public class ConnectionQueryServicesImpl extends DelegateQueryServices implements ConnectionQueryServices {
     private static final Logger LOGGER =
@@ -336,6 +339,11 @@ public class ConnectionQueryServicesImpl extends DelegateQueryServices implement
     private volatile SQLException initializationException;
     // setting this member variable guarded by "connectionCountLock"
     private volatile ConcurrentMap<SequenceKey,Sequence> sequenceMap = Maps.newConcurrentMap();
+    // null unless prefetching of sequence values is enabled
+    private final ExecutorService sequencePrefetchExecutor;
+    private final float sequencePrefetchThreshold;
+    private final long sequencePrefetchTargetIntervalMs;
+    private final long sequencePrefetchMaxCacheSize;
     private KeyValueBuilder kvBuilder;
 
     private final int renewLeaseTaskFrequency;
@@ -422,6 +430,18 @@ public class ConnectionQueryServicesImpl extends DelegateQueryServices implement
         String hbaseVersion = VersionInfo.getVersion();
         this.kvBuilder = KeyValueBuilder.get(hbaseVersion);
         this.returnSequenceValues = props.getBoolean(QueryServices.RETURN_SEQUENCE_VALUES_ATTRIB, QueryServicesOptions.DEFAULT_RETURN_SEQUENCE_VALUES);
+        if (props.getBoolean(QueryServices.SEQUENCE_PREFETCH_ENABLED_ATTRIB, QueryServicesOptions.DEFAULT_SEQUENCE_PREFETCH_ENABLED)) {
+            this.sequencePrefetchExecutor = Executors.newFixedThreadPool(
+                    props.getInt(QueryServices.SEQUENCE_PREFETCH_THREAD_POOL_SIZE_ATTRIB,
+                            QueryServicesOptions.DEFAULT_SEQUENCE_PREFETCH_THREAD_POOL_SIZE),
+                    new ThreadFactoryBuilder().setDaemon(true)
+                            .setNameFormat("PHOENIX-SEQUENCE-PREFETCH-thread-%d").build());
+        } else {
+            this.sequencePrefetchExecutor = null;
+        }
+        this.sequencePrefetchThreshold = props.getFloat(QueryServices.SEQUENCE_PREFETCH_THRESHOLD_ATTRIB, QueryServicesOptions.DEFAULT_SEQUENCE_PREFETCH_THRESHOLD);
+        this.sequencePrefetchTargetIntervalMs = props.getLong(QueryServices.SEQUENCE_PREFETCH_TARGET_INTERVAL_MS_ATTRIB, QueryServicesOptions.DEFAULT_SEQUENCE_PREFETCH_TARGET_INTERVAL_MS);
+        this.sequencePrefetchMaxCacheSize = props.getLong(QueryServices.SEQUENCE_PREFETCH_MAX_CACHE_SIZE_ATTRIB, QueryServicesOptions.DEFAULT_SEQUENCE_PREFETCH_MAX_CACHE_SIZE);
         this.renewLeaseEnabled = config.getBoolean(RENEW_LEASE_ENABLED, DEFAULT_RENEW_LEASE_ENABLED);
         this.renewLeasePoolSize = config.getInt(RENEW_LEASE_THREAD_POOL_SIZE, DEFAULT_RENEW_LEASE_THREAD_POOL_SIZE);
         this.renewLeaseThreshold = config.getInt(RENEW_LEASE_THRESHOLD_MILLISECONDS, DEFAULT_RENEW_LEASE_THRESHOLD_MILLISECONDS);
@@ -529,6 +549,10 @@ public class ConnectionQueryServicesImpl extends DelegateQueryServices implement
             }
             SQLException sqlE = null;
             try {
+                // Stop reserving new sequence values before returning the unused ones
+                if (sequencePrefetchExecutor != null) {
+                    sequencePrefetchExecutor.shutdownNow();
+                }
                 // Attempt to return any unused sequences.
                 if (connection != null) returnAllSequences(this.sequenceMap);
             } catch (SQLException e) {
@@ -648,11 +672,11 @@ public class ConnectionQueryServicesImpl extends DelegateQueryServices implement
                 throwConnectionClosedIfNullMetaData();
                 // If existing table isn't older than new table, don't replace
                 // If a client opens a connection at an earlier timestamp, this can happen
+                // The lookup marks the existing table as accessed
                 PTableRef existingTableRef = latestMetaData.getTableRef(new PTableKey(
                         table.getTenantId(), table.getName().getString()));
                 PTable existingTable = existingTableRef.getTable();
                 if (existingTable.getTimeStamp() > table.getTimeStamp()) {
-                    existingTableRef.setLastAccessTime(TimeKeeper.SYSTEM.getCurrentTime());
                     return;
                 }
             } catch (TableNotFoundException e) {}
@@ -4770,6 +4794,7 @@ public class ConnectionQueryServicesImpl extends DelegateQueryServices implement
                 }
             }
             if (toIncrementList.isEmpty()) {
+                prefetchSequenceValues(sequences, sequenceAllocations, timestamp, op);
                 return;
             }
             Table hTable = this.getTable(SchemaUtil.getPhysicalName(PhoenixDatabaseMetaData.SYSTEM_SEQUENCE_NAME_BYTES,this.getProps()).getName());
@@ -4808,6 +4833,7 @@ public class ConnectionQueryServicesImpl extends DelegateQueryServices implement
                     exceptions[indexes[i]] = e;
                 }
             }
+            prefetchSequenceValues(sequences, sequenceAllocations, timestamp, op);
         } finally {
             for (Sequence sequence : sequences) {
                 sequence.getLock().unlock();
@@ -4815,6 +4841,71 @@ public class ConnectionQueryServicesImpl extends DelegateQueryServices implement
         }
     }
 
+    /**
+     * Reserves the next block of values in the background for the sequences whose current block
+     * is mostly used up, so that NEXT VALUE FOR rarely has to wait on SYSTEM.SEQUENCE. Since the
+     * sequences are cached per ConnectionQueryServices, the prefetched blocks are shared by all
+     * connections to the cluster. Must be called while holding the locks of the sequences.
+     */
+    private void prefetchSequenceValues(List<Sequence> sequences, List<SequenceAllocation> sequenceAllocations,
+            long timestamp, Sequence.ValueOp op) {
+        if (sequencePrefetchExecutor == null || op != Sequence.ValueOp.INCREMENT_SEQUENCE) {
+            return;
+        }
+        for (int i = 0; i < sequences.size(); i++) {
+            Sequence sequence = sequences.get(i);
+            if (SequenceUtil.isBulkAllocation(sequenceAllocations.get(i).getNumAllocations())
+                    || !sequence.shouldPrefetch(timestamp, sequencePrefetchThreshold)) {
+                continue;
+            }
+            long numToAllocate = sequence.getPrefetchNumToAllocate(timestamp, sequencePrefetchMaxCacheSize,
+                    sequencePrefetchTargetIntervalMs);
+            Increment increment = sequence.newIncrement(timestamp, op, numToAllocate);
+            sequence.setPrefetchInProgress();
+            try {
+                sequencePrefetchExecutor.submit(new SequencePrefetchTask(sequence, increment, numToAllocate));
+            } catch (RejectedExecutionException e) {
+                sequence.setPrefetchedResult(null, numToAllocate);
+            }
+        }
+    }
+
+    private class SequencePrefetchTask implements Runnable {
+        private final Sequence sequence;
+        private final Increment increment;
+        private final long numToAllocate;
+
+        SequencePrefetchTask(Sequence sequence, Increment increment, long numToAllocate) {
+            this.sequence = sequence;
+            this.increment = increment;
+            this.numToAllocate = numToAllocate;
+        }
+
+        @Override
+        public void run() {
+            Result result = null;
+            try {
+                Table hTable = getTable(SchemaUtil.getPhysicalName(
+                        PhoenixDatabaseMetaData.SYSTEM_SEQUENCE_NAME_BYTES, getProps()).getName());
+                try {
+                    result = hTable.increment(increment);
+                } finally {
+                    hTable.close();
+                }
+            } catch (Exception e) {
+                // The values will be reserved synchronously once the current block runs out
+                LOGGER.warn("Unable to prefetch values for sequence " + sequence.getKey().getSchemaName()
+                        + "." + sequence.getKey().getSequenceName(), e);
+            }
+            sequence.getLock().lock();
+            try {
+                sequence.setPrefetchedResult(result, numToAllocate);
+            } finally {
+                sequence.getLock().unlock();
+            }
+        }
+    }
+
     @Override
     public void clearTableFromCache(final byte[] tenantId, final byte[] schemaName, final byte[] tableName,
             final long clientTS) throws SQLException {
@@ -177,6 +177,13 @@ public interface QueryServices extends SQLCloseable {
     public static final String INDEX_PRIOIRTY_ATTRIB = "phoenix.index.rpc.priority";
     public static final String METADATA_PRIOIRTY_ATTRIB = "phoenix.metadata.rpc.priority";
     public static final String ALLOW_LOCAL_INDEX_ATTRIB = "phoenix.index.allowLocalIndex";
+    // Number of local index rows whose data rows are looked up together when the index does not cover the query
+    public static final String LOCAL_INDEX_BACK_JOIN_BATCH_SIZE_ATTRIB = "phoenix.index.localIndexBackJoinBatchSize";
+    // Whether a hinted global index that does not cover the query joins back to the data table on the server.
+    // The index regions then read the data table from their RPC handlers, so it is off by default.
+    public static final String UNCOVERED_GLOBAL_INDEX_ENABLED_ATTRIB = "phoenix.index.uncoveredGlobalIndex.enabled";
+    // Number of global index rows whose data rows are fetched with one multi-get when the index does not cover the query
+    public static final String UNCOVERED_GLOBAL_INDEX_BATCH_SIZE_ATTRIB = "phoenix.index.uncoveredGlobalIndexBatchSize";
 
     // Retries when doing server side writes to SYSTEM.CATALOG
     public static final String METADATA_WRITE_RETRIES_NUMBER = "phoenix.metadata.rpc.retries.number";
@@ -241,6 +248,15 @@ public interface QueryServices extends SQLCloseable {
     public static final String COLLECT_REQUEST_LEVEL_METRICS = "phoenix.query.request.metrics.enabled";
     public static final String ALLOW_VIEWS_ADD_NEW_CF_BASE_TABLE = "phoenix.view.allowNewColumnFamily";
     public static final String RETURN_SEQUENCE_VALUES_ATTRIB = "phoenix.sequence.returnValues";
+    // Reserve the next block of sequence values in the background once this fraction of the
+    // current block has been handed out
+    public static final String SEQUENCE_PREFETCH_ENABLED_ATTRIB = "phoenix.sequence.prefetch.enabled";
+    public static final String SEQUENCE_PREFETCH_THRESHOLD_ATTRIB = "phoenix.sequence.prefetch.threshold";
+    public static final String SEQUENCE_PREFETCH_THREAD_POOL_SIZE_ATTRIB = "phoenix.sequence.prefetch.pool.size";
+    // Prefetched blocks are sized to last about this long at the observed NEXT VALUE FOR rate,
+    // bounded by the CACHE of the sequence and the max cache size below
+    public static final String SEQUENCE_PREFETCH_TARGET_INTERVAL_MS_ATTRIB = "phoenix.sequence.prefetch.targetIntervalMs";
+    public static final String SEQUENCE_PREFETCH_MAX_CACHE_SIZE_ATTRIB = "phoenix.sequence.prefetch.maxCacheSize";
     public static final String EXTRA_JDBC_ARGUMENTS_ATTRIB = "phoenix.jdbc.extra.arguments";
     
     public static final String MAX_VERSIONS_TRANSACTIONAL_ATTRIB = "phoenix.transactions.maxVersions";
@@ -286,9 +302,14 @@ public interface QueryServices extends SQLCloseable {
 
     public static final String STATS_COLLECTION_ENABLED = "phoenix.stats.collection.enabled";
     public static final String USE_STATS_FOR_PARALLELIZATION = "phoenix.use.stats.parallelization";
+    // whether to skip guidepost chunks whose zone maps rule out the WHERE clause
+    public static final String USE_STATS_FOR_ZONE_MAP_PRUNING = "phoenix.use.stats.zoneMap.pruning";
 
     // whether to enable server side RS -> RS calls for upsert select statements
     public static final String ENABLE_SERVER_UPSERT_SELECT ="phoenix.client.enable.server.upsert.select";
+    // whether server side upsert select statements may also run hash joins, each region of the
+    // joined table writing the joined rows to the target table
+    public static final String ENABLE_SERVER_UPSERT_SELECT_JOIN = "phoenix.client.enable.server.upsert.select.join";
 
     public static final String PROPERTY_POLICY_PROVIDER_ENABLED = "phoenix.property.policy.provider.enabled";
 
@@ -326,6 +347,28 @@ public interface QueryServices extends SQLCloseable {
     public static final String LONG_VIEW_INDEX_ENABLED_ATTRIB = "phoenix.index.longViewIndex.enabled";
     // The number of index rows to be rebuild in one RPC call
     public static final String INDEX_REBUILD_PAGE_SIZE_IN_ROWS = "phoenix.index.rebuild_page_size_in_rows";
+    // Whether index rebuilds shrink their batches as the region memstore fills up
+    public static final String INDEX_REBUILD_THROTTLE_ENABLED = "phoenix.index.rebuild.throttle.enabled";
+    // Fraction of the blocking memstore size above which index rebuilds start to throttle
+    public static final String INDEX_REBUILD_THROTTLE_MEMSTORE_LOW_WATERMARK = "phoenix.index.rebuild.throttle.memstore.low.watermark";
+    // Whether IndexTool verification first compares checksums of the index rows of each batch
+    public static final String INDEX_VERIFY_CHECKSUM_ENABLED = "phoenix.index.verify.checksum.enabled";
+    // Max number of data tables whose disabled indexes are partially rebuilt at the same time
+    public static final String INDEX_REBUILD_MAX_CONCURRENT = "phoenix.index.rebuild.max.concurrent";
+    // Cluster wide cap on the data table rows read by partial index rebuilds per second, 0 for no cap
+    public static final String INDEX_REBUILD_MAX_ROWS_PER_SEC = "phoenix.index.rebuild.max.rows.per.sec";
+    // Partial index rebuilds back off when a batch takes this many times longer per row than usual,
+    // 0 to never back off
+    public static final String INDEX_REBUILD_LATENCY_BACKOFF_FACTOR = "phoenix.index.rebuild.latency.backoff.factor";
+    // Min time between two writes of the progress of a partial index rebuild to SYSTEM.TASK, 0 to
+    // not track partial index rebuilds in SYSTEM.TASK. Only turn on once all region servers are
+    // upgraded, older ones fail to read the PARTIAL_INDEX_REBUILD entries of SYSTEM.TASK.
+    public static final String INDEX_REBUILD_PROGRESS_REPORT_INTERVAL_MS = "phoenix.index.rebuild.progress.report.interval.ms";
+    // Max number of batches a server side UPSERT SELECT or DELETE scan may have waiting to be
+    // written while it keeps scanning, 0 to write every batch before scanning further
+    public static final String SERVER_MUTATE_PIPELINE_MAX_PENDING_BATCHES = "phoenix.server.mutate.pipeline.max.pending.batches";
+    // Max number of threads per region server writing the batches of pipelined server side mutations
+    public static final String SERVER_MUTATE_PIPELINE_WRITER_THREADS = "phoenix.server.mutate.pipeline.writer.threads";
 
 
     // Before 4.15 when we created a view we included the parent table column metadata in the view
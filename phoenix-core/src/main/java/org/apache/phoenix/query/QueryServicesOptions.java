@@ -219,6 +219,9 @@ public class QueryServicesOptions {
     public static final int DEFAULT_INDEX_PRIORITY = 1000;
     public static final int DEFAULT_METADATA_PRIORITY = 2000;
     public static final boolean DEFAULT_ALLOW_LOCAL_INDEX = true;
+    public static final int DEFAULT_LOCAL_INDEX_BACK_JOIN_BATCH_SIZE = 100;
+    public static final boolean DEFAULT_UNCOVERED_GLOBAL_INDEX_ENABLED = false;
+    public static final int DEFAULT_UNCOVERED_GLOBAL_INDEX_BATCH_SIZE = 100;
     public static final int DEFAULT_INDEX_HANDLER_COUNT = 30;
     public static final int DEFAULT_METADATA_HANDLER_COUNT = 30;
     public static final int DEFAULT_SYSTEM_MAX_VERSIONS = 1;
@@ -294,6 +297,11 @@ public class QueryServicesOptions {
     public static final int DEFAULT_MAX_VERSIONS_TRANSACTIONAL = Integer.MAX_VALUE;
 
     public static final boolean DEFAULT_RETURN_SEQUENCE_VALUES = false;
+    public static final boolean DEFAULT_SEQUENCE_PREFETCH_ENABLED = false;
+    public static final float DEFAULT_SEQUENCE_PREFETCH_THRESHOLD = 0.8f;
+    public static final int DEFAULT_SEQUENCE_PREFETCH_THREAD_POOL_SIZE = 2;
+    public static final long DEFAULT_SEQUENCE_PREFETCH_TARGET_INTERVAL_MS = 1000;
+    public static final long DEFAULT_SEQUENCE_PREFETCH_MAX_CACHE_SIZE = 100000;
     public static final String DEFAULT_EXTRA_JDBC_ARGUMENTS = "";
 
     public static final long DEFAULT_INDEX_POPULATION_SLEEP_TIME = 5000;
@@ -321,6 +329,7 @@ public class QueryServicesOptions {
     public static final int DEFAULT_CLIENT_CONNECTION_MAX_ALLOWED_CONNECTIONS = 0;
     public static final boolean DEFAULT_STATS_COLLECTION_ENABLED = true;
     public static final boolean DEFAULT_USE_STATS_FOR_PARALLELIZATION = true;
+    public static final boolean DEFAULT_USE_STATS_FOR_ZONE_MAP_PRUNING = false;
     
     //Security defaults
     public static final boolean DEFAULT_PHOENIX_ACLS_ENABLED = false;
@@ -337,6 +346,19 @@ public class QueryServicesOptions {
     public static final long DEFAULT_GLOBAL_INDEX_ROW_AGE_THRESHOLD_TO_DELETE_MS = 7*24*60*60*1000; /* 7 days */
     public static final boolean DEFAULT_INDEX_REGION_OBSERVER_ENABLED = true;
     public static final long DEFAULT_INDEX_REBUILD_PAGE_SIZE_IN_ROWS = 32*1024;
+    public static final boolean DEFAULT_INDEX_REBUILD_THROTTLE_ENABLED = false;
+    public static final float DEFAULT_INDEX_REBUILD_THROTTLE_MEMSTORE_LOW_WATERMARK = 0.5f;
+    public static final boolean DEFAULT_INDEX_VERIFY_CHECKSUM_ENABLED = false;
+    public static final int DEFAULT_INDEX_REBUILD_MAX_CONCURRENT = 1;
+    public static final long DEFAULT_INDEX_REBUILD_MAX_ROWS_PER_SEC = 0;
+    // Off, as the time per row of small batches is dominated by the fixed cost of a batch and
+    // reads as degraded, which would idle rebuilds whose data table writes may be blocked
+    public static final float DEFAULT_INDEX_REBUILD_LATENCY_BACKOFF_FACTOR = 0;
+    // Off, as region servers older than the PARTIAL_INDEX_REBUILD task type can't read SYSTEM.TASK
+    // once it holds such entries
+    public static final long DEFAULT_INDEX_REBUILD_PROGRESS_REPORT_INTERVAL_MS = 0;
+    public static final int DEFAULT_SERVER_MUTATE_PIPELINE_MAX_PENDING_BATCHES = 0;
+    public static final int DEFAULT_SERVER_MUTATE_PIPELINE_WRITER_THREADS = 20;
 
     public static final boolean DEFAULT_ALLOW_SPLITTABLE_SYSTEM_CATALOG_ROLLBACK = false;
 
@@ -349,6 +371,8 @@ public class QueryServicesOptions {
                                                                                     // encoded
     // RS -> RS calls for upsert select statements are disabled by default
     public static final boolean DEFAULT_ENABLE_SERVER_UPSERT_SELECT = false;
+    // Server side upsert select statements do not run joins by default
+    public static final boolean DEFAULT_ENABLE_SERVER_UPSERT_SELECT_JOIN = false;
 
     // By default generally allow server trigger mutations
     public static final boolean DEFAULT_ENABLE_SERVER_SIDE_DELETE_MUTATIONS = true;
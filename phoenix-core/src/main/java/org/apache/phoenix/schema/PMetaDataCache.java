@@ -17,176 +17,110 @@
  */
 package org.apache.phoenix.schema;
 
+import java.util.Collections;
 import java.util.Comparator;
 import java.util.Iterator;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
+import org.apache.phoenix.monitoring.GlobalClientMetrics;
 import org.apache.phoenix.parse.PFunction;
 import org.apache.phoenix.parse.PSchema;
 import org.apache.phoenix.util.TimeKeeper;
 
-import com.google.common.collect.Maps;
 import com.google.common.collect.MinMaxPriorityQueue;
 import com.google.common.primitives.Longs;
 
+/**
+ * Cache of tables, functions and schemas kept as an immutable {@link Snapshot} of persistent
+ * maps. Readers use whichever snapshot is current without locking, cloning shares the current
+ * snapshot, and writers build the next snapshot through an {@link Editor} that copies only the
+ * paths to the entries it changes. Writers must be serialized by the caller.
+ */
 class PMetaDataCache implements Cloneable {
     private static final int MIN_REMOVAL_SIZE = 3;
-    private static final Comparator<PTableRef> COMPARATOR = new Comparator<PTableRef>() {
+    private static final Comparator<AccessedTableRef> COMPARATOR = new Comparator<AccessedTableRef>() {
         @Override
-        public int compare(PTableRef tableRef1, PTableRef tableRef2) {
-            return Longs.compare(tableRef1.getLastAccessTime(), tableRef2.getLastAccessTime());
+        public int compare(AccessedTableRef tableRef1, AccessedTableRef tableRef2) {
+            return Longs.compare(tableRef1.accessTime, tableRef2.accessTime);
         }
     };
-    private static final MinMaxPriorityQueue.Builder<PTableRef> BUILDER = MinMaxPriorityQueue.orderedBy(COMPARATOR);
-    
-    private long currentByteSize;
+    private static final MinMaxPriorityQueue.Builder<AccessedTableRef> BUILDER = MinMaxPriorityQueue.orderedBy(COMPARATOR);
+
     private final long maxByteSize;
-    private final int expectedCapacity;
     private final TimeKeeper timeKeeper;
-    private final PTableRefFactory tableRefFactory;
 
-    private final Map<PTableKey,PTableRef> tables;
-    final Map<PTableKey,PFunction> functions;
-    final Map<PTableKey,PSchema> schemas;
-    
-    private static Map<PTableKey,PTableRef> newMap(int expectedCapacity) {
-        // Use regular HashMap, as we cannot use a LinkedHashMap that orders by access time
-        // safely across multiple threads (as the underlying collection is not thread safe).
-        // Instead, we track access time and prune it based on the copy we've made.
-        return Maps.newHashMapWithExpectedSize(expectedCapacity);
-    }
+    private volatile Snapshot snapshot;
+    // The table refs may be shared with other caches, so the times at which the tables are read
+    // through this cache are kept here instead of in the refs. Reads through the cache this one
+    // was cloned from keep counting, but reads through this one don't change the eviction order
+    // of the other.
+    private final Map<PTableKey,Long> accessTimes = new ConcurrentHashMap<PTableKey,Long>();
+    private final Map<PTableKey,Long> inheritedAccessTimes;
 
-    private static Map<PTableKey,PFunction> newFunctionMap(int expectedCapacity) {
-        // Use regular HashMap, as we cannot use a LinkedHashMap that orders by access time
-        // safely across multiple threads (as the underlying collection is not thread safe).
-        // Instead, we track access time and prune it based on the copy we've made.
-        return Maps.newHashMapWithExpectedSize(expectedCapacity);
+    PMetaDataCache(PMetaDataCache toClone) {
+        this.timeKeeper = toClone.timeKeeper;
+        this.maxByteSize = toClone.maxByteSize;
+        this.snapshot = toClone.snapshot;
+        this.inheritedAccessTimes = toClone.accessTimes;
     }
 
-    private static Map<PTableKey,PSchema> newSchemaMap(int expectedCapacity) {
-        // Use regular HashMap, as we cannot use a LinkedHashMap that orders by access time
-        // safely across multiple threads (as the underlying collection is not thread safe).
-        // Instead, we track access time and prune it based on the copy we've made.
-        return Maps.newHashMapWithExpectedSize(expectedCapacity);
+    public PMetaDataCache(long maxByteSize, TimeKeeper timeKeeper) {
+        this.maxByteSize = maxByteSize;
+        this.timeKeeper = timeKeeper;
+        this.snapshot = Snapshot.EMPTY;
+        this.inheritedAccessTimes = Collections.emptyMap();
     }
 
-    private Map<PTableKey,PTableRef> cloneMap(Map<PTableKey,PTableRef> tables, int expectedCapacity) {
-        Map<PTableKey,PTableRef> newTables = newMap(Math.max(tables.size(),expectedCapacity));
-        // Copy value so that access time isn't changing anymore
-        for (PTableRef tableAccess : tables.values()) {
-            newTables.put(tableAccess.getTable().getKey(), tableRefFactory.makePTableRef(tableAccess));
+    public PTableRef get(PTableKey key) {
+        PTableRef tableAccess = snapshot.tables.get(key);
+        if (tableAccess == null) {
+            return null;
         }
-        return newTables;
+        accessTimes.put(key, timeKeeper.getCurrentTime());
+        return tableAccess;
     }
 
-    private static Map<PTableKey, PSchema> cloneSchemaMap(Map<PTableKey, PSchema> schemas, int expectedCapacity) {
-        Map<PTableKey, PSchema> newSchemas = newSchemaMap(Math.max(schemas.size(), expectedCapacity));
-        // Copy value so that access time isn't changing anymore
-        for (PSchema schema : schemas.values()) {
-            newSchemas.put(schema.getSchemaKey(), new PSchema(schema));
-        }
-        return newSchemas;
+    PFunction getFunction(PTableKey key) {
+        return snapshot.functions.get(key);
     }
 
-    private static Map<PTableKey,PFunction> cloneFunctionsMap(Map<PTableKey,PFunction> functions, int expectedCapacity) {
-        Map<PTableKey,PFunction> newFunctions = newFunctionMap(Math.max(functions.size(),expectedCapacity));
-        for (PFunction functionAccess : functions.values()) {
-            newFunctions.put(functionAccess.getKey(), new PFunction(functionAccess));
-        }
-        return newFunctions;
+    Iterable<PFunction> getFunctions() {
+        return snapshot.functions.values();
     }
 
-    PMetaDataCache(PMetaDataCache toClone) {
-        this.tableRefFactory = toClone.tableRefFactory;
-        this.timeKeeper = toClone.timeKeeper;
-        this.maxByteSize = toClone.maxByteSize;
-        this.currentByteSize = toClone.currentByteSize;
-        this.expectedCapacity = toClone.expectedCapacity;
-        this.tables = cloneMap(toClone.tables, expectedCapacity);
-        this.functions = cloneFunctionsMap(toClone.functions, expectedCapacity);
-        this.schemas = cloneSchemaMap(toClone.schemas, expectedCapacity);
-    }
-    
-    public PMetaDataCache(int initialCapacity, long maxByteSize, TimeKeeper timeKeeper, PTableRefFactory tableRefFactory) {
-        this.currentByteSize = 0;
-        this.maxByteSize = maxByteSize;
-        this.expectedCapacity = initialCapacity;
-        this.tables = newMap(this.expectedCapacity);
-        this.functions = newFunctionMap(this.expectedCapacity);
-        this.timeKeeper = timeKeeper;
-        this.schemas = newSchemaMap(this.expectedCapacity);
-        this.tableRefFactory = tableRefFactory;
+    PSchema getSchema(PTableKey key) {
+        return snapshot.schemas.get(key);
     }
-    
-    public PTableRef get(PTableKey key) {
-        PTableRef tableAccess = this.tables.get(key);
-        if (tableAccess == null) {
-            return null;
+
+    private long getLastAccessTime(PTableKey key, PTableRef tableRef) {
+        long accessTime = tableRef.getLastAccessTime();
+        Long inheritedAccessTime = inheritedAccessTimes.get(key);
+        if (inheritedAccessTime != null) {
+            accessTime = Math.max(accessTime, inheritedAccessTime);
         }
-        tableAccess.setLastAccessTime(timeKeeper.getCurrentTime());
-        return tableAccess;
+        Long ownAccessTime = accessTimes.get(key);
+        if (ownAccessTime != null) {
+            accessTime = Math.max(accessTime, ownAccessTime);
+        }
+        return accessTime;
     }
-    
+
     @Override
     public PMetaDataCache clone() {
         return new PMetaDataCache(this);
     }
-    
-    /**
-     * Used when the cache is growing past its max size to clone in a single pass.
-     * Removes least recently used tables to get size of cache below its max size by
-     * the overage amount.
-     */
-    public PMetaDataCache cloneMinusOverage(long overage) {
-        assert(overage > 0);
-        int nToRemove = Math.max(MIN_REMOVAL_SIZE, (int)Math.ceil((currentByteSize-maxByteSize) / ((double)currentByteSize / size())) + 1);
-        MinMaxPriorityQueue<PTableRef> toRemove = BUILDER.expectedSize(nToRemove).create();
-        PMetaDataCache newCache = new PMetaDataCache(this.size(), this.maxByteSize, this.timeKeeper, this.tableRefFactory);
-        
-        long toRemoveBytes = 0;
-        // Add to new cache, but track references to remove when done
-        // to bring cache at least overage amount below it's max size.
-        for (PTableRef tableRef : this.tables.values()) {
-            newCache.put(tableRef.getTable().getKey(), tableRefFactory.makePTableRef(tableRef));
-            toRemove.add(tableRef);
-            toRemoveBytes += tableRef.getEstimatedSize();
-            while (toRemoveBytes - toRemove.peekLast().getEstimatedSize() >= overage) {
-                PTableRef removedRef = toRemove.removeLast();
-                toRemoveBytes -= removedRef.getEstimatedSize();
-            }
-        }
-        for (PTableRef toRemoveRef : toRemove) {
-            newCache.remove(toRemoveRef.getTable().getKey());
-        }
-        return newCache;
-    }
 
-    PTable put(PTableKey key, PTableRef ref) {
-        currentByteSize += ref.getEstimatedSize();
-        PTableRef oldTableAccess = this.tables.put(key, ref);
-        PTable oldTable = null;
-        if (oldTableAccess != null) {
-            currentByteSize -= oldTableAccess.getEstimatedSize();
-            oldTable = oldTableAccess.getTable();
-        }
-        return oldTable;
+    Editor edit() {
+        return new Editor();
     }
 
     public long getAge(PTableRef ref) {
         return timeKeeper.getCurrentTime() - ref.getCreateTime();
     }
-    
-    public PTable remove(PTableKey key) {
-        PTableRef value = this.tables.remove(key);
-        if (value == null) {
-            return null;
-        }
-        currentByteSize -= value.getEstimatedSize();
-        return value.getTable();
-    }
-    
+
     public Iterator<PTable> iterator() {
-        final Iterator<PTableRef> iterator = this.tables.values().iterator();
+        final Iterator<PTableRef> iterator = snapshot.tables.values().iterator();
         return new Iterator<PTable>() {
 
             @Override
@@ -203,19 +137,152 @@ class PMetaDataCache implements Cloneable {
             public void remove() {
                 throw new UnsupportedOperationException();
             }
-            
+
         };
     }
 
     public int size() {
-        return this.tables.size();
+        return snapshot.tables.size();
     }
 
     public long getCurrentSize() {
-        return this.currentByteSize;
+        return snapshot.byteSize;
     }
 
     public long getMaxSize() {
         return this.maxByteSize;
     }
-}
\ No newline at end of file
+
+    /**
+     * Version of the cache contents. Never modified once published.
+     */
+    private static final class Snapshot {
+        static final Snapshot EMPTY = new Snapshot(PersistentHashMap.<PTableKey,PTableRef> empty(),
+                PersistentHashMap.<PTableKey,PFunction> empty(), PersistentHashMap.<PTableKey,PSchema> empty(), 0);
+
+        final PersistentHashMap<PTableKey,PTableRef> tables;
+        final PersistentHashMap<PTableKey,PFunction> functions;
+        final PersistentHashMap<PTableKey,PSchema> schemas;
+        final long byteSize;
+
+        Snapshot(PersistentHashMap<PTableKey,PTableRef> tables, PersistentHashMap<PTableKey,PFunction> functions,
+                PersistentHashMap<PTableKey,PSchema> schemas, long byteSize) {
+            this.tables = tables;
+            this.functions = functions;
+            this.schemas = schemas;
+            this.byteSize = byteSize;
+        }
+    }
+
+    private static final class AccessedTableRef {
+        final PTableRef tableRef;
+        final long accessTime;
+
+        AccessedTableRef(PTableRef tableRef, long accessTime) {
+            this.tableRef = tableRef;
+            this.accessTime = accessTime;
+        }
+    }
+
+    /**
+     * Builds the next snapshot of the cache from the current one. Readers don't see any of the
+     * changes until {@link #commit()} publishes them all at once. Not thread safe.
+     */
+    class Editor {
+        private PersistentHashMap<PTableKey,PTableRef> tables;
+        private PersistentHashMap<PTableKey,PFunction> functions;
+        private PersistentHashMap<PTableKey,PSchema> schemas;
+        private long byteSize;
+
+        private Editor() {
+            Snapshot current = snapshot;
+            this.tables = current.tables;
+            this.functions = current.functions;
+            this.schemas = current.schemas;
+            this.byteSize = current.byteSize;
+        }
+
+        /**
+         * Looks up a table without marking it as accessed
+         */
+        PTableRef get(PTableKey key) {
+            return tables.get(key);
+        }
+
+        long getCurrentSize() {
+            return byteSize;
+        }
+
+        PTable put(PTableKey key, PTableRef ref) {
+            byteSize += ref.getEstimatedSize();
+            PTableRef oldTableAccess = tables.get(key);
+            tables = tables.plus(key, ref);
+            PTable oldTable = null;
+            if (oldTableAccess != null) {
+                byteSize -= oldTableAccess.getEstimatedSize();
+                oldTable = oldTableAccess.getTable();
+            }
+            return oldTable;
+        }
+
+        PTable remove(PTableKey key) {
+            PTableRef value = tables.get(key);
+            if (value == null) {
+                return null;
+            }
+            tables = tables.minus(key);
+            byteSize -= value.getEstimatedSize();
+            accessTimes.remove(key);
+            return value.getTable();
+        }
+
+        void putFunction(PFunction function) {
+            functions = functions.plus(function.getKey(), function);
+        }
+
+        void removeFunction(PTableKey key) {
+            functions = functions.minus(key);
+        }
+
+        void putSchema(PSchema schema) {
+            schemas = schemas.plus(schema.getSchemaKey(), schema);
+        }
+
+        void removeSchema(PTableKey key) {
+            schemas = schemas.minus(key);
+        }
+
+        /**
+         * Used when the cache is growing past its max size. Removes least recently used tables
+         * to get size of cache below its max size by the overage amount.
+         */
+        void removeLeastRecentlyUsed(long overage) {
+            assert(overage > 0);
+            int nToRemove = Math.max(MIN_REMOVAL_SIZE, (int)Math.ceil((byteSize-maxByteSize) / ((double)byteSize / tables.size())) + 1);
+            MinMaxPriorityQueue<AccessedTableRef> toRemove = BUILDER.expectedSize(nToRemove).create();
+
+            long toRemoveBytes = 0;
+            // Track references to remove to bring cache at least overage amount below it's max size.
+            for (Map.Entry<PTableKey,PTableRef> entry : tables) {
+                PTableRef tableRef = entry.getValue();
+                toRemove.add(new AccessedTableRef(tableRef, getLastAccessTime(entry.getKey(), tableRef)));
+                toRemoveBytes += tableRef.getEstimatedSize();
+                while (toRemoveBytes - toRemove.peekLast().tableRef.getEstimatedSize() >= overage) {
+                    AccessedTableRef removedRef = toRemove.removeLast();
+                    toRemoveBytes -= removedRef.tableRef.getEstimatedSize();
+                }
+            }
+            for (AccessedTableRef toRemoveRef : toRemove) {
+                remove(toRemoveRef.tableRef.getTable().getKey());
+            }
+            GlobalClientMetrics.GLOBAL_CLIENT_METADATA_CACHE_EVICTION_COUNTER.update(toRemove.size());
+        }
+
+        /**
+         * Publishes the changes made through this editor to the readers of the cache
+         */
+        void commit() {
+            snapshot = new Snapshot(tables, functions, schemas, byteSize);
+        }
+    }
+}
@@ -23,6 +23,7 @@ import java.sql.SQLException;
 import java.util.Collections;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Set;
 
 import org.apache.hadoop.hbase.HConstants;
 import org.apache.phoenix.parse.PFunction;
@@ -33,14 +34,17 @@ import org.apache.phoenix.util.ReadOnlyProps;
 import org.apache.phoenix.util.TimeKeeper;
 
 import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
 
 /**
- * Client-side cache of MetaData, not thread safe. Internally uses a LinkedHashMap that evicts the
- * oldest entries when size grows beyond the maxSize specified at create time.
+ * Client-side cache of MetaData. Evicts the least recently used tables when size grows beyond the
+ * maxSize specified at create time. Reads may run concurrently with each other and with a write,
+ * as each mutation is published as a new snapshot of the cache, but writes must be serialized by
+ * the caller.
  */
 public class PMetaDataImpl implements PMetaData {
     
-    private PMetaDataCache metaData;
+    private final PMetaDataCache metaData;
     private final TimeKeeper timeKeeper;
     private final PTableRefFactory tableRefFactory;
     
@@ -49,10 +53,10 @@ public class PMetaDataImpl implements PMetaData {
     }
 
     public PMetaDataImpl(int initialCapacity, TimeKeeper timeKeeper, ReadOnlyProps props) {
-        this(new PMetaDataCache(initialCapacity, props.getLong(
+        this(new PMetaDataCache(props.getLong(
             QueryServices.MAX_CLIENT_METADATA_CACHE_SIZE_ATTRIB,
-            QueryServicesOptions.DEFAULT_MAX_CLIENT_METADATA_CACHE_SIZE), timeKeeper,
-                PTableRefFactory.getFactory(props)), timeKeeper, PTableRefFactory.getFactory(props));
+            QueryServicesOptions.DEFAULT_MAX_CLIENT_METADATA_CACHE_SIZE), timeKeeper),
+                timeKeeper, PTableRefFactory.getFactory(props));
     }
 
     private PMetaDataImpl(PMetaDataCache metaData, TimeKeeper timeKeeper, PTableRefFactory tableRefFactory) {
@@ -77,7 +81,7 @@ public class PMetaDataImpl implements PMetaData {
 
     @Override
     public PFunction getFunction(PTableKey key) throws FunctionNotFoundException {
-        PFunction function = metaData.functions.get(key);
+        PFunction function = metaData.getFunction(key);
         if (function == null) {
             throw new FunctionNotFoundException(key.getName());
         }
@@ -91,7 +95,9 @@ public class PMetaDataImpl implements PMetaData {
 
     @Override
     public void updateResolvedTimestamp(PTable table, long resolvedTimestamp) throws SQLException {
-    	metaData.put(table.getKey(), tableRefFactory.makePTableRef(table, this.timeKeeper.getCurrentTime(), resolvedTimestamp));
+        PMetaDataCache.Editor editor = metaData.edit();
+        editor.put(table.getKey(), tableRefFactory.makePTableRef(table, this.timeKeeper.getCurrentTime(), resolvedTimestamp));
+        editor.commit();
     }
 
     @Override
@@ -99,6 +105,9 @@ public class PMetaDataImpl implements PMetaData {
         PTableRef tableRef = tableRefFactory.makePTableRef(table, this.timeKeeper.getCurrentTime(), resolvedTime);
         int netGain = 0;
         PTableKey key = table.getKey();
+        PMetaDataCache.Editor editor = metaData.edit();
+        // Looked up through the cache to mark the table, and below its parent, as accessed, so
+        // that they're not evicted to make room for their own replacement
         PTableRef oldTableRef = metaData.get(key);
         if (oldTableRef != null) {
             netGain -= oldTableRef.getEstimatedSize();
@@ -135,38 +144,42 @@ public class PMetaDataImpl implements PMetaData {
         if (newParentTable == null) { // Don't count in gain if we found a parent table, as its accounted for in newParentTable
             netGain += tableRef.getEstimatedSize();
         }
-        long overage = metaData.getCurrentSize() + netGain - metaData.getMaxSize();
-        metaData = overage <= 0 ? metaData : metaData.cloneMinusOverage(overage);
+        long overage = editor.getCurrentSize() + netGain - metaData.getMaxSize();
+        if (overage > 0) {
+            editor.removeLeastRecentlyUsed(overage);
+        }
         
         if (newParentTable != null) { // Upsert new index table into parent data table list
-            metaData.put(newParentTable.getKey(), newParentTableRef);
-            metaData.put(table.getKey(), tableRef);
+            editor.put(newParentTable.getKey(), newParentTableRef);
+            editor.put(table.getKey(), tableRef);
         } else {
-            metaData.put(table.getKey(), tableRef);
+            editor.put(table.getKey(), tableRef);
         }
         for (PTable index : table.getIndexes()) {
-            metaData.put(index.getKey(), tableRefFactory.makePTableRef(index, this.timeKeeper.getCurrentTime(), resolvedTime));
+            editor.put(index.getKey(), tableRefFactory.makePTableRef(index, this.timeKeeper.getCurrentTime(), resolvedTime));
         }
+        editor.commit();
     }
 
     @Override
     public void removeTable(PName tenantId, String tableName, String parentTableName, long tableTimeStamp) throws SQLException {
         PTableRef parentTableRef = null;
         PTableKey key = new PTableKey(tenantId, tableName);
-        if (metaData.get(key) == null) {
+        PMetaDataCache.Editor editor = metaData.edit();
+        if (editor.get(key) == null) {
             if (parentTableName != null) {
-                parentTableRef = metaData.get(new PTableKey(tenantId, parentTableName));
+                parentTableRef = editor.get(new PTableKey(tenantId, parentTableName));
             }
             if (parentTableRef == null) {
                 return;
             }
         } else {
-            PTable table = metaData.remove(key);
+            PTable table = editor.remove(key);
             for (PTable index : table.getIndexes()) {
-                metaData.remove(index.getKey());
+                editor.remove(index.getKey());
             }
             if (table.getParentName() != null) {
-                parentTableRef = metaData.get(new PTableKey(tenantId, table.getParentName().getString()));
+                parentTableRef = editor.get(new PTableKey(tenantId, table.getParentName().getString()));
             }
         }
         // also remove its reference from parent table
@@ -187,22 +200,23 @@ public class PMetaDataImpl implements PMetaData {
                             parentTableBuilder.setTimeStamp(tableTimeStamp);
                         }
                         PTable parentTable = parentTableBuilder.build();
-                        metaData.put(parentTable.getKey(), tableRefFactory.makePTableRef(parentTable, this.timeKeeper.getCurrentTime(), parentTableRef.getResolvedTimeStamp()));
+                        editor.put(parentTable.getKey(), tableRefFactory.makePTableRef(parentTable, this.timeKeeper.getCurrentTime(), parentTableRef.getResolvedTimeStamp()));
                         break;
                     }
                 }
             }
         }
+        editor.commit();
     }
     
     @Override
     public void removeColumn(PName tenantId, String tableName, List<PColumn> columnsToRemove, long tableTimeStamp, long tableSeqNum, long resolvedTime) throws SQLException {
-        PTableRef tableRef = metaData.get(new PTableKey(tenantId, tableName));
+        PMetaDataCache.Editor editor = metaData.edit();
+        PTableRef tableRef = editor.get(new PTableKey(tenantId, tableName));
         if (tableRef == null) {
             return;
         }
         PTable table = tableRef.getTable();
-        PMetaDataCache tables = metaData;
         for (PColumn columnToRemove : columnsToRemove) {
             PColumn column;
             String familyName = columnToRemove.getFamilyName().getString();
@@ -233,21 +247,24 @@ public class PMetaDataImpl implements PMetaData {
                     .setSequenceNumber(tableSeqNum)
                     .build();
         }
-        tables.put(table.getKey(), tableRefFactory.makePTableRef(table, this.timeKeeper.getCurrentTime(), resolvedTime));
+        editor.put(table.getKey(), tableRefFactory.makePTableRef(table, this.timeKeeper.getCurrentTime(), resolvedTime));
+        editor.commit();
     }
 
     @Override
     public void pruneTables(Pruner pruner) {
-        List<PTableKey> keysToPrune = Lists.newArrayListWithExpectedSize(this.size());
+        Set<PTableKey> keysToPrune = Sets.newHashSetWithExpectedSize(this.size());
         for (PTable table : this) {
             if (pruner.prune(table)) {
                 keysToPrune.add(table.getKey());
             }
         }
         if (!keysToPrune.isEmpty()) {
+            PMetaDataCache.Editor editor = metaData.edit();
             for (PTableKey key : keysToPrune) {
-                metaData.remove(key);
+                editor.remove(key);
             }
+            editor.commit();
         }
     }
 
@@ -258,27 +275,33 @@ public class PMetaDataImpl implements PMetaData {
 
     @Override
     public void addFunction(PFunction function) throws SQLException {
-        this.metaData.functions.put(function.getKey(), function);
+        PMetaDataCache.Editor editor = metaData.edit();
+        editor.putFunction(function);
+        editor.commit();
     }
 
     @Override
     public void removeFunction(PName tenantId, String function, long functionTimeStamp)
             throws SQLException {
-        this.metaData.functions.remove(new PTableKey(tenantId, function));
+        PMetaDataCache.Editor editor = metaData.edit();
+        editor.removeFunction(new PTableKey(tenantId, function));
+        editor.commit();
     }
 
     @Override
     public void pruneFunctions(Pruner pruner) {
         List<PTableKey> keysToPrune = Lists.newArrayListWithExpectedSize(this.size());
-        for (PFunction function : this.metaData.functions.values()) {
+        for (PFunction function : this.metaData.getFunctions()) {
             if (pruner.prune(function)) {
                 keysToPrune.add(function.getKey());
             }
         }
         if (!keysToPrune.isEmpty()) {
+            PMetaDataCache.Editor editor = metaData.edit();
             for (PTableKey key : keysToPrune) {
-                metaData.functions.remove(key);
+                editor.removeFunction(key);
             }
+            editor.commit();
         }
     }
 
@@ -289,19 +312,23 @@ public class PMetaDataImpl implements PMetaData {
 
     @Override
     public void addSchema(PSchema schema) throws SQLException {
-        this.metaData.schemas.put(schema.getSchemaKey(), schema);
+        PMetaDataCache.Editor editor = metaData.edit();
+        editor.putSchema(schema);
+        editor.commit();
     }
 
     @Override
     public PSchema getSchema(PTableKey key) throws SchemaNotFoundException {
-        PSchema schema = metaData.schemas.get(key);
+        PSchema schema = metaData.getSchema(key);
         if (schema == null) { throw new SchemaNotFoundException(key.getName()); }
         return schema;
     }
 
     @Override
     public void removeSchema(PSchema schema, long schemaTimeStamp) {
-        this.metaData.schemas.remove(schema.getSchemaKey());
+        PMetaDataCache.Editor editor = metaData.edit();
+        editor.removeSchema(schema.getSchemaKey());
+        editor.commit();
     }
 
 }
@@ -20,212 +20,171 @@ package org.apache.phoenix.schema;
 import java.sql.SQLException;
 import java.util.Iterator;
 import java.util.List;
-import java.util.concurrent.locks.ReadWriteLock;
-import java.util.concurrent.locks.ReentrantReadWriteLock;
-
-import javax.annotation.concurrent.GuardedBy;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
 
 import org.apache.phoenix.parse.PFunction;
 import org.apache.phoenix.parse.PSchema;
 
+/**
+ * Thread safe {@link PMetaData}. Mutations are serialized while reads go straight to the
+ * delegate, which publishes each mutation as a new snapshot that can be read without locking.
+ */
 public class PSynchronizedMetaData implements PMetaData {
 
-    @GuardedBy("readWriteLock")
-    private PMetaData delegate;
-    private final ReadWriteLock readWriteLock = new ReentrantReadWriteLock();
+    private final PMetaDataImpl delegate;
+    private final Lock writeLock = new ReentrantLock();
 
-    public PSynchronizedMetaData(PMetaData metadata) {
+    public PSynchronizedMetaData(PMetaDataImpl metadata) {
         this.delegate = metadata;
     }
     
     @Override
     public Iterator<PTable> iterator() {
-        readWriteLock.readLock().lock();
-        try {
-            return delegate.iterator();
-        }
-        finally {
-            readWriteLock.readLock().unlock();
-        }
+        return delegate.iterator();
     }
 
     @Override
     public int size() {
-        readWriteLock.readLock().lock();
-        try {
-            return delegate.size();
-        }
-        finally {
-            readWriteLock.readLock().unlock();
-        }
+        return delegate.size();
     }
 
     @Override
     public PMetaData clone() {
-        readWriteLock.readLock().lock();
-        try {
-            return delegate.clone();
-        }
-        finally {
-            readWriteLock.readLock().unlock();
-        }
+        return delegate.clone();
     }
 
     @Override
     public void addTable(PTable table, long resolvedTime) throws SQLException {
-        readWriteLock.writeLock().lock();
+        writeLock.lock();
         try {
             delegate.addTable(table, resolvedTime);
         }
         finally {
-            readWriteLock.writeLock().unlock();
+            writeLock.unlock();
         }
     }
 
     @Override
     public PTableRef getTableRef(PTableKey key) throws TableNotFoundException {
-        readWriteLock.readLock().lock();
-        try {
-            return delegate.getTableRef(key);
-        }
-        finally {
-            readWriteLock.readLock().unlock();
-        }
+        return delegate.getTableRef(key);
     }
 
     @Override
     public void updateResolvedTimestamp(PTable table, long resolvedTimestamp) throws SQLException {
-        readWriteLock.writeLock().lock();
+        writeLock.lock();
         try {
             delegate.updateResolvedTimestamp(table, resolvedTimestamp);
         }
         finally {
-            readWriteLock.writeLock().unlock();
+            writeLock.unlock();
         }
     }
 
     @Override
     public void pruneTables(Pruner pruner) {
-        readWriteLock.writeLock().lock();
+        writeLock.lock();
         try {
             delegate.pruneTables(pruner);
         }
         finally {
-            readWriteLock.writeLock().unlock();
+            writeLock.unlock();
         }
     }
 
     @Override
     public PFunction getFunction(PTableKey key) throws FunctionNotFoundException {
-        readWriteLock.readLock().lock();
-        try {
-            return delegate.getFunction(key);
-        }
-        finally {
-            readWriteLock.readLock().unlock();
-        }
+        return delegate.getFunction(key);
     }
 
     @Override
     public void removeTable(PName tenantId, String tableName, String parentTableName,
             long tableTimeStamp) throws SQLException {
-        readWriteLock.writeLock().lock();
+        writeLock.lock();
         try {
             delegate.removeTable(tenantId, tableName, parentTableName, tableTimeStamp);
         }
         finally {
-            readWriteLock.writeLock().unlock();
+            writeLock.unlock();
         }
     }
 
     @Override
     public void pruneFunctions(Pruner pruner) {
-        readWriteLock.writeLock().lock();
+        writeLock.lock();
         try {
             delegate.pruneFunctions(pruner);
         }
         finally {
-            readWriteLock.writeLock().unlock();
+            writeLock.unlock();
         }
     }
 
     @Override
     public long getAge(PTableRef ref) {
-        readWriteLock.readLock().lock();
-        try {
-            return delegate.getAge(ref);
-        }
-        finally {
-            readWriteLock.readLock().unlock();
-        }
+        return delegate.getAge(ref);
     }
 
     @Override
     public PSchema getSchema(PTableKey key) throws SchemaNotFoundException {
-        readWriteLock.readLock().lock();
-        try {
-            return delegate.getSchema(key);
-        }
-        finally {
-            readWriteLock.readLock().unlock();
-        }
+        return delegate.getSchema(key);
     }
 
     @Override
     public void removeColumn(PName tenantId, String tableName, List<PColumn> columnsToRemove,
             long tableTimeStamp, long tableSeqNum, long resolvedTime) throws SQLException {
-        readWriteLock.writeLock().lock();
+        writeLock.lock();
         try {
             delegate.removeColumn(tenantId, tableName, columnsToRemove, tableTimeStamp, tableSeqNum,
                 resolvedTime);
         }
         finally {
-            readWriteLock.writeLock().unlock();
+            writeLock.unlock();
         }
     }
 
     @Override
     public void addFunction(PFunction function) throws SQLException {
-        readWriteLock.writeLock().lock();
+        writeLock.lock();
         try {
             delegate.addFunction(function);
         }
         finally {
-            readWriteLock.writeLock().unlock();
+            writeLock.unlock();
         }
     }
 
     @Override
     public void removeFunction(PName tenantId, String function, long functionTimeStamp)
             throws SQLException {
-        readWriteLock.writeLock().lock();
+        writeLock.lock();
         try {
             delegate.removeFunction(tenantId, function, functionTimeStamp);
         }
         finally {
-            readWriteLock.writeLock().unlock();
+            writeLock.unlock();
         }
     }
 
     @Override
     public void addSchema(PSchema schema) throws SQLException {
-        readWriteLock.writeLock().lock();
+        writeLock.lock();
         try {
             delegate.addSchema(schema);
         }
         finally {
-            readWriteLock.writeLock().unlock();
+            writeLock.unlock();
         }
     }
 
     @Override
     public void removeSchema(PSchema schema, long schemaTimeStamp) {
-        readWriteLock.writeLock().lock();
+        writeLock.lock();
         try {
             delegate.removeSchema(schema, schemaTimeStamp);
         }
         finally {
-            readWriteLock.writeLock().unlock();
+            writeLock.unlock();
         }
     }
 
@@ -195,7 +195,8 @@ public interface PTable extends PMetaDataEntity {
 
     public enum TaskType {
         DROP_CHILD_VIEWS((byte)1),
-        INDEX_REBUILD((byte)2);
+        INDEX_REBUILD((byte)2),
+        PARTIAL_INDEX_REBUILD((byte)3);
 
         private final byte[] byteValue;
         private final byte serializedValue;
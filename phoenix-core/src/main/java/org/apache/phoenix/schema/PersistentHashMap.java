@@ -0,0 +1,418 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.phoenix.schema;
+
+import java.util.AbstractMap;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+/**
+ * Immutable hash map (a hash array mapped trie) whose updates return a new map sharing all but
+ * the O(log n) nodes on the path to the updated entry. An instance can therefore be handed to
+ * any number of readers as a snapshot while a writer derives the next version from it.
+ */
+final class PersistentHashMap<K, V> implements Iterable<Map.Entry<K, V>> {
+    private static final int BITS = 5;
+    private static final int MASK = (1 << BITS) - 1;
+    private static final PersistentHashMap<Object, Object> EMPTY = new PersistentHashMap<Object, Object>(null, 0);
+
+    private final Node root;
+    private final int size;
+
+    private PersistentHashMap(Node root, int size) {
+        this.root = root;
+        this.size = size;
+    }
+
+    @SuppressWarnings("unchecked")
+    static <K, V> PersistentHashMap<K, V> empty() {
+        return (PersistentHashMap<K, V>) EMPTY;
+    }
+
+    int size() {
+        return size;
+    }
+
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    @SuppressWarnings("unchecked")
+    V get(Object key) {
+        if (root == null) {
+            return null;
+        }
+        Leaf leaf = root.find(key, hash(key), 0);
+        return leaf == null ? null : (V) leaf.value;
+    }
+
+    /**
+     * @return a map with the given key mapped to the given value, or this map if it already
+     * holds that exact value for the key
+     */
+    PersistentHashMap<K, V> plus(K key, V value) {
+        int hash = hash(key);
+        Leaf leaf = new Leaf(key, value, hash);
+        if (root == null) {
+            return new PersistentHashMap<K, V>(BitmapNode.of(leaf, 0), 1);
+        }
+        boolean[] added = new boolean[1];
+        Node newRoot = root.put(leaf, 0, added);
+        return newRoot == root ? this : new PersistentHashMap<K, V>(newRoot, added[0] ? size + 1 : size);
+    }
+
+    /**
+     * @return a map without the given key, or this map if it does not contain the key
+     */
+    PersistentHashMap<K, V> minus(Object key) {
+        if (root == null) {
+            return this;
+        }
+        Node newRoot = root.remove(key, hash(key), 0);
+        if (newRoot == root) {
+            return this;
+        }
+        return newRoot == null ? PersistentHashMap.<K, V> empty() : new PersistentHashMap<K, V>(newRoot, size - 1);
+    }
+
+    Iterable<V> values() {
+        return new Iterable<V>() {
+            @Override
+            public Iterator<V> iterator() {
+                final Iterator<Map.Entry<K, V>> entries = PersistentHashMap.this.iterator();
+                return new Iterator<V>() {
+                    @Override
+                    public boolean hasNext() {
+                        return entries.hasNext();
+                    }
+
+                    @Override
+                    public V next() {
+                        return entries.next().getValue();
+                    }
+
+                    @Override
+                    public void remove() {
+                        throw new UnsupportedOperationException();
+                    }
+                };
+            }
+        };
+    }
+
+    @Override
+    public Iterator<Map.Entry<K, V>> iterator() {
+        return new Iterator<Map.Entry<K, V>>() {
+            // Arrays of the nodes being walked, with the position of the next slot to visit in each
+            private final Deque<Object[]> arrays = new ArrayDeque<Object[]>();
+            private final Deque<Integer> positions = new ArrayDeque<Integer>();
+            private Leaf next;
+
+            {
+                if (root != null) {
+                    arrays.push(root.array);
+                    positions.push(0);
+                }
+                advance();
+            }
+
+            private void advance() {
+                next = null;
+                while (!arrays.isEmpty()) {
+                    Object[] array = arrays.peek();
+                    int position = positions.pop();
+                    if (position == array.length) {
+                        arrays.pop();
+                        continue;
+                    }
+                    positions.push(position + 1);
+                    Object slot = array[position];
+                    if (slot instanceof Leaf) {
+                        next = (Leaf) slot;
+                        return;
+                    }
+                    arrays.push(((Node) slot).array);
+                    positions.push(0);
+                }
+            }
+
+            @Override
+            public boolean hasNext() {
+                return next != null;
+            }
+
+            @SuppressWarnings("unchecked")
+            @Override
+            public Map.Entry<K, V> next() {
+                if (next == null) {
+                    throw new NoSuchElementException();
+                }
+                Leaf leaf = next;
+                advance();
+                return new AbstractMap.SimpleImmutableEntry<K, V>((K) leaf.key, (V) leaf.value);
+            }
+
+            @Override
+            public void remove() {
+                throw new UnsupportedOperationException();
+            }
+        };
+    }
+
+    private static int hash(Object key) {
+        int h = key.hashCode();
+        return h ^ (h >>> 16);
+    }
+
+    private static int bit(int hash, int shift) {
+        return 1 << ((hash >>> shift) & MASK);
+    }
+
+    private static Object[] replace(Object[] array, int index, Object slot) {
+        Object[] newArray = array.clone();
+        newArray[index] = slot;
+        return newArray;
+    }
+
+    private static Object[] insert(Object[] array, int index, Object slot) {
+        Object[] newArray = new Object[array.length + 1];
+        System.arraycopy(array, 0, newArray, 0, index);
+        newArray[index] = slot;
+        System.arraycopy(array, index, newArray, index + 1, array.length - index);
+        return newArray;
+    }
+
+    private static Object[] delete(Object[] array, int index) {
+        Object[] newArray = new Object[array.length - 1];
+        System.arraycopy(array, 0, newArray, 0, index);
+        System.arraycopy(array, index + 1, newArray, index, array.length - index - 1);
+        return newArray;
+    }
+
+    private static final class Leaf {
+        final Object key;
+        final Object value;
+        final int hash;
+
+        Leaf(Object key, Object value, int hash) {
+            this.key = key;
+            this.value = value;
+            this.hash = hash;
+        }
+
+        boolean matches(Object key, int hash) {
+            return this.hash == hash && this.key.equals(key);
+        }
+    }
+
+    /**
+     * Node whose slots are either {@link Leaf} entries or child nodes. Nodes are never modified
+     * once built.
+     */
+    private static abstract class Node {
+        final Object[] array;
+
+        Node(Object[] array) {
+            this.array = array;
+        }
+
+        abstract Leaf find(Object key, int hash, int shift);
+
+        /**
+         * @return the node with the leaf added or replaced, or this node if it already holds the
+         * same value for the key. Sets added[0] if the key was not present.
+         */
+        abstract Node put(Leaf leaf, int shift, boolean[] added);
+
+        /**
+         * @return the node without the key, null if it becomes empty, or this node if the key
+         * is not present
+         */
+        abstract Node remove(Object key, int hash, int shift);
+
+        /**
+         * @return the single leaf of this node if it has no other slot, in which case the
+         * parent can hold the leaf directly
+         */
+        Leaf singleLeaf() {
+            return array.length == 1 && array[0] instanceof Leaf ? (Leaf) array[0] : null;
+        }
+    }
+
+    /**
+     * Node indexed by the next {@link #BITS} bits of the hash, holding a slot for each set bit
+     */
+    private static final class BitmapNode extends Node {
+        private final int bitmap;
+
+        BitmapNode(int bitmap, Object[] array) {
+            super(array);
+            this.bitmap = bitmap;
+        }
+
+        static BitmapNode of(Leaf leaf, int shift) {
+            return new BitmapNode(bit(leaf.hash, shift), new Object[] { leaf });
+        }
+
+        private int index(int bit) {
+            return Integer.bitCount(bitmap & (bit - 1));
+        }
+
+        @Override
+        Leaf find(Object key, int hash, int shift) {
+            int bit = bit(hash, shift);
+            if ((bitmap & bit) == 0) {
+                return null;
+            }
+            Object slot = array[index(bit)];
+            if (slot instanceof Leaf) {
+                Leaf leaf = (Leaf) slot;
+                return leaf.matches(key, hash) ? leaf : null;
+            }
+            return ((Node) slot).find(key, hash, shift + BITS);
+        }
+
+        @Override
+        Node put(Leaf leaf, int shift, boolean[] added) {
+            int bit = bit(leaf.hash, shift);
+            int index = index(bit);
+            if ((bitmap & bit) == 0) {
+                added[0] = true;
+                return new BitmapNode(bitmap | bit, insert(array, index, leaf));
+            }
+            Object slot = array[index];
+            if (slot instanceof Leaf) {
+                Leaf existing = (Leaf) slot;
+                if (existing.matches(leaf.key, leaf.hash)) {
+                    return existing.value == leaf.value ? this : new BitmapNode(bitmap, replace(array, index, leaf));
+                }
+                added[0] = true;
+                return new BitmapNode(bitmap, replace(array, index, merge(existing, leaf, shift + BITS)));
+            }
+            Node child = (Node) slot;
+            Node newChild = child.put(leaf, shift + BITS, added);
+            return newChild == child ? this : new BitmapNode(bitmap, replace(array, index, newChild));
+        }
+
+        @Override
+        Node remove(Object key, int hash, int shift) {
+            int bit = bit(hash, shift);
+            if ((bitmap & bit) == 0) {
+                return this;
+            }
+            int index = index(bit);
+            Object slot = array[index];
+            Object newSlot;
+            if (slot instanceof Leaf) {
+                if (!((Leaf) slot).matches(key, hash)) {
+                    return this;
+                }
+                newSlot = null;
+            } else {
+                Node child = (Node) slot;
+                Node newChild = child.remove(key, hash, shift + BITS);
+                if (newChild == child) {
+                    return this;
+                }
+                Leaf leaf = newChild == null ? null : newChild.singleLeaf();
+                newSlot = leaf == null ? newChild : leaf;
+            }
+            if (newSlot != null) {
+                return new BitmapNode(bitmap, replace(array, index, newSlot));
+            }
+            return array.length == 1 ? null : new BitmapNode(bitmap & ~bit, delete(array, index));
+        }
+
+        /**
+         * Builds the node holding two leaves with different keys that share the same slot
+         * at the previous level
+         */
+        private static Node merge(Leaf leaf1, Leaf leaf2, int shift) {
+            if (leaf1.hash == leaf2.hash) {
+                return new CollisionNode(leaf1.hash, new Object[] { leaf1, leaf2 });
+            }
+            int bit1 = bit(leaf1.hash, shift);
+            int bit2 = bit(leaf2.hash, shift);
+            if (bit1 == bit2) {
+                return new BitmapNode(bit1, new Object[] { merge(leaf1, leaf2, shift + BITS) });
+            }
+            // Slots are ordered by bit position, and the top bit makes the int negative
+            return new BitmapNode(bit1 | bit2, Integer.compareUnsigned(bit1, bit2) < 0
+                    ? new Object[] { leaf1, leaf2 } : new Object[] { leaf2, leaf1 });
+        }
+    }
+
+    /**
+     * Node holding the leaves of different keys with the same full hash
+     */
+    private static final class CollisionNode extends Node {
+        private final int hash;
+
+        CollisionNode(int hash, Object[] array) {
+            super(array);
+            this.hash = hash;
+        }
+
+        private int indexOf(Object key) {
+            for (int i = 0; i < array.length; i++) {
+                if (((Leaf) array[i]).key.equals(key)) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+        @Override
+        Leaf find(Object key, int hash, int shift) {
+            if (hash != this.hash) {
+                return null;
+            }
+            int index = indexOf(key);
+            return index < 0 ? null : (Leaf) array[index];
+        }
+
+        @Override
+        Node put(Leaf leaf, int shift, boolean[] added) {
+            if (leaf.hash != hash) {
+                // Nest this node under a bitmap node that tells it apart from the new leaf
+                int bit = bit(hash, shift);
+                BitmapNode parent = new BitmapNode(bit, new Object[] { this });
+                return parent.put(leaf, shift, added);
+            }
+            int index = indexOf(leaf.key);
+            if (index < 0) {
+                added[0] = true;
+                return new CollisionNode(hash, insert(array, array.length, leaf));
+            }
+            return ((Leaf) array[index]).value == leaf.value ? this : new CollisionNode(hash, replace(array, index, leaf));
+        }
+
+        @Override
+        Node remove(Object key, int hash, int shift) {
+            int index = hash == this.hash ? indexOf(key) : -1;
+            if (index < 0) {
+                return this;
+            }
+            // A single remaining leaf is returned in a node the parent replaces by the leaf
+            return new CollisionNode(hash, delete(array, index));
+        }
+    }
+}
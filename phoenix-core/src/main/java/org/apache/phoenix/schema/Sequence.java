@@ -54,6 +54,7 @@ import org.apache.phoenix.schema.types.PDataType;
 import org.apache.phoenix.schema.types.PInteger;
 import org.apache.phoenix.schema.types.PLong;
 import org.apache.phoenix.util.ByteUtil;
+import org.apache.phoenix.util.EnvironmentEdgeManager;
 import org.apache.phoenix.util.PhoenixKeyValueUtil;
 import org.apache.phoenix.util.SequenceUtil;
 
@@ -102,6 +103,12 @@ public class Sequence {
     private final SequenceKey key;
     private final ReentrantLock lock;
     private List<SequenceValue> values;
+    // Block of values reserved ahead of time by an asynchronous prefetch and not yet in use
+    private Result prefetchedResult;
+    private long prefetchedNumToAllocate;
+    private boolean prefetchInProgress;
+    // Time at which the most recent block of values was reserved on the server
+    private long lastAllocationTime;
     
     public Sequence(SequenceKey key) {
         if (key == null) throw new NullPointerException();
@@ -192,10 +199,105 @@ public class Sequence {
             if (op == ValueOp.VALIDATE_SEQUENCE) {
                 return value.currentValue;
             }
-            throw EMPTY_SEQUENCE_CACHE_EXCEPTION;
+            if (SequenceUtil.isBulkAllocation(numToAllocate)) {
+                throw EMPTY_SEQUENCE_CACHE_EXCEPTION;
+            }
+            value = takePrefetchedValue(value);
+            if (value == null) {
+                throw EMPTY_SEQUENCE_CACHE_EXCEPTION;
+            }
         }
         return increment(value, op, numToAllocate);
     }
+
+    /**
+     * Swaps in the block of values reserved by a prefetch, if there is one that is
+     * newer than the exhausted block. A prefetch still in flight when the block ran out reserved
+     * its values before the synchronous increment that replaced the block did, so its values
+     * were passed over and must not be handed out.
+     * @return the prefetched sequence value or null if none is usable
+     */
+    private SequenceValue takePrefetchedValue(SequenceValue exhaustedValue) {
+        Result result = prefetchedResult;
+        prefetchedResult = null;
+        // A single cell is an error code from the server, in which case we let
+        // the synchronous increment report it
+        if (result == null || result.rawCells().length == 1) {
+            return null;
+        }
+        SequenceValue value = new SequenceValue(result, ValueOp.INCREMENT_SEQUENCE, prefetchedNumToAllocate);
+        // The server keeps the timestamp of a sequence constant, so an older one means the
+        // sequence was dropped and recreated after the prefetch was issued
+        if (value.timestamp < exhaustedValue.timestamp) {
+            return null;
+        }
+        if (value.timestamp == exhaustedValue.timestamp
+                && (value.incrementBy > 0 ? value.currentValue < exhaustedValue.currentValue
+                        : value.currentValue > exhaustedValue.currentValue)) {
+            return null;
+        }
+        insertSequenceValue(value);
+        lastAllocationTime = EnvironmentEdgeManager.currentTimeMillis();
+        return value;
+    }
+
+    /**
+     * Determines whether the next block of values should be reserved in the background,
+     * which is the case once the given fraction of the current block has been handed out.
+     * Only non cycling sequences read at the latest timestamp are prefetched.
+     */
+    public boolean shouldPrefetch(long timestamp, double threshold) {
+        if (prefetchInProgress || prefetchedResult != null || timestamp != HConstants.LATEST_TIMESTAMP) {
+            return false;
+        }
+        SequenceValue value = findSequenceValue(timestamp);
+        if (value == null || value.isUnitialized() || value.cycle || value.limitReached || value.blockSize <= 0) {
+            return false;
+        }
+        long remaining = (value.nextValue - value.currentValue) / value.incrementBy;
+        return value.blockSize - remaining >= threshold * value.blockSize;
+    }
+
+    /**
+     * Computes the number of values to reserve with the next prefetch so that a block lasts about
+     * targetIntervalMs at the rate at which values of the current block were handed out.
+     * @return the number of slots to allocate, where 1 means the cache size of the sequence
+     */
+    public long getPrefetchNumToAllocate(long timestamp, long maxCacheSize, long targetIntervalMs) {
+        SequenceValue value = findSequenceValue(timestamp);
+        if (value == null || value.isUnitialized() || maxCacheSize <= value.cacheSize) {
+            return SequenceUtil.DEFAULT_NUM_SLOTS_TO_ALLOCATE;
+        }
+        long consumed = value.blockSize - (value.nextValue - value.currentValue) / value.incrementBy;
+        long elapsed = Math.max(1, EnvironmentEdgeManager.currentTimeMillis() - lastAllocationTime);
+        long numToAllocate = Math.min(maxCacheSize, consumed * targetIntervalMs / elapsed);
+        if (numToAllocate <= value.cacheSize) {
+            return SequenceUtil.DEFAULT_NUM_SLOTS_TO_ALLOCATE;
+        }
+        // Fall back to the cache size if the larger block could run past the limit of the sequence,
+        // as a bulk allocation would fail in that case while a regular one would not
+        long remainingValues = (value.incrementBy > 0 ? value.maxValue - value.nextValue : value.nextValue - value.minValue)
+                / Math.abs(value.incrementBy);
+        if (remainingValues < numToAllocate) {
+            return SequenceUtil.DEFAULT_NUM_SLOTS_TO_ALLOCATE;
+        }
+        return numToAllocate;
+    }
+
+    public void setPrefetchInProgress() {
+        this.prefetchInProgress = true;
+    }
+
+    /**
+     * Called once a prefetch completes.
+     * @param result the result of the prefetch increment or null if it failed
+     * @param numToAllocate the number of slots that were requested
+     */
+    public void setPrefetchedResult(Result result, long numToAllocate) {
+        this.prefetchInProgress = false;
+        this.prefetchedResult = result;
+        this.prefetchedNumToAllocate = numToAllocate;
+    }
     
     /**
      * This method first checks whether value.currentValue = value.nextValue, this check is what 
@@ -271,6 +373,10 @@ public class Sequence {
     }
 
     public List<Append> newReturns() {
+        Append prefetchedReturn = newPrefetchedReturn();
+        if (prefetchedReturn != null) {
+            return Collections.singletonList(prefetchedReturn);
+        }
         if (values == null) {
             return Collections.emptyList();
         }
@@ -284,6 +390,10 @@ public class Sequence {
     }
     
     public Append newReturn(long timestamp) throws EmptySequenceCacheException {
+        Append prefetchedReturn = newPrefetchedReturn();
+        if (prefetchedReturn != null) {
+            return prefetchedReturn;
+        }
         SequenceValue value = findSequenceValue(timestamp);
         if (value == null) {
             throw EMPTY_SEQUENCE_CACHE_EXCEPTION;
@@ -294,6 +404,22 @@ public class Sequence {
         return newReturn(value);
     }
 
+    /**
+     * When a prefetched block is outstanding, the server has moved past the block in use, so
+     * only the prefetched block (which is entirely unused) can be returned.
+     */
+    private Append newPrefetchedReturn() {
+        Result result = prefetchedResult;
+        if (result == null) {
+            return null;
+        }
+        prefetchedResult = null;
+        if (result.rawCells().length == 1) {
+            return null;
+        }
+        return newReturn(new SequenceValue(result, ValueOp.INCREMENT_SEQUENCE, prefetchedNumToAllocate));
+    }
+
     private Append newReturn(SequenceValue value) {
         byte[] key = this.key.getKey();
         Append append = new Append(key);
@@ -347,6 +473,7 @@ public class Sequence {
         // If we found the sequence, we update our cache with the new value
         SequenceValue value = new SequenceValue(result, op, numToAllocate);
         insertSequenceValue(value);
+        lastAllocationTime = EnvironmentEdgeManager.currentTimeMillis();
         return increment(value, op, numToAllocate);
     }
 
@@ -469,6 +596,8 @@ public class Sequence {
         public final long incrementBy;
         public final long timestamp;
         public final long cacheSize;
+        // Number of values reserved in this block
+        public final long blockSize;
         
         public long currentValue;
         public long nextValue;
@@ -491,6 +620,7 @@ public class Sequence {
             this.incrementBy = 0;
             this.limitReached = false;
             this.cacheSize = 0;
+            this.blockSize = 0;
         }
         
         public boolean isInitialized() {
@@ -522,7 +652,10 @@ public class Sequence {
                 // We can't just take the max of numToAllocate and cacheSize
                 // We need to handle a valid edgecase where a client requests bulk allocation of 
                 // a number of slots that are less than cache size of the sequence
-                currentValue -= incrementBy * (SequenceUtil.isBulkAllocation(numToAllocate) ? numToAllocate : cacheSize);
+                this.blockSize = SequenceUtil.isBulkAllocation(numToAllocate) ? numToAllocate : cacheSize;
+                currentValue -= incrementBy * blockSize;
+            } else {
+                this.blockSize = 0;
             }
         }
     }
@@ -581,6 +714,7 @@ public class Sequence {
         long timestamp = statusKV.getTimestamp();
         int statusCode = PInteger.INSTANCE.getCodec().decodeInt(statusKV.getValueArray(), statusKV.getValueOffset(), SortOrder.getDefault());
         if (statusCode == 0) {  // Success - add sequence value and return timestamp
+            prefetchedResult = null;
             SequenceValue value = new SequenceValue(timestamp, minValue, maxValue, cycle);
             insertSequenceValue(value);
             return timestamp;
@@ -611,6 +745,7 @@ public class Sequence {
         int statusCode = PInteger.INSTANCE.getCodec().decodeInt(statusKV.getValueArray(), statusKV.getValueOffset(), SortOrder.getDefault());
         SQLExceptionCode code = statusCode == 0 ? null : SQLExceptionCode.fromErrorCode(statusCode);
         if (code == null) {
+            prefetchedResult = null;
             // Insert delete marker so that point-in-time sequences work
             insertSequenceValue(new SequenceValue(timestamp, true));
             return timestamp;
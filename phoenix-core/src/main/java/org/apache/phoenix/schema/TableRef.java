@@ -38,6 +38,7 @@ public class TableRef {
     private final long lowerBoundTimeStamp;
     private final boolean hasDynamicCols;
     private final long currentTime;
+    private boolean hinted;
 
     private static TableRef createEmptyTableRef() {
         try {
@@ -54,14 +55,17 @@ public class TableRef {
 
     public TableRef(TableRef tableRef) {
         this(tableRef.alias, tableRef.table, tableRef.upperBoundTimeStamp, tableRef.lowerBoundTimeStamp, tableRef.hasDynamicCols);
+        this.hinted = tableRef.hinted;
     }
     
     public TableRef(TableRef tableRef, long timeStamp) {
         this(tableRef.alias, tableRef.table, timeStamp, tableRef.lowerBoundTimeStamp, tableRef.hasDynamicCols);
+        this.hinted = tableRef.hinted;
     }
     
     public TableRef(TableRef tableRef, String alias) {
         this(alias, tableRef.table, tableRef.upperBoundTimeStamp, tableRef.lowerBoundTimeStamp, tableRef.hasDynamicCols);
+        this.hinted = tableRef.hinted;
     }
     
     public TableRef(PTable table) {
@@ -164,4 +168,16 @@ public class TableRef {
         return this.currentTime;
     }
 
+    /**
+     * @return true if the table is an index that the query explicitly asked to use through an
+     *         INDEX hint, in which case columns it does not cover are joined back from the data table
+     */
+    public boolean isHinted() {
+        return hinted;
+    }
+
+    public void setHinted(boolean hinted) {
+        this.hinted = hinted;
+    }
+
 }
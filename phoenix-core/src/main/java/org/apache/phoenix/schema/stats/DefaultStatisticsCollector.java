@@ -27,11 +27,13 @@ import java.util.Set;
 
 import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.hbase.Cell;
+import org.apache.hadoop.hbase.CellUtil;
 import org.apache.hadoop.hbase.KeyValue;
 import org.apache.hadoop.hbase.KeyValueUtil;
 import org.apache.hadoop.hbase.client.Get;
 import org.apache.hadoop.hbase.client.Mutation;
 import org.apache.hadoop.hbase.client.Result;
+import org.apache.hadoop.hbase.client.ResultScanner;
 import org.apache.hadoop.hbase.client.Scan;
 import org.apache.hadoop.hbase.client.Table;
 import org.apache.hadoop.hbase.coprocessor.RegionCoprocessorEnvironment;
@@ -39,18 +41,25 @@ import org.apache.hadoop.hbase.io.ImmutableBytesWritable;
 import org.apache.hadoop.hbase.regionserver.InternalScanner;
 import org.apache.hadoop.hbase.regionserver.Region;
 import org.apache.hadoop.hbase.regionserver.Store;
+import org.apache.hadoop.hbase.util.Bytes;
 import org.apache.hadoop.hbase.util.Pair;
 import org.apache.phoenix.coprocessor.MetaDataProtocol;
 import org.apache.phoenix.hbase.index.util.ImmutableBytesPtr;
 import org.apache.phoenix.jdbc.PhoenixDatabaseMetaData;
+import org.apache.phoenix.query.QueryConstants;
 import org.apache.phoenix.query.QueryServices;
 import org.apache.phoenix.query.QueryServicesOptions;
 import org.apache.phoenix.schema.PName;
 import org.apache.phoenix.schema.PTable;
+import org.apache.phoenix.schema.PTable.ImmutableStorageScheme;
+import org.apache.phoenix.schema.PTable.QualifierEncodingScheme;
 import org.apache.phoenix.schema.PTableType;
 import org.apache.phoenix.schema.SortOrder;
+import org.apache.phoenix.schema.types.PDataType;
 import org.apache.phoenix.schema.types.PInteger;
 import org.apache.phoenix.schema.types.PLong;
+import org.apache.phoenix.schema.types.PTinyint;
+import org.apache.phoenix.util.ByteUtil;
 import org.apache.phoenix.util.EnvironmentEdgeManager;
 import org.apache.phoenix.util.MetaDataUtil;
 import org.apache.phoenix.util.PhoenixRuntime;
@@ -73,6 +82,8 @@ public class DefaultStatisticsCollector implements StatisticsCollector {
     private final Table htable;
     private StatisticsWriter statsWriter;
     final Pair<Long, GuidePostsInfoBuilder> cachedGuidePosts;
+    // Family of the cached guide posts
+    final ImmutableBytesPtr cachedFamily;
     final byte[] guidePostWidthBytes;
     final byte[] guidePostPerRegionBytes;
     // Where to look for GUIDE_POSTS_WIDTH in SYSTEM.CATALOG
@@ -85,6 +96,8 @@ public class DefaultStatisticsCollector implements StatisticsCollector {
     private final boolean isViewIndexTable;
     private final Region region;
     private final Configuration configuration;
+    // Zone maps being collected per column family, if enabled for the table
+    final Map<ImmutableBytesPtr, ZoneMap.Builder> zoneMapBuilders = Maps.newHashMap();
 
     public DefaultStatisticsCollector(Configuration configuration, Region region, String tableName, byte[] family,
                                byte[] gp_width_bytes, byte[] gp_per_region_bytes, StatisticsWriter statsWriter, Table htable) {
@@ -107,9 +120,11 @@ public class DefaultStatisticsCollector implements StatisticsCollector {
         if (family != null) {
             ImmutableBytesPtr cfKey = new ImmutableBytesPtr(family);
             cachedGuidePosts = new Pair<Long, GuidePostsInfoBuilder>(0l, new GuidePostsInfoBuilder());
+            cachedFamily = cfKey;
             guidePostsInfoWriterMap.put(cfKey, cachedGuidePosts);
         } else {
             cachedGuidePosts = null;
+            cachedFamily = null;
         }
 
         this.statsWriter = statsWriter;
@@ -118,6 +133,8 @@ public class DefaultStatisticsCollector implements StatisticsCollector {
 
     @Override
     public void init() throws IOException {
+        // Read before the guidepost depth, which closes the SYSTEM.CATALOG table when done
+        initZoneMapColumns();
         try {
             initGuidepostDepth();
         } catch (SQLException e) {
@@ -216,6 +233,99 @@ public class DefaultStatisticsCollector implements StatisticsCollector {
         }
     }
 
+    /**
+     * Determine the non PK columns to collect zone maps for from the ZONE_MAP_COLUMNS property of
+     * the table, a comma separated list of column names optionally qualified by their family.
+     * The columns are read from the rows of the table in SYSTEM.CATALOG, as opening a Phoenix
+     * connection while the region is being compacted or analyzed may block. Zone maps are best
+     * effort, so a property that cannot be resolved only disables them.
+     */
+    private void initZoneMapColumns() {
+        String zoneMapColumns = region.getTableDescriptor().getValue(PhoenixDatabaseMetaData.ZONE_MAP_COLUMNS);
+        if (zoneMapColumns == null || isViewIndexTable || htable == null) {
+            return;
+        }
+        try {
+            Get get = new Get(ptableKey);
+            get.addColumn(PhoenixDatabaseMetaData.TABLE_FAMILY_BYTES, PhoenixDatabaseMetaData.STORAGE_SCHEME_BYTES);
+            get.addColumn(PhoenixDatabaseMetaData.TABLE_FAMILY_BYTES, PhoenixDatabaseMetaData.ENCODING_SCHEME_BYTES);
+            Result result = htable.get(get);
+            Cell storageSchemeKv = result.getColumnLatestCell(PhoenixDatabaseMetaData.TABLE_FAMILY_BYTES,
+                    PhoenixDatabaseMetaData.STORAGE_SCHEME_BYTES);
+            ImmutableStorageScheme storageScheme = storageSchemeKv == null ? ImmutableStorageScheme.ONE_CELL_PER_COLUMN
+                    : ImmutableStorageScheme.fromSerializedValue((byte) PTinyint.INSTANCE.toObject(
+                            storageSchemeKv.getValueArray(), storageSchemeKv.getValueOffset(), storageSchemeKv.getValueLength()));
+            Cell encodingSchemeKv = result.getColumnLatestCell(PhoenixDatabaseMetaData.TABLE_FAMILY_BYTES,
+                    PhoenixDatabaseMetaData.ENCODING_SCHEME_BYTES);
+            QualifierEncodingScheme encodingScheme = encodingSchemeKv == null ? QualifierEncodingScheme.NON_ENCODED_QUALIFIERS
+                    : QualifierEncodingScheme.fromSerializedValue((byte) PTinyint.INSTANCE.toObject(
+                            encodingSchemeKv.getValueArray(), encodingSchemeKv.getValueOffset(), encodingSchemeKv.getValueLength()));
+
+            // Non PK columns by their qualified name and by their name alone, mapped to null when
+            // the name alone is ambiguous
+            Map<String, ZoneMap.Column> columnsByName = Maps.newHashMap();
+            Scan scan = new Scan();
+            scan.setRowPrefixFilter(ByteUtil.concat(ptableKey, QueryConstants.SEPARATOR_BYTE_ARRAY));
+            scan.addColumn(PhoenixDatabaseMetaData.TABLE_FAMILY_BYTES, PhoenixDatabaseMetaData.DATA_TYPE_BYTES);
+            scan.addColumn(PhoenixDatabaseMetaData.TABLE_FAMILY_BYTES, PhoenixDatabaseMetaData.COLUMN_QUALIFIER_BYTES);
+            try (ResultScanner scanner = htable.getScanner(scan)) {
+                byte[][] rowKeyMetaData = new byte[5][];
+                for (Result columnResult = scanner.next(); columnResult != null; columnResult = scanner.next()) {
+                    Cell dataTypeKv = columnResult.getColumnLatestCell(PhoenixDatabaseMetaData.TABLE_FAMILY_BYTES,
+                            PhoenixDatabaseMetaData.DATA_TYPE_BYTES);
+                    // Skip the link rows and the PK columns, which have no family
+                    if (dataTypeKv == null
+                            || SchemaUtil.getVarChars(columnResult.getRow(), 5, rowKeyMetaData) != 5
+                            || rowKeyMetaData[4].length == 0) {
+                        continue;
+                    }
+                    PDataType dataType = PDataType.fromTypeId(PInteger.INSTANCE.getCodec().decodeInt(
+                            dataTypeKv.getValueArray(), dataTypeKv.getValueOffset(), SortOrder.getDefault()));
+                    if (dataType.isArrayType()) {
+                        continue;
+                    }
+                    Cell columnQualifierKv = columnResult.getColumnLatestCell(PhoenixDatabaseMetaData.TABLE_FAMILY_BYTES,
+                            PhoenixDatabaseMetaData.COLUMN_QUALIFIER_BYTES);
+                    byte[] columnQualifier = columnQualifierKv == null ? rowKeyMetaData[3]
+                            : CellUtil.cloneValue(columnQualifierKv);
+                    ZoneMap.Column column = ZoneMap.Column.newColumn(rowKeyMetaData[4], columnQualifier,
+                            dataType, storageScheme, encodingScheme);
+                    String columnName = Bytes.toString(rowKeyMetaData[3]);
+                    columnsByName.put(SchemaUtil.getColumnName(Bytes.toString(rowKeyMetaData[4]), columnName), column);
+                    columnsByName.put(columnName, columnsByName.containsKey(columnName) ? null : column);
+                }
+            }
+
+            Map<ImmutableBytesPtr, List<ZoneMap.Column>> columnsByFamily = Maps.newHashMap();
+            for (String columnName : zoneMapColumns.split(",")) {
+                columnName = columnName.trim();
+                int familySeparator = columnName.indexOf(QueryConstants.NAME_SEPARATOR);
+                ZoneMap.Column zoneMapColumn = columnsByName.get(familySeparator < 0
+                        ? SchemaUtil.normalizeIdentifier(columnName)
+                        : SchemaUtil.getColumnName(SchemaUtil.normalizeIdentifier(columnName.substring(0, familySeparator)),
+                                SchemaUtil.normalizeIdentifier(columnName.substring(familySeparator + 1))));
+                if (zoneMapColumn == null) {
+                    LOGGER.warn("Not collecting zone map for column " + columnName + " of " + tableName);
+                    continue;
+                }
+                ImmutableBytesPtr cfKey = new ImmutableBytesPtr(zoneMapColumn.getFamily());
+                List<ZoneMap.Column> columns = columnsByFamily.get(cfKey);
+                if (columns == null) {
+                    columns = new ArrayList<ZoneMap.Column>();
+                    columnsByFamily.put(cfKey, columns);
+                }
+                columns.add(zoneMapColumn);
+            }
+            byte[] startKey = region.getRegionInfo().getStartKey();
+            for (Map.Entry<ImmutableBytesPtr, List<ZoneMap.Column>> entry : columnsByFamily.entrySet()) {
+                zoneMapBuilders.put(entry.getKey(), new ZoneMap.Builder(startKey, entry.getValue()));
+            }
+            LOGGER.info("Collecting zone maps for columns " + zoneMapColumns + " of " + tableName);
+        } catch (Exception e) {
+            LOGGER.warn("Unable to determine the zone map columns " + zoneMapColumns + " of " + tableName, e);
+        }
+    }
+
     private void getGuidePostDepthFromStatement() {
         int guidepostPerRegion = 0;
         long guidepostWidth = QueryServicesOptions.DEFAULT_STATS_GUIDEPOST_WIDTH_BYTES;
@@ -325,13 +435,25 @@ public class DefaultStatisticsCollector implements StatisticsCollector {
         if (currentRow == null || !row.equals(currentRow)) {
             currentRow = row;
             incrementRow = true;
+            for (ZoneMap.Builder zoneMapBuilder : zoneMapBuilders.values()) {
+                zoneMapBuilder.startRow();
+            }
         }
         for (Cell cell : results) {
             maxTimeStamp = Math.max(maxTimeStamp, cell.getTimestamp());
+            ImmutableBytesPtr cfKey = new ImmutableBytesPtr(cell.getFamilyArray(), cell.getFamilyOffset(),
+                    cell.getFamilyLength());
+            if (!zoneMapBuilders.isEmpty()) {
+                ZoneMap.Builder zoneMapBuilder = zoneMapBuilders.get(cfKey);
+                if (zoneMapBuilder != null) {
+                    zoneMapBuilder.add(cell);
+                }
+            }
             Pair<Long, GuidePostsInfoBuilder> gps;
+            // The family whose guide posts and zone maps the cell is counted towards
+            ImmutableBytesPtr gpsFamily;
             if (cachedGuidePosts == null) {
-                ImmutableBytesPtr cfKey = new ImmutableBytesPtr(cell.getFamilyArray(), cell.getFamilyOffset(),
-                        cell.getFamilyLength());
+                gpsFamily = cfKey;
                 gps = guidePostsInfoWriterMap.get(cfKey);
                 if (gps == null) {
                     gps = new Pair<Long, GuidePostsInfoBuilder>(0l,
@@ -343,6 +465,7 @@ public class DefaultStatisticsCollector implements StatisticsCollector {
                     gps.getSecond().incrementRowCount();
                 }
             } else {
+                gpsFamily = cachedFamily;
                 gps = cachedGuidePosts;
                 if (incrementRow) {
                     cachedGuidePosts.getSecond().incrementRowCount();
@@ -353,7 +476,8 @@ public class DefaultStatisticsCollector implements StatisticsCollector {
             long byteCount = gps.getFirst() + kvLength;
             gps.setFirst(byteCount);
             if (byteCount >= guidePostDepth) {
-                if (gps.getSecond().addGuidePostOnCollection(row, byteCount, gps.getSecond().getRowCount())) {
+                if (gps.getSecond().addGuidePostOnCollection(row, byteCount, gps.getSecond().getRowCount(),
+                        zoneMapBuilders.get(gpsFamily))) {
                     gps.setFirst(0l);
                     gps.getSecond().resetRowCount();
                 }
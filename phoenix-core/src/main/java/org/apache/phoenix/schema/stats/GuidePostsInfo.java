@@ -25,6 +25,8 @@ import org.apache.hadoop.hbase.util.Bytes;
 import org.apache.phoenix.util.ByteUtil;
 import org.apache.phoenix.util.SizedUtil;
 
+import com.google.common.base.Predicates;
+import com.google.common.collect.Iterables;
 import com.google.common.primitives.Longs;
 /**
  *  A class that holds the guidePosts of a region and also allows combining the 
@@ -71,6 +73,10 @@ public class GuidePostsInfo {
      * The timestamps at which guideposts were created/updated
      */
     private final long[] gpTimestamps;
+    /**
+     * The zone maps of each guidePost, or null if none were collected
+     */
+    private final ZoneMap[] zoneMaps;
 
     /**
      * Constructor that creates GuidePostsInfo per region
@@ -90,12 +96,23 @@ public class GuidePostsInfo {
      */
     public GuidePostsInfo(List<Long> byteCounts, ImmutableBytesWritable guidePosts, List<Long> rowCounts, int maxLength,
             int guidePostsCount, List<Long> updateTimes) {
+        this(byteCounts, guidePosts, rowCounts, maxLength, guidePostsCount, updateTimes, null);
+    }
+
+    /**
+     * Constructor that creates GuidePostsInfo per region along with the zone maps of the
+     * guidePosts, which are null for guidePosts without one
+     */
+    public GuidePostsInfo(List<Long> byteCounts, ImmutableBytesWritable guidePosts, List<Long> rowCounts, int maxLength,
+            int guidePostsCount, List<Long> updateTimes, List<ZoneMap> zoneMaps) {
         this.guidePosts = new ImmutableBytesWritable(guidePosts);
         this.maxLength = maxLength;
         this.guidePostsCount = guidePostsCount;
         this.rowCounts = Longs.toArray(rowCounts);
         this.byteCounts = Longs.toArray(byteCounts);
         this.gpTimestamps = Longs.toArray(updateTimes);
+        this.zoneMaps = zoneMaps == null || !Iterables.any(zoneMaps, Predicates.notNull()) ? null
+                : zoneMaps.toArray(new ZoneMap[zoneMaps.size()]);
         // Those Java equivalents of sizeof() in C/C++, mentioned on the Web, might be overkilled here.
         int estimatedSize = SizedUtil.OBJECT_SIZE
                 + SizedUtil.IMMUTABLE_BYTES_WRITABLE_SIZE + guidePosts.getLength() // guidePosts
@@ -105,6 +122,12 @@ public class GuidePostsInfo {
                 + SizedUtil.ARRAY_SIZE + this.byteCounts.length * SizedUtil.LONG_SIZE // byteCounts
                 + SizedUtil.ARRAY_SIZE + this.gpTimestamps.length * SizedUtil.LONG_SIZE // gpTimestamps
                 + SizedUtil.INT_SIZE; // estimatedSize
+        if (this.zoneMaps != null) {
+            estimatedSize += SizedUtil.ARRAY_SIZE + this.zoneMaps.length * SizedUtil.POINTER_SIZE;
+            for (ZoneMap zoneMap : this.zoneMaps) {
+                estimatedSize += zoneMap == null ? 0 : zoneMap.getEstimatedSize();
+            }
+        }
         this.estimatedSize = estimatedSize;
     }
     
@@ -132,6 +155,13 @@ public class GuidePostsInfo {
         return gpTimestamps;
     }
 
+    /**
+     * @return the zone map of the guidePost at the given index or null if none was collected
+     */
+    public ZoneMap getZoneMap(int guideIndex) {
+        return zoneMaps == null || guideIndex >= zoneMaps.length ? null : zoneMaps[guideIndex];
+    }
+
     public int getEstimatedSize() {
         return estimatedSize;
     }
@@ -51,6 +51,7 @@ public class GuidePostsInfoBuilder {
     private List<Long> rowCounts = new ArrayList<Long>();
     private List<Long> byteCounts = new ArrayList<Long>();
     private List<Long> guidePostsTimestamps = new ArrayList<Long>();
+    private List<ZoneMap> zoneMaps = new ArrayList<ZoneMap>();
 
     public boolean isEmpty() {
         return rowCounts.size() == 0;
@@ -88,6 +89,21 @@ public class GuidePostsInfoBuilder {
         return trackGuidePost(row, byteCount, rowCount, 0);
     }
 
+    /**
+     * Track a new guide post while collecting stats, completing the zone map that ends at it if
+     * zone maps are being collected
+     */
+    public boolean addGuidePostOnCollection(ImmutableBytesWritable row, long byteCount,
+            long rowCount, ZoneMap.Builder zoneMapBuilder) {
+        if (!addGuidePostOnCollection(row, byteCount, rowCount)) {
+            return false;
+        }
+        if (zoneMapBuilder != null) {
+            zoneMaps.set(zoneMaps.size() - 1, zoneMapBuilder.build(row.copyBytes()));
+        }
+        return true;
+    }
+
     /**
      * Track a new guide post
      * @param row number of rows in the guidepost
@@ -97,12 +113,22 @@ public class GuidePostsInfoBuilder {
      */
     public boolean trackGuidePost(ImmutableBytesWritable row, long byteCount, long rowCount,
             long updateTimestamp) {
+        return trackGuidePost(row, byteCount, rowCount, updateTimestamp, null);
+    }
+
+    /**
+     * Track a new guide post along with its zone map
+     * @param zoneMap zone map ending at the guidepost or null if none was collected
+     */
+    public boolean trackGuidePost(ImmutableBytesWritable row, long byteCount, long rowCount,
+            long updateTimestamp, ZoneMap zoneMap) {
         if (row.getLength() != 0 && lastRow.compareTo(row) < 0) {
             try {
                 encoder.encode(output, row.get(), row.getOffset(), row.getLength());
                 rowCounts.add(rowCount);
                 byteCounts.add(byteCount);
                 guidePostsTimestamps.add(updateTimestamp);
+                zoneMaps.add(zoneMap);
                 this.guidePostsCount++;
                 this.maxLength = encoder.getMaxLength();
                 lastRow = row;
@@ -117,7 +143,7 @@ public class GuidePostsInfoBuilder {
     public GuidePostsInfo build() {
         this.guidePosts.set(stream.getBuffer(), 0, stream.size());
         GuidePostsInfo guidePostsInfo = new GuidePostsInfo(this.byteCounts, this.guidePosts, this.rowCounts,
-                this.maxLength, this.guidePostsCount, this.guidePostsTimestamps);
+                this.maxLength, this.guidePostsCount, this.guidePostsTimestamps, this.zoneMaps);
         return guidePostsInfo;
     }
 
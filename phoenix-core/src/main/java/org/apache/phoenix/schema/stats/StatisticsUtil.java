@@ -152,6 +152,7 @@ public class StatisticsUtil {
         Scan s = MetaDataUtil.newTableRowsScan(startKey, endKey, MetaDataProtocol.MIN_TABLE_TIMESTAMP, clientTimeStamp);
         s.addColumn(QueryConstants.DEFAULT_COLUMN_FAMILY_BYTES, PhoenixDatabaseMetaData.GUIDE_POSTS_WIDTH_BYTES);
         s.addColumn(QueryConstants.DEFAULT_COLUMN_FAMILY_BYTES, PhoenixDatabaseMetaData.GUIDE_POSTS_ROW_COUNT_BYTES);
+        s.addColumn(QueryConstants.DEFAULT_COLUMN_FAMILY_BYTES, PhoenixDatabaseMetaData.GUIDE_POSTS_ZONE_MAP_BYTES);
         s.addColumn(QueryConstants.DEFAULT_COLUMN_FAMILY_BYTES, QueryConstants.EMPTY_COLUMN_BYTES);
         GuidePostsInfoBuilder guidePostsInfoBuilder = new GuidePostsInfoBuilder();
         Cell current = null;
@@ -162,6 +163,7 @@ public class StatisticsUtil {
                 CellScanner cellScanner = result.cellScanner();
                 long rowCount = 0;
                 long byteCount = 0;
+                ZoneMap zoneMap = null;
                  while (cellScanner.advance()) {
                     current = cellScanner.current();
                     if (Bytes.equals(current.getQualifierArray(), current.getQualifierOffset(),
@@ -174,6 +176,11 @@ public class StatisticsUtil {
                             PhoenixDatabaseMetaData.GUIDE_POSTS_WIDTH_BYTES.length)) {
                         byteCount = PLong.INSTANCE.getCodec().decodeLong(current.getValueArray(),
                                 current.getValueOffset(), SortOrder.getDefault());
+                    } else if (Bytes.equals(current.getQualifierArray(), current.getQualifierOffset(),
+                            current.getQualifierLength(), PhoenixDatabaseMetaData.GUIDE_POSTS_ZONE_MAP_BYTES, 0,
+                            PhoenixDatabaseMetaData.GUIDE_POSTS_ZONE_MAP_BYTES.length)) {
+                        zoneMap = ZoneMap.fromBytes(current.getValueArray(), current.getValueOffset(),
+                                current.getValueLength());
                     }
                 }
                 if (current != null) {
@@ -194,7 +201,7 @@ public class StatisticsUtil {
                     } else {
                         guidePostsInfoBuilder.trackGuidePost(
                             new ImmutableBytesWritable(newGPStartKey), byteCount, rowCount,
-                            guidePostUpdateTime);
+                            guidePostUpdateTime, zoneMap);
                     }
                 }
             }
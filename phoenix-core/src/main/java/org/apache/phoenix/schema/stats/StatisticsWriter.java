@@ -190,7 +190,8 @@ public class StatisticsWriter implements Closeable {
                     PrefixByteDecoder decoder = new PrefixByteDecoder(gps.getMaxLength());
                     do {
                         ImmutableBytesWritable ptr = decoder.decode(input);
-                        addGuidepost(cfKey, mutations, ptr, byteCounts[guidePostCount], rowCounts[guidePostCount], timeStamp);
+                        addGuidepost(cfKey, mutations, ptr, byteCounts[guidePostCount], rowCounts[guidePostCount],
+                                gps.getZoneMap(guidePostCount), tracker.getMaxTimeStamp(), timeStamp);
                         guidePostCount++;
                     } while (decoder != null);
                 } catch (EOFException e) { // Ignore as this signifies we're done
@@ -213,13 +214,14 @@ public class StatisticsWriter implements Closeable {
                  * GuidePostsKey key, long clientTimeStamp).
                  */
                 addGuidepost(cfKey, mutations, ByteUtil.EMPTY_IMMUTABLE_BYTE_ARRAY, guidePostDepth,
-                    0, timeStamp);
+                    0, null, 0, timeStamp);
             }
         }
     }
     
     @SuppressWarnings("deprecation")
-    private void addGuidepost(ImmutableBytesPtr cfKey, List<Mutation> mutations, ImmutableBytesWritable ptr, long byteCount, long rowCount, long timeStamp) {
+    private void addGuidepost(ImmutableBytesPtr cfKey, List<Mutation> mutations, ImmutableBytesWritable ptr, long byteCount, long rowCount,
+            ZoneMap zoneMap, long zoneMapTimeStamp, long timeStamp) {
         byte[] prefix = StatisticsUtil.getRowKey(tableName, cfKey, ptr);
         Put put = new Put(prefix);
         put.addColumn(QueryConstants.DEFAULT_COLUMN_FAMILY_BYTES, PhoenixDatabaseMetaData.GUIDE_POSTS_WIDTH_BYTES,
@@ -227,6 +229,11 @@ public class StatisticsWriter implements Closeable {
         put.addColumn(QueryConstants.DEFAULT_COLUMN_FAMILY_BYTES,
                 PhoenixDatabaseMetaData.GUIDE_POSTS_ROW_COUNT_BYTES, timeStamp,
                 PLong.INSTANCE.toBytes(rowCount));
+        if (zoneMap != null) {
+            put.addColumn(QueryConstants.DEFAULT_COLUMN_FAMILY_BYTES,
+                    PhoenixDatabaseMetaData.GUIDE_POSTS_ZONE_MAP_BYTES, timeStamp,
+                    ZoneMap.toBytes(zoneMap, zoneMapTimeStamp));
+        }
         // Add our empty column value so queries behave correctly
         put.addColumn(QueryConstants.DEFAULT_COLUMN_FAMILY_BYTES, QueryConstants.EMPTY_COLUMN_BYTES, timeStamp,
                 ByteUtil.EMPTY_BYTE_ARRAY);
@@ -0,0 +1,390 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.phoenix.schema.stats;
+
+import static org.apache.phoenix.schema.PTable.ImmutableStorageScheme.SINGLE_CELL_ARRAY_WITH_OFFSETS;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.apache.hadoop.hbase.Cell;
+import org.apache.hadoop.hbase.CellUtil;
+import org.apache.hadoop.hbase.KeyValue;
+import org.apache.hadoop.hbase.io.ImmutableBytesWritable;
+import org.apache.hadoop.hbase.util.Bytes;
+import org.apache.hadoop.io.WritableUtils;
+import org.apache.phoenix.expression.AndExpression;
+import org.apache.phoenix.expression.ComparisonExpression;
+import org.apache.phoenix.expression.Expression;
+import org.apache.phoenix.expression.KeyValueColumnExpression;
+import org.apache.phoenix.expression.LiteralExpression;
+import org.apache.phoenix.expression.OrExpression;
+import org.apache.phoenix.expression.SingleCellColumnExpression;
+import org.apache.phoenix.query.QueryConstants;
+import org.apache.phoenix.schema.PColumn;
+import org.apache.phoenix.schema.PTable;
+import org.apache.phoenix.schema.PTable.ImmutableStorageScheme;
+import org.apache.phoenix.schema.PTable.QualifierEncodingScheme;
+import org.apache.phoenix.schema.SortOrder;
+import org.apache.phoenix.schema.types.PDataType;
+import org.apache.phoenix.util.SizedUtil;
+
+/**
+ * Min and max values of selected non PK columns over the rows between the start key of the zone
+ * and its guidepost, both inclusive. Zone maps are collected along with the guideposts and allow
+ * the chunk of a scan ending at a guidepost to be skipped when its WHERE clause cannot match any
+ * value within the zone. The timestamp is the latest cell timestamp seen when collecting the zone
+ * map, so that rows written afterwards can be detected on the server.
+ */
+public class ZoneMap {
+    private final byte[] startKey;
+    private final long timestamp;
+    private final List<Column> columns;
+    private final byte[][] minValues;
+    private final byte[][] maxValues;
+
+    /**
+     * A non PK column tracked by zone maps. Values of tables stored with
+     * SINGLE_CELL_ARRAY_WITH_OFFSETS are identified by their position within the packed cell.
+     */
+    public static class Column {
+        private final byte[] family;
+        private final byte[] qualifier;
+        private final int arrayIndex;
+        private final PDataType type;
+
+        public Column(byte[] family, byte[] qualifier, int arrayIndex, PDataType type) {
+            this.family = family;
+            this.qualifier = qualifier;
+            this.arrayIndex = arrayIndex;
+            this.type = type;
+        }
+
+        /**
+         * @return the zone map column that tracks the values of the given non PK column
+         */
+        public static Column newColumn(PTable table, PColumn column) {
+            return newColumn(column.getFamilyName().getBytes(), column.getColumnQualifierBytes(),
+                    column.getDataType(), table.getImmutableStorageScheme(), table.getEncodingScheme());
+        }
+
+        /**
+         * @return the zone map column that tracks the values of the non PK column with the given
+         *         family and qualifier, in a table with the given storage and encoding schemes
+         */
+        public static Column newColumn(byte[] family, byte[] columnQualifier, PDataType type,
+                ImmutableStorageScheme storageScheme, QualifierEncodingScheme encodingScheme) {
+            if (storageScheme == SINGLE_CELL_ARRAY_WITH_OFFSETS) {
+                // Same position as computed by SingleCellColumnExpression
+                int arrayIndex = encodingScheme.decode(columnQualifier)
+                        - QueryConstants.ENCODED_CQ_COUNTER_INITIAL_VALUE + 1;
+                return new Column(family, QueryConstants.SINGLE_KEYVALUE_COLUMN_QUALIFIER_BYTES, arrayIndex, type);
+            }
+            return new Column(family, columnQualifier, -1, type);
+        }
+
+        public byte[] getFamily() {
+            return family;
+        }
+
+        public byte[] getQualifier() {
+            return qualifier;
+        }
+
+        /**
+         * @return the position of the value within the packed cell or -1 if the column is
+         *         stored in its own cell
+         */
+        public int getArrayIndex() {
+            return arrayIndex;
+        }
+
+        public PDataType getType() {
+            return type;
+        }
+
+        private boolean matches(KeyValueColumnExpression expression) {
+            int expressionArrayIndex = expression instanceof SingleCellColumnExpression
+                    ? ((SingleCellColumnExpression) expression).getArrayIndex() : -1;
+            return arrayIndex == expressionArrayIndex && type == expression.getDataType()
+                    && Bytes.equals(family, expression.getColumnFamily())
+                    && Bytes.equals(qualifier, expression.getColumnQualifier());
+        }
+    }
+
+    ZoneMap(byte[] startKey, long timestamp, List<Column> columns, byte[][] minValues,
+            byte[][] maxValues) {
+        this.startKey = startKey;
+        this.timestamp = timestamp;
+        this.columns = columns;
+        this.minValues = minValues;
+        this.maxValues = maxValues;
+    }
+
+    public byte[] getStartKey() {
+        return startKey;
+    }
+
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    public List<Column> getColumns() {
+        return columns;
+    }
+
+    /**
+     * @return the smallest value of the column at the given position, or null if the column has
+     *         no value within the zone
+     */
+    public byte[] getMinValue(int columnIndex) {
+        return minValues[columnIndex];
+    }
+
+    /**
+     * @return the largest value of the column at the given position, or null if the column has
+     *         no value within the zone
+     */
+    public byte[] getMaxValue(int columnIndex) {
+        return maxValues[columnIndex];
+    }
+
+    public int getEstimatedSize() {
+        int size = SizedUtil.OBJECT_SIZE + SizedUtil.ARRAY_SIZE + startKey.length + SizedUtil.LONG_SIZE
+                + SizedUtil.sizeOfArrayList(columns.size()) + 2 * SizedUtil.ARRAY_SIZE;
+        for (int i = 0; i < columns.size(); i++) {
+            Column column = columns.get(i);
+            size += SizedUtil.OBJECT_SIZE + 2 * SizedUtil.ARRAY_SIZE + column.family.length
+                    + column.qualifier.length + SizedUtil.INT_SIZE + SizedUtil.POINTER_SIZE;
+            size += 2 * SizedUtil.ARRAY_SIZE + (minValues[i] == null ? 0 : minValues[i].length)
+                    + (maxValues[i] == null ? 0 : maxValues[i].length);
+        }
+        return size;
+    }
+
+    /**
+     * Determines whether no row of the zone can satisfy the given WHERE expression, based on the
+     * comparisons of tracked columns against constants that it is made of. Expressions that are
+     * not understood are considered satisfiable.
+     */
+    public boolean isPruned(Expression expression) {
+        if (expression instanceof AndExpression) {
+            for (Expression child : expression.getChildren()) {
+                if (isPruned(child)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+        if (expression instanceof OrExpression) {
+            for (Expression child : expression.getChildren()) {
+                if (!isPruned(child)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+        if (expression instanceof ComparisonExpression) {
+            return isPruned((ComparisonExpression) expression);
+        }
+        return false;
+    }
+
+    private boolean isPruned(ComparisonExpression comparison) {
+        // Constants are always on the right hand side of compiled comparisons
+        Expression lhs = comparison.getChildren().get(0);
+        Expression rhs = comparison.getChildren().get(1);
+        if (!(lhs instanceof KeyValueColumnExpression) || !(rhs instanceof LiteralExpression)
+                || ((LiteralExpression) rhs).getValue() == null) {
+            return false;
+        }
+        KeyValueColumnExpression columnExpression = (KeyValueColumnExpression) lhs;
+        for (int i = 0; i < columns.size(); i++) {
+            Column column = columns.get(i);
+            if (column.matches(columnExpression)) {
+                if (minValues[i] == null) {
+                    // Comparisons against null values are never true
+                    return true;
+                }
+                ImmutableBytesWritable ptr = new ImmutableBytesWritable();
+                rhs.evaluate(null, ptr);
+                int minComparedToValue = column.type.compareTo(minValues[i], 0, minValues[i].length,
+                        SortOrder.getDefault(), ptr.get(), ptr.getOffset(), ptr.getLength(),
+                        rhs.getSortOrder(), rhs.getDataType());
+                int maxComparedToValue = column.type.compareTo(maxValues[i], 0, maxValues[i].length,
+                        SortOrder.getDefault(), ptr.get(), ptr.getOffset(), ptr.getLength(),
+                        rhs.getSortOrder(), rhs.getDataType());
+                switch (comparison.getFilterOp()) {
+                case EQUAL:
+                    return minComparedToValue > 0 || maxComparedToValue < 0;
+                case NOT_EQUAL:
+                    return minComparedToValue == 0 && maxComparedToValue == 0;
+                case GREATER:
+                    return maxComparedToValue <= 0;
+                case GREATER_OR_EQUAL:
+                    return maxComparedToValue < 0;
+                case LESS:
+                    return minComparedToValue >= 0;
+                case LESS_OR_EQUAL:
+                    return minComparedToValue > 0;
+                default:
+                    return false;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Serializes the zone map along with the timestamp up to which it covers the rows of the zone.
+     */
+    public static byte[] toBytes(ZoneMap zoneMap, long timestamp) {
+        ByteArrayOutputStream stream = new ByteArrayOutputStream();
+        try {
+            DataOutputStream output = new DataOutputStream(stream);
+            WritableUtils.writeVLong(output, timestamp);
+            Bytes.writeByteArray(output, zoneMap.startKey);
+            WritableUtils.writeVInt(output, zoneMap.columns.size());
+            for (int i = 0; i < zoneMap.columns.size(); i++) {
+                Column column = zoneMap.columns.get(i);
+                Bytes.writeByteArray(output, column.family);
+                Bytes.writeByteArray(output, column.qualifier);
+                WritableUtils.writeVInt(output, column.arrayIndex);
+                WritableUtils.writeVInt(output, column.type.getSqlType());
+                // An empty min value denotes a column without values as values are never empty
+                Bytes.writeByteArray(output, zoneMap.minValues[i] == null ? new byte[0] : zoneMap.minValues[i]);
+                Bytes.writeByteArray(output, zoneMap.maxValues[i] == null ? new byte[0] : zoneMap.maxValues[i]);
+            }
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+        return stream.toByteArray();
+    }
+
+    public static ZoneMap fromBytes(byte[] bytes, int offset, int length) throws IOException {
+        DataInputStream input = new DataInputStream(new ByteArrayInputStream(bytes, offset, length));
+        long timestamp = WritableUtils.readVLong(input);
+        byte[] startKey = Bytes.readByteArray(input);
+        int columnCount = WritableUtils.readVInt(input);
+        Column[] columns = new Column[columnCount];
+        byte[][] minValues = new byte[columnCount][];
+        byte[][] maxValues = new byte[columnCount][];
+        for (int i = 0; i < columnCount; i++) {
+            byte[] family = Bytes.readByteArray(input);
+            byte[] qualifier = Bytes.readByteArray(input);
+            int arrayIndex = WritableUtils.readVInt(input);
+            PDataType type = PDataType.fromTypeId(WritableUtils.readVInt(input));
+            columns[i] = new Column(family, qualifier, arrayIndex, type);
+            minValues[i] = Bytes.readByteArray(input);
+            maxValues[i] = Bytes.readByteArray(input);
+            if (minValues[i].length == 0) {
+                minValues[i] = maxValues[i] = null;
+            }
+        }
+        return new ZoneMap(startKey, timestamp, Arrays.asList(columns), minValues, maxValues);
+    }
+
+    /**
+     * Builds the consecutive zone maps of a region while its rows are scanned. As a guidepost is
+     * the row at which the byte count of the zone is exceeded, that row is included both in the
+     * zone ending at the guidepost and in the next one.
+     */
+    public static class Builder {
+        private final List<Column> columns;
+        private final ImmutableBytesWritable ptr = new ImmutableBytesWritable();
+        private byte[] startKey;
+        private byte[][] minValues;
+        private byte[][] maxValues;
+        private byte[][] rowMinValues;
+        private byte[][] rowMaxValues;
+
+        public Builder(byte[] startKey, List<Column> columns) {
+            this.startKey = startKey;
+            this.columns = Collections.unmodifiableList(columns);
+            this.minValues = new byte[columns.size()][];
+            this.maxValues = new byte[columns.size()][];
+            this.rowMinValues = new byte[columns.size()][];
+            this.rowMaxValues = new byte[columns.size()][];
+        }
+
+        public void startRow() {
+            Arrays.fill(rowMinValues, null);
+            Arrays.fill(rowMaxValues, null);
+        }
+
+        public void add(Cell cell) {
+            if (cell.getTypeByte() != KeyValue.Type.Put.getCode() || cell.getValueLength() == 0) {
+                return;
+            }
+            for (int i = 0; i < columns.size(); i++) {
+                Column column = columns.get(i);
+                if (!CellUtil.matchingFamily(cell, column.family)
+                        || !CellUtil.matchingQualifier(cell, column.qualifier)) {
+                    continue;
+                }
+                ptr.set(cell.getValueArray(), cell.getValueOffset(), cell.getValueLength());
+                if (column.arrayIndex >= 0
+                        && !SINGLE_CELL_ARRAY_WITH_OFFSETS.getDecoder().decode(ptr, column.arrayIndex)) {
+                    continue;
+                }
+                if (ptr.getLength() == 0) {
+                    continue;
+                }
+                if (isLess(column, ptr, minValues[i])) {
+                    minValues[i] = ptr.copyBytes();
+                }
+                if (isGreater(column, ptr, maxValues[i])) {
+                    maxValues[i] = ptr.copyBytes();
+                }
+                if (isLess(column, ptr, rowMinValues[i])) {
+                    rowMinValues[i] = ptr.copyBytes();
+                }
+                if (isGreater(column, ptr, rowMaxValues[i])) {
+                    rowMaxValues[i] = ptr.copyBytes();
+                }
+            }
+        }
+
+        private static boolean isLess(Column column, ImmutableBytesWritable ptr, byte[] value) {
+            return value == null || column.type.compareTo(ptr.get(), ptr.getOffset(), ptr.getLength(),
+                    SortOrder.getDefault(), value, 0, value.length, SortOrder.getDefault(), column.type) < 0;
+        }
+
+        private static boolean isGreater(Column column, ImmutableBytesWritable ptr, byte[] value) {
+            return value == null || column.type.compareTo(ptr.get(), ptr.getOffset(), ptr.getLength(),
+                    SortOrder.getDefault(), value, 0, value.length, SortOrder.getDefault(), column.type) > 0;
+        }
+
+        /**
+         * Completes the zone ending at the current row, which becomes the start of the next zone.
+         */
+        public ZoneMap build(byte[] guidePost) {
+            ZoneMap zoneMap = new ZoneMap(startKey, 0, columns, minValues, maxValues);
+            startKey = guidePost;
+            minValues = rowMinValues.clone();
+            maxValues = rowMaxValues.clone();
+            return zoneMap;
+        }
+    }
+}
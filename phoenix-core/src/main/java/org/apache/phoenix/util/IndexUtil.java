@@ -29,7 +29,9 @@ import static org.apache.phoenix.schema.types.PDataType.TRUE_BYTES;
 import static org.apache.phoenix.util.PhoenixRuntime.getTable;
 
 import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.DataInputStream;
+import java.io.DataOutputStream;
 import java.io.IOException;
 import java.sql.Connection;
 import java.sql.SQLException;
@@ -40,6 +42,7 @@ import java.util.List;
 import java.util.ListIterator;
 import java.util.Map;
 import java.util.NavigableSet;
+import java.util.TreeMap;
 import java.util.concurrent.TimeUnit;
 
 import com.google.common.cache.Cache;
@@ -62,10 +65,12 @@ import org.apache.hadoop.hbase.coprocessor.RegionCoprocessorEnvironment;
 import org.apache.hadoop.hbase.filter.Filter;
 import org.apache.hadoop.hbase.filter.FirstKeyOnlyFilter;
 import org.apache.hadoop.hbase.io.ImmutableBytesWritable;
+import org.apache.hadoop.hbase.io.TimeRange;
 import org.apache.hadoop.hbase.ipc.CoprocessorRpcUtils.BlockingRpcCallback;
 import org.apache.hadoop.hbase.ipc.ServerRpcController;
 import org.apache.hadoop.hbase.protobuf.generated.ClientProtos.MutationProto;
 import org.apache.hadoop.hbase.regionserver.Region;
+import org.apache.hadoop.hbase.regionserver.RegionScanner;
 import org.apache.hadoop.hbase.regionserver.Store;
 import org.apache.hadoop.hbase.util.Bytes;
 import org.apache.hadoop.io.WritableUtils;
@@ -87,6 +92,7 @@ import org.apache.phoenix.execute.BaseQueryPlan;
 import org.apache.phoenix.execute.MutationState.MultiRowMutationState;
 import org.apache.phoenix.execute.TupleProjector;
 import org.apache.phoenix.expression.Expression;
+import org.apache.phoenix.expression.ExpressionType;
 import org.apache.phoenix.expression.KeyValueColumnExpression;
 import org.apache.phoenix.expression.RowKeyColumnExpression;
 import org.apache.phoenix.expression.SingleCellColumnExpression;
@@ -123,6 +129,7 @@ import org.apache.phoenix.schema.PName;
 import org.apache.phoenix.schema.PNameFactory;
 import org.apache.phoenix.schema.PTable;
 import org.apache.phoenix.schema.PTable.ImmutableStorageScheme;
+import org.apache.phoenix.schema.PTable.IndexType;
 import org.apache.phoenix.schema.PTable.QualifierEncodingScheme;
 import org.apache.phoenix.schema.PTableType;
 import org.apache.phoenix.schema.TableNotFoundException;
@@ -456,6 +463,41 @@ public class IndexUtil {
         }
     }
 
+    /**
+     * @return true if columns that the index does not cover are joined back from the data table,
+     *         which is the case for local indexes and for global indexes used through a hint
+     */
+    public static boolean shouldIndexBeUsedForUncoveredQuery(TableRef tableRef) {
+        PTable table = tableRef.getTable();
+        return table.getIndexType() == IndexType.LOCAL
+                || (table.getIndexType() == IndexType.GLOBAL && tableRef.isHinted());
+    }
+
+    public static void serializeUncoveredGlobalIndexFilter(Scan scan, Expression filter) {
+        ByteArrayOutputStream stream = new ByteArrayOutputStream();
+        try {
+            DataOutputStream output = new DataOutputStream(stream);
+            WritableUtils.writeVInt(output, ExpressionType.valueOf(filter).ordinal());
+            filter.write(output);
+            scan.setAttribute(BaseScannerRegionObserver.UNCOVERED_GLOBAL_INDEX_FILTER, stream.toByteArray());
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    public static Expression deserializeUncoveredGlobalIndexFilter(Scan scan) {
+        byte[] bytes = scan.getAttribute(BaseScannerRegionObserver.UNCOVERED_GLOBAL_INDEX_FILTER);
+        if (bytes == null) return null;
+        try {
+            DataInputStream input = new DataInputStream(new ByteArrayInputStream(bytes));
+            Expression filter = ExpressionType.values()[WritableUtils.readVInt(input)].newInstance();
+            filter.readFields(input);
+            return filter;
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
     public static byte[][] deserializeViewConstantsFromScan(Scan scan) {
         byte[] bytes = scan.getAttribute(BaseScannerRegionObserver.VIEW_CONSTANTS);
         if (bytes == null) return null;
@@ -559,10 +601,7 @@ public class IndexUtil {
         if (tupleProjector != null) {
             // Join back to data table here by issuing a local get projecting
             // all of the cq:cf from the KeyValueColumnExpression into the Get.
-            Cell firstCell = result.get(0);
-            byte[] indexRowKey = firstCell.getRowArray();
-            ptr.set(indexRowKey, firstCell.getRowOffset() + offset, firstCell.getRowLength() - offset);
-            byte[] dataRowKey = indexMaintainer.buildDataRowKey(ptr, viewConstants);
+            byte[] dataRowKey = getDataRowKey(result.get(0), offset, indexMaintainer, viewConstants, ptr);
             Get get = new Get(dataRowKey);
             ImmutableStorageScheme storageScheme = indexMaintainer.getIndexStorageScheme();
             for (int i = 0; i < dataColumns.length; i++) {
@@ -587,20 +626,163 @@ public class IndexUtil {
                     if (table != null) table.close();
                 }
             }
-            // at this point join result has data from the data table. We now need to take this result and
-            // add it to the cells that we are returning. 
-            // TODO: handle null case (but shouldn't happen)
-            Tuple joinTuple = new ResultTuple(joinResult);
-            // This will create a byte[] that captures all of the values from the data table
-            byte[] value =
-                    tupleProjector.getSchema().toBytes(joinTuple, tupleProjector.getExpressions(),
-                        tupleProjector.getValueBitSet(), ptr);
-            Cell keyValue =
-                    PhoenixKeyValueUtil.newKeyValue(firstCell.getRowArray(),firstCell.getRowOffset(),firstCell.getRowLength(), VALUE_COLUMN_FAMILY,
-                        VALUE_COLUMN_QUALIFIER, firstCell.getTimestamp(), value, 0, value.length);
-            result.add(keyValue);
-        }
-        
+            addJoinedValue(result, joinResult, tupleProjector, ptr);
+        }
+        offsetCells(result, offset);
+    }
+
+    /**
+     * Batched version of {@link #wrapResultUsingOffset} for local index rows that are not covered
+     * by the index, when the data region is available. Instead of a Get per index row, the data
+     * rows are looked up in row key order through a single scanner reseeked to each of them.
+     */
+    public static void wrapResultsUsingOffset(List<List<Cell>> results, final int offset,
+            ColumnReference[] dataColumns, TupleProjector tupleProjector, Region dataRegion,
+            IndexMaintainer indexMaintainer, byte[][] viewConstants, ImmutableBytesWritable ptr)
+            throws IOException {
+        byte[][] dataRowKeys = new byte[results.size()][];
+        TreeMap<byte[], Result> joinResults = new TreeMap<byte[], Result>(Bytes.BYTES_COMPARATOR);
+        for (int i = 0; i < dataRowKeys.length; i++) {
+            dataRowKeys[i] = getDataRowKey(results.get(i).get(0), offset, indexMaintainer, viewConstants, ptr);
+            joinResults.put(dataRowKeys[i], null);
+        }
+        Scan scan = new Scan().withStartRow(joinResults.firstKey())
+                .withStopRow(joinResults.lastKey(), true);
+        ImmutableStorageScheme storageScheme = indexMaintainer.getIndexStorageScheme();
+        for (int i = 0; i < dataColumns.length; i++) {
+            if (storageScheme == ImmutableStorageScheme.SINGLE_CELL_ARRAY_WITH_OFFSETS) {
+                scan.addFamily(dataColumns[i].getFamily());
+            } else {
+                scan.addColumn(dataColumns[i].getFamily(), dataColumns[i].getQualifier());
+            }
+        }
+        try (RegionScanner scanner = dataRegion.getScanner(scan)) {
+            List<Cell> row = new ArrayList<Cell>();
+            boolean hasMore = true;
+            for (Map.Entry<byte[], Result> entry : joinResults.entrySet()) {
+                byte[] dataRowKey = entry.getKey();
+                // The scanner only moves forward, so it may already be past a missing data row
+                if (row.isEmpty() || compareRow(row.get(0), dataRowKey) < 0) {
+                    row.clear();
+                    if (!hasMore) {
+                        break;
+                    }
+                    scanner.reseek(dataRowKey);
+                    hasMore = scanner.next(row);
+                }
+                if (!row.isEmpty() && compareRow(row.get(0), dataRowKey) == 0) {
+                    // Copy the cells as they are used after the scanner is closed
+                    Cell[] cells = new Cell[row.size()];
+                    for (int i = 0; i < cells.length; i++) {
+                        cells[i] = PhoenixKeyValueUtil.maybeCopyCell(row.get(i));
+                    }
+                    entry.setValue(Result.create(cells));
+                }
+            }
+        }
+        for (int i = 0; i < dataRowKeys.length; i++) {
+            Result joinResult = joinResults.get(dataRowKeys[i]);
+            List<Cell> result = results.get(i);
+            addJoinedValue(result, joinResult == null ? Result.EMPTY_RESULT : joinResult, tupleProjector, ptr);
+            offsetCells(result, offset);
+        }
+    }
+
+    /**
+     * Joins rows of a global index that does not cover the query back to the data table. The
+     * data rows of the whole batch are fetched with a single multi-get, which the client groups
+     * into one request per data table region server. The gets read as of the time range of the
+     * index scan, so that a query at an SCN does not see newer data rows.
+     * <p>
+     * Index rows whose data row does not exist or no longer maps to them are cleared, as the data
+     * table skip scan join this replaces would have dropped them.
+     */
+    public static void wrapResultsUsingDataTable(List<List<Cell>> results, ColumnReference[] dataColumns,
+            TupleProjector tupleProjector, Table dataTable, IndexMaintainer indexMaintainer,
+            byte[][] viewConstants, TimeRange timeRange, ImmutableBytesWritable ptr) throws IOException {
+        List<Get> gets = Lists.newArrayListWithExpectedSize(results.size());
+        ImmutableStorageScheme storageScheme = indexMaintainer.getIndexStorageScheme();
+        for (List<Cell> result : results) {
+            Get get = new Get(getDataRowKey(result.get(0), 0, indexMaintainer, viewConstants, ptr));
+            for (int i = 0; i < dataColumns.length; i++) {
+                if (storageScheme == ImmutableStorageScheme.SINGLE_CELL_ARRAY_WITH_OFFSETS) {
+                    get.addFamily(dataColumns[i].getFamily());
+                } else {
+                    get.addColumn(dataColumns[i].getFamily(), dataColumns[i].getQualifier());
+                }
+            }
+            // The empty column tells a missing data row from one with null data columns, and the
+            // indexed columns whether the data row still maps to the index row
+            addColumnIfFamilyNotAdded(get, indexMaintainer.getDataEmptyKeyValueCF(),
+                    indexMaintainer.getEmptyKeyValueQualifier());
+            for (ColumnReference ref : indexMaintainer.getIndexedColumns()) {
+                addColumnIfFamilyNotAdded(get, ref.getFamily(), ref.getQualifier());
+            }
+            get.setTimeRange(timeRange.getMin(), timeRange.getMax());
+            gets.add(get);
+        }
+        Result[] joinResults = dataTable.get(gets);
+        for (int i = 0; i < joinResults.length; i++) {
+            List<Cell> result = results.get(i);
+            if (isJoinedDataRowValid(result.get(0), joinResults[i], indexMaintainer)) {
+                addJoinedValue(result, joinResults[i], tupleProjector, ptr);
+            } else {
+                result.clear();
+            }
+        }
+    }
+
+    private static void addColumnIfFamilyNotAdded(Get get, byte[] family, byte[] qualifier) {
+        Map<byte[], NavigableSet<byte[]>> familyMap = get.getFamilyMap();
+        // A column added to a family that is fetched as a whole would restrict it to that column
+        if (!familyMap.containsKey(family) || familyMap.get(family) != null) {
+            get.addColumn(family, qualifier);
+        }
+    }
+
+    private static boolean isJoinedDataRowValid(Cell indexCell, Result joinResult,
+            IndexMaintainer indexMaintainer) {
+        if (joinResult.isEmpty() || joinResult.getColumnLatestCell(indexMaintainer.getDataEmptyKeyValueCF(),
+                indexMaintainer.getEmptyKeyValueQualifier()) == null) {
+            return false;
+        }
+        ValueGetter valueGetter = indexMaintainer.createGetterFromKeyValues(joinResult.getRow(),
+                joinResult.listCells());
+        byte[] expectedIndexRowKey = indexMaintainer.buildRowKey(valueGetter,
+                new ImmutableBytesWritable(joinResult.getRow()), null, null, HConstants.LATEST_TIMESTAMP);
+        return Bytes.compareTo(indexCell.getRowArray(), indexCell.getRowOffset(), indexCell.getRowLength(),
+                expectedIndexRowKey, 0, expectedIndexRowKey.length) == 0;
+    }
+
+    private static int compareRow(Cell cell, byte[] row) {
+        return Bytes.compareTo(cell.getRowArray(), cell.getRowOffset(), cell.getRowLength(), row, 0, row.length);
+    }
+
+    private static byte[] getDataRowKey(Cell firstCell, int offset, IndexMaintainer indexMaintainer,
+            byte[][] viewConstants, ImmutableBytesWritable ptr) {
+        byte[] indexRowKey = firstCell.getRowArray();
+        ptr.set(indexRowKey, firstCell.getRowOffset() + offset, firstCell.getRowLength() - offset);
+        return indexMaintainer.buildDataRowKey(ptr, viewConstants);
+    }
+
+    private static void addJoinedValue(List<Cell> result, Result joinResult, TupleProjector tupleProjector,
+            ImmutableBytesWritable ptr) {
+        // at this point join result has data from the data table. We now need to take this result and
+        // add it to the cells that we are returning. 
+        // TODO: handle null case (but shouldn't happen)
+        Cell firstCell = result.get(0);
+        Tuple joinTuple = new ResultTuple(joinResult);
+        // This will create a byte[] that captures all of the values from the data table
+        byte[] value =
+                tupleProjector.getSchema().toBytes(joinTuple, tupleProjector.getExpressions(),
+                    tupleProjector.getValueBitSet(), ptr);
+        Cell keyValue =
+                PhoenixKeyValueUtil.newKeyValue(firstCell.getRowArray(),firstCell.getRowOffset(),firstCell.getRowLength(), VALUE_COLUMN_FAMILY,
+                    VALUE_COLUMN_QUALIFIER, firstCell.getTimestamp(), value, 0, value.length);
+        result.add(keyValue);
+    }
+
+    private static void offsetCells(List<Cell> result, int offset) {
         ListIterator<Cell> itr = result.listIterator();
         while (itr.hasNext()) {
             final Cell cell = itr.next();
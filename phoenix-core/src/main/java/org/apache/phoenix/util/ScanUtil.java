@@ -115,6 +115,14 @@ public class ScanUtil {
         return scan.getAttribute(BaseScannerRegionObserver.LOCAL_INDEX) != null;
     }
 
+    public static void setUncoveredGlobalIndex(Scan scan, byte[] dataTablePhysicalName) {
+        scan.setAttribute(BaseScannerRegionObserver.UNCOVERED_GLOBAL_INDEX, dataTablePhysicalName);
+    }
+
+    public static boolean isUncoveredGlobalIndex(Scan scan) {
+        return scan.getAttribute(BaseScannerRegionObserver.UNCOVERED_GLOBAL_INDEX) != null;
+    }
+
     public static boolean isNonAggregateScan(Scan scan) {
         return scan.getAttribute(BaseScannerRegionObserver.NON_AGGREGATE_QUERY) != null;
     }
@@ -948,6 +956,10 @@ public class ScanUtil {
     public static boolean isIndexRebuild(Scan scan) {
         return scan.getAttribute((BaseScannerRegionObserver.REBUILD_INDEXES)) != null;
     }
+
+    public static boolean isIndexVerifyChecksum(Scan scan) {
+        return scan.getAttribute(BaseScannerRegionObserver.INDEX_VERIFY_CHECKSUM) != null;
+    }
  
     public static int getClientVersion(Scan scan) {
         int clientVersion = UNKNOWN_CLIENT_VERSION;
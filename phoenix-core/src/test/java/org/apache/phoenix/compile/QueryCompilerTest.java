@@ -6475,4 +6475,44 @@ public class QueryCompilerTest extends BaseConnectionlessQueryTest {
             conn.close();
         }
     }
+
+    @Test
+    public void testServerUpsertSelectJoin() throws Exception {
+        Properties props = PropertiesUtil.deepCopy(TEST_PROPERTIES);
+        props.setProperty(QueryServices.ENABLE_SERVER_UPSERT_SELECT, Boolean.TRUE.toString());
+        Connection conn = DriverManager.getConnection(getUrl(), props);
+        try {
+            conn.createStatement().execute("CREATE TABLE S1(k INTEGER PRIMARY KEY, v1 VARCHAR)");
+            conn.createStatement().execute("CREATE TABLE S2(k INTEGER PRIMARY KEY, v2 VARCHAR)");
+            conn.createStatement().execute("CREATE TABLE S3(k INTEGER PRIMARY KEY, v1 VARCHAR, v2 VARCHAR)");
+            String upsert = "UPSERT INTO S3 SELECT a.k, a.v1, b.v2 FROM S1 a JOIN S2 b ON a.k = b.k";
+            conn.setAutoCommit(true);
+            ResultSet rs = conn.createStatement().executeQuery("EXPLAIN " + upsert);
+            assertTrue(QueryUtil.getExplainPlan(rs).startsWith("UPSERT SELECT\n"));
+        } finally {
+            conn.close();
+        }
+
+        props.setProperty(QueryServices.ENABLE_SERVER_UPSERT_SELECT_JOIN, Boolean.TRUE.toString());
+        conn = DriverManager.getConnection(getUrl(), props);
+        try {
+            conn.setAutoCommit(true);
+            String upsert = "UPSERT INTO S3 SELECT a.k, a.v1, b.v2 FROM S1 a JOIN S2 b ON a.k = b.k";
+            ResultSet rs = conn.createStatement().executeQuery("EXPLAIN " + upsert);
+            String explainPlan = QueryUtil.getExplainPlan(rs);
+            assertTrue(explainPlan, explainPlan.startsWith("UPSERT ROWS\n"));
+            assertTrue(explainPlan, explainPlan.contains("PARALLEL INNER-JOIN TABLE 0"));
+            // the rows of a sort merge join are merged on the client
+            upsert = "UPSERT /*+ USE_SORT_MERGE_JOIN */ INTO S3 SELECT a.k, a.v1, b.v2 "
+                    + "FROM S1 a JOIN S2 b ON a.k = b.k";
+            rs = conn.createStatement().executeQuery("EXPLAIN " + upsert);
+            assertTrue(QueryUtil.getExplainPlan(rs).startsWith("UPSERT SELECT\n"));
+            conn.setAutoCommit(false);
+            upsert = "UPSERT INTO S3 SELECT a.k, a.v1, b.v2 FROM S1 a JOIN S2 b ON a.k = b.k";
+            rs = conn.createStatement().executeQuery("EXPLAIN " + upsert);
+            assertTrue(QueryUtil.getExplainPlan(rs).startsWith("UPSERT SELECT\n"));
+        } finally {
+            conn.close();
+        }
+    }
 }
@@ -42,6 +42,7 @@ import org.apache.hadoop.hbase.client.Scan;
 import org.apache.hadoop.hbase.util.Bytes;
 import org.apache.hadoop.hbase.util.Pair;
 import org.apache.phoenix.compile.OrderByCompiler.OrderBy;
+import org.apache.phoenix.coprocessor.BaseScannerRegionObserver;
 import org.apache.phoenix.jdbc.PhoenixPreparedStatement;
 import org.apache.phoenix.jdbc.PhoenixResultSet;
 import org.apache.phoenix.jdbc.PhoenixStatement;
@@ -50,6 +51,7 @@ import org.apache.phoenix.parse.HintNode.Hint;
 import org.apache.phoenix.parse.SQLParser;
 import org.apache.phoenix.query.BaseConnectionlessQueryTest;
 import org.apache.phoenix.query.QueryConstants;
+import org.apache.phoenix.query.QueryServices;
 import org.apache.phoenix.schema.PColumn;
 import org.apache.phoenix.schema.PTableType;
 import org.apache.phoenix.util.PhoenixRuntime;
@@ -278,6 +280,27 @@ public class QueryOptimizerTest extends BaseConnectionlessQueryTest {
         assertEquals("T", plan.getTableRef().getTable().getTableName().getString());
     }
     
+    @Test
+    public void testIgnoreIndexesForSnapshotHint() throws Exception {
+        Connection conn = DriverManager.getConnection(getUrl());
+        conn.createStatement().execute("CREATE TABLE t (k INTEGER NOT NULL PRIMARY KEY, v1 VARCHAR, v2 VARCHAR) IMMUTABLE_ROWS=true");
+        conn.createStatement().execute("CREATE INDEX idx1 ON t(v1) INCLUDE(v2)");
+        PhoenixStatement stmt = conn.createStatement().unwrap(PhoenixStatement.class);
+        QueryPlan plan = stmt.optimizeQuery("SELECT /*+ SNAPSHOT(T_SNAPSHOT) */ k FROM t WHERE v1 = 'foo' AND v2 = 'bar'");
+        assertEquals("T", plan.getTableRef().getTable().getTableName().getString());
+    }
+
+    @Test
+    public void testUseIndexesForIgnoredSnapshotHint() throws Exception {
+        Connection conn = DriverManager.getConnection(getUrl());
+        conn.createStatement().execute("CREATE TABLE t (k INTEGER NOT NULL PRIMARY KEY, v1 VARCHAR, v2 VARCHAR) IMMUTABLE_ROWS=true");
+        conn.createStatement().execute("CREATE INDEX idx1 ON t(v1) INCLUDE(v2)");
+        PhoenixStatement stmt = conn.createStatement().unwrap(PhoenixStatement.class);
+        // aggregates are computed by the region servers, not read from the snapshot
+        QueryPlan plan = stmt.optimizeQuery("SELECT /*+ SNAPSHOT(T_SNAPSHOT) */ count(*) FROM t WHERE v1 = 'foo'");
+        assertEquals("IDX1", plan.getTableRef().getTable().getTableName().getString());
+    }
+
     @Test
     public void testChooseIndexFromHint() throws Exception {
         Connection conn = DriverManager.getConnection(getUrl());
@@ -291,6 +314,38 @@ public class QueryOptimizerTest extends BaseConnectionlessQueryTest {
         assertEquals("IDX2", plan.getTableRef().getTable().getTableName().getString());
     }
 
+    @Test
+    public void testHintedUncoveredGlobalIndexJoinsBackOnServer() throws Exception {
+        Properties props = PropertiesUtil.deepCopy(TestUtil.TEST_PROPERTIES);
+        props.setProperty(QueryServices.UNCOVERED_GLOBAL_INDEX_ENABLED_ATTRIB, Boolean.TRUE.toString());
+        Connection conn = DriverManager.getConnection(getUrl(), props);
+        conn.createStatement().execute("CREATE TABLE t (k INTEGER NOT NULL PRIMARY KEY, v1 VARCHAR, v2 VARCHAR, v3 VARCHAR)");
+        conn.createStatement().execute("CREATE INDEX idx ON t(v1)");
+        PhoenixStatement stmt = conn.createStatement().unwrap(PhoenixStatement.class);
+        QueryPlan plan = stmt.optimizeQuery("SELECT /*+ INDEX(t idx) */ v2 FROM t WHERE v1 = 'foo' AND v3 = 'bar'");
+        assertEquals("IDX", plan.getTableRef().getTable().getTableName().getString());
+        assertTrue(plan.getTableRef().isHinted());
+        assertEquals(2, plan.getContext().getDataColumns().size());
+        assertNotNull(plan.getContext().getScan().getAttribute(BaseScannerRegionObserver.UNCOVERED_GLOBAL_INDEX_FILTER));
+        String explainPlan = QueryUtil.getExplainPlan(conn.createStatement().executeQuery(
+                "EXPLAIN SELECT /*+ INDEX(t idx) */ v2 FROM t WHERE v1 = 'foo' AND v3 = 'bar'"));
+        assertTrue(explainPlan, explainPlan.contains("SERVER FILTER BY \"V3\" = 'bar' AFTER DATA TABLE JOIN"));
+
+        // Filters on indexed columns only are still evaluated by the index scan
+        plan = stmt.optimizeQuery("SELECT /*+ INDEX(t idx) */ v2 FROM t WHERE v1 = 'foo'");
+        assertEquals("IDX", plan.getTableRef().getTable().getTableName().getString());
+        assertNull(plan.getContext().getScan().getAttribute(BaseScannerRegionObserver.UNCOVERED_GLOBAL_INDEX_FILTER));
+
+        plan = stmt.optimizeQuery("SELECT v2 FROM t WHERE v1 = 'foo'");
+        assertEquals("T", plan.getTableRef().getTable().getTableName().getString());
+
+        // Off by default, the hinted index is joined to the data table on the client
+        conn = DriverManager.getConnection(getUrl());
+        explainPlan = QueryUtil.getExplainPlan(conn.createStatement().executeQuery(
+                "EXPLAIN SELECT /*+ INDEX(t idx) */ v2 FROM t WHERE v1 = 'foo' AND v3 = 'bar'"));
+        assertTrue(explainPlan, explainPlan.contains("SKIP-SCAN-JOIN TABLE 0"));
+    }
+
     @Test
     public void testChooseIndexFromCaseSensitiveHint() throws Exception {
         Connection conn = DriverManager.getConnection(getUrl());
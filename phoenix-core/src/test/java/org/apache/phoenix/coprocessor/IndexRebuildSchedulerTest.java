@@ -0,0 +1,121 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.phoenix.coprocessor;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Test;
+
+public class IndexRebuildSchedulerTest {
+
+    private static class TestRebuild extends IndexRebuildScheduler.Rebuild {
+        private final List<String> rebuilt;
+
+        TestRebuild(String dataTableName, boolean writesBlocked, int priority,
+                long disableTimestamp, List<String> rebuilt) {
+            super(dataTableName, writesBlocked, priority, disableTimestamp);
+            this.rebuilt = rebuilt;
+        }
+
+        @Override
+        protected long rebuildBatch() {
+            synchronized (rebuilt) {
+                rebuilt.add(getDataTableName());
+            }
+            return 0;
+        }
+    }
+
+    @Test
+    public void testRebuildsAreOrderedByPriority() throws Exception {
+        List<String> rebuilt = new ArrayList<>();
+        List<IndexRebuildScheduler.Rebuild> rebuilds = new ArrayList<>();
+        rebuilds.add(new TestRebuild("OLD", false, 0, 100, rebuilt));
+        rebuilds.add(new TestRebuild("NEW", false, 0, 200, rebuilt));
+        rebuilds.add(new TestRebuild("URGENT", false, 5, 300, rebuilt));
+        rebuilds.add(new TestRebuild("BLOCKED", true, 0, 400, rebuilt));
+        Collections.sort(rebuilds, IndexRebuildScheduler.PRIORITY_COMPARATOR);
+        new IndexRebuildScheduler(1, 0, 3).run(rebuilds);
+        assertEquals(Arrays.asList("BLOCKED", "URGENT", "OLD", "NEW"), rebuilt);
+    }
+
+    @Test
+    public void testConcurrentRebuildsAllRun() throws Exception {
+        List<String> rebuilt = new ArrayList<>();
+        List<IndexRebuildScheduler.Rebuild> rebuilds = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            rebuilds.add(new TestRebuild("T" + i, false, 0, i, rebuilt));
+        }
+        new IndexRebuildScheduler(3, 0, 3).run(rebuilds);
+        Collections.sort(rebuilt);
+        assertEquals(Arrays.asList("T0", "T1", "T2", "T3", "T4"), rebuilt);
+    }
+
+    @Test
+    public void testBatchesArePacedByRowsPerSec() {
+        IndexRebuildScheduler scheduler = new IndexRebuildScheduler(1, 1000, 3);
+        // 1000 rows at 1000 rows/sec take a second, 200 ms of which were spent rebuilding
+        assertEquals(800, scheduler.onBatchCompleted("T", 1000, 0, 200));
+        // the next batch is charged from the end of the previous budget
+        assertEquals(1600, scheduler.onBatchCompleted("T", 1000, 200, 400));
+        assertEquals(1000, scheduler.getRowsPerSec(), 0);
+    }
+
+    @Test
+    public void testConcurrentBatchesReserveTheirBudget() {
+        IndexRebuildScheduler scheduler = new IndexRebuildScheduler(2, 1000, 0);
+        assertEquals(800, scheduler.onBatchCompleted("T", 1000, 0, 200));
+        // Both batches are ready at the same time, the second one waits for the budget that
+        // the first one reserved
+        assertEquals(1000, scheduler.reserveBatch("T", 1000));
+        assertEquals(2000, scheduler.reserveBatch("U", 1000));
+        // The first batch read fewer rows than reserved, which gives the time back
+        assertEquals(1400, scheduler.onBatchCompleted("T", 500, 1000, 1100));
+        assertEquals(2500, scheduler.reserveBatch("T", 1100));
+        // A failed batch only releases its reservation, leaving the budget of the others
+        assertEquals(0, scheduler.onBatchCompleted("U", 0, 2000, 2100));
+        assertEquals(2100, scheduler.reserveBatch("U", 2100));
+        assertEquals(2600, scheduler.reserveBatch("V", 2100));
+    }
+
+    @Test
+    public void testDegradedBatchHalvesRowsPerSec() {
+        IndexRebuildScheduler scheduler = new IndexRebuildScheduler(1, 1000, 3);
+        scheduler.onBatchCompleted("T", 100, 0, 100);
+        // four times slower per row than usual
+        scheduler.onBatchCompleted("T", 100, 10000, 10400);
+        assertEquals(500, scheduler.getRowsPerSec(), 0);
+        // a slow batch of another table is compared with that table's own latency
+        scheduler.onBatchCompleted("U", 100, 20000, 20400);
+        assertEquals(600, scheduler.getRowsPerSec(), 0);
+        scheduler.onBatchCompleted("T", 100, 30000, 30100);
+        assertEquals(700, scheduler.getRowsPerSec(), 0);
+    }
+
+    @Test
+    public void testDegradedBatchBacksOffWithoutRowsPerSec() {
+        IndexRebuildScheduler scheduler = new IndexRebuildScheduler(1, 0, 3);
+        assertEquals(0, scheduler.onBatchCompleted("T", 100, 0, 100));
+        assertEquals(400, scheduler.onBatchCompleted("T", 100, 1000, 1400));
+    }
+}
@@ -0,0 +1,74 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.phoenix.coprocessor;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+public class IndexRebuildThrottleTest {
+
+    private static final long BLOCKING_MEMSTORE_SIZE = 1000;
+
+    @Test
+    public void testBatchSizeShrinksUnderPressureAndRecovers() {
+        IndexRebuildThrottle throttle =
+                new IndexRebuildThrottle(true, 100, BLOCKING_MEMSTORE_SIZE, 0.5f);
+        assertEquals(100, throttle.getBatchSize());
+        throttle.adjust(100);
+        assertEquals(100, throttle.getBatchSize());
+
+        throttle.adjust(500);
+        assertEquals(50, throttle.getBatchSize());
+        throttle.adjust(750);
+        assertEquals(25, throttle.getBatchSize());
+        throttle.adjust(2000);
+        assertEquals(12, throttle.getBatchSize());
+
+        throttle.adjust(0);
+        assertEquals(22, throttle.getBatchSize());
+        for (int i = 0; i < 10; i++) {
+            throttle.adjust(0);
+        }
+        assertEquals(100, throttle.getBatchSize());
+    }
+
+    @Test
+    public void testBatchSizeNeverDropsBelowAnEighth() {
+        IndexRebuildThrottle throttle =
+                new IndexRebuildThrottle(true, 100, BLOCKING_MEMSTORE_SIZE, 0.5f);
+        for (int i = 0; i < 10; i++) {
+            throttle.adjust(BLOCKING_MEMSTORE_SIZE);
+        }
+        assertEquals(12, throttle.getBatchSize());
+
+        throttle = new IndexRebuildThrottle(true, 4, BLOCKING_MEMSTORE_SIZE, 0.5f);
+        for (int i = 0; i < 5; i++) {
+            throttle.adjust(BLOCKING_MEMSTORE_SIZE);
+        }
+        assertEquals(1, throttle.getBatchSize());
+    }
+
+    @Test
+    public void testDisabledThrottleKeepsBatchSize() {
+        IndexRebuildThrottle throttle =
+                new IndexRebuildThrottle(false, 100, BLOCKING_MEMSTORE_SIZE, 0.5f);
+        throttle.adjust(2 * BLOCKING_MEMSTORE_SIZE);
+        assertEquals(100, throttle.getBatchSize());
+    }
+}
@@ -0,0 +1,129 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.phoenix.coprocessor;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.apache.hadoop.hbase.Cell;
+import org.apache.hadoop.hbase.KeyValue;
+import org.apache.hadoop.hbase.client.Scan;
+import org.apache.hadoop.hbase.regionserver.Region;
+import org.apache.hadoop.hbase.regionserver.RegionScanner;
+import org.apache.hadoop.hbase.util.Bytes;
+import org.apache.phoenix.query.QueryConstants;
+import org.junit.Test;
+import org.mockito.Mockito;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+public class IndexRowChecksumTest {
+
+    private static final byte[] FAMILY = Bytes.toBytes("0");
+
+    private static Cell put(String row, String qualifier, long ts, String value) {
+        return new KeyValue(Bytes.toBytes(row), FAMILY, Bytes.toBytes(qualifier), ts,
+                KeyValue.Type.Put, Bytes.toBytes(value));
+    }
+
+    private static IndexRowChecksum checksum(Cell... cells) {
+        IndexRowChecksum checksum = new IndexRowChecksum();
+        for (Cell cell : cells) {
+            checksum.add(cell);
+        }
+        return checksum;
+    }
+
+    @Test
+    public void testChecksumIsOrderIndependentAndAdditive() {
+        Cell a = put("a", "q1", 10, "v1");
+        Cell b = put("a", "q2", 10, "v2");
+        Cell c = put("b", "q1", 20, "v3");
+        IndexRowChecksum all = checksum(a, b, c);
+        assertEquals(all, checksum(c, a, b));
+        IndexRowChecksum partial = checksum(a);
+        partial.add(checksum(c, b));
+        assertEquals(all, partial);
+        assertEquals(3, all.getCellCount());
+        byte[] bytes = all.toBytes();
+        assertEquals(all, IndexRowChecksum.fromBytes(bytes, 0, bytes.length));
+    }
+
+    @Test
+    public void testChecksumDetectsDifferences() {
+        IndexRowChecksum expected = checksum(put("a", "q1", 10, "v1"));
+        assertNotEquals(expected, checksum(put("a", "q1", 10, "v2")));
+        assertNotEquals(expected, checksum(put("a", "q1", 11, "v1")));
+        assertNotEquals(expected, checksum(put("b", "q1", 10, "v1")));
+        assertNotEquals(expected, checksum(put("a", "q2", 10, "v1")));
+        assertNotEquals(expected, checksum(new KeyValue(Bytes.toBytes("a"), FAMILY,
+                Bytes.toBytes("q1"), 10, KeyValue.Type.Delete)));
+        // moving bytes between adjacent fields changes the checksum
+        assertNotEquals(checksum(put("a", "bc", 10, "v")), checksum(put("ab", "c", 10, "v")));
+        // an extra cell changes the checksum
+        assertNotEquals(expected, checksum(put("a", "q1", 10, "v1"), put("a", "q1", 9, "v0")));
+        assertFalse(expected.equals(new IndexRowChecksum()));
+    }
+
+    @Test
+    public void testScannerReturnsChecksumOfRegionRows() throws Exception {
+        final List<List<Cell>> rows = new ArrayList<>();
+        // The empty column holds the verification status of the row and is left out
+        rows.add(Arrays.asList(put("a", "_0", 10, "x"), put("a", "q1", 10, "v1"), put("a", "q2", 10, "v2")));
+        rows.add(Arrays.asList(put("b", "_0", 20, "x"), put("b", "q1", 20, "v3")));
+        RegionScanner innerScanner = Mockito.mock(RegionScanner.class);
+        Mockito.when(innerScanner.nextRaw(Mockito.<List<Cell>> any())).thenAnswer(new Answer<Boolean>() {
+            private int next = 0;
+
+            @SuppressWarnings("unchecked")
+            @Override
+            public Boolean answer(InvocationOnMock invocation) throws Throwable {
+                ((List<Cell>) invocation.getArguments()[0]).addAll(rows.get(next++));
+                return next < rows.size();
+            }
+        });
+        Scan scan = new Scan();
+        scan.setAttribute(BaseScannerRegionObserver.EMPTY_COLUMN_FAMILY_NAME, FAMILY);
+        scan.setAttribute(BaseScannerRegionObserver.EMPTY_COLUMN_QUALIFIER_NAME, Bytes.toBytes("_0"));
+        IndexChecksumRegionScanner scanner =
+                new IndexChecksumRegionScanner(innerScanner, Mockito.mock(Region.class), scan);
+        List<Cell> results = new ArrayList<>();
+        assertFalse(scanner.next(results));
+        assertEquals(1, results.size());
+        Cell cell = results.get(0);
+        assertEquals("b", Bytes.toString(cell.getRowArray(), cell.getRowOffset(), cell.getRowLength()));
+        assertEquals(0, Bytes.compareTo(QueryConstants.SINGLE_COLUMN_FAMILY, 0,
+                QueryConstants.SINGLE_COLUMN_FAMILY.length, cell.getFamilyArray(),
+                cell.getFamilyOffset(), cell.getFamilyLength()));
+        IndexRowChecksum expected = new IndexRowChecksum();
+        expected.addRow(Bytes.toBytes("a"), 0, 1);
+        expected.add(checksum(rows.get(0).get(1), rows.get(0).get(2)));
+        expected.addRow(Bytes.toBytes("b"), 0, 1);
+        expected.add(checksum(rows.get(1).get(1)));
+        assertEquals(expected, IndexRowChecksum.fromBytes(cell.getValueArray(), cell.getValueOffset(),
+                cell.getValueLength()));
+        results.clear();
+        assertFalse(scanner.next(results));
+        assertEquals(0, results.size());
+    }
+}
@@ -0,0 +1,160 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.phoenix.coprocessor;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.hadoop.hbase.client.Mutation;
+import org.apache.hadoop.hbase.client.Put;
+import org.apache.hadoop.hbase.util.Bytes;
+import org.junit.Test;
+
+public class PipelinedMutationWriterTest {
+
+    private static List<Mutation> batch(int i) {
+        List<Mutation> mutations = new ArrayList<>();
+        mutations.add(new Put(Bytes.toBytes(i)));
+        return mutations;
+    }
+
+    @Test
+    public void testBatchesAreWrittenInOrder() throws Exception {
+        final List<Integer> written = Collections.synchronizedList(new ArrayList<Integer>());
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        PipelinedMutationWriter writer = new PipelinedMutationWriter(executor, 2,
+                new PipelinedMutationWriter.BatchCommitter() {
+                    @Override
+                    public void commit(List<Mutation> mutations) {
+                        written.add(Bytes.toInt(mutations.get(0).getRow()));
+                    }
+                });
+        List<Integer> expected = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            writer.submit(batch(i));
+            expected.add(i);
+        }
+        writer.finish();
+        assertEquals(expected, written);
+        writer.close();
+        assertTrue(executor.isShutdown());
+    }
+
+    @Test(timeout = 30000)
+    public void testIdleWriterDoesNotHoldAThread() throws Exception {
+        final List<Integer> written = Collections.synchronizedList(new ArrayList<Integer>());
+        PipelinedMutationWriter.BatchCommitter committer = new PipelinedMutationWriter.BatchCommitter() {
+            @Override
+            public void commit(List<Mutation> mutations) {
+                written.add(Bytes.toInt(mutations.get(0).getRow()));
+            }
+        };
+        // Both writers share a single thread
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        PipelinedMutationWriter first = new PipelinedMutationWriter(executor, 2, committer);
+        PipelinedMutationWriter second = new PipelinedMutationWriter(executor, 2, committer);
+        first.submit(batch(0));
+        // The first writer is not finished yet, but the second one is not blocked by it
+        second.submit(batch(1));
+        second.finish();
+        first.submit(batch(2));
+        first.finish();
+        assertEquals(Arrays.asList(0, 1, 2), written);
+        first.close();
+        second.close();
+    }
+
+    @Test
+    public void testSubmitBlocksWhileTooManyBatchesArePending() throws Exception {
+        final CountDownLatch release = new CountDownLatch(1);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        final PipelinedMutationWriter writer = new PipelinedMutationWriter(executor, 1,
+                new PipelinedMutationWriter.BatchCommitter() {
+                    @Override
+                    public void commit(List<Mutation> mutations) throws IOException {
+                        try {
+                            release.await();
+                        } catch (InterruptedException e) {
+                            throw new IOException(e);
+                        }
+                    }
+                });
+        // one batch being written and one pending
+        writer.submit(batch(0));
+        writer.submit(batch(1));
+        final CountDownLatch submitted = new CountDownLatch(1);
+        Thread scan = new Thread() {
+            @Override
+            public void run() {
+                try {
+                    writer.submit(batch(2));
+                    submitted.countDown();
+                } catch (IOException e) {
+                    throw new RuntimeException(e);
+                }
+            }
+        };
+        scan.start();
+        assertFalse(submitted.await(300, TimeUnit.MILLISECONDS));
+        release.countDown();
+        assertTrue(submitted.await(10, TimeUnit.SECONDS));
+        writer.finish();
+        writer.close();
+    }
+
+    @Test
+    public void testFailureIsRethrownToTheScan() throws Exception {
+        final List<Integer> written = Collections.synchronizedList(new ArrayList<Integer>());
+        PipelinedMutationWriter writer = new PipelinedMutationWriter(
+                Executors.newSingleThreadExecutor(), 4,
+                new PipelinedMutationWriter.BatchCommitter() {
+                    @Override
+                    public void commit(List<Mutation> mutations) throws IOException {
+                        int i = Bytes.toInt(mutations.get(0).getRow());
+                        if (i == 1) {
+                            throw new IOException("Write failed");
+                        }
+                        written.add(i);
+                    }
+                });
+        try {
+            for (int i = 0; i < 100; i++) {
+                writer.submit(batch(i));
+            }
+            writer.finish();
+            fail();
+        } catch (IOException e) {
+            assertEquals("Write failed", e.getMessage());
+        } finally {
+            writer.close();
+        }
+        assertEquals(Collections.singletonList(0), written);
+    }
+}
@@ -23,6 +23,7 @@ import static org.junit.Assert.assertTrue;
 import java.sql.SQLException;
 import java.util.Arrays;
 import java.util.List;
+import java.util.regex.Pattern;
 
 import org.apache.hadoop.hbase.io.ImmutableBytesWritable;
 import org.apache.phoenix.parse.LikeParseNode.LikeType;
@@ -95,4 +96,20 @@ public class LikeExpressionTest {
         assertEquals(Boolean.TRUE, testExpression ("AA\nA", "AA%A"));
         assertEquals(Boolean.FALSE, testExpression ("AA\nA", "AA_"));
     }
- }
+
+    @Test
+    public void testLiteralPatternsMatchRegex() throws Exception {
+        String[] values = { "", "a", "aa", "aaa", "aaaa", "aba", "abba", "foo.log", "x%y",
+                "x\\y", "\u00e9t\u00e9", "caf\u00e9 au lait", "line\nbreak" };
+        String[] patterns = { "%", "%%", "a", "a%", "%a", "%aa%aa%", "ab%ba", "%b%",
+                "%.log", "foo%", "x\\%y", "x\\\\y", "%\u00e9%", "caf\u00e9%lait", "line%" };
+        for (String value : values) {
+            for (String pattern : patterns) {
+                boolean expected = Pattern.compile(LikeExpression.toPattern(pattern), Pattern.DOTALL)
+                        .matcher(value).matches();
+                assertEquals("'" + value + "' LIKE '" + pattern + "'", expected,
+                        testExpression(value, pattern));
+            }
+        }
+    }
+}
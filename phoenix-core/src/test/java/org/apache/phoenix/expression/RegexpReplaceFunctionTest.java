@@ -78,4 +78,12 @@ public class RegexpReplaceFunctionTest {
         testExpression("aa11bb22cc33dd44ee", "[a-z][0-9]", "", "a1b2c3d4ee");
         testExpression("aa11bb22cc33dd44ee", "[a-z0-9]+", "", (String) null);
     }
+
+    @Test
+    public void testLiteralPattern() throws Exception {
+        testExpression("foo.log.log", "log", "txt", "foo.txt.txt");
+        testExpression("aaaa", "aa", "b", "bb");
+        testExpression("caf\u00e9 au lait", "au", "et", "caf\u00e9 et lait");
+        testExpression("no match here", "xyz", "_", "no match here");
+    }
 }
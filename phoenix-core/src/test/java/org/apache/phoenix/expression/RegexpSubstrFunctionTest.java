@@ -80,4 +80,14 @@ public class RegexpSubstrFunctionTest {
         testExpression("Report3?2", "[^\\\\?]+", 2, "eport3");
         testExpression("Report3?2", "[^\\\\?]+", -5, "rt3");
     }
+
+    @Test
+    public void testLiteralPattern() throws Exception {
+        testExpression("Report3?2", "port", 1, "port");
+        testExpression("Report3?2", "port", 4, (String) null);
+        testExpression("caf\u00e9 caf\u00e9", "caf", 2, "caf");
+        testExpression("caf\u00e9 caf\u00e9", "caf", -4, "caf");
+        testExpression("caf\u00e9 caf\u00e9", "caf", -2, (String) null);
+        testExpression("Report3?2", "xyz", 0, (String) null);
+    }
 }
@@ -0,0 +1,124 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.phoenix.hbase.index.write;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.hadoop.hbase.util.Bytes;
+import org.apache.phoenix.hbase.index.metrics.MetricsIndexerSource;
+import org.apache.phoenix.hbase.index.table.HTableInterfaceReference;
+import org.apache.phoenix.hbase.index.util.ImmutableBytesPtr;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+public class IndexWriteLimiterTest {
+
+    private static HTableInterfaceReference table(String name) {
+        return new HTableInterfaceReference(new ImmutableBytesPtr(Bytes.toBytes(name)));
+    }
+
+    @Test
+    public void testSlowTableDoesNotBlockOtherTables() throws Exception {
+        MetricsIndexerSource metricSource = Mockito.mock(MetricsIndexerSource.class);
+        IndexWriteLimiter limiter = new IndexWriteLimiter(2, 10, metricSource);
+        HTableInterfaceReference slow = table("SLOW");
+        HTableInterfaceReference fast = table("FAST");
+        long first = limiter.tryStart(slow);
+        long second = limiter.tryStart(slow);
+        assertTrue(first >= 0 && second >= 0);
+        // both permits of the slow table are held by writes in flight
+        assertEquals(-1, limiter.tryStart(slow));
+        Mockito.verify(metricSource).incrementIndexTableWriteRejections("SLOW");
+        assertEquals(2, limiter.getPendingWrites(slow));
+
+        long start = limiter.tryStart(fast);
+        assertTrue(start >= 0);
+        limiter.completed(fast, start);
+        assertEquals(0, limiter.getPendingWrites(fast));
+
+        // a completed write gives its permit back
+        limiter.completed(slow, first);
+        assertTrue(limiter.tryStart(slow) >= 0);
+    }
+
+    @Test
+    public void testBusyTableWaitsForPermit() throws Exception {
+        MetricsIndexerSource metricSource = Mockito.mock(MetricsIndexerSource.class);
+        final IndexWriteLimiter limiter = new IndexWriteLimiter(1, 60000, metricSource);
+        final HTableInterfaceReference busy = table("BUSY");
+        long first = limiter.tryStart(busy);
+        assertTrue(first >= 0);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Future<Long> second = executor.submit(new Callable<Long>() {
+                @Override
+                public Long call() throws Exception {
+                    return limiter.tryStart(busy);
+                }
+            });
+            // the waiting write counts as pending
+            while (limiter.getPendingWrites(busy) < 2) {
+                Thread.sleep(1);
+            }
+            limiter.completed(busy, first);
+            assertTrue(second.get(10, TimeUnit.SECONDS) >= 0);
+        } finally {
+            executor.shutdownNow();
+        }
+        assertEquals(1, limiter.getPendingWrites(busy));
+        Mockito.verify(metricSource, Mockito.never())
+                .incrementIndexTableWriteRejections(Mockito.anyString());
+    }
+
+    @Test
+    public void testTryStartNowDoesNotWait() throws Exception {
+        MetricsIndexerSource metricSource = Mockito.mock(MetricsIndexerSource.class);
+        IndexWriteLimiter limiter = new IndexWriteLimiter(1, 60000, metricSource);
+        HTableInterfaceReference busy = table("BUSY");
+        long first = limiter.tryStartNow(busy);
+        assertTrue(first >= 0);
+        // returns right away instead of waiting for the permit, and isn't a rejection yet
+        assertEquals(-1, limiter.tryStartNow(busy));
+        assertEquals(1, limiter.getPendingWrites(busy));
+        Mockito.verify(metricSource, Mockito.never())
+                .incrementIndexTableWriteRejections(Mockito.anyString());
+        limiter.completed(busy, first);
+        assertTrue(limiter.tryStartNow(busy) >= 0);
+    }
+
+    @Test
+    public void testNoLimitByDefault() throws Exception {
+        MetricsIndexerSource metricSource = Mockito.mock(MetricsIndexerSource.class);
+        IndexWriteLimiter limiter = new IndexWriteLimiter(0, 0, metricSource);
+        HTableInterfaceReference table = table("T");
+        for (int i = 0; i < 100; i++) {
+            assertTrue(limiter.tryStart(table) >= 0);
+        }
+        assertEquals(100, limiter.getPendingWrites(table));
+        Mockito.verify(metricSource).setIndexTableWriteQueueDepth("T", 100);
+        Mockito.verify(metricSource, Mockito.never())
+                .incrementIndexTableWriteRejections(Mockito.anyString());
+    }
+}
@@ -0,0 +1,168 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.phoenix.hbase.index.write;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.hadoop.hbase.client.Mutation;
+import org.apache.hadoop.hbase.client.Put;
+import org.apache.hadoop.hbase.client.Table;
+import org.apache.hadoop.hbase.util.Bytes;
+import org.apache.phoenix.hbase.index.IndexTableName;
+import org.apache.phoenix.hbase.index.table.HTableInterfaceReference;
+import org.apache.phoenix.hbase.index.util.ImmutableBytesPtr;
+import org.junit.Rule;
+import org.junit.Test;
+import org.mockito.Mockito;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+public class TestIndexWriteCoalescer {
+
+  @Rule
+  public IndexTableName test = new IndexTableName();
+
+  @SuppressWarnings("unchecked")
+  @Test
+  public void testConcurrentWritesShareOneBatch() throws Exception {
+    ImmutableBytesPtr tableName = new ImmutableBytesPtr(this.test.getTableName());
+    final HTableInterfaceReference ref = new HTableInterfaceReference(tableName);
+    Table table = Mockito.mock(Table.class);
+    final CountDownLatch firstBatchStarted = new CountDownLatch(1);
+    final CountDownLatch releaseFirstBatch = new CountDownLatch(1);
+    final List<Integer> batchSizes = Collections.synchronizedList(new ArrayList<Integer>());
+    Mockito.doAnswer(new Answer<Void>() {
+      @Override
+      public Void answer(InvocationOnMock invocation) throws Throwable {
+        batchSizes.add(((List<?>)invocation.getArguments()[0]).size());
+        firstBatchStarted.countDown();
+        releaseFirstBatch.await();
+        return null;
+      }
+    }).when(table).batch(Mockito.anyList(), Mockito.any());
+    Map<ImmutableBytesPtr, Table> tables = Collections.singletonMap(tableName, table);
+    final IndexWriteCoalescer coalescer =
+        new IndexWriteCoalescer(new FakeTableFactory(tables), 0, 100);
+
+    ExecutorService exec = Executors.newFixedThreadPool(4);
+    try {
+      // the first writer finds nothing in flight and is sent on its own
+      List<Future<Void>> futures = new ArrayList<Future<Void>>();
+      futures.add(submit(exec, coalescer, ref, "a"));
+      assertTrue(firstBatchStarted.await(10, TimeUnit.SECONDS));
+      // the others queue up behind it
+      futures.add(submit(exec, coalescer, ref, "b"));
+      futures.add(submit(exec, coalescer, ref, "c"));
+      futures.add(submit(exec, coalescer, ref, "d"));
+      long deadline = System.currentTimeMillis() + 10000;
+      while (coalescer.getQueuedMutationCount(ref) < 3 && System.currentTimeMillis() < deadline) {
+        Thread.sleep(10);
+      }
+      assertEquals(3, coalescer.getQueuedMutationCount(ref));
+      releaseFirstBatch.countDown();
+      for (Future<Void> future : futures) {
+        future.get(10, TimeUnit.SECONDS);
+      }
+    } finally {
+      exec.shutdownNow();
+    }
+    assertEquals("Queued writes weren't coalesced into a single batch", 2, batchSizes.size());
+    assertEquals(1, batchSizes.get(0).intValue());
+    assertEquals(3, batchSizes.get(1).intValue());
+    assertEquals(0, coalescer.getQueuedMutationCount(ref));
+  }
+
+  @SuppressWarnings("unchecked")
+  @Test
+  public void testFailedBatchIsReportedToWriter() throws Exception {
+    ImmutableBytesPtr tableName = new ImmutableBytesPtr(this.test.getTableName());
+    HTableInterfaceReference ref = new HTableInterfaceReference(tableName);
+    Table table = Mockito.mock(Table.class);
+    Mockito.doThrow(new IOException("Simulated index write failure")).when(table)
+        .batch(Mockito.anyList(), Mockito.any());
+    Map<ImmutableBytesPtr, Table> tables = Collections.singletonMap(tableName, table);
+    IndexWriteCoalescer coalescer = new IndexWriteCoalescer(new FakeTableFactory(tables), 0, 100);
+    try {
+      coalescer.write(ref, Collections.<Mutation> singletonList(put("a")));
+      fail("Expected the index write to fail");
+    } catch (IOException e) {
+      assertEquals("Simulated index write failure", e.getMessage());
+    }
+    assertEquals(0, coalescer.getQueuedMutationCount(ref));
+  }
+
+  @SuppressWarnings("unchecked")
+  @Test
+  public void testInterruptedLeaderLeavesNothingQueued() throws Exception {
+    ImmutableBytesPtr tableName = new ImmutableBytesPtr(this.test.getTableName());
+    HTableInterfaceReference ref = new HTableInterfaceReference(tableName);
+    Table table = Mockito.mock(Table.class);
+    Map<ImmutableBytesPtr, Table> tables = Collections.singletonMap(tableName, table);
+    // the leader waits for its window to fill before sending anything
+    IndexWriteCoalescer coalescer = new IndexWriteCoalescer(new FakeTableFactory(tables), 60000, 100);
+    ExecutorService exec = Executors.newSingleThreadExecutor();
+    try {
+      Future<Void> future = submit(exec, coalescer, ref, "a");
+      long deadline = System.currentTimeMillis() + 10000;
+      while (coalescer.getQueuedMutationCount(ref) < 1 && System.currentTimeMillis() < deadline) {
+        Thread.sleep(10);
+      }
+      assertEquals(1, coalescer.getQueuedMutationCount(ref));
+      future.cancel(true);
+      deadline = System.currentTimeMillis() + 10000;
+      while (coalescer.getQueuedMutationCount(ref) > 0 && System.currentTimeMillis() < deadline) {
+        Thread.sleep(10);
+      }
+      assertEquals(0, coalescer.getQueuedMutationCount(ref));
+    } finally {
+      exec.shutdownNow();
+    }
+    Mockito.verify(table, Mockito.never()).batch(Mockito.anyList(), Mockito.any());
+  }
+
+  private static Future<Void> submit(ExecutorService exec, final IndexWriteCoalescer coalescer,
+      final HTableInterfaceReference ref, final String row) {
+    return exec.submit(new Callable<Void>() {
+      @Override
+      public Void call() throws Exception {
+        coalescer.write(ref, Collections.<Mutation> singletonList(put(row)));
+        return null;
+      }
+    });
+  }
+
+  private static Put put(String row) {
+    Put put = new Put(Bytes.toBytes(row));
+    put.addColumn(Bytes.toBytes("family"), Bytes.toBytes("qual"), null);
+    return put;
+  }
+}
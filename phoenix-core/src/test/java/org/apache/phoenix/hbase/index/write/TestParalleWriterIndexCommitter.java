@@ -17,24 +17,38 @@
  */
 package org.apache.phoenix.hbase.index.write;
 
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 
+import java.io.IOException;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Callable;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 
 import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.hbase.Stoppable;
 import org.apache.hadoop.hbase.TableName;
+import org.apache.hadoop.hbase.client.RegionInfo;
+import org.apache.hadoop.hbase.client.RegionInfoBuilder;
 import org.apache.hadoop.hbase.client.Connection;
 import org.apache.hadoop.hbase.client.Mutation;
 import org.apache.hadoop.hbase.client.Put;
 import org.apache.hadoop.hbase.client.Table;
 import org.apache.hadoop.hbase.client.TableDescriptor;
 import org.apache.hadoop.hbase.coprocessor.RegionCoprocessorEnvironment;
+import org.apache.hadoop.hbase.regionserver.OnlineRegions;
+import org.apache.hadoop.hbase.regionserver.OperationStatus;
 import org.apache.hadoop.hbase.regionserver.Region;
 import org.apache.hadoop.hbase.util.Bytes;
 import org.apache.hadoop.hbase.util.VersionInfo;
@@ -133,4 +147,123 @@ public class TestParalleWriterIndexCommitter {
     assertTrue("Factory didn't get shutdown after writer#stop!", factory.shutdown);
     assertTrue("ExectorService isn't terminated after writer#stop!", exec.isShutdown());
   }
-}
\ No newline at end of file
+
+  @SuppressWarnings("unchecked")
+  @Test
+  public void testWritesToColocatedIndexRegionLocally() throws Exception {
+    TableName indexTable = TableName.valueOf(this.test.getTableName());
+    // this server only hosts the index region starting at "m"
+    RegionInfo regionInfo = RegionInfoBuilder.newBuilder(indexTable)
+        .setStartKey(Bytes.toBytes("m")).build();
+    Region indexRegion = Mockito.mock(Region.class);
+    Mockito.when(indexRegion.getRegionInfo()).thenReturn(regionInfo);
+    Mockito.when(indexRegion.batchMutate(Mockito.any(Mutation[].class)))
+        .thenReturn(new OperationStatus[] { OperationStatus.SUCCESS });
+    OnlineRegions onlineRegions = Mockito.mock(OnlineRegions.class);
+    Mockito.when(onlineRegions.getRegions(indexTable))
+        .thenReturn((List) Collections.singletonList(indexRegion));
+    RegionCoprocessorEnvironment e = Mockito.mock(RegionCoprocessorEnvironment.class);
+    Mockito.when(e.getOnlineRegions()).thenReturn(onlineRegions);
+
+    Put local = new Put(Bytes.toBytes("n"));
+    local.addColumn(Bytes.toBytes("family"), Bytes.toBytes("qual"), null);
+    Put remote = new Put(Bytes.toBytes("a"));
+    remote.addColumn(Bytes.toBytes("family"), Bytes.toBytes("qual"), null);
+    List<Mutation> remaining = IndexWriterUtils.writeToColocatedRegions(e,
+        new HTableInterfaceReference(new ImmutableBytesPtr(this.test.getTableName())),
+        Arrays.<Mutation> asList(local, remote));
+    assertEquals("Only the update for the region not hosted here should be left",
+        Collections.<Mutation> singletonList(remote), remaining);
+    Mockito.verify(indexRegion).batchMutate(new Mutation[] { local });
+  }
+
+  private static RegionCoprocessorEnvironment mockRegionEnvironment(String tableName, Configuration conf,
+      ConcurrentMap<String, Object> sharedData) {
+    RegionCoprocessorEnvironment e = Mockito.mock(RegionCoprocessorEnvironment.class);
+    Mockito.when(e.getConfiguration()).thenReturn(conf);
+    Mockito.when(e.getSharedData()).thenReturn(sharedData);
+    Region mockRegion = Mockito.mock(Region.class);
+    Mockito.when(e.getRegion()).thenReturn(mockRegion);
+    TableDescriptor mockTableDesc = Mockito.mock(TableDescriptor.class);
+    Mockito.when(mockTableDesc.getTableName()).thenReturn(TableName.valueOf(tableName));
+    Mockito.when(mockRegion.getTableDescriptor()).thenReturn(mockTableDesc);
+    Mockito.when(e.getConnection()).thenReturn(Mockito.mock(Connection.class));
+    return e;
+  }
+
+  private static Multimap<HTableInterfaceReference, Mutation> indexUpdate(ImmutableBytesPtr tableName) {
+    Put m = new Put(Bytes.toBytes("row"));
+    m.addColumn(Bytes.toBytes("family"), Bytes.toBytes("qual"), null);
+    Multimap<HTableInterfaceReference, Mutation> indexUpdates = ArrayListMultimap.create();
+    indexUpdates.put(new HTableInterfaceReference(tableName), m);
+    return indexUpdates;
+  }
+
+  @SuppressWarnings("unchecked")
+  @Test
+  public void testWriteLimitIsSharedByTheRegionsOfARegionServer() throws Exception {
+    Configuration conf = new Configuration();
+    conf.setInt(IndexWriteLimiter.INDEX_WRITES_MAX_PER_TABLE_CONF_KEY, 1);
+    conf.setLong(IndexWriteLimiter.INDEX_WRITES_PERMIT_WAIT_MS_CONF_KEY, 100);
+    // the shared data of the index coprocessor is the same for all the regions of a server
+    ConcurrentMap<String, Object> sharedData = new ConcurrentHashMap<String, Object>();
+    RegionCoprocessorEnvironment region1 = mockRegionEnvironment("data", conf, sharedData);
+    RegionCoprocessorEnvironment region2 = mockRegionEnvironment("data", conf, sharedData);
+
+    ImmutableBytesPtr slowTableName = new ImmutableBytesPtr(Bytes.toBytes("SLOW_INDEX"));
+    ImmutableBytesPtr fastTableName = new ImmutableBytesPtr(Bytes.toBytes("FAST_INDEX"));
+    final CountDownLatch writing = new CountDownLatch(1);
+    final CountDownLatch release = new CountDownLatch(1);
+    Table slowTable = Mockito.mock(Table.class);
+    Mockito.doAnswer(new Answer<Void>() {
+      @Override
+      public Void answer(InvocationOnMock invocation) throws Throwable {
+        writing.countDown();
+        release.await();
+        return null;
+      }
+    }).when(slowTable).batch(Mockito.anyList(), Mockito.any());
+    Table fastTable = Mockito.mock(Table.class);
+    Map<ImmutableBytesPtr, Table> tables = new LinkedHashMap<ImmutableBytesPtr, Table>();
+    tables.put(slowTableName, slowTable);
+    tables.put(fastTableName, fastTable);
+
+    ExecutorService exec = Executors.newFixedThreadPool(4);
+    ExecutorService caller = Executors.newSingleThreadExecutor();
+    final TrackingParallelWriterIndexCommitter writer1 =
+        new TrackingParallelWriterIndexCommitter(VersionInfo.getVersion());
+    writer1.setup(new FakeTableFactory(tables), exec, Mockito.mock(Stoppable.class), region1);
+    TrackingParallelWriterIndexCommitter writer2 =
+        new TrackingParallelWriterIndexCommitter(VersionInfo.getVersion());
+    writer2.setup(new FakeTableFactory(tables), exec, Mockito.mock(Stoppable.class), region2);
+    try {
+      final Multimap<HTableInterfaceReference, Mutation> slowUpdate = indexUpdate(slowTableName);
+      Future<?> blocked = caller.submit(new Callable<Void>() {
+        @Override
+        public Void call() throws Exception {
+          writer1.write(slowUpdate, true, ScanUtil.UNKNOWN_CLIENT_VERSION);
+          return null;
+        }
+      });
+      assertTrue(writing.await(10, TimeUnit.SECONDS));
+      // the other region gives up on the slow table instead of waiting for it indefinitely
+      try {
+        writer2.write(indexUpdate(slowTableName), true, ScanUtil.UNKNOWN_CLIENT_VERSION);
+        fail("Write to a table without free permits should have been rejected");
+      } catch (IOException expected) {
+      }
+      // while writes to other index tables go through
+      writer2.write(indexUpdate(fastTableName), true, ScanUtil.UNKNOWN_CLIENT_VERSION);
+      Mockito.verify(fastTable).batch(Mockito.anyList(), Mockito.any());
+
+      release.countDown();
+      blocked.get(10, TimeUnit.SECONDS);
+      assertEquals(0, IndexWriteLimiter.getInstance(region2)
+          .getPendingWrites(new HTableInterfaceReference(slowTableName)));
+    } finally {
+      release.countDown();
+      caller.shutdownNow();
+      exec.shutdownNow();
+    }
+  }
+}
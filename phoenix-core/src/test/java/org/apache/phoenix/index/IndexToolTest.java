@@ -17,6 +17,10 @@
  */
 package org.apache.phoenix.index;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
 import org.apache.commons.cli.CommandLine;
 import org.apache.phoenix.end2end.IndexToolIT;
 import org.apache.phoenix.mapreduce.index.IndexTool;
@@ -252,6 +256,30 @@ public class IndexToolTest extends BaseTest {
         mockTool.populateIndexToolAttributes(cmdLine);
     }
 
+    private String[] getIncrementalVerifyArgs(IndexTool.IndexVerifyType verifyType) {
+        List<String> args = new ArrayList<>(Arrays.asList(IndexToolIT.getArgValues(true, false,
+                schema, dataTable, indexTable, tenantId, verifyType)));
+        args.add("-iv");
+        return args.toArray(new String[0]);
+    }
+
+    @Test
+    public void testIncrementalVerifyOption_endTimeDefaultsToCurrentTime() throws Exception {
+        long before = EnvironmentEdgeManager.currentTimeMillis();
+        CommandLine cmdLine = it.parseOptions(getIncrementalVerifyArgs(IndexTool.IndexVerifyType.ONLY));
+        it.populateIndexToolAttributes(cmdLine);
+        Assert.assertTrue(it.isIncrementalVerify());
+        Assert.assertNull(it.getStartTime());
+        Assert.assertTrue(it.getEndTime() >= before);
+        Assert.assertTrue(it.getEndTime() <= EnvironmentEdgeManager.currentTimeMillis());
+    }
+
+    @Test
+    public void testIncrementalVerifyOption_requiresVerify() throws Exception {
+        exceptionRule.expect(IllegalStateException.class);
+        it.parseOptions(getIncrementalVerifyArgs(IndexTool.IndexVerifyType.NONE));
+    }
+
     @Test
     public void testCheckVerifyAndDisableLogging_defaultsNone() throws Exception {
         Long startTime = 1L;
@@ -0,0 +1,163 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.phoenix.iterate;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLFeatureNotSupportedException;
+import java.sql.Timestamp;
+import java.util.Collections;
+import java.util.List;
+
+import org.apache.hadoop.hbase.Cell;
+import org.apache.hadoop.hbase.CellComparatorImpl;
+import org.apache.hadoop.hbase.KeyValue;
+import org.apache.hadoop.hbase.client.Result;
+import org.apache.hadoop.hbase.util.Bytes;
+import org.apache.phoenix.compile.QueryPlan;
+import org.apache.phoenix.compile.RowProjector;
+import org.apache.phoenix.execute.TupleProjector;
+import org.apache.phoenix.expression.Expression;
+import org.apache.phoenix.jdbc.PhoenixStatement;
+import org.apache.phoenix.query.BaseConnectionlessQueryTest;
+import org.apache.phoenix.query.QueryConstants;
+import org.apache.phoenix.schema.SortOrder;
+import org.apache.phoenix.schema.tuple.ResultTuple;
+import org.apache.phoenix.schema.tuple.Tuple;
+import org.apache.phoenix.schema.types.PDecimal;
+import org.apache.phoenix.schema.types.PDouble;
+import org.apache.phoenix.schema.types.PLong;
+import org.apache.phoenix.schema.types.PTimestamp;
+import org.apache.phoenix.schema.types.PVarchar;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.google.common.collect.Lists;
+
+public class ColumnarBatchTest extends BaseConnectionlessQueryTest {
+    private Connection conn;
+
+    @Before
+    public void createTable() throws Exception {
+        conn = DriverManager.getConnection(getUrl());
+        conn.createStatement().execute("CREATE TABLE IF NOT EXISTS COLUMNAR_T (k BIGINT NOT NULL PRIMARY KEY DESC,"
+                + " d DOUBLE, v VARCHAR, ts TIMESTAMP, dec DECIMAL) COLUMN_ENCODED_BYTES=0");
+        conn.createStatement().execute("CREATE TABLE IF NOT EXISTS COLUMNAR_SALTED_T (k BIGINT NOT NULL PRIMARY KEY,"
+                + " v VARCHAR) SALT_BUCKETS=4");
+    }
+
+    private static Tuple newRow(long k, Double d, String v, Timestamp ts, BigDecimal dec) {
+        byte[] row = PLong.INSTANCE.toBytes(k, SortOrder.DESC);
+        byte[] family = QueryConstants.DEFAULT_COLUMN_FAMILY_BYTES;
+        List<Cell> cells = Lists.newArrayList();
+        cells.add(new KeyValue(row, family, QueryConstants.EMPTY_COLUMN_BYTES, QueryConstants.EMPTY_COLUMN_VALUE_BYTES));
+        if (d != null) {
+            cells.add(new KeyValue(row, family, Bytes.toBytes("D"), PDouble.INSTANCE.toBytes(d)));
+        }
+        if (v != null) {
+            cells.add(new KeyValue(row, family, Bytes.toBytes("V"), PVarchar.INSTANCE.toBytes(v)));
+        }
+        if (ts != null) {
+            cells.add(new KeyValue(row, family, Bytes.toBytes("TS"), PTimestamp.INSTANCE.toBytes(ts)));
+        }
+        if (dec != null) {
+            cells.add(new KeyValue(row, family, Bytes.toBytes("DEC"), PDecimal.INSTANCE.toBytes(dec)));
+        }
+        Collections.sort(cells, CellComparatorImpl.COMPARATOR);
+        return new ResultTuple(Result.create(cells));
+    }
+
+    @Test
+    public void testEncodeAndDecode() throws Exception {
+        QueryPlan plan = conn.createStatement().unwrap(PhoenixStatement.class)
+                .compileQuery("SELECT k, d, v, ts, dec, k + 1 FROM COLUMNAR_T");
+        // Rows are encoded on the region server once projected into a single cell
+        TupleProjector tupleProjector = TupleProjector.deserializeProjectorFromScan(plan.getContext().getScan());
+        RowProjector projector = plan.getProjector();
+        Expression[] expressions = new Expression[projector.getColumnCount()];
+        for (int i = 0; i < expressions.length; i++) {
+            expressions[i] = projector.getColumnProjector(i).getExpression();
+        }
+        ColumnarBatch.Encoder encoder = new ColumnarBatch.Encoder(expressions, 3);
+        Timestamp ts = new Timestamp(1000);
+        ts.setNanos(5000);
+        encoder.add(tupleProjector.projectResults(newRow(3, 1.5, "abc", ts, new BigDecimal("1.25"))));
+        encoder.add(tupleProjector.projectResults(newRow(2, null, null, null, null)));
+        encoder.add(tupleProjector.projectResults(newRow(-1, -2.0, "de", null, null)));
+        assertEquals(3, encoder.getRowCount());
+
+        byte[] bytes = encoder.toBytes();
+        byte[] buffer = new byte[bytes.length + 2];
+        System.arraycopy(bytes, 0, buffer, 1, bytes.length);
+        ColumnarBatch batch = new ColumnarBatch(buffer, 1, bytes.length);
+        assertEquals(3, batch.getRowCount());
+        assertEquals(6, batch.getColumnCount());
+        assertEquals(PLong.INSTANCE, batch.getDataType(0));
+        assertEquals(3, batch.getLong(0, 0));
+        assertEquals(2, batch.getLong(0, 1));
+        assertEquals(-1, batch.getLong(0, 2));
+        assertEquals(1.5, batch.getDouble(1, 0), 0);
+        assertTrue(batch.isNull(1, 1));
+        assertEquals(0, batch.getDouble(1, 1), 0);
+        assertEquals(-2.0, batch.getDouble(1, 2), 0);
+        assertEquals("abc", batch.getObject(2, 0));
+        assertNull(batch.getObject(2, 1));
+        assertEquals("de", batch.getObject(2, 2));
+        assertEquals(1000, batch.getLong(3, 0));
+        assertEquals(ts, batch.getObject(3, 0));
+        assertTrue(batch.isNull(3, 2));
+        assertEquals(0, new BigDecimal("1.25").compareTo((BigDecimal) batch.getObject(4, 0)));
+        assertTrue(batch.isNull(4, 1));
+        assertEquals(4, batch.getLong(5, 0));
+        assertEquals(0, batch.getLong(5, 2));
+        assertFalse(batch.isNull(5, 2));
+
+        encoder.reset();
+        encoder.add(tupleProjector.projectResults(newRow(7, null, "x", null, null)));
+        batch = new ColumnarBatch(encoder.toBytes(), 0, encoder.toBytes().length);
+        assertEquals(1, batch.getRowCount());
+        assertEquals(7, batch.getLong(0, 0));
+        assertTrue(batch.isNull(1, 0));
+        assertEquals("x", batch.getObject(2, 0));
+    }
+
+    @Test
+    public void testUnsupportedColumnarQuery() throws Exception {
+        PhoenixStatement statement = conn.createStatement().unwrap(PhoenixStatement.class);
+        for (String query : new String[] {
+                "SELECT k FROM COLUMNAR_T ORDER BY v",
+                "SELECT k FROM COLUMNAR_T LIMIT 10",
+                "SELECT count(*) FROM COLUMNAR_T",
+                // the buckets would need a merge sort by row key
+                "SELECT k FROM COLUMNAR_SALTED_T ORDER BY k",
+                "SELECT k FROM COLUMNAR_SALTED_T ORDER BY k DESC" }) {
+            try {
+                statement.executeColumnarQuery(query, 100);
+                fail("Expected " + query + " to be rejected");
+            } catch (SQLFeatureNotSupportedException expected) {
+            }
+        }
+    }
+}
@@ -0,0 +1,159 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.phoenix.iterate;
+
+import static org.apache.phoenix.query.QueryConstants.SINGLE_COLUMN;
+import static org.apache.phoenix.query.QueryConstants.SINGLE_COLUMN_FAMILY;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.sql.SQLException;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.apache.hadoop.hbase.KeyValue;
+import org.apache.hadoop.hbase.util.Bytes;
+import org.apache.phoenix.schema.tuple.SingleKeyValueTuple;
+import org.apache.phoenix.schema.tuple.Tuple;
+import org.junit.Test;
+
+import com.google.common.collect.Lists;
+import com.google.common.util.concurrent.Uninterruptibles;
+
+public class PrefetchingResultIteratorTest {
+
+    private static List<Tuple> newTuples(int count) {
+        List<Tuple> tuples = Lists.newArrayList();
+        for (int i = 0; i < count; i++) {
+            tuples.add(new SingleKeyValueTuple(new KeyValue(Bytes.toBytes(i), SINGLE_COLUMN_FAMILY,
+                    SINGLE_COLUMN, Bytes.toBytes(i))));
+        }
+        return tuples;
+    }
+
+    @Test
+    public void testRowsAreReturnedInOrder() throws Exception {
+        List<Tuple> tuples = newTuples(100);
+        PrefetchingResultIterator iterator =
+                new PrefetchingResultIterator(new MaterializedResultIterator(tuples), 7, 10000);
+        for (Tuple tuple : tuples) {
+            assertSame(tuple, iterator.next());
+        }
+        assertNull(iterator.next());
+        assertNull(iterator.next());
+        assertEquals(100 * KeyValue.getKeyValueDataStructureSize(4, 1, 1, 4), iterator.getPrefetchedBytes());
+        iterator.close();
+    }
+
+    @Test
+    public void testErrorIsRethrown() throws Exception {
+        final List<Tuple> tuples = newTuples(3);
+        ResultIterator failing = new ResultIterator() {
+            private int index;
+
+            @Override
+            public Tuple next() throws SQLException {
+                if (index == tuples.size()) {
+                    throw new SQLException("scan failed");
+                }
+                return tuples.get(index++);
+            }
+
+            @Override
+            public void explain(List<String> planSteps) {
+            }
+
+            @Override
+            public void close() throws SQLException {
+            }
+        };
+        PrefetchingResultIterator iterator = new PrefetchingResultIterator(failing, 10, 10000);
+        for (Tuple tuple : tuples) {
+            assertSame(tuple, iterator.next());
+        }
+        try {
+            iterator.next();
+            fail("Expected the scan failure to be rethrown");
+        } catch (SQLException e) {
+            assertEquals("scan failed", e.getMessage());
+        }
+        iterator.close();
+    }
+
+    @Test
+    public void testCloseStopsPrefetching() throws Exception {
+        final AtomicBoolean closed = new AtomicBoolean();
+        final AtomicReference<Thread> prefetcher = new AtomicReference<>();
+        ResultIterator delegate = new MaterializedResultIterator(newTuples(1000)) {
+            @Override
+            public Tuple next() throws SQLException {
+                prefetcher.set(Thread.currentThread());
+                return super.next();
+            }
+
+            @Override
+            public void close() {
+                closed.set(true);
+            }
+        };
+        PrefetchingResultIterator iterator = new PrefetchingResultIterator(delegate, 1, 10000);
+        iterator.next();
+        // The background thread is blocked on the full queue
+        iterator.close();
+        assertTrue(closed.get());
+        assertTrue(prefetcher.get().getName().startsWith("phoenix-prefetch-"));
+        prefetcher.get().join(10000);
+        assertFalse(prefetcher.get().isAlive());
+    }
+
+    @Test
+    public void testCloseDoesNotWaitForeverOnStuckScan() throws Exception {
+        final AtomicBoolean closed = new AtomicBoolean();
+        final CountDownLatch scanStarted = new CountDownLatch(1);
+        final CountDownLatch releaseScan = new CountDownLatch(1);
+        ResultIterator delegate = new MaterializedResultIterator(newTuples(1)) {
+            @Override
+            public Tuple next() throws SQLException {
+                scanStarted.countDown();
+                // A scan that doesn't respond to interrupts
+                Uninterruptibles.awaitUninterruptibly(releaseScan);
+                return super.next();
+            }
+
+            @Override
+            public void close() {
+                closed.set(true);
+            }
+        };
+        PrefetchingResultIterator iterator = new PrefetchingResultIterator(delegate, 1, 100);
+        try {
+            assertTrue(scanStarted.await(10, TimeUnit.SECONDS));
+            iterator.close();
+            assertTrue(closed.get());
+        } finally {
+            releaseScan.countDown();
+        }
+    }
+}
@@ -0,0 +1,105 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.phoenix.iterate;
+
+import static org.apache.phoenix.schema.PTable.ImmutableStorageScheme.SINGLE_CELL_ARRAY_WITH_OFFSETS;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.util.Arrays;
+
+import org.apache.hadoop.hbase.io.ImmutableBytesWritable;
+import org.apache.hadoop.hbase.util.Bytes;
+import org.apache.phoenix.compile.QueryPlan;
+import org.apache.phoenix.coprocessor.BaseScannerRegionObserver;
+import org.apache.phoenix.execute.DelegateQueryPlan;
+import org.apache.phoenix.expression.Expression;
+import org.apache.phoenix.expression.LiteralExpression;
+import org.apache.phoenix.expression.SingleCellConstructorExpression;
+import org.apache.phoenix.jdbc.PhoenixStatement;
+import org.apache.phoenix.query.BaseConnectionlessQueryTest;
+import org.apache.phoenix.query.QueryConstants;
+import org.apache.phoenix.util.EncodedColumnsUtil;
+import org.junit.Test;
+
+public class SingleCellProjectionRegionScannerTest extends BaseConnectionlessQueryTest {
+
+    @Test
+    public void testProjectValue() throws Exception {
+        int maxQualifier = QueryConstants.ENCODED_CQ_COUNTER_INITIAL_VALUE + 5;
+        Expression[] values = EncodedColumnsUtil.createColumnExpressionArray(maxQualifier);
+        for (int i = 1; i < values.length; i++) {
+            if (i != 3) {
+                values[i] = LiteralExpression.newConstant(Bytes.toBytes("value" + i));
+            }
+        }
+        ImmutableBytesWritable ptr = new ImmutableBytesWritable();
+        new SingleCellConstructorExpression(SINGLE_CELL_ARRAY_WITH_OFFSETS, Arrays.asList(values)).evaluate(null, ptr);
+        byte[] packed = new byte[ptr.getLength() + 1];
+        System.arraycopy(ptr.get(), ptr.getOffset(), packed, 1, ptr.getLength());
+
+        byte[] projected = SingleCellProjectionRegionScanner.projectValue(packed, 1, packed.length - 1,
+                new int[] { 2, 3, 4 }, ptr);
+        assertTrue(projected.length < packed.length - 1);
+        for (int i = 1; i < values.length; i++) {
+            ptr.set(projected);
+            boolean present = SINGLE_CELL_ARRAY_WITH_OFFSETS.getDecoder().decode(ptr, i);
+            if (i == 2 || i == 4) {
+                assertTrue(present);
+                assertEquals("value" + i, Bytes.toString(ptr.copyBytes()));
+            } else {
+                assertFalse(present);
+            }
+        }
+
+        projected = SingleCellProjectionRegionScanner.projectValue(packed, 1, packed.length - 1, new int[0], ptr);
+        ptr.set(projected);
+        assertFalse(SINGLE_CELL_ARRAY_WITH_OFFSETS.getDecoder().decode(ptr, 1));
+    }
+
+    @Test
+    public void testProjectionSerializedForUnprojectedScans() throws Exception {
+        try (Connection conn = DriverManager.getConnection(getUrl())) {
+            conn.createStatement().execute("CREATE TABLE IF NOT EXISTS SINGLE_CELL_T (k VARCHAR PRIMARY KEY,"
+                    + " a VARCHAR, b VARCHAR, c VARCHAR) IMMUTABLE_ROWS=true,"
+                    + " IMMUTABLE_STORAGE_SCHEME=SINGLE_CELL_ARRAY_WITH_OFFSETS");
+            PhoenixStatement statement = conn.createStatement().unwrap(PhoenixStatement.class);
+
+            // Rows of flat queries are already projected on the server
+            QueryPlan plan = statement.compileQuery("SELECT a FROM SINGLE_CELL_T");
+            assertNull(plan.getContext().getScan().getAttribute(BaseScannerRegionObserver.SINGLE_CELL_PROJECTION));
+
+            plan = statement.compileQuery("SELECT a FROM (SELECT a, b FROM SINGLE_CELL_T LIMIT 5) WHERE b = 'x'");
+            while (plan instanceof DelegateQueryPlan) {
+                plan = ((DelegateQueryPlan) plan).getDelegate();
+            }
+            assertNotNull(plan.getContext().getScan().getAttribute(BaseScannerRegionObserver.SINGLE_CELL_PROJECTION));
+
+            plan = statement.compileQuery("SELECT k FROM (SELECT * FROM SINGLE_CELL_T LIMIT 5)");
+            while (plan instanceof DelegateQueryPlan) {
+                plan = ((DelegateQueryPlan) plan).getDelegate();
+            }
+            assertNull(plan.getContext().getScan().getAttribute(BaseScannerRegionObserver.SINGLE_CELL_PROJECTION));
+        }
+    }
+}
@@ -0,0 +1,70 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.phoenix.iterate;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.hbase.HConstants;
+import org.apache.hadoop.hbase.client.Scan;
+import org.apache.phoenix.mapreduce.util.PhoenixConfigurationUtil;
+import org.apache.phoenix.parse.HintNode;
+import org.junit.Test;
+
+public class SnapshotParallelScanGrouperTest {
+
+    @Test
+    public void testGetSnapshotName() {
+        assertEquals("SNAP", SnapshotParallelScanGrouper.getSnapshotName(new HintNode("SNAPSHOT(snap)")));
+        assertEquals("snap", SnapshotParallelScanGrouper.getSnapshotName(new HintNode("NO_CACHE SNAPSHOT(\"snap\")")));
+        assertNull(SnapshotParallelScanGrouper.getSnapshotName(new HintNode("SNAPSHOT")));
+        assertNull(SnapshotParallelScanGrouper.getSnapshotName(new HintNode("NO_INDEX")));
+    }
+
+    @Test
+    public void testConfiguration() {
+        Configuration conf = new Configuration(false);
+        conf.set(HConstants.TEMPORARY_FS_DIRECTORY_KEY, "/hbase-tmp");
+        Configuration snapshotConf = new SnapshotParallelScanGrouper(conf, "snap").getConfiguration();
+        assertEquals("snap", snapshotConf.get(PhoenixConfigurationUtil.SNAPSHOT_NAME_KEY));
+        assertEquals("/hbase-tmp", snapshotConf.get(PhoenixConfigurationUtil.RESTORE_DIR_KEY));
+        // the connection configuration is left untouched
+        assertNull(conf.get(PhoenixConfigurationUtil.SNAPSHOT_NAME_KEY));
+
+        conf.set(PhoenixConfigurationUtil.RESTORE_DIR_KEY, "/restore");
+        snapshotConf = new SnapshotParallelScanGrouper(conf, "snap").getConfiguration();
+        assertEquals("/restore", snapshotConf.get(PhoenixConfigurationUtil.RESTORE_DIR_KEY));
+    }
+
+    @Test
+    public void testNoScanAfterClose() throws IOException {
+        SnapshotParallelScanGrouper grouper = new SnapshotParallelScanGrouper(new Configuration(false), "snap");
+        // nothing was restored yet, so there is nothing to delete
+        grouper.close();
+        try {
+            grouper.newIterator(new Scan(), null);
+            fail();
+        } catch (IOException e) {
+            assertEquals("Scans of snapshot snap are closed", e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,147 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.phoenix.jdbc;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.DriverManager;
+import java.util.Collections;
+import java.util.List;
+
+import org.apache.hadoop.hbase.Cell;
+import org.apache.hadoop.hbase.CellComparatorImpl;
+import org.apache.hadoop.hbase.KeyValue;
+import org.apache.hadoop.hbase.client.Result;
+import org.apache.hadoop.hbase.util.Bytes;
+import org.apache.phoenix.compile.QueryPlan;
+import org.apache.phoenix.execute.TupleProjector;
+import org.apache.phoenix.iterate.MaterializedResultIterator;
+import org.apache.phoenix.query.BaseConnectionlessQueryTest;
+import org.apache.phoenix.query.QueryConstants;
+import org.apache.phoenix.schema.SortOrder;
+import org.apache.phoenix.schema.TypeMismatchException;
+import org.apache.phoenix.schema.tuple.ResultTuple;
+import org.apache.phoenix.schema.tuple.Tuple;
+import org.apache.phoenix.schema.types.PDate;
+import org.apache.phoenix.schema.types.PDouble;
+import org.apache.phoenix.schema.types.PLong;
+import org.apache.phoenix.schema.types.PVarchar;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.google.common.collect.Lists;
+
+public class PhoenixColumnBatchTest extends BaseConnectionlessQueryTest {
+    private static final String QUERY = "SELECT k, d, v, dt FROM BATCH_T";
+
+    private Connection conn;
+
+    @Before
+    public void createTable() throws Exception {
+        conn = DriverManager.getConnection(getUrl());
+        conn.createStatement().execute("CREATE TABLE IF NOT EXISTS BATCH_T (k BIGINT NOT NULL PRIMARY KEY DESC,"
+                + " d DOUBLE, v VARCHAR, dt DATE) COLUMN_ENCODED_BYTES=0");
+    }
+
+    private static Tuple newRow(long k, Double d, String v, Long dt) {
+        byte[] row = PLong.INSTANCE.toBytes(k, SortOrder.DESC);
+        byte[] family = QueryConstants.DEFAULT_COLUMN_FAMILY_BYTES;
+        List<Cell> cells = Lists.newArrayList();
+        cells.add(new KeyValue(row, family, QueryConstants.EMPTY_COLUMN_BYTES, QueryConstants.EMPTY_COLUMN_VALUE_BYTES));
+        if (d != null) {
+            cells.add(new KeyValue(row, family, Bytes.toBytes("D"), PDouble.INSTANCE.toBytes(d)));
+        }
+        if (v != null) {
+            cells.add(new KeyValue(row, family, Bytes.toBytes("V"), PVarchar.INSTANCE.toBytes(v)));
+        }
+        if (dt != null) {
+            cells.add(new KeyValue(row, family, Bytes.toBytes("DT"), PDate.INSTANCE.toBytes(new Date(dt))));
+        }
+        Collections.sort(cells, CellComparatorImpl.COMPARATOR);
+        return new ResultTuple(Result.create(cells));
+    }
+
+    private PhoenixResultSet newResultSet(Tuple... rows) throws Exception {
+        QueryPlan plan = conn.createStatement().unwrap(PhoenixStatement.class).compileQuery(QUERY);
+        // Rows come back from the region server projected into a single cell
+        TupleProjector projector = TupleProjector.deserializeProjectorFromScan(plan.getContext().getScan());
+        List<Tuple> projectedRows = Lists.newArrayList();
+        for (Tuple row : rows) {
+            projectedRows.add(projector.projectResults(row));
+        }
+        return new PhoenixResultSet(new MaterializedResultIterator(projectedRows),
+                plan.getProjector(), plan.getContext());
+    }
+
+    @Test
+    public void testNextBatch() throws Exception {
+        PhoenixResultSet rs = newResultSet(
+                newRow(3, 1.5, "abc", 1000L),
+                newRow(2, null, null, null),
+                newRow(1, -2.0, "de", 2000L));
+        PhoenixColumnBatch batch = new PhoenixColumnBatch(2);
+        PhoenixColumnBatch.LongColumn keys = batch.addLongColumn(1);
+        PhoenixColumnBatch.DoubleColumn doubles = batch.addDoubleColumn(2);
+        PhoenixColumnBatch.BytesColumn strings = batch.addBytesColumn(3, new int[3], new byte[1]);
+        PhoenixColumnBatch.LongColumn dates = batch.addLongColumn(4);
+        PhoenixColumnBatch.DoubleColumn keysAsDoubles = batch.addDoubleColumn(1);
+
+        assertEquals(2, rs.nextBatch(batch));
+        assertEquals(2, batch.getSize());
+        assertEquals(3, keys.getValues()[0]);
+        assertEquals(2, keys.getValues()[1]);
+        assertEquals(3.0, keysAsDoubles.getValues()[0], 0);
+        assertEquals(1.5, doubles.getValues()[0], 0);
+        assertFalse(doubles.isNull(0));
+        assertTrue(doubles.isNull(1));
+        assertEquals("abc", Bytes.toString(strings.getBuffer(), strings.getOffsets()[0], strings.getLength(0)));
+        assertTrue(strings.isNull(1));
+        assertEquals(0, strings.getLength(1));
+        assertEquals(1000L, dates.getValues()[0]);
+        assertTrue(dates.isNull(1));
+        // The cursor is left on the last row read
+        assertEquals(2, rs.getLong(1));
+
+        assertEquals(1, rs.nextBatch(batch));
+        assertEquals(1, keys.getValues()[0]);
+        assertEquals(-2.0, doubles.getValues()[0], 0);
+        assertFalse(doubles.isNull(0));
+        assertEquals("de", Bytes.toString(strings.getBuffer(), strings.getOffsets()[0], strings.getLength(0)));
+        assertEquals(2000L, dates.getValues()[0]);
+
+        assertEquals(0, rs.nextBatch(batch));
+        assertEquals(0, batch.getSize());
+    }
+
+    @Test
+    public void testNextBatchTypeMismatch() throws Exception {
+        PhoenixResultSet rs = newResultSet(newRow(1, 1.0, "a", 0L));
+        PhoenixColumnBatch batch = new PhoenixColumnBatch(10);
+        batch.addLongColumn(3);
+        try {
+            rs.nextBatch(batch);
+            fail("Expected VARCHAR to be rejected for a long column");
+        } catch (TypeMismatchException expected) {
+        }
+    }
+}
@@ -21,6 +21,10 @@ import java.util.Arrays;
 import java.util.Collection;
 
 import org.apache.commons.cli.CommandLine;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.mapred.LocalJobRunner;
+import org.apache.hadoop.mapreduce.MRConfig;
+import org.apache.hadoop.mapreduce.MRJobConfig;
 import org.apache.phoenix.util.SchemaUtil;
 import org.junit.Test;
 import org.junit.runner.RunWith;
@@ -67,6 +71,41 @@ public class BulkLoadToolTest {
         bulkLoadTool.parseOptions(new String[] { "--input", "/input" });
     }
 
+    @Test
+    public void testParseOptions_Local() {
+        CommandLine cmdLine = bulkLoadTool.parseOptions(new String[] { "--input", "/input",
+                "--table", "mytable", "--local", "4" });
+        assertEquals("4", cmdLine.getOptionValue(AbstractBulkLoadTool.LOCAL_OPT.getOpt()));
+    }
+
+    @Test(expected=IllegalStateException.class)
+    public void testParseOptions_InvalidLocalThreads() {
+        bulkLoadTool.parseOptions(new String[] { "--input", "/input",
+                "--table", "mytable", "--local", "0" });
+    }
+
+    @Test
+    public void testConfigureLocalJob() {
+        Configuration conf = new Configuration(false);
+        AbstractBulkLoadTool.configureLocalJob(conf, 4, 1024L << 20);
+        assertEquals(MRConfig.LOCAL_FRAMEWORK_NAME, conf.get(MRConfig.FRAMEWORK_NAME));
+        assertEquals(4, conf.getInt(LocalJobRunner.LOCAL_MAX_MAPS, 1));
+        assertEquals(4, conf.getInt(LocalJobRunner.LOCAL_MAX_REDUCES, 1));
+    }
+
+    @Test
+    public void testConfigureLocalJobCapsThreadsToHeap() {
+        Configuration conf = new Configuration(false);
+        conf.setInt(MRJobConfig.IO_SORT_MB, 100);
+        // half of a 1 GB heap holds 5 sort buffers of 100 MB
+        AbstractBulkLoadTool.configureLocalJob(conf, 8, 1024L << 20);
+        assertEquals(5, conf.getInt(LocalJobRunner.LOCAL_MAX_MAPS, 1));
+        assertEquals(5, conf.getInt(LocalJobRunner.LOCAL_MAX_REDUCES, 1));
+        // always at least one thread
+        AbstractBulkLoadTool.configureLocalJob(conf, 8, 64L << 20);
+        assertEquals(1, conf.getInt(LocalJobRunner.LOCAL_MAX_MAPS, 0));
+    }
+
     @Test
     public void testGetQualifiedTableName() {
         assertEquals("MYSCHEMA.MYTABLE", SchemaUtil.getQualifiedTableName("mySchema", "myTable"));
@@ -0,0 +1,107 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.phoenix.mapreduce;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+
+import org.apache.hadoop.hbase.KeyValue;
+import org.apache.hadoop.hbase.io.ImmutableBytesWritable;
+import org.apache.hadoop.hbase.util.Bytes;
+import org.apache.hadoop.io.WritableUtils;
+import org.junit.Test;
+
+public class FormatToBytesWritableCombinerTest {
+
+    /**
+     * Encodes a Put cell the way FormatToBytesWritableMapper does
+     */
+    private static byte[] cell(long timestamp, int columnIndex, byte[] value) throws IOException {
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bos);
+        out.writeByte(KeyValue.Type.Put.getCode());
+        WritableUtils.writeVLong(out, timestamp);
+        WritableUtils.writeVInt(out, columnIndex);
+        WritableUtils.writeVInt(out, value.length);
+        out.write(value);
+        out.close();
+        return bos.toByteArray();
+    }
+
+    @Test
+    public void testCombineConcatenatesValuesInOrder() throws IOException {
+        FormatToBytesWritableCombiner combiner = new FormatToBytesWritableCombiner();
+        byte[] a = cell(1, 0, Bytes.toBytes("a"));
+        byte[] b = cell(1, 1, Bytes.toBytes("b"));
+        byte[] c = cell(1, 2, Bytes.toBytes("c"));
+        byte[] backing = Bytes.add(Bytes.toBytes("xx"), Bytes.add(a, b), Bytes.toBytes("xx"));
+        ImmutableBytesWritable first = new ImmutableBytesWritable(backing, 2, a.length + b.length);
+        ImmutableBytesWritable second = new ImmutableBytesWritable(c);
+        ImmutableBytesWritable combined = combiner.combine(Arrays.asList(first, second));
+        assertArrayEquals(Bytes.add(a, b, c), combined.copyBytes());
+    }
+
+    @Test
+    public void testCombinePassesSingleValueThrough() throws IOException {
+        FormatToBytesWritableCombiner combiner = new FormatToBytesWritableCombiner();
+        byte[] a = cell(1, 0, Bytes.toBytes("a"));
+        ImmutableBytesWritable value = new ImmutableBytesWritable(Bytes.add(a, a));
+        assertSame(value, combiner.combine(Collections.singletonList(value)));
+    }
+
+    @Test
+    public void testCombineKeepsFirstOfDuplicateCells() throws IOException {
+        FormatToBytesWritableCombiner combiner = new FormatToBytesWritableCombiner();
+        byte[] a1 = cell(1, 0, Bytes.toBytes("a1"));
+        byte[] b1 = cell(1, 1, Bytes.toBytes("b1"));
+        byte[] a2 = cell(1, 0, Bytes.toBytes("a2"));
+        // same column at another timestamp is a different cell
+        byte[] a3 = cell(2, 0, Bytes.toBytes("a3"));
+        ImmutableBytesWritable combined = combiner.combine(Arrays.asList(
+                new ImmutableBytesWritable(Bytes.add(a1, b1)), new ImmutableBytesWritable(Bytes.add(a2, a3))));
+        assertArrayEquals(Bytes.add(a1, b1, a3), combined.copyBytes());
+
+        // duplicates are only tracked within a row
+        combined = combiner.combine(Collections.singletonList(new ImmutableBytesWritable(a2)));
+        assertArrayEquals(a2, combined.copyBytes());
+    }
+
+    @Test
+    public void testCombineGrowsBuffer() throws IOException {
+        FormatToBytesWritableCombiner combiner = new FormatToBytesWritableCombiner();
+        byte[] large = new byte[3000];
+        Arrays.fill(large, (byte) 7);
+        byte[] first = cell(1, 0, large);
+        byte[] second = cell(1, 1, large);
+        ImmutableBytesWritable combined = combiner.combine(Arrays.asList(
+                new ImmutableBytesWritable(first), new ImmutableBytesWritable(second)));
+        assertEquals(first.length + second.length, combined.getLength());
+        assertEquals(7, combined.get()[combined.getOffset() + combined.getLength() - 1]);
+
+        byte[] small = cell(1, 0, Bytes.toBytes("a"));
+        combined = combiner.combine(Collections.singletonList(new ImmutableBytesWritable(small)));
+        assertArrayEquals(small, combined.copyBytes());
+    }
+}
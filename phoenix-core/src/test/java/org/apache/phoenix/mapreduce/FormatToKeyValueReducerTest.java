@@ -0,0 +1,172 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.phoenix.mapreduce;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.atLeastOnce;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.hbase.CellUtil;
+import org.apache.hadoop.hbase.HConstants;
+import org.apache.hadoop.hbase.KeyValue;
+import org.apache.hadoop.hbase.io.ImmutableBytesWritable;
+import org.apache.hadoop.hbase.util.Bytes;
+import org.apache.hadoop.io.WritableUtils;
+import org.apache.hadoop.mapreduce.Reducer;
+import org.apache.phoenix.jdbc.PhoenixConnection;
+import org.apache.phoenix.mapreduce.bulkload.TableRowkeyPair;
+import org.apache.phoenix.mapreduce.bulkload.TargetTableRef;
+import org.apache.phoenix.mapreduce.bulkload.TargetTableRefFunctions;
+import org.apache.phoenix.query.BaseConnectionlessQueryTest;
+import org.apache.phoenix.query.QueryConstants;
+import org.apache.phoenix.query.QueryServices;
+import org.apache.phoenix.schema.PTable;
+import org.apache.phoenix.util.EncodedColumnsUtil;
+import org.apache.phoenix.util.PhoenixRuntime;
+import org.apache.phoenix.util.SchemaUtil;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+
+public class FormatToKeyValueReducerTest extends BaseConnectionlessQueryTest {
+
+    private static final String TABLE_NAME = "REDUCER_T";
+
+    private static void cell(DataOutputStream out, KeyValue.Type type, long timestamp,
+            int columnIndex, byte[] value) throws IOException {
+        out.writeByte(type.getCode());
+        WritableUtils.writeVLong(out, timestamp);
+        WritableUtils.writeVInt(out, columnIndex);
+        WritableUtils.writeVInt(out, value.length);
+        out.write(value);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testReduceDecodesCellsInOrder() throws Exception {
+        try (Connection conn = DriverManager.getConnection(getUrl())) {
+            conn.createStatement().execute("CREATE TABLE " + TABLE_NAME
+                    + " (K VARCHAR PRIMARY KEY, V0 VARCHAR, B.V1 VARCHAR, A.V2 VARCHAR, A.V3 VARCHAR)");
+        }
+        PTable table;
+        try (Connection conn = DriverManager.getConnection(getUrl())) {
+            table = PhoenixRuntime.getTable(conn.unwrap(PhoenixConnection.class), TABLE_NAME);
+        }
+        // The column indexes follow the column order of the table, then the empty column
+        int v1 = table.getColumnForColumnName("V1").getPosition();
+        int v2 = table.getColumnForColumnName("V2").getPosition();
+        int v3 = table.getColumnForColumnName("V3").getPosition();
+        int empty = table.getColumns().size();
+        byte[] v1Qualifier = table.getColumnForColumnName("V1").getColumnQualifierBytes();
+        byte[] v2Qualifier = table.getColumnForColumnName("V2").getColumnQualifierBytes();
+        byte[] v3Qualifier = table.getColumnForColumnName("V3").getColumnQualifierBytes();
+        byte[] emptyFamily = SchemaUtil.getEmptyColumnFamily(table);
+        byte[] emptyQualifier = EncodedColumnsUtil.getEmptyKeyValueInfo(table).getFirst();
+
+        Configuration conf = new Configuration(false);
+        conf.set(HConstants.ZOOKEEPER_QUORUM, PhoenixRuntime.CONNECTIONLESS);
+        conf.set(QueryServices.EXTRA_JDBC_ARGUMENTS_ATTRIB, PhoenixRuntime.PHOENIX_TEST_DRIVER_URL_PARAM);
+        List<TargetTableRef> tables = Collections.singletonList(new TargetTableRef(TABLE_NAME));
+        conf.set(FormatToBytesWritableMapper.TABLE_NAMES_CONFKEY,
+                TargetTableRefFunctions.NAMES_TO_JSON.apply(tables));
+        conf.set(FormatToBytesWritableMapper.LOGICAL_NAMES_CONFKEY,
+                TargetTableRefFunctions.LOGICAL_NAMES_TO_JSON.apply(tables));
+        Reducer.Context context = mock(Reducer.Context.class);
+        when(context.getConfiguration()).thenReturn(conf);
+
+        // The row arrives from two mappers. The second one repeats a cell of the first one and
+        // writes an older version of another column.
+        ByteArrayOutputStream first = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(first);
+        cell(out, KeyValue.Type.Put, 10, v1, Bytes.toBytes("b1"));
+        cell(out, KeyValue.Type.DeleteColumn, 10, v2, new byte[0]);
+        cell(out, KeyValue.Type.Put, 10, v3, new byte[0]);
+        cell(out, KeyValue.Type.Put, 10, empty, QueryConstants.EMPTY_COLUMN_VALUE_BYTES);
+        out.close();
+        ByteArrayOutputStream second = new ByteArrayOutputStream();
+        out = new DataOutputStream(second);
+        cell(out, KeyValue.Type.Put, 10, v1, Bytes.toBytes("b2"));
+        cell(out, KeyValue.Type.Put, 5, v2, Bytes.toBytes("a2"));
+        out.close();
+        // Decoding must honor the offset of the value in its backing array
+        byte[] backing = Bytes.add(Bytes.toBytes("xx"), second.toByteArray());
+        List<ImmutableBytesWritable> values = Arrays.asList(
+                new ImmutableBytesWritable(first.toByteArray()),
+                new ImmutableBytesWritable(backing, 2, backing.length - 2));
+
+        byte[] rowKey = Bytes.toBytes("row1");
+        TableRowkeyPair key = new TableRowkeyPair(TABLE_NAME, new ImmutableBytesWritable(rowKey));
+        FormatToKeyValueReducer reducer = new FormatToKeyValueReducer();
+        reducer.setup(context);
+        reducer.reduce(key, values, context);
+
+        ArgumentCaptor<KeyValue> captor = ArgumentCaptor.forClass(KeyValue.class);
+        verify(context, atLeastOnce()).write(eq(key), captor.capture());
+        List<KeyValue> cells = captor.getAllValues();
+        byte[] a = Bytes.toBytes("A");
+        byte[] b = Bytes.toBytes("B");
+        // Cells are sorted by family and qualifier, and the newer version of a column comes first
+        assertEquals(5, cells.size());
+        assertCell(cells.get(0), rowKey, emptyFamily, emptyQualifier, 10, KeyValue.Type.Put,
+                QueryConstants.EMPTY_COLUMN_VALUE_BYTES);
+        assertCell(cells.get(1), rowKey, a, v2Qualifier, 10, KeyValue.Type.DeleteColumn, new byte[0]);
+        assertCell(cells.get(2), rowKey, a, v2Qualifier, 5, KeyValue.Type.Put, Bytes.toBytes("a2"));
+        // An empty value is written as the empty column value
+        assertCell(cells.get(3), rowKey, a, v3Qualifier, 10, KeyValue.Type.Put,
+                QueryConstants.EMPTY_COLUMN_VALUE_BYTES);
+        // The first of the duplicate cells is kept
+        assertCell(cells.get(4), rowKey, b, v1Qualifier, 10, KeyValue.Type.Put, Bytes.toBytes("b1"));
+
+        // The reused cell list does not leak into the next row
+        byte[] nextRowKey = Bytes.toBytes("row2");
+        TableRowkeyPair nextKey = new TableRowkeyPair(TABLE_NAME, new ImmutableBytesWritable(nextRowKey));
+        ByteArrayOutputStream next = new ByteArrayOutputStream();
+        out = new DataOutputStream(next);
+        cell(out, KeyValue.Type.Put, 20, v1, Bytes.toBytes("c1"));
+        out.close();
+        reducer.reduce(nextKey, Collections.singletonList(new ImmutableBytesWritable(next.toByteArray())),
+                context);
+        captor = ArgumentCaptor.forClass(KeyValue.class);
+        verify(context).write(eq(nextKey), captor.capture());
+        assertCell(captor.getValue(), nextRowKey, b, v1Qualifier, 20, KeyValue.Type.Put,
+                Bytes.toBytes("c1"));
+    }
+
+    private static void assertCell(KeyValue kv, byte[] row, byte[] family, byte[] qualifier,
+            long timestamp, KeyValue.Type type, byte[] value) {
+        assertArrayEquals(row, CellUtil.cloneRow(kv));
+        assertArrayEquals(family, CellUtil.cloneFamily(kv));
+        assertArrayEquals(qualifier, CellUtil.cloneQualifier(kv));
+        assertEquals(timestamp, kv.getTimestamp());
+        assertEquals(type.getCode(), kv.getTypeByte());
+        assertArrayEquals(value, CellUtil.cloneValue(kv));
+    }
+}
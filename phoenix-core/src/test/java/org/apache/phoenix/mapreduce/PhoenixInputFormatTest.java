@@ -0,0 +1,128 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.phoenix.mapreduce;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Collections;
+import java.util.List;
+
+import org.apache.hadoop.hbase.client.Scan;
+import org.apache.hadoop.hbase.util.Bytes;
+import org.apache.hadoop.mapreduce.InputSplit;
+import org.apache.phoenix.coprocessor.BaseScannerRegionObserver;
+import org.junit.Test;
+
+import com.google.common.collect.Lists;
+
+public class PhoenixInputFormatTest {
+
+    private static PhoenixInputSplit newScanSplit(String start, String stop, long size, String location) {
+        Scan scan = new Scan().withStartRow(Bytes.toBytes(start)).withStopRow(Bytes.toBytes(stop));
+        return new PhoenixInputSplit(Collections.singletonList(scan), size, location);
+    }
+
+    @Test
+    public void testMergeScansOnSameServer() throws Exception {
+        List<PhoenixInputSplit> scanSplits = Lists.newArrayList(
+                newScanSplit("a", "b", 40, "host1"),
+                newScanSplit("b", "c", 40, "host1"),
+                newScanSplit("c", "d", 40, "host1"),
+                newScanSplit("d", "e", 40, "host2"),
+                newScanSplit("e", "f", 40, "host1"));
+        List<InputSplit> splits = PhoenixInputFormat.balanceSplits(scanSplits, 100);
+        assertEquals(4, splits.size());
+        assertSplit(splits.get(0), 80, "host1", "a", "c");
+        assertSplit(splits.get(1), 40, "host1", "c", "d");
+        assertSplit(splits.get(2), 40, "host2", "d", "e");
+        assertSplit(splits.get(3), 40, "host1", "e", "f");
+    }
+
+    @Test
+    public void testDivideLargeScan() throws Exception {
+        List<PhoenixInputSplit> scanSplits = Lists.newArrayList(
+                newScanSplit("a", "e", 400, "host1"),
+                // The last region is unbounded and cannot be divided
+                new PhoenixInputSplit(Collections.singletonList(new Scan().withStartRow(Bytes.toBytes("e"))),
+                        400, "host1"));
+        List<InputSplit> splits = PhoenixInputFormat.balanceSplits(scanSplits, 100);
+        assertEquals(5, splits.size());
+        byte[] previousStop = Bytes.toBytes("a");
+        for (int i = 0; i < 4; i++) {
+            PhoenixInputSplit split = (PhoenixInputSplit) splits.get(i);
+            assertEquals(100, split.getLength());
+            Scan scan = split.getScans().get(0);
+            assertArrayEquals(previousStop, scan.getStartRow());
+            assertTrue(Bytes.compareTo(scan.getStartRow(), scan.getStopRow()) < 0);
+            previousStop = scan.getStopRow();
+        }
+        assertArrayEquals(Bytes.toBytes("e"), previousStop);
+        assertEquals(400, splits.get(4).getLength());
+    }
+
+    @Test
+    public void testDividedScansResetActualStartRow() throws Exception {
+        PhoenixInputSplit scanSplit = newScanSplit("a", "e", 400, "host1");
+        scanSplit.getScans().get(0).setAttribute(BaseScannerRegionObserver.SCAN_ACTUAL_START_ROW,
+                Bytes.toBytes("a"));
+        List<InputSplit> splits = PhoenixInputFormat.balanceSplits(
+                Collections.singletonList(scanSplit), 100);
+        assertEquals(4, splits.size());
+        for (InputSplit split : splits) {
+            Scan scan = ((PhoenixInputSplit) split).getScans().get(0);
+            assertArrayEquals(scan.getStartRow(),
+                    scan.getAttribute(BaseScannerRegionObserver.SCAN_ACTUAL_START_ROW));
+        }
+    }
+
+    @Test
+    public void testScanSizesFromGuidePosts() throws Exception {
+        List<Scan> scans = Lists.newArrayList(
+                new Scan().withStartRow(Bytes.toBytes("a")).withStopRow(Bytes.toBytes("c")),
+                new Scan().withStartRow(Bytes.toBytes("c")).withStopRow(Bytes.toBytes("f")),
+                new Scan().withStartRow(Bytes.toBytes("f")).withStopRow(Bytes.toBytes("h")));
+        // The guideposts outside of the region are not counted
+        List<byte[]> guidePosts = Lists.newArrayList(Bytes.toBytes("0"), Bytes.toBytes("c"),
+                Bytes.toBytes("d"), Bytes.toBytes("f"), Bytes.toBytes("z"));
+        long[] guidePostBytes = new long[] { 1000, 10, 20, 300, 1000 };
+        long[] scanSizes = PhoenixInputFormat.getScanSizes(scans, guidePosts, guidePostBytes, 400);
+        // The last chunk has no guidepost and gets the rest of the region
+        assertArrayEquals(new long[] { 10, 320, 70 }, scanSizes);
+    }
+
+    @Test
+    public void testScanSizesWithoutGuidePosts() throws Exception {
+        List<Scan> scans = Lists.newArrayList(
+                new Scan().withStartRow(Bytes.toBytes("a")).withStopRow(Bytes.toBytes("c")),
+                new Scan().withStartRow(Bytes.toBytes("c")));
+        long[] scanSizes = PhoenixInputFormat.getScanSizes(scans,
+                Collections.<byte[]>emptyList(), new long[0], 400);
+        assertArrayEquals(new long[] { 200, 200 }, scanSizes);
+    }
+
+    private static void assertSplit(InputSplit inputSplit, long length, String location, String start,
+            String stop) throws Exception {
+        PhoenixInputSplit split = (PhoenixInputSplit) inputSplit;
+        assertEquals(length, split.getLength());
+        assertArrayEquals(new String[] { location }, split.getLocations());
+        assertArrayEquals(Bytes.toBytes(start), split.getKeyRange().getLowerRange());
+        assertArrayEquals(Bytes.toBytes(stop), split.getKeyRange().getUpperRange());
+    }
+}
@@ -123,6 +123,26 @@ public class PMetaDataImplTest {
         assertNames(metaData, "d","e");
     }
 
+    @Test
+    public void testCloneAccessDoesNotChangeSourceEviction() throws Exception {
+        TestTimeKeeper timeKeeper = new TestTimeKeeper();
+        Map<String, String> props = Maps.newHashMapWithExpectedSize(2);
+        props.put(QueryServices.MAX_CLIENT_METADATA_CACHE_SIZE_ATTRIB, "10");
+        props.put(QueryServices.CLIENT_CACHE_ENCODING, "object");
+        PMetaData metaData = new PMetaDataImpl(5, timeKeeper,  new ReadOnlyProps(props));
+        addToTable(metaData, "a", 3, timeKeeper);
+        addToTable(metaData, "b", 3, timeKeeper);
+        addToTable(metaData, "c", 3, timeKeeper);
+        PMetaData clone = metaData.clone();
+
+        // Only the clone sees "a" as recently used
+        getFromTable(clone, "a", timeKeeper);
+        addToTable(metaData, "d", 3, timeKeeper);
+        assertNames(metaData, "b", "c", "d");
+        addToTable(clone, "d", 3, timeKeeper);
+        assertNames(clone, "a", "c", "d");
+    }
+
     @Test
     public void shouldNotEvictMoreEntriesThanNecessary() throws Exception {
         TestTimeKeeper timeKeeper = new TestTimeKeeper();
@@ -211,6 +231,35 @@ public class PMetaDataImplTest {
         assertEquals(2, metaData.getAge(aTableRef));
     }
 
+    @Test
+    public void testCloneIsIsolatedFromSource() throws Exception {
+        TestTimeKeeper timeKeeper = new TestTimeKeeper();
+        Map<String, String> props = Maps.newHashMapWithExpectedSize(2);
+        props.put(QueryServices.MAX_CLIENT_METADATA_CACHE_SIZE_ATTRIB, "100");
+        props.put(QueryServices.CLIENT_CACHE_ENCODING, "object");
+        PMetaData metaData = new PMetaDataImpl(5, timeKeeper,  new ReadOnlyProps(props));
+        addToTable(metaData, "a", 1, timeKeeper);
+        addToTable(metaData, "b", 1, timeKeeper);
+        PMetaData clone = metaData.clone();
+        assertNames(clone, "a", "b");
+
+        addToTable(clone, "c", 1, timeKeeper);
+        removeFromTable(clone, "a", timeKeeper);
+        assertNames(clone, "b", "c");
+        assertNames(metaData, "a", "b");
+
+        PSchema schema = new PSchema("testSchema");
+        metaData.addSchema(schema);
+        addToTable(metaData, "d", 1, timeKeeper);
+        assertNames(metaData, "a", "b", "d");
+        assertNames(clone, "b", "c");
+        try {
+            clone.getSchema(schema.getSchemaKey());
+            fail("the schema should only be visible in the source cache");
+        } catch (SchemaNotFoundException e) {
+        }
+    }
+
     @Test
     public void testSchema() throws Exception {
         TestTimeKeeper timeKeeper = new TestTimeKeeper();
@@ -0,0 +1,119 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.phoenix.schema;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.Test;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+
+public class PersistentHashMapTest {
+
+    /**
+     * Key with a controllable hash code, to force keys into the same slots
+     */
+    private static class Key {
+        private final int id;
+        private final int hash;
+
+        Key(int id, int hash) {
+            this.id = id;
+            this.hash = hash;
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Key && ((Key) o).id == id;
+        }
+    }
+
+    private static void assertContents(Map<Key, Integer> expected, PersistentHashMap<Key, Integer> map) {
+        assertEquals(expected.size(), map.size());
+        Map<Key, Integer> actual = Maps.newHashMap();
+        for (Map.Entry<Key, Integer> entry : map) {
+            assertNull(actual.put(entry.getKey(), entry.getValue()));
+        }
+        assertEquals(expected, actual);
+        for (Map.Entry<Key, Integer> entry : expected.entrySet()) {
+            assertEquals(entry.getValue(), map.get(entry.getKey()));
+        }
+    }
+
+    private static void testRandomUpdates(int numKeys, int numHashes) {
+        Random random = new Random(numKeys * 31 + numHashes);
+        PersistentHashMap<Key, Integer> map = PersistentHashMap.empty();
+        Map<Key, Integer> expected = Maps.newHashMap();
+        List<PersistentHashMap<Key, Integer>> snapshots = Lists.newArrayList();
+        List<Map<Key, Integer>> expectedSnapshots = Lists.newArrayList();
+        for (int i = 0; i < 5000; i++) {
+            int id = random.nextInt(numKeys);
+            // Spread the hashes over the high bits too, so that keys collide at every level
+            Key key = new Key(id, (id % numHashes) * 0x9E3779B9);
+            if (random.nextInt(3) == 0) {
+                map = map.minus(key);
+                expected.remove(key);
+            } else {
+                int value = random.nextInt(10);
+                map = map.plus(key, value);
+                expected.put(key, value);
+            }
+            if (i % 1000 == 0) {
+                snapshots.add(map);
+                expectedSnapshots.add(Maps.newHashMap(expected));
+            }
+        }
+        assertContents(expected, map);
+        // Later updates don't change the earlier versions of the map
+        for (int i = 0; i < snapshots.size(); i++) {
+            assertContents(expectedSnapshots.get(i), snapshots.get(i));
+        }
+    }
+
+    @Test
+    public void testDistinctHashes() {
+        testRandomUpdates(1000, Integer.MAX_VALUE);
+    }
+
+    @Test
+    public void testCollidingHashes() {
+        testRandomUpdates(300, 7);
+    }
+
+    @Test
+    public void testUnchangedMapIsReturned() {
+        Key key = new Key(1, 1);
+        Integer value = 1;
+        PersistentHashMap<Key, Integer> map = PersistentHashMap.<Key, Integer> empty().plus(key, value);
+        assertSame(map, map.plus(key, value));
+        assertSame(map, map.minus(new Key(2, 1)));
+        assertEquals(0, map.minus(key).size());
+    }
+}
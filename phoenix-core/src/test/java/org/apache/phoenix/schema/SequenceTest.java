@@ -0,0 +1,153 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.phoenix.schema;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.Collections;
+import java.util.List;
+
+import org.apache.hadoop.hbase.Cell;
+import org.apache.hadoop.hbase.CellComparatorImpl;
+import org.apache.hadoop.hbase.HConstants;
+import org.apache.hadoop.hbase.client.Append;
+import org.apache.hadoop.hbase.client.Result;
+import org.apache.phoenix.jdbc.PhoenixDatabaseMetaData;
+import org.apache.phoenix.query.QueryServicesOptions;
+import org.apache.phoenix.schema.types.PBoolean;
+import org.apache.phoenix.schema.types.PLong;
+import org.apache.phoenix.util.PhoenixKeyValueUtil;
+import org.junit.Test;
+
+import com.google.common.collect.Lists;
+
+public class SequenceTest {
+    private static final long TS = 1000;
+    private static final long CACHE_SIZE = 10;
+
+    private static final SequenceKey KEY = new SequenceKey(null, "S", "SEQ",
+            QueryServicesOptions.DEFAULT_SEQUENCE_TABLE_SALT_BUCKETS);
+
+    private static Cell newCell(byte[] qualifier, byte[] value) {
+        return PhoenixKeyValueUtil.newKeyValue(KEY.getKey(), PhoenixDatabaseMetaData.SYSTEM_SEQUENCE_FAMILY_BYTES,
+                qualifier, TS, value);
+    }
+
+    // Result returned by the server after reserving the values up to (excluding) nextValue
+    private static Result newIncrementResult(long nextValue) {
+        List<Cell> cells = Lists.newArrayList(
+                newCell(PhoenixDatabaseMetaData.CURRENT_VALUE_BYTES, PLong.INSTANCE.toBytes(nextValue)),
+                newCell(PhoenixDatabaseMetaData.INCREMENT_BY_BYTES, PLong.INSTANCE.toBytes(1L)),
+                newCell(PhoenixDatabaseMetaData.CACHE_SIZE_BYTES, PLong.INSTANCE.toBytes(CACHE_SIZE)),
+                newCell(PhoenixDatabaseMetaData.MIN_VALUE_BYTES, PLong.INSTANCE.toBytes(Long.MIN_VALUE)),
+                newCell(PhoenixDatabaseMetaData.MAX_VALUE_BYTES, PLong.INSTANCE.toBytes(Long.MAX_VALUE)),
+                newCell(PhoenixDatabaseMetaData.CYCLE_FLAG_BYTES, PBoolean.INSTANCE.toBytes(false)),
+                newCell(PhoenixDatabaseMetaData.LIMIT_REACHED_FLAG_BYTES, PBoolean.INSTANCE.toBytes(false)));
+        Collections.sort(cells, CellComparatorImpl.COMPARATOR);
+        return Result.create(cells);
+    }
+
+    private static long nextValue(Sequence sequence) throws Exception {
+        return sequence.incrementValue(HConstants.LATEST_TIMESTAMP, Sequence.ValueOp.INCREMENT_SEQUENCE, 1);
+    }
+
+    @Test
+    public void testPrefetchedBlockIsUsedOnceCurrentBlockIsExhausted() throws Exception {
+        Sequence sequence = new Sequence(KEY);
+        assertEquals(1, sequence.incrementValue(newIncrementResult(11), Sequence.ValueOp.INCREMENT_SEQUENCE, 1));
+        for (long i = 2; i <= 7; i++) {
+            assertEquals(i, nextValue(sequence));
+            assertFalse(sequence.shouldPrefetch(HConstants.LATEST_TIMESTAMP, 0.8));
+        }
+        assertEquals(8, nextValue(sequence));
+        assertTrue(sequence.shouldPrefetch(HConstants.LATEST_TIMESTAMP, 0.8));
+        // Only sequences read at the latest timestamp are prefetched
+        assertFalse(sequence.shouldPrefetch(TS + 1, 0.8));
+
+        sequence.setPrefetchInProgress();
+        assertFalse(sequence.shouldPrefetch(HConstants.LATEST_TIMESTAMP, 0.8));
+        sequence.setPrefetchedResult(newIncrementResult(21), 1);
+
+        assertEquals(9, nextValue(sequence));
+        assertEquals(10, nextValue(sequence));
+        // Current block exhausted, so the prefetched block is swapped in without a round trip
+        for (long i = 11; i <= 20; i++) {
+            assertEquals(i, nextValue(sequence));
+        }
+        try {
+            nextValue(sequence);
+            fail("Expected the sequence cache to be empty");
+        } catch (EmptySequenceCacheException expected) {
+        }
+    }
+
+    @Test
+    public void testFailedPrefetchFallsBackToSynchronousIncrement() throws Exception {
+        Sequence sequence = new Sequence(KEY);
+        sequence.incrementValue(newIncrementResult(11), Sequence.ValueOp.INCREMENT_SEQUENCE, 1);
+        sequence.setPrefetchInProgress();
+        sequence.setPrefetchedResult(null, 1);
+        for (long i = 2; i <= 10; i++) {
+            assertEquals(i, nextValue(sequence));
+        }
+        try {
+            nextValue(sequence);
+            fail("Expected the sequence cache to be empty");
+        } catch (EmptySequenceCacheException expected) {
+        }
+    }
+
+    @Test
+    public void testPrefetchOverrunBySynchronousIncrementIsDropped() throws Exception {
+        Sequence sequence = new Sequence(KEY);
+        sequence.incrementValue(newIncrementResult(11), Sequence.ValueOp.INCREMENT_SEQUENCE, 1);
+        sequence.setPrefetchInProgress();
+        for (long i = 2; i <= 10; i++) {
+            assertEquals(i, nextValue(sequence));
+        }
+        // The block ran out before the prefetch of 11 to 20 completed, so 21 to 30 were reserved
+        assertEquals(21, sequence.incrementValue(newIncrementResult(31), Sequence.ValueOp.INCREMENT_SEQUENCE, 1));
+        sequence.setPrefetchedResult(newIncrementResult(21), 1);
+        for (long i = 22; i <= 30; i++) {
+            assertEquals(i, nextValue(sequence));
+        }
+        // The values of the prefetch are behind the ones already handed out
+        try {
+            nextValue(sequence);
+            fail("Expected the sequence cache to be empty");
+        } catch (EmptySequenceCacheException expected) {
+        }
+    }
+
+    @Test
+    public void testPrefetchedBlockIsReturned() throws Exception {
+        Sequence sequence = new Sequence(KEY);
+        sequence.incrementValue(newIncrementResult(11), Sequence.ValueOp.INCREMENT_SEQUENCE, 1);
+        sequence.setPrefetchedResult(newIncrementResult(21), 1);
+        List<Append> returns = sequence.newReturns();
+        assertEquals(1, returns.size());
+        // The whole prefetched block is handed back, rolling the server back to its start
+        Cell currentValue = returns.get(0).getFamilyCellMap()
+                .get(PhoenixDatabaseMetaData.SYSTEM_SEQUENCE_FAMILY_BYTES).get(0);
+        assertEquals(11L, PLong.INSTANCE.toObject(currentValue.getValueArray(), currentValue.getValueOffset(),
+                currentValue.getValueLength()));
+    }
+}
@@ -0,0 +1,174 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.phoenix.schema.stats;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.util.Arrays;
+import java.util.Iterator;
+
+import org.apache.hadoop.hbase.KeyValue;
+import org.apache.hadoop.hbase.client.Scan;
+import org.apache.hadoop.hbase.filter.Filter;
+import org.apache.hadoop.hbase.util.Bytes;
+import org.apache.phoenix.compile.QueryPlan;
+import org.apache.phoenix.expression.Expression;
+import org.apache.phoenix.filter.BooleanExpressionFilter;
+import org.apache.phoenix.jdbc.PhoenixConnection;
+import org.apache.phoenix.jdbc.PhoenixStatement;
+import org.apache.phoenix.query.BaseConnectionlessQueryTest;
+import org.apache.phoenix.schema.PTable;
+import org.apache.phoenix.schema.PTableKey;
+import org.apache.phoenix.schema.types.PInteger;
+import org.apache.phoenix.schema.types.PVarchar;
+import org.apache.phoenix.util.ScanUtil;
+import org.junit.Test;
+
+public class ZoneMapTest extends BaseConnectionlessQueryTest {
+    private static final byte[] FAMILY = Bytes.toBytes("0");
+    private static final byte[] QUALIFIER = Bytes.toBytes("A");
+
+    private static KeyValue newCell(String row, int value) {
+        return new KeyValue(Bytes.toBytes(row), FAMILY, QUALIFIER, 1, PInteger.INSTANCE.toBytes(value));
+    }
+
+    @Test
+    public void testGuidePostRowStartsNextZone() throws Exception {
+        ZoneMap.Builder builder = new ZoneMap.Builder(new byte[0],
+                Arrays.asList(new ZoneMap.Column(FAMILY, QUALIFIER, -1, PInteger.INSTANCE)));
+        builder.startRow();
+        builder.add(newCell("a", 5));
+        builder.startRow();
+        builder.add(newCell("b", -3));
+        builder.startRow();
+        builder.add(newCell("c", 10));
+        ZoneMap first = builder.build(Bytes.toBytes("c"));
+        builder.startRow();
+        builder.add(newCell("d", 7));
+        builder.add(new KeyValue(Bytes.toBytes("d"), FAMILY, QUALIFIER, 1, KeyValue.Type.Delete));
+        ZoneMap second = builder.build(Bytes.toBytes("d"));
+
+        assertArrayEquals(new byte[0], first.getStartKey());
+        assertEquals(-3, PInteger.INSTANCE.toObject(first.getMinValue(0)));
+        assertEquals(10, PInteger.INSTANCE.toObject(first.getMaxValue(0)));
+        // The guidepost row belongs to both zones
+        assertArrayEquals(Bytes.toBytes("c"), second.getStartKey());
+        assertEquals(7, PInteger.INSTANCE.toObject(second.getMinValue(0)));
+        assertEquals(10, PInteger.INSTANCE.toObject(second.getMaxValue(0)));
+
+        ZoneMap third = builder.build(Bytes.toBytes("e"));
+        assertEquals(7, PInteger.INSTANCE.toObject(third.getMinValue(0)));
+        builder.startRow();
+        builder.build(Bytes.toBytes("f"));
+        assertNull(builder.build(Bytes.toBytes("g")).getMinValue(0));
+    }
+
+    @Test
+    public void testSerialization() throws Exception {
+        ZoneMap.Builder builder = new ZoneMap.Builder(Bytes.toBytes("a"), Arrays.asList(
+                new ZoneMap.Column(FAMILY, QUALIFIER, -1, PInteger.INSTANCE),
+                new ZoneMap.Column(FAMILY, Bytes.toBytes("B"), 2, PVarchar.INSTANCE)));
+        builder.startRow();
+        builder.add(newCell("b", 42));
+        byte[] bytes = ZoneMap.toBytes(builder.build(Bytes.toBytes("b")), 1234L);
+        ZoneMap zoneMap = ZoneMap.fromBytes(bytes, 0, bytes.length);
+        assertEquals(1234L, zoneMap.getTimestamp());
+        assertArrayEquals(Bytes.toBytes("a"), zoneMap.getStartKey());
+        assertEquals(2, zoneMap.getColumns().size());
+        assertEquals(-1, zoneMap.getColumns().get(0).getArrayIndex());
+        assertEquals(PInteger.INSTANCE, zoneMap.getColumns().get(0).getType());
+        assertEquals(42, PInteger.INSTANCE.toObject(zoneMap.getMaxValue(0)));
+        assertArrayEquals(Bytes.toBytes("B"), zoneMap.getColumns().get(1).getQualifier());
+        assertEquals(2, zoneMap.getColumns().get(1).getArrayIndex());
+        assertNull(zoneMap.getMinValue(1));
+    }
+
+    @Test
+    public void testPruning() throws Exception {
+        String tableName = "ZONE_MAP_T";
+        try (Connection conn = DriverManager.getConnection(getUrl())) {
+            conn.createStatement().execute("CREATE TABLE " + tableName
+                    + " (k VARCHAR PRIMARY KEY, a INTEGER, b VARCHAR, c INTEGER)");
+            PTable table = conn.unwrap(PhoenixConnection.class).getTable(new PTableKey(null, tableName));
+            ZoneMap.Column a = ZoneMap.Column.newColumn(table, table.getColumnForColumnName("A"));
+            ZoneMap.Column b = ZoneMap.Column.newColumn(table, table.getColumnForColumnName("B"));
+            ZoneMap.Builder builder = new ZoneMap.Builder(new byte[0], Arrays.asList(a, b));
+            builder.startRow();
+            builder.add(new KeyValue(Bytes.toBytes("k1"), a.getFamily(), a.getQualifier(), 1,
+                    PInteger.INSTANCE.toBytes(10)));
+            builder.startRow();
+            builder.add(new KeyValue(Bytes.toBytes("k2"), a.getFamily(), a.getQualifier(), 1,
+                    PInteger.INSTANCE.toBytes(20)));
+            ZoneMap zoneMap = builder.build(Bytes.toBytes("k2"));
+
+            assertTrue(isPruned(conn, zoneMap, tableName, "a > 20"));
+            assertFalse(isPruned(conn, zoneMap, tableName, "a >= 20"));
+            assertTrue(isPruned(conn, zoneMap, tableName, "a < 10"));
+            assertFalse(isPruned(conn, zoneMap, tableName, "a <= 10"));
+            assertTrue(isPruned(conn, zoneMap, tableName, "a = 5"));
+            assertFalse(isPruned(conn, zoneMap, tableName, "a = 15"));
+            assertFalse(isPruned(conn, zoneMap, tableName, "a != 15"));
+            assertTrue(isPruned(conn, zoneMap, tableName, "30 < a"));
+            assertTrue(isPruned(conn, zoneMap, tableName, "a > 25 AND c = 1"));
+            assertFalse(isPruned(conn, zoneMap, tableName, "a > 25 OR c = 1"));
+            assertTrue(isPruned(conn, zoneMap, tableName, "a > 25 OR a < 5"));
+            // No row of the zone has a value for b
+            assertTrue(isPruned(conn, zoneMap, tableName, "b = 'x'"));
+            assertFalse(isPruned(conn, zoneMap, tableName, "c = 1"));
+            assertFalse(isPruned(conn, zoneMap, tableName, "a + 1 > 30"));
+        }
+    }
+
+    @Test
+    public void testPackedColumnsArePruned() throws Exception {
+        try (Connection conn = DriverManager.getConnection(getUrl())) {
+            conn.createStatement().execute("CREATE TABLE ZONE_MAP_PACKED (k VARCHAR PRIMARY KEY,"
+                    + " a INTEGER, b INTEGER) IMMUTABLE_ROWS=true,"
+                    + " IMMUTABLE_STORAGE_SCHEME=SINGLE_CELL_ARRAY_WITH_OFFSETS");
+            PTable table = conn.unwrap(PhoenixConnection.class).getTable(new PTableKey(null, "ZONE_MAP_PACKED"));
+            ZoneMap.Column b = ZoneMap.Column.newColumn(table, table.getColumnForColumnName("B"));
+            assertEquals(2, b.getArrayIndex());
+            ZoneMap zoneMap = new ZoneMap(new byte[0], 0, Arrays.asList(b),
+                    new byte[][] { PInteger.INSTANCE.toBytes(1) }, new byte[][] { PInteger.INSTANCE.toBytes(3) });
+            assertTrue(isPruned(conn, zoneMap, "ZONE_MAP_PACKED", "b > 3"));
+            assertFalse(isPruned(conn, zoneMap, "ZONE_MAP_PACKED", "a > 3"));
+        }
+    }
+
+    private static boolean isPruned(Connection conn, ZoneMap zoneMap, String tableName, String where)
+            throws Exception {
+        PhoenixStatement statement = conn.createStatement().unwrap(PhoenixStatement.class);
+        QueryPlan plan = statement.compileQuery("SELECT k FROM " + tableName + " WHERE " + where);
+        Scan scan = plan.getContext().getScan();
+        Iterator<Filter> filters = ScanUtil.getFilterIterator(scan);
+        while (filters.hasNext()) {
+            Filter filter = filters.next();
+            if (filter instanceof BooleanExpressionFilter) {
+                Expression expression = ((BooleanExpressionFilter) filter).getExpression();
+                return zoneMap.isPruned(expression);
+            }
+        }
+        return false;
+    }
+}